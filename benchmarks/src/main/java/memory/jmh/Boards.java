@@ -0,0 +1,73 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+
+/**
+ * Boards shared by the benchmarks.
+ * @author davidmagrefty
+ *
+ */
+final class Boards {
+
+    private Boards() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Write a board file of rows x cols cards which all differ, so that flips never
+     * match and the board stays whole however long it is played.
+     *
+     * @param rows rows of the board, > 0
+     * @param cols columns of the board, > 0
+     * @return a new temporary file, deleted on exit
+     * @throws IOException if an error occurs writing the file
+     */
+    static Path writeDistinct(int rows, int cols) throws IOException {
+        return write(rows, cols, rows * cols);
+    }
+
+    /**
+     * Write a board file of rows x cols cards of values distinct values, card i
+     * having value i modulo values.
+     *
+     * @param rows rows of the board, > 0
+     * @param cols columns of the board, > 0
+     * @param values number of distinct values, > 0
+     * @return a new temporary file, deleted on exit
+     * @throws IOException if an error occurs writing the file
+     */
+    static Path write(int rows, int cols, int values) throws IOException {
+        final Path file = Files.createTempFile("board", ".txt");
+        file.toFile().deleteOnExit();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println(rows + "x" + cols);
+            for (int card = 0; card < rows * cols; card++) {
+                out.println("c" + Integer.toString(card % values, Character.MAX_RADIX));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @param size width and height of the board, > 0
+     * @param engine engine of the board
+     * @param layout layout of the board
+     * @return a new size x size board whose cards all differ
+     * @throws IOException if an error occurs writing or parsing its file
+     */
+    static Board distinct(int size, Engine engine, Layout layout) throws IOException {
+        final Path file = writeDistinct(size, size);
+        try {
+            return Board.parseFromFile(file.toString(), engine, layout);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Throughput of {@link Board#flipCard(Player, int, int)} contended on a few hot
+ * cards: every thread flips one of HOT cards first, waiting by rule 1D while
+ * another player controls it, then a card of its own which never matches and
+ * releases both. Run with -t N for N threads (default 4).
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContendedFlipBenchmark {
+
+    /**
+     * The board played by every thread.
+     */
+    @State(Scope.Benchmark)
+    public static class Game {
+
+        @Param({ "MONITOR", "LOCK_FREE", "ACTOR" })
+        public Engine engine;
+
+        @Param({ "1", "2", "16" })
+        public int hot;
+
+        @Param({ "100" })
+        public int size;
+
+        Board board;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            board = Boards.distinct(size, engine, Layout.PACKED);
+        }
+    }
+
+    /**
+     * The player of a thread, its hot card and its own card.
+     */
+    @State(Scope.Thread)
+    public static class Own {
+        Player player;
+        int hotCard;
+        int ownCard;
+
+        @Setup(Level.Trial)
+        public void setUp(Game game, ThreadParams thread) {
+            ownCard = game.hot + thread.getThreadIndex();
+            if (ownCard >= game.size * game.size) {
+                throw new IllegalArgumentException("too many threads for a " + game.size + "x" + game.size + " board");
+            }
+            player = new Player("p" + thread.getThreadIndex());
+            hotCard = thread.getThreadIndex() % game.hot;
+        }
+    }
+
+    /**
+     * Flip a hot card then a card of its own.
+     *
+     * @param game the board
+     * @param own the player and its cards
+     * @throws InterruptedException if interrupted while waiting for the hot card
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void hotCards(Game game, Own own) throws InterruptedException {
+        final int size = game.size;
+        game.board.flipCard(own.player, own.hotCard / size, own.hotCard % size);
+        game.board.flipCard(own.player, own.ownCard / size, own.ownCard % size);
+    }
+}
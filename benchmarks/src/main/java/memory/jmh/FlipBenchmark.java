@@ -0,0 +1,100 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Throughput of {@link Board#flipCard(Player, int, int)} without contention:
+ * every thread plays its own player on two cards of its own, so flips never
+ * wait for each other but for the engine itself.
+ * Run with -t N for N threads, the board must have 2N cards.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlipBenchmark {
+
+    /**
+     * The board played by every thread.
+     */
+    @State(Scope.Benchmark)
+    public static class Game {
+
+        @Param({ "MONITOR", "LOCK_FREE", "ACTOR" })
+        public Engine engine;
+
+        @Param({ "10", "100", "1000" })
+        public int size;
+
+        @Param({ "OBJECTS", "PACKED" })
+        public Layout layout;
+
+        Board board;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            board = Boards.distinct(size, engine, layout);
+        }
+    }
+
+    /**
+     * The player of a thread and its two cards.
+     */
+    @State(Scope.Thread)
+    public static class Own {
+        Player player;
+        int row;
+        int first;
+        int second;
+
+        @Setup(Level.Trial)
+        public void setUp(Game game, ThreadParams thread) {
+            final int card = 2 * thread.getThreadIndex();
+            if (card + 1 >= game.size * game.size) {
+                throw new IllegalArgumentException("too many threads for a " + game.size + "x" + game.size + " board");
+            }
+            player = new Player("p" + thread.getThreadIndex());
+            row = card / game.size;
+            first = card % game.size;
+            second = first + 1;
+        }
+    }
+
+    /**
+     * Flip a pair of cards which do not match, relinquishing the previous pair.
+     *
+     * @param game the board
+     * @param own the player and its cards
+     * @throws InterruptedException never, no other player flips these cards
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void uncontended(Game game, Own own) throws InterruptedException {
+        game.board.flipCard(own.player, own.row, own.first);
+        game.board.flipCard(own.player, own.row, own.second);
+    }
+}
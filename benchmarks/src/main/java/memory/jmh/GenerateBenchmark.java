@@ -0,0 +1,62 @@
+package memory.jmh;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+
+/**
+ * Time of {@link Board#generateRandom(int, int, Set, Engine, Layout, long)} on
+ * boards of 26 distinct cards, which shuffles in parallel on large boards.
+ * Run with -t N for N threads generating at once.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenerateBenchmark {
+
+    @Param({ "100", "1000", "3000" })
+    public int size;
+
+    @Param({ "OBJECTS", "PACKED" })
+    public Layout layout;
+
+    private final Set<String> cards = new HashSet<>();
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (char value = 'A'; value <= 'Z'; value++) {
+            cards.add(String.valueOf(value));
+        }
+    }
+
+    /**
+     * @return a new random board
+     */
+    @Benchmark
+    public Board generateRandom() {
+        return Board.generateRandom(size, size, cards, Engine.MONITOR, layout, seed++);
+    }
+}
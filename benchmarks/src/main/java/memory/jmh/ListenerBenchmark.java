@@ -0,0 +1,94 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Cost of notifying the listeners of a board of a change, with many listeners:
+ * {@code publish} is the time of a flip changing the board, which only
+ * publishes the change to the delivery threads, and {@code deliver} the time
+ * until every listener received the board after it.
+ * A single thread flips, the listeners run on the delivery threads of the board.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ListenerBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    public int listeners;
+
+    @Param({ "10", "100" })
+    public int size;
+
+    private Board board;
+    private final Player flipper = new Player("flipper");
+    private final LongAdder delivered = new LongAdder();
+    private long expected;
+    private int flips;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        board = Boards.distinct(size, Engine.MONITOR, Layout.PACKED);
+        for (int listener = 0; listener < listeners; listener++) {
+            board.addListener(new Player("w" + listener), boardString -> delivered.increment());
+        }
+    }
+
+    /*
+     * Flip the next of the first two cards, every flip changes the board
+     */
+    private void flip() throws InterruptedException {
+        board.flipCard(flipper, 0, flips++ & 1);
+    }
+
+    /**
+     * Flip a card, publishing the change to the listeners.
+     *
+     * @throws InterruptedException never, no other player flips
+     */
+    @Benchmark
+    public void publish() throws InterruptedException {
+        flip();
+    }
+
+    /**
+     * Flip a card and wait until every listener received the change.
+     *
+     * @throws InterruptedException never, no other player flips
+     */
+    @Benchmark
+    public void deliver() throws InterruptedException {
+        expected = Math.max(expected, delivered.sum()) + listeners;
+        flip();
+        while (delivered.sum() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
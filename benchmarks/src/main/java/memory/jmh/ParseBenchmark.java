@@ -0,0 +1,64 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+
+/**
+ * Time of {@link Board#parseFromFile(String, Engine, Layout)} on large board
+ * files of at most VALUES distinct values: from 26, as most boards, to one per
+ * card up to 1000x1000.
+ * Run with -t N for N threads parsing at once.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({ "100", "1000", "3000" })
+    public int size;
+
+    @Param({ "26", "1000000" })
+    public int values;
+
+    @Param({ "OBJECTS", "PACKED" })
+    public Layout layout;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Boards.write(size, size, values);
+    }
+
+    /**
+     * @return the board parsed
+     * @throws IOException if an error occurs reading the file
+     */
+    @Benchmark
+    public Board parseFromFile() throws IOException {
+        return Board.parseFromFile(file.toString(), Engine.MONITOR, layout);
+    }
+}
@@ -0,0 +1,40 @@
+package memory.jmh;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks once for each of several thread counts, as JMH only takes one.
+ *
+ * <p> Command-line usage:
+ * <pre> java -cp benchmarks.jar memory.jmh.ThreadSweep REGEX THREADS,... [JMH OPTION...] </pre>
+ * runs the benchmarks matching REGEX with each number of THREADS, e.g.
+ * {@code Flip 1,2,4,8}, and any other JMH command-line options.
+ * @author davidmagrefty
+ *
+ */
+public class ThreadSweep {
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args arguments as described above
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if a JMH option is invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("expected REGEX THREADS,... [JMH OPTION...]");
+        }
+        final String[] rest = new String[args.length - 2];
+        System.arraycopy(args, 2, rest, 0, rest.length);
+        final CommandLineOptions options = new CommandLineOptions(rest);
+        for (String threads : args[1].split(",")) {
+            new Runner(new OptionsBuilder().parent(options).include(args[0])
+                    .threads(Integer.parseInt(threads)).build()).run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Time of the rule 1D wait and wake path: two players pass one card back and
+ * forth, each taking it as its first card, waiting while the other controls it,
+ * then relinquishing it with a second card which does not match, which wakes
+ * the other. Every operation is one handoff of the card, so its time is the
+ * latency of waking a waiting player. Each group is two threads, run with -tg
+ * for more groups on boards of their own cards.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitWakeBenchmark {
+
+    /**
+     * The card passed between the players of a group.
+     */
+    @State(Scope.Group)
+    public static class Handoff {
+
+        @Param({ "MONITOR", "LOCK_FREE", "ACTOR" })
+        public Engine engine;
+
+        Board board;
+        final Player ping = new Player("ping");
+        final Player pong = new Player("pong");
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            board = Boards.distinct(2, engine, Layout.PACKED);
+        }
+    }
+
+    /**
+     * Take the shared card, then relinquish it with a card of its own.
+     *
+     * @param handoff the board and players of the group
+     * @throws InterruptedException if interrupted while waiting for the card
+     */
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void ping(Handoff handoff) throws InterruptedException {
+        handoff.board.flipCard(handoff.ping, 0, 0);
+        handoff.board.flipCard(handoff.ping, 1, 0);
+    }
+
+    /**
+     * Take the shared card, then relinquish it with a card of its own.
+     *
+     * @param handoff the board and players of the group
+     * @throws InterruptedException if interrupted while waiting for the card
+     */
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void pong(Handoff handoff) throws InterruptedException {
+        handoff.board.flipCard(handoff.pong, 0, 0);
+        handoff.board.flipCard(handoff.pong, 1, 1);
+    }
+}
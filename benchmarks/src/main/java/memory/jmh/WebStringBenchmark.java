@@ -0,0 +1,69 @@
+package memory.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Time of {@link Board#webString(Player)} on boards from 3x3 to 1000x1000, with
+ * a card of the viewer, and about one card in ten face up. Run with -t N for N
+ * threads rendering the same board.
+ * @author davidmagrefty
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebStringBenchmark {
+
+    @Param({ "3", "10", "100", "1000" })
+    public int size;
+
+    @Param({ "OBJECTS", "PACKED" })
+    public Layout layout;
+
+    private Board board;
+    private final Player viewer = new Player("viewer");
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        board = Boards.distinct(size, Engine.MONITOR, layout);
+        final int cards = size * size;
+        final int step = 10;
+        for (int card = 1; card + step < cards; card += 2 * step) {
+            // one player per pair, face up and relinquished as they do not match
+            final Player player = new Player("p" + card);
+            board.flipCard(player, card / size, card % size);
+            board.flipCard(player, (card + step) / size, (card + step) % size);
+        }
+        board.flipCard(viewer, 0, 0);
+    }
+
+    /**
+     * @return the board as seen by the viewer
+     */
+    @Benchmark
+    public String webString() {
+        return board.webString(viewer);
+    }
+}
@@ -0,0 +1,477 @@
+package memory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flip engine where a single writer applies every flip of a board in turn, so
+ * the rules take no lock and no compare-and-set.
+ *
+ * Flips are published as commands to a bounded ring, in the style of a
+ * disruptor: a player claims the next slot with one atomic increment and fills
+ * it. The thread that finds no writer at work becomes the writer, applies the
+ * published commands in order as one batch, publishes the cards the batch
+ * changed to the readers of the board at once, and completes the flips of the
+ * batch after it stopped being the writer. There is no writer thread, an idle
+ * board costs nothing.
+ * A player blocked by rule 1D is a command queued on the card by the writer,
+ * and resumed by the writer which releases or removes the card.
+ * With a {@link FlipLog}, the writer also appends the cards and players each
+ * batch changed to the log, and the flips of the batch complete once durable.
+ * @author davidmagrefty
+ *
+ */
+class ActorEngine implements FlipEngine {
+
+    /** number of slots of the command ring, a power of two */
+    static final int RING = 1024;
+
+    /*
+     * A flip published to the ring, or the cancellation of a blocked flip
+     */
+    private static final class Command {
+        private final Player player;
+        private final Card card;
+        private final Command cancelled;
+        private final CompletableFuture<Void> flipped = new CompletableFuture<>();
+        private RuntimeException failure;
+
+        private Command(Player player, Card card, Command cancelled) {
+            this.player = player;
+            this.card = card;
+            this.cancelled = cancelled;
+        }
+    }
+
+    private final Board board;
+    private final AtomicReferenceArray<Command> ring = new AtomicReferenceArray<>(RING);
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long applied;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final Map<Card, Deque<Command>> blocked = new HashMap<>();
+    private volatile int blockedCards;
+    private final List<Card> changed = new ArrayList<>();
+    private final List<Command> done = new ArrayList<>();
+    private volatile FlipLog log;
+    private volatile long batches;
+    private final Set<Card> loggedCards = new LinkedHashSet<>();
+    private final Set<Player> loggedPlayers = new LinkedHashSet<>();
+
+    // Abstraction function:
+    //      AF(board, ring, claimed, applied, writing, blocked, blockedCards, changed,
+    //         done, log, batches, loggedCards, loggedPlayers) = the rules of
+    //              the game applied to the cards of board, one command at a time in the
+    //              order of the commands claimed, where the commands with sequence numbers
+    //              applied..claimed-1 are not applied yet and command s is in slot
+    //              s % RING of ring once published, blocked.get(c) are the players blocked
+    //              by rule 1D on card c in the order they came, blockedCards the size of
+    //              blocked after the last batch, and changed are the cards
+    //              changed and done the flips finished by the batch being applied, whose
+    //              changed cards and players are loggedCards and loggedPlayers if it is
+    //              written to log, after the batches finished before it
+    // Representation invariant:
+    //      board != null
+    //      0 <= claimed - applied <= RING
+    //      every queue of blocked is not empty, and its card is controlled
+    //      changed, done, loggedCards and loggedPlayers are empty unless writing
+    //      loggedCards and loggedPlayers are empty if log is null
+    // Safety from rep exposure:
+    //      All fields are private, commands and their queues are never returned,
+    //      only the futures of flips
+    // Thread safety argument:
+    //      Only one thread at a time is the writer, the one which set writing, and
+    //      only the writer changes cards, players with a flip in the ring, applied,
+    //      blocked, blockedCards, changed, done, batches and the logged sets. Setting and clearing writing is a volatile write,
+    //      so each writer sees what the writers before it did.
+    //      A slot is claimed by one atomic increment of claimed, only while the ring
+    //      is not full, and published by a volatile write of the slot. The writer
+    //      stops at the first slot not published yet: the player who claimed it
+    //      tries to become the writer after publishing, and a writer looks at the
+    //      next slot again after it stopped being the writer, so no published
+    //      command is left behind.
+    //      Flips are completed outside the writer, so the continuations of callers
+    //      never hold up the other players of the board.
+    //      Batches are appended to the log by the writer, so in the order applied, and
+    //      the log completes their flips once durable on its own thread. Readers of
+    //      the log position never become the writer, they wait until batches or
+    //      writing changes, both volatile.
+
+    ActorEngine(Board board) {
+        this.board = board;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert board != null;
+    }
+
+    /**
+     * Append the outcome of every batch of flips to log from now on, and complete
+     * each flip once its batch is durable. Must be called before any flip.
+     * @param log log of the rule outcomes of the board of this engine
+     */
+    void journal(FlipLog log) {
+        this.log = log;
+    }
+
+    /**
+     * @return the log of the rule outcomes of the board of this engine, or null
+     *         if they are not logged
+     */
+    FlipLog log() {
+        return log;
+    }
+
+    /**
+     * Requires the rule outcomes to be logged, see {@link #journal(FlipLog)}.
+     * 
+     * @return position of the log once the batch being applied, if any, is
+     *         appended to it. Waits for that batch without taking part in
+     *         applying flips
+     */
+    long logPosition() {
+        final FlipLog journal = log;
+        assert journal != null;
+        // a batch is appended before it is counted and writing is cleared, so
+        // once either happens the batch being applied now is in the log
+        if (writing.get()) {
+            final long seen = batches;
+            while (batches == seen && writing.get()) {
+                Thread.onSpinWait();
+            }
+        }
+        return journal.position();
+    }
+
+    @Override
+    public void flipCard(Player player, Card cardToFlip) throws InterruptedException {
+        final Command command = new Command(player, cardToFlip, null);
+        publish(command);
+        try {
+            command.flipped.get();
+        } catch (InterruptedException ie) {
+            // give up unless the card was handed over or the flip finished meanwhile
+            publish(new Command(player, cardToFlip, command));
+            try {
+                command.flipped.join();
+            } catch (CancellationException cancelled) {
+                throw ie;
+            } catch (CompletionException failed) {
+                // finished meanwhile but failed, thrown as if never interrupted
+                Thread.currentThread().interrupt();
+                throw (RuntimeException) failed.getCause();
+            }
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flipCardAsync(Player player, Card cardToFlip) {
+        final Command command = new Command(player, cardToFlip, null);
+        publish(command);
+        return command.flipped;
+    }
+
+    /*
+     * Publish command to the next slot of the ring, helping the writer while the
+     * ring is full, then apply the published commands unless another thread is
+     * the writer.
+     */
+    private void publish(Command command) {
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - applied >= RING) {
+                write();
+                Thread.onSpinWait();
+            } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        ring.set(slot(sequence), command);
+        write();
+    }
+
+    private static int slot(long sequence) {
+        return (int) (sequence & (RING - 1));
+    }
+
+    /*
+     * Become the writer and apply batches of published commands, until there is
+     * none left or another thread is the writer.
+     */
+    private void write() {
+        while (ring.get(slot(applied)) != null && writing.compareAndSet(false, true)) {
+            final Command[] finished;
+            boolean logged = false;
+            try {
+                applyBatch();
+            } finally {
+                finished = done.toArray(new Command[0]);
+                done.clear();
+                try {
+                    logged = logBatch(finished);
+                } finally {
+                    // only the writer counts, read by logPosition()
+                    batches++;
+                    writing.set(false);
+                }
+            }
+            if (!logged) {
+                complete(finished, null);
+            }
+        }
+    }
+
+    /*
+     * Append the cards and players changed by the batch to the log, which completes
+     * the finished flips once durable. Called by the writer only.
+     * @return whether the batch was appended
+     */
+    private boolean logBatch(Command[] finished) {
+        final FlipLog journal = log;
+        if (journal == null || (loggedCards.isEmpty() && loggedPlayers.isEmpty())) {
+            return false;
+        }
+        final byte[] record = FlipLog.record(loggedCards, loggedPlayers);
+        loggedCards.clear();
+        loggedPlayers.clear();
+        journal.append(record, failure -> complete(finished, failure));
+        return true;
+    }
+
+    /*
+     * Complete flips, with failure unless it is null
+     */
+    private static void complete(Command[] finished, Throwable failure) {
+        for (Command command : finished) {
+            if (command.failure != null) {
+                command.flipped.completeExceptionally(command.failure);
+            } else if (command.cancelled != null) {
+                continue;
+            } else if (failure != null) {
+                command.flipped.completeExceptionally(failure);
+            } else {
+                command.flipped.complete(null);
+            }
+        }
+    }
+
+    /*
+     * Apply the commands published in the ring, at most RING of them, and publish
+     * the changed cards. Called by the writer only.
+     */
+    private void applyBatch() {
+        for (int ii = 0; ii < RING; ii++) {
+            final int slot = slot(applied);
+            final Command command = ring.get(slot);
+            if (command == null) {
+                break;
+            }
+            // ordered before the volatile write of applied which frees the slot
+            ring.lazySet(slot, null);
+            applied++;
+            try {
+                if (command.cancelled != null) {
+                    cancel(command.cancelled);
+                } else {
+                    flip(command);
+                }
+            } catch (RuntimeException e) {
+                command.failure = e;
+                done.add(command);
+            }
+        }
+        if (!changed.isEmpty()) {
+            board.cardsChanged(changed.toArray(new Card[0]));
+            changed.clear();
+        }
+        // read by other threads, blocked is the writer's own
+        blockedCards = blocked.size();
+        checkRep();
+    }
+
+    /*
+     * A blocked player gave up
+     */
+    private void cancel(Command command) {
+        final Deque<Command> line = blocked.get(command.card);
+        if (line != null && line.remove(command)) {
+            if (line.isEmpty()) {
+                blocked.remove(command.card);
+            }
+            command.flipped.cancel(false);
+        }
+    }
+
+    /*
+     * All the rules for one flip
+     */
+    private void flip(Command command) {
+        final Player player = command.player;
+        final Card cardToFlip = command.card;
+        logged(player);
+        player.markAttempted();
+        if (player.getState().equals(PlayerState.TWO_CARDS_MATCH)) {
+            // 3A: both matching cards are removed, blocked players fail by 1A
+            final List<Card> orderedCards = player.getCards();
+            player.resetCardList();
+            for (Card card : orderedCards) {
+                setState(card, CardState.REMOVED);
+                changed.add(card);
+                final Deque<Command> line = blocked.remove(card);
+                if (line != null) {
+                    done.addAll(line);
+                }
+            }
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.TWO_CARDS_NO_MATCH)) {
+            // 3B: each card still on the board, face up and not controlled
+            // is turned face down
+            for (Card card : player.getCards()) {
+                turnDownIfUncontrolled(card);
+            }
+            player.resetCardList();
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.ONE_CARD_INVALID)) {
+            // 3B: same as above for the single card left face up
+            turnDownIfUncontrolled(player.getFirstCard());
+            player.resetCardList();
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.ONE_CARD_VALID)) {
+            flipSecondCard(player, cardToFlip);
+            done.add(command);
+            return;
+        }
+        final CardState current = cardToFlip.getState();
+        // 1A: no card there, the operation fails
+        if (current.isRemoved()) {
+            done.add(command);
+            return;
+        }
+        // 1D: controlled by another player, wait in line for the card
+        if (current.isOwned()) {
+            blocked.computeIfAbsent(cardToFlip, card -> new ArrayDeque<>()).add(command);
+            return;
+        }
+        // 1B: face down turns face up and the player controls it
+        // 1C: face up and not controlled, the player controls it
+        take(player, cardToFlip, current);
+        done.add(command);
+    }
+
+    /*
+     * Rules 2A-2E, player controls exactly one card
+     */
+    private void flipSecondCard(Player player, Card cardToFlip) {
+        final Card firstCard = player.getFirstCard();
+        final CardState current = cardToFlip.getState();
+        // 2A: no card there, 2B: controlled by a player (maybe themselves), the
+        // operation fails and the player relinquishes control of the first card
+        if (current.isRemoved() || current.isOwned()) {
+            release(firstCard);
+            player.setState(PlayerState.ONE_CARD_INVALID);
+            return;
+        }
+        // 2C: face down turns face up, in any case the player controls it
+        setState(cardToFlip, player.controlledState());
+        if (!current.isFaceUp()) {
+            changed.add(cardToFlip);
+        }
+        player.holdCard(cardToFlip);
+        // 2D: the cards match, the player keeps both and scores a point
+        if (firstCard.matches(cardToFlip)) {
+            player.setState(PlayerState.TWO_CARDS_MATCH);
+            player.incrementScore();
+        }
+        // 2E: no match, the player relinquishes control of both, they remain face up
+        else {
+            release(firstCard);
+            release(cardToFlip);
+            player.setState(PlayerState.TWO_CARDS_NO_MATCH);
+        }
+    }
+
+    /*
+     * Hand a card its controller relinquished to the first player blocked on it,
+     * or leave it face up and not controlled
+     */
+    private void release(Card card) {
+        final Deque<Command> line = blocked.get(card);
+        if (line == null) {
+            setState(card, CardState.UP);
+            return;
+        }
+        final Command next = line.poll();
+        if (line.isEmpty()) {
+            blocked.remove(card);
+        }
+        take(next.player, card, CardState.UP);
+        done.add(next);
+    }
+
+    /*
+     * Give player control of card, which is in state current
+     */
+    private void take(Player player, Card card, CardState current) {
+        logged(player);
+        setState(card, player.controlledState());
+        player.holdCard(card);
+        player.setState(PlayerState.ONE_CARD_VALID);
+        if (!current.isFaceUp()) {
+            changed.add(card);
+        }
+    }
+
+    /*
+     * Turn card face down if it is on the board, face up and not controlled
+     */
+    private void turnDownIfUncontrolled(Card card) {
+        if (card.getState() == CardState.UP) {
+            setState(card, CardState.DOWN);
+            changed.add(card);
+        }
+    }
+
+    /*
+     * Replace the state of card, and log it with the batch
+     */
+    private void setState(Card card, CardState state) {
+        card.setState(state);
+        if (log != null) {
+            loggedCards.add(card);
+        }
+    }
+
+    /*
+     * Log player with the batch, which may change it
+     */
+    private void logged(Player player) {
+        if (log != null) {
+            loggedPlayers.add(player);
+        }
+    }
+
+    @Override
+    public int blockedCards() {
+        return blockedCards;
+    }
+}
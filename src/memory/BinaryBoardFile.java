@@ -0,0 +1,219 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary board files, loaded by mapping them so that a board of millions of
+ * cells is ready without parsing a line per card.
+ *
+ * A binary board file is, in little endian:
+ * <pre>
+ *   MAGIC       4 bytes "MBRD"
+ *   VERSION     int, 1
+ *   ROWS COLS   int, int
+ *   WIDTH       int, bytes per value id: 1, 2 or 4
+ *   VALUES      int, number of distinct card values
+ *   VALUES times:
+ *     LENGTH    int, then LENGTH bytes of the value in UTF-8
+ *   padding     0 to 7 zero bytes, so the ids start at a multiple of 8
+ *   IDS         ROWS*COLS value ids of WIDTH bytes each, in card number order
+ * </pre>
+ * The ids are mapped read-only and read by the grid of the board in place.
+ * @author davidmagrefty
+ *
+ */
+class BinaryBoardFile {
+
+    /** first bytes of every binary board file, never the start of a text board file */
+    static final byte[] MAGIC = { 'M', 'B', 'R', 'D' };
+
+    /** version of the format written by this class */
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 24;
+    private static final int ALIGNMENT = 8;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private BinaryBoardFile() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * @param file path to a file
+     * @return true iff file starts like a binary board file
+     * @throws IOException if an error occurs reading the file
+     */
+    static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // keep reading
+            }
+            return ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        }
+    }
+
+    /**
+     * Load a binary board file. Its value ids are trusted to have been written by
+     * {@link #write(CardGrid, Path)}, only the structure of the file is checked.
+     *
+     * @param file path to a binary board file
+     * @param layout how the grid keeps its cards in memory, or null to pick one by
+     *               the size of the board. A packed grid reads the ids mapped from
+     *               the file, in place
+     * @return a grid of the cards of the file, all face down
+     * @throws IOException if an error occurs reading the file, or it is not a
+     *                     binary board file
+     */
+    static CardGrid load(Path file, Layout layout) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("missing header in " + file);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) {
+                throw new IOException("not a binary board file " + file);
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported binary board version " + version + " in " + file);
+            }
+            final int rows = header.getInt();
+            final int cols = header.getInt();
+            final int width = header.getInt();
+            final int valueCount = header.getInt();
+            final long cells = (long) rows * cols;
+            if (rows <= 0 || cols <= 0 || cells > Integer.MAX_VALUE - 8) {
+                throw new IOException("invalid board size " + rows + "x" + cols);
+            }
+            if ((width != 1 && width != 2 && width != 4) || valueCount <= 0
+                    || (width < 4 && valueCount > 1 << (8 * width))) {
+                throw new IOException("invalid value ids in " + file);
+            }
+
+            // the dictionary is small, read it without mapping
+            final List<String> values = new ArrayList<>(valueCount);
+            long position = HEADER_BYTES;
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 0; id < valueCount; id++) {
+                readFully(channel, length.clear(), position, file);
+                final int bytes = length.getInt(0);
+                if (bytes < 0 || position + Integer.BYTES + bytes > size) {
+                    throw new IOException("invalid card value " + id + " in " + file);
+                }
+                final ByteBuffer value = ByteBuffer.allocate(bytes);
+                readFully(channel, value, position + Integer.BYTES, file);
+                values.add(new String(value.array(), UTF_8));
+                position += Integer.BYTES + bytes;
+            }
+
+            final long idsStart = align(position);
+            final long idsBytes = cells * width;
+            if (idsStart + idsBytes > size) {
+                throw new IOException("expected " + rows + "x" + cols + " cards in " + file);
+            }
+            if (idsBytes > Integer.MAX_VALUE) {
+                throw new IOException("board too large to map in " + file);
+            }
+            final ValueIds ids = ValueIds.wrap(
+                    channel.map(FileChannel.MapMode.READ_ONLY, idsStart, idsBytes), (int) cells, width);
+            final Layout chosen = layout != null ? layout : Layout.forSize(cells);
+            return GridBuilder.grid(rows, cols, new CardDictionary(values), ids, chosen);
+        }
+    }
+
+    /**
+     * Write the cards of a grid as a binary board file, replacing file if it exists.
+     *
+     * @param grid the cards to write, their states are not written
+     * @param file path of the binary board file
+     * @throws IOException if an error occurs writing the file
+     */
+    static void write(CardGrid grid, Path file) throws IOException {
+        final CardDictionary dictionary = grid.dictionary();
+        final int width = dictionary.size() <= 1 << 8 ? 1 : dictionary.size() <= 1 << 16 ? 2 : 4;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC).putInt(VERSION).putInt(grid.rows()).putInt(grid.cols())
+                    .putInt(width).putInt(dictionary.size());
+            long position = HEADER_BYTES;
+            for (int id = 0; id < dictionary.size(); id++) {
+                final byte[] value = dictionary.utf8(id);
+                if (buffer.remaining() < Integer.BYTES + value.length) {
+                    writeFully(channel, buffer);
+                    if (buffer.capacity() < Integer.BYTES + value.length) {
+                        buffer = ByteBuffer.allocate(Integer.BYTES + value.length).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                buffer.putInt(value.length).put(value);
+                position += Integer.BYTES + value.length;
+            }
+            if (buffer.remaining() < ALIGNMENT) {
+                // a value may have filled the buffer up to its end
+                writeFully(channel, buffer);
+            }
+            for (long pad = position; pad < align(position); pad++) {
+                buffer.put((byte) 0);
+            }
+            final int cells = grid.rows() * grid.cols();
+            for (int card = 0; card < cells; card++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    writeFully(channel, buffer);
+                }
+                final int id = grid.valueId(card);
+                switch (width) {
+                case 1:
+                    buffer.put((byte) id);
+                    break;
+                case 2:
+                    buffer.putShort((short) id);
+                    break;
+                default:
+                    buffer.putInt(id);
+                }
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /*
+     * Write the bytes put in buffer so far, and clear it
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /*
+     * Fill buffer with the bytes of the file at position
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path file) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                throw new IOException("unexpected end of " + file);
+            }
+        }
+    }
+
+}
@@ -3,17 +3,14 @@
  */
 package memory;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+import memory.replay.FlipRecorder;
 
 /**
  * Board is a Mutable and threadsafe ADT which represents a board in a memory game
@@ -33,26 +30,39 @@ public class Board {
      * @throws IOException if an error occurs reading or parsing the file
      */
     public static Board parseFromFile(String filename) throws IOException {
-        BufferedReader boardReader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(filename)), "UTF-8"));
-        String boardSize = boardReader.readLine();
-        String[] sizes = boardSize.split("x");
-        final int rows = Integer.parseInt(sizes[0]);
-        final int cols = Integer.parseInt(sizes[1]);
-        Card[][] board = new Card[rows][cols];
-        // create card grid
-        int cardNum = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                String cardString = boardReader.readLine();
-                board[i][j] = new Card(cardString, cardNum);
-                cardNum++;
-            }
+        return parseFromFile(filename, Engine.MONITOR);
+    }
+    
+    /**
+     * Make a new board by parsing a file.
+     * 
+     * @param filename path to a game board file
+     * @param engine the engine applying the flip rules on the board
+     * @return a new board with the size and cards from the given file
+     * @throws IOException if an error occurs reading or parsing the file
+     */
+    public static Board parseFromFile(String filename, Engine engine) throws IOException {
+        return parseFromFile(filename, engine, null);
+    }
+    
+    /**
+     * Make a new board by parsing a file, either a text board file or a binary
+     * board file written by {@link BoardConverter}.
+     * 
+     * @param filename path to a game board file
+     * @param engine the engine applying the flip rules on the board
+     * @param layout how the board keeps its cards in memory, or null to pick
+     *               one by the size of the board
+     * @return a new board with the size and cards from the given file
+     * @throws IOException if an error occurs reading or parsing the file
+     */
+    public static Board parseFromFile(String filename, Engine engine, Layout layout) throws IOException {
+        final Path file = Paths.get(filename);
+        if (BinaryBoardFile.isBinary(file)) {
+            return new Board(BinaryBoardFile.load(file, layout), engine);
         }
-        // close reader
-        boardReader.close();
-
-        return new Board(board, rows, cols);
-
+        final GridBuilder builder = BoardFileParser.parse(file);
+        return new Board(builder.build(layoutFor(layout, builder.rows(), builder.cols())), engine);
     }
     
     /**
@@ -65,315 +75,459 @@ public class Board {
      *         of the given cards repeated in as equal numbers as possible
      */
     public static Board generateRandom(int rows, int columns, Set<String> cards) {
-        final int possibleCards = cards.size();
-        final int totalSpots = rows*columns;
-        final List<String> cardsList =  new ArrayList<String>();
-        
-        final int cardRepetition = totalSpots / possibleCards;
-        
-        // Adding all cards with rep
-        for (String card: cards) {
-            for (int rep = 0; rep < cardRepetition; rep++) {
-                cardsList.add(card);
-            }
-        }
-        
-        // Handling left overs
-        final int leftOver = totalSpots - cardsList.size();
-        List<String> allCards = new ArrayList<String>(cards);
-        for (int i = 0; i < leftOver; i++) {
-            Collections.shuffle(allCards);
-            cardsList.add(allCards.get(0));
-        }
-        
-        Collections.shuffle(cardsList);
-        Card[][] board = new Card[rows][columns];
-        int cardIndex = 0;
-        for (int i=0; i<rows; i++) {
-            for (int j=0; j<columns; j++) {
-                board[i][j] = new Card(cardsList.get(cardIndex), cardIndex);
-                cardIndex++;       
-            }
-        }
-        return new Board(board, rows, columns);
-        
-        
-        
+        return generateRandom(rows, columns, cards, Engine.MONITOR);
+    }
+    
+    /**
+     * Make a new random board.
+     * 
+     * @param rows board height
+     * @param columns board width
+     * @param cards cards that appear on the board
+     * @param engine the engine applying the flip rules on the board
+     * @return a new rows-by-columns-size board filled with a random permutation
+     *         of the given cards repeated in as equal numbers as possible
+     */
+    public static Board generateRandom(int rows, int columns, Set<String> cards, Engine engine) {
+        return generateRandom(rows, columns, cards, engine, null);
+    }
+    
+    /**
+     * Make a new random board.
+     * 
+     * @param rows board height
+     * @param columns board width
+     * @param cards cards that appear on the board
+     * @param engine the engine applying the flip rules on the board
+     * @param layout how the board keeps its cards in memory, or null to pick
+     *               one by the size of the board
+     * @return a new rows-by-columns-size board filled with a random permutation
+     *         of the given cards repeated in as equal numbers as possible
+     */
+    public static Board generateRandom(int rows, int columns, Set<String> cards, Engine engine, Layout layout) {
+        return generateRandom(rows, columns, cards, engine, layout, new SplittableRandom().nextLong());
     }
     
-    private final Card[][] board;
+    /**
+     * Make a new random board, the same board for the same seed and arguments.
+     * 
+     * @param rows board height
+     * @param columns board width
+     * @param cards cards that appear on the board
+     * @param engine the engine applying the flip rules on the board
+     * @param layout how the board keeps its cards in memory, or null to pick
+     *               one by the size of the board
+     * @param seed seed of the random permutation
+     * @return a new rows-by-columns-size board filled with a random permutation
+     *         of the given cards repeated in as equal numbers as possible
+     */
+    public static Board generateRandom(int rows, int columns, Set<String> cards, Engine engine, Layout layout, long seed) {
+        return new Board(BoardGenerator.generate(rows, columns, cards, seed, layoutFor(layout, rows, columns)), engine);
+    }
+    
+    /**
+     * Make a new procedural board: the same cards as
+     * {@link #generateRandom(int, int, Set, Engine, Layout, long)} would place, in
+     * another random order, but each card is derived from the seed the first time
+     * it is needed and only cards touched by a player take memory.
+     * 
+     * @param rows board height
+     * @param columns board width
+     * @param cards cards that appear on the board
+     * @param engine the engine applying the flip rules on the board
+     * @param seed seed of the random permutation
+     * @return a new rows-by-columns-size board of a random permutation of the
+     *         given cards repeated in as equal numbers as possible
+     */
+    public static Board generateProcedural(int rows, int columns, Set<String> cards, Engine engine, long seed) {
+        return new Board(new ProceduralGrid(rows, columns, cards, seed), engine);
+    }
+    
+    /*
+     * The layout to use when the caller did not pick one
+     */
+    private static Layout layoutFor(Layout layout, int rows, int cols) {
+        return layout != null ? layout : Layout.forSize((long) rows * cols);
+    }
+    
+    private final CardGrid grid;
     private final int rows;
     private final int cols;
-    private final Map<Player, Listener> listeners = Collections.synchronizedMap(new HashMap<Player, Listener>()); 
+    private final FlipEngine engine;
+    private final Engine engineType;
+    private final BoardView view;
+    private final WatchDispatcher listeners = new WatchDispatcher(this);
+    private volatile FlipRecorder recorder;
     
     // Abstraction function:
-    //      AF(cards, rows, cols, listeners) = the board represented by the Card array
-    //                              where each card is placed in cards[i][j]
+    //      AF(grid, rows, cols, engine, engineType, view, listeners, recorder) = the board represented by the card grid
+    //                              where the card at (i, j) is grid.card(i * cols + j)
     //                              0 <= i < rows
     //                              0 <= j < cols
+    //                              whose game rules are applied by engine, of type engineType,
+    //                              rendered for players by view
     //                              and listeners are the observers of the game waiting 
-    //                              for a change to happen
+    //                              for a change to happen. Flips are recorded by recorder
+    //                              if not null
     // Representation invariant:
     //          rows > 0
     //          cols > 0
-    //          All cards in cards are not null
+    //          rows == grid.rows() and cols == grid.cols()
     // 
     // Safety from Rep Exposure:
-    //          All fields are final
-    //          The board-card array contains immutable ADT (card) which is handled
-    //          in a threadsafe synchronized manner
+    //          All fields but recorder are final, recorder is never returned
+    //          The grid contains cards which are handled
+    //          in a threadsafe manner by the engine
     //          The board is being defensively copied in construction
     //  
     // Thread safety argument:
     //
-    //      Board uses the monitor pattern where every access to one of board's
-    //      Cards is done in a synchronized matter.
-    //      All public methods that involve mutation are synchronized, 
-    //      guarded by the lock on the Card object, or by a synchronized type from
-    //      collections such as the synchronized map.
-    //      - Avoiding deadlock: each card has a unique card number which is picked
-    //                           picked by the card order on the board. The serialized order
-    //                           is done by given lower card numbers precedence.
+    //      Every mutation of one of board's Cards is done by the engine, either
+    //      in a synchronized matter guarded by the lock on the Card object 
+    //      (see MonitorEngine), or by an atomic compare-and-set of the card state
+    //      (see LockFreeEngine).
+    //      view is threadsafe, engines mark cards changed after changing them.
+    //      listeners is threadsafe and is only called from engines after the cards
+    //      changed, it delivers changes on its own threads, never under a card lock.
+    //      recorder is volatile and threadsafe.
     //      Operations that do no involve mutation 
     //      
     //   
     
     public Board(Card[][] cards, int rows, int cols) {
-        this.rows = rows;
-        this.cols = cols;
-        Card[][] newBoard = new Card[rows][cols];
+        this(cards, rows, cols, Engine.MONITOR);
+    }
+    
+    public Board(Card[][] cards, int rows, int cols, Engine engine) {
+        // copy the cards into one dictionary, numbered by their position
+        final GridBuilder builder = new GridBuilder(rows, cols);
+        for (int i=0; i<rows; i++) {
+            for (int j=0; j<cols; j++) {
+                builder.add(cards[i][j].getCardValue());
+            }
+        }
+        this.grid = builder.build(Layout.OBJECTS);
         for (int i=0; i<rows; i++) {
             for (int j=0; j<cols; j++) {
-                newBoard[i][j] = cards[i][j].duplicate();
+                grid.card(i * cols + j).setState(cards[i][j].getState());
             }
         }
-        this.board = newBoard;
+        this.rows = rows;
+        this.cols = cols;
+        this.engine = engine.create(this);
+        this.engineType = engine;
+        this.view = new BoardView(grid);
+        checkRep();
+    }
+    
+    /*
+     * Make a board of a new grid, the caller must not use grid anymore
+     */
+    private Board(CardGrid grid, Engine engine) {
+        this.grid = grid;
+        this.rows = grid.rows();
+        this.cols = grid.cols();
+        this.engine = engine.create(this);
+        this.engineType = engine;
+        this.view = new BoardView(grid);
         checkRep();
     }
     
+    /**
+     * Make a new game of this board: a board with the same card in every place,
+     * all face down, applying the rules with the same engine, and keeping its
+     * cards in the same layout, or procedural if this board is.
+     * 
+     * @return a new board with the cards of this board face down
+     */
+    public Board newGame() {
+        if (grid instanceof ProceduralGrid) {
+            return new Board(((ProceduralGrid) grid).newGame(), engineType);
+        }
+        final GridBuilder builder = new GridBuilder(rows, cols);
+        final CardDictionary dictionary = grid.dictionary();
+        for (int id = 0; id < dictionary.size(); id++) {
+            builder.intern(dictionary.value(id));
+        }
+        for (int cardNumber = 0; cardNumber < rows * cols; cardNumber++) {
+            builder.add(grid.valueId(cardNumber));
+        }
+        final Layout layout = grid instanceof PackedGrid ? Layout.PACKED : Layout.OBJECTS;
+        return new Board(builder.build(layout), engineType);
+    }
+    
     public void checkRep() {
         assert rows > 0;
         assert cols > 0;
-        assert board.length ==  rows;
-        assert board[0].length == cols;
-        for (int i=0; i < rows; i++ ) {
-            for (int j=0; j < cols; j++) {
-                assert board[i][j] != null;
-            }
-        }
+        assert grid.rows() == rows;
+        assert grid.cols() == cols;
+        assert engine != null;
+        assert engineType != null;
+        assert view != null;
     }
     
+    /**
+     * Render the board as seen by a player, in the text grammar of the web server:
+     * the size "ROWSxCOLS" and then one line per card in row major order, "none",
+     * "down", "up VALUE", or "my VALUE" for the cards p controls.
+     * 
+     * @param p the viewing player
+     * @return the board as seen by p, without a trailing newline
+     */
     public String webString(Player p) {
-        final String none = "none";
-        final String down = "down";
-        final String up = "up ";
-        final String my = "my ";
-        final String nl = "\n";
-        StringBuilder boardString = new StringBuilder();
-        final String boardSize = rows + "x" + cols + nl;
-        boardString.append(boardSize);
-        for (int row=0; row < rows; row++) {
-            for (int col=0; col< cols; col++) {
-                Card currentCard = board[row][col];
-                if (currentCard.isRemoved()) {
-                    boardString.append(none + nl);
-                }
-                else if (currentCard.isFacingUp()) {
-                    if (currentCard.isOwned()) {
-                        if (currentCard.getCardOwner().equals(p)) {
-                            boardString.append(my + currentCard.toString() + nl);
-                        }
-                        else {
-                            boardString.append(up + currentCard.toString() + nl);
-                        }
-                    } else {
-                        boardString.append(up + currentCard.toString() + nl);
-                    }
-                }
-                
-                
-                else {
-                    boardString.append(down + nl);
-                }
-            }
-        }
+        final String rendering = view.render(p);
         checkRep();
-        return boardString.deleteCharAt(boardString.length()-1).toString();
-        
+        return rendering;
+    }
+    
+    /**
+     * @return version of the board: the number of times a card of this board
+     *         turned face up, face down or was removed so far
+     */
+    long version() {
+        return view.version();
+    }
+    
+    /**
+     * Make a tag of webString(p) without rendering it or locking any card: the tag
+     * changes whenever webString(p) may change. A tag made before webString(p) was
+     * called is never newer than the string it returned.
+     * 
+     * @param p the viewing player
+     * @return tag of the board as seen by p, made of the version of the board and
+     *         the cards p controls
+     */
+    String webTag(Player p) {
+        return view.tag(p);
+    }
+    
+    /**
+     * Render the changes of the board after a version, as seen by a player.
+     * 
+     * <p> The first line is "delta VERSION", followed by one line "ROW,COL CARD"
+     * for every card that changed after version since, where ROW and COL count
+     * from 1 and CARD is "none", "down", "up VALUE" or "my VALUE" as in
+     * {@link #webString(Player)}. If the changes after since are no longer kept, 
+     * or since is 0, the first line is "full VERSION" followed by webString(p).
+     * The changes shown are those of the board at VERSION or later.
+     * 
+     * @param p the viewing player
+     * @param since a version of this board the viewer has already seen
+     * @return the changes after since, without a trailing newline
+     */
+    String changesSince(Player p, long since) {
+        final String changes = view.changesSince(p, since);
+        checkRep();
+        return changes;
     }
     
     private Card getCard(int row, int col) {
         assert row >= 0 && col >= 0;
         assert row < rows && col < cols;
-        return board[row][col];
+        return grid.card(row * cols + col);
     }
     
+    /**
+     * @param cardNumber number of a card of this board, 0 <= cardNumber < rows * cols
+     * @return the card with this number
+     */
+    Card card(int cardNumber) {
+        assert cardNumber >= 0 && cardNumber < rows * cols;
+        return grid.card(cardNumber);
+    }
     
+    /**
+     * @param cardNumber number of a card of this board, 0 <= cardNumber < rows * cols
+     * @return the current state of the card with this number, without making a
+     *         Card for it
+     */
+    CardState state(int cardNumber) {
+        assert cardNumber >= 0 && cardNumber < rows * cols;
+        return grid.state(cardNumber);
+    }
+    
+    /**
+     * Append the outcome of every flip of this board to log from now on, must be
+     * called before any flip.
+     * 
+     * @param log log of the flips of this board
+     * @throws IllegalArgumentException if the rules of this board are not applied
+     *                                  by the ACTOR engine, the only one logging
+     */
+    void journal(FlipLog log) {
+        if (engineType != Engine.ACTOR) {
+            throw new IllegalArgumentException("only the ACTOR engine logs flips, not " + engineType);
+        }
+        ((ActorEngine) engine).journal(log);
+    }
+    
+    /**
+     * @return the log of the flips of this board, or null if they are not logged;
+     *         see {@link #journal(FlipLog)}
+     */
+    FlipLog journal() {
+        return engineType == Engine.ACTOR ? ((ActorEngine) engine).log() : null;
+    }
+    
+    /**
+     * @return position of the log of this board once the batch of flips being
+     *         applied, if any, is appended to it; see {@link #journal(FlipLog)}
+     * @throws IllegalArgumentException if the flips of this board are not logged
+     */
+    long journalPosition() {
+        if (journal() == null) {
+            throw new IllegalArgumentException("flips of this board are not logged");
+        }
+        return ((ActorEngine) engine).logPosition();
+    }
+    
+    
+    /**
+     * Record every later flip of this board, in the order requested, replacing
+     * the previous recorder.
+     * 
+     * @param recorder records the flips, or null to stop recording
+     */
+    public void setRecorder(FlipRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    /*
+     * Record a flip requested by player, if recording
+     */
+    private void record(Player player, int row, int col) {
+        final FlipRecorder flips = recorder;
+        if (flips != null) {
+            flips.record(player, row, col);
+        }
+    }
+    
+    /**
+     * Set the listener of a player, replacing its previous listener. The listener
+     * is called with the board as seen by player some time after cards turn face
+     * up, face down or are removed, on a thread of its own; consecutive changes
+     * may be delivered once, always showing the latest board.
+     * 
+     * @param player the watching player
+     * @param listener notified of changes of this board
+     */
     public void addListener(Player player, Listener listener) {
-        listeners.put(player, listener);
+        listeners.add(player, listener);
         checkRep();
     }
     
-    private void callListeners() {
-        for (Player player:  listeners.keySet()) {
-            final String webBoardString = webString(player);
-            Listener listener = listeners.get(player);
-            listener.boardChanged(webBoardString);
-        }
+    /**
+     * Remove the listener of a player, if it is still listener.
+     * 
+     * @param player the watching player
+     * @param listener the listener to remove
+     */
+    public void removeListener(Player player, Listener listener) {
+        listeners.remove(player, listener);
         checkRep();
     }
     
+    /**
+     * @return number of players watching this board
+     */
+    int listenerCount() {
+        return listeners.size();
+    }
+    
+    /**
+     * @return number of cards players are blocked on by rule 1D, e.g. waiting in
+     *         an asynchronous flip
+     */
+    int blockedCount() {
+        return engine.blockedCards();
+    }
+    
+    /**
+     * Restore the state of a card before the board is played, e.g. from a log,
+     * without making a Card for it. The change is only seen once published by
+     * {@link #cardsRestored(int[])}.
+     * 
+     * @param cardNumber number of a card of this board, 0 <= cardNumber < rows * cols
+     * @param state the restored state of the card
+     */
+    void restore(int cardNumber, CardState state) {
+        grid.setState(cardNumber, state);
+    }
+    
+    /**
+     * Record that cards were restored and publish the change to the listeners.
+     * 
+     * @param cardNumbers numbers of the cards of this board restored
+     */
+    void cardsRestored(int[] cardNumbers) {
+        for (int cardNumber : cardNumbers) {
+            view.changed(cardNumber);
+        }
+        listeners.publish();
+    }
+    
+    /**
+     * Record that cards turned face up, face down or were removed and publish the
+     * change to the listeners, called by the engine after changing the cards.
+     * Never waits for a listener.
+     * 
+     * @param changed the cards of this board that changed
+     */
+    void cardsChanged(Card... changed) {
+        for (Card card : changed) {
+            view.changed(card.getCardNumber());
+        }
+        listeners.publish();
+    }
+    
+    /**
+     * Flip the card at (row, col) for player, following the rules of the game:
+     * 
+     * <p> If the player controls two matching cards they are removed (3A). If the 
+     * player turned over cards it no longer controls, each of them which is still
+     * face up and not controlled by another player turns face down (3B).
+     * 
+     * <p> Flipping a first card: fails on an empty space (1A), turns a face down
+     * card up and takes control of it (1B), takes control of a face up card that
+     * no one controls (1C), or blocks until the card is no longer controlled by
+     * another player (1D).
+     * 
+     * <p> Flipping a second card: fails on an empty space (2A) or on a card that is
+     * controlled by a player (2B), in both cases releasing the first card.
+     * Otherwise the card turns face up if needed (2C) and the player controls it.
+     * If both cards match the player keeps them and scores a point (2D), 
+     * otherwise the player releases both (2E).
+     * 
+     * @param player the player flipping
+     * @param row row of the card, 0 <= row < getRows()
+     * @param col column of the card, 0 <= col < getCols()
+     * @throws InterruptedException if interrupted while blocked by rule 1D
+     */
     public void flipCard(Player player, int row, int col) throws InterruptedException{
         assert row >= 0 && col >= 0 && row < rows && col < cols;
-        Card cardToFlip = getCard(row, col);
-        player.markAttempted();
-        if (player.getState().equals(PlayerState.TWO_CARDS_MATCH)) {
-            // 3A: If they had turned over a matching pair, they control both cards. 
-            // Now, those cards are removed from the board, and they relinquish control of them.
-            List<Card> orderedCards = player.getCards();
-            Card firstCard = orderedCards.get(0);
-            Card secondCard = orderedCards.get(1);
-            synchronized(firstCard) {
-                synchronized(secondCard) {
-                    player.releaseCards();
-                    player.resetCardList();
-                    secondCard.removeCard();
-                    firstCard.removeCard();
-                    callListeners();
-                    secondCard.notifyAll();
-                    firstCard.notifyAll();
-                    player.setState(PlayerState.FRESH);
-                }}}
-        if (player.getState().equals(PlayerState.TWO_CARDS_NO_MATCH)) {
-            // 3B:  they had turned over two non-matching cards, 
-            // and relinquished control but left them face up on the board. 
-            // Now, for each of those card(s), if the card is still on the board, 
-            // currently face up, and currently not controlled by another player, 
-            // the card is turned face down.
-            List<Card> orderedCards = player.getCards();
-            Card firstCard = orderedCards.get(0);
-            Card secondCard = orderedCards.get(1);
-            synchronized(firstCard) {
-                synchronized(secondCard) {
-                    for (Card card : orderedCards) {
-                        if (!card.isRemoved() && card.isFacingUp()) {
-                            if (!card.isOwned()) {
-                                card.flipCardDown();
-                                callListeners();
-                            }}}
-                    player.resetCardList(); 
-                    player.setState(PlayerState.FRESH);
-                }}}
-        if (player.getState().equals(PlayerState.ONE_CARD_INVALID)) {
-            // 3B:  they had turned over one card, 
-            // and relinquished control but left them face up on the board. 
-            // Now, for each card, if the card is still on the board, 
-            // currently face up, and currently not controlled by another player, 
-            // the card is turned face down.
-            Card playerFirstcard = player.getFirstCard();
-            synchronized(playerFirstcard) {
-                if (!playerFirstcard.isRemoved() && playerFirstcard.isFacingUp()) {
-                    if (!playerFirstcard.isOwned()) {
-                        playerFirstcard.flipCardDown();
-                        callListeners();
-                    }}
-                player.resetCardList();
-                player.setState(PlayerState.FRESH);}}
-        if (player.getState().equals(PlayerState.ONE_CARD_VALID)) {
-            // Turn over second card
-            Card playerFirstcard = player.getFirstCard();
-            Card syncFirst;
-            Card syncSecond;
-            if (playerFirstcard.getCardNumber() < cardToFlip.getCardNumber()) {
-                syncFirst = playerFirstcard;
-                syncSecond = cardToFlip;
-            } else {
-                syncFirst = cardToFlip;
-                syncSecond = playerFirstcard;
-            }
-            synchronized(syncFirst) {
-                synchronized(syncSecond) {
-                // 2A: If there is no card there, the operation fails. 
-                // The player also relinquishes control of their 
-                // first card (but it remains face up for now).
-                if (cardToFlip.isRemoved()) {
-                    player.setState(PlayerState.ONE_CARD_INVALID);
-                    playerFirstcard.releaseCard();
-                    playerFirstcard.notifyAll();
-                    return;
-                }
-                // 2B: if the card is face up and controlled by a 
-                // player (another player or themselves), the operation fails. 
-                // To avoid deadlocks, the operation does not block. 
-                // The player also relinquishes control of their first card 
-                // (but it remains face up for now).
-                else if (cardToFlip.isFacingUp() && cardToFlip.isOwned()) {
-                    playerFirstcard.releaseCard();
-                    playerFirstcard.notifyAll();
-                    player.setState(PlayerState.ONE_CARD_INVALID);
-                }
-                // If the card is face down, or if the card 
-                // is face up but not controlled by a player
-                else if (!cardToFlip.isFacingUp() ||
-                        (cardToFlip.isFacingUp() && !cardToFlip.isOwned())) {
-                    // 2C: If it is face down, it turns face up
-                    if (!cardToFlip.isFacingUp()) {
-                        cardToFlip.flipCardUp();
-                        callListeners();
-                    }
-                    player.takeCard(cardToFlip);
-                    // 2D: If the two cards are the same, that’s a successful match! 
-                    // The player keeps control of both cards 
-                    // (and they remain face up on the board for now). 
-                    // The player’s score increases by one point.
-                    if (playerFirstcard.getCardValue().equals(cardToFlip.getCardValue())) {
-                        player.setState(PlayerState.TWO_CARDS_MATCH);
-                        player.incrementScore();
-                    }
-                    // 2E: If they are not the same, 
-                    // the player relinquishes control of both cards 
-                    // (again, they remain face up for now)
-                    else {
-                        player.releaseCards();
-                        player.setState(PlayerState.TWO_CARDS_NO_MATCH);
-                        playerFirstcard.notifyAll();
-                        cardToFlip.notifyAll();
-                    }}}}}
-        // Fresh turn, player does not own any cards
-        if (player.getState().equals(PlayerState.FRESH)) {
-            assert player.numberOwnedCards() == 0;
-            synchronized(cardToFlip) {
-                // 1A: If there is no card there (the player identified an empty space, 
-                // perhaps because the card was just removed by another player), 
-                // the operation fails.
-                if (cardToFlip.isRemoved()) {
-                    return;
-                }
-                // 1B: If the card is face down, 
-                // it turns face up (all players can now see it) 
-                // and the player controls that card
-                else if (!cardToFlip.isFacingUp()) {
-                    cardToFlip.flipCardUp();
-                    player.takeCard(cardToFlip);
-                    player.setState(PlayerState.ONE_CARD_VALID);
-                    callListeners();
-                }
-                // 1C: If the card is already face up, but not controlled by another player, 
-                // then it remains face up, and the player controls the card.
-                else if (cardToFlip.isFacingUp() && !cardToFlip.isOwned()) {
-                    player.takeCard(cardToFlip);
-                    player.setState(PlayerState.ONE_CARD_VALID);
-                }
-                // 1D: if the card is face up and controlled by another player, 
-                // the operation blocks. The player will contend with other players 
-                // to take control of the card at the next opportunity.
-                else if (cardToFlip.isFacingUp() && cardToFlip.isOwned()) {
-                    cardToFlip.wait();
-                    flipCard(player, row, col);
-                }}}
+        record(player, row, col);
+        engine.flipCard(player, getCard(row, col));
         checkRep();
         }
     
+    /**
+     * Flip the card at (row, col) for player like {@link #flipCard(Player, int, int)},
+     * without blocking the calling thread. A player blocked by rule 1D waits in line
+     * for the card as a queued callback, holding no thread, and the flip completes
+     * when the card is handed over to them or fails by rule 1A.
+     * 
+     * @param player the player flipping, with no other flip in progress
+     * @param row row of the card, 0 <= row < getRows()
+     * @param col column of the card, 0 <= col < getCols()
+     * @return completed with the state of player once the flip rules were applied,
+     *         possibly on another thread
+     */
+    public CompletableFuture<PlayerState> flipCardAsync(Player player, int row, int col) {
+        assert row >= 0 && col >= 0 && row < rows && col < cols;
+        record(player, row, col);
+        return engine.flipCardAsync(player, getCard(row, col)).thenApply(flipped -> player.getState());
+    }
+    
     /**
      * Returns the string representation of board
      * The first line will include the board size:
@@ -388,10 +542,10 @@ public class Board {
         boardString.append(boardSize);
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols-1; j++) {
-                boardString.append(board[i][j].toString());
+                boardString.append(grid.value(i * cols + j));
                 boardString.append(" ");
             }
-            boardString.append(board[i][cols-1].toString());
+            boardString.append(grid.value(i * cols + cols - 1));
             boardString.append("\n");
         }
         checkRep();
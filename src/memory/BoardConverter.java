@@ -0,0 +1,48 @@
+package memory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Converts text board files to binary board files, which servers load by
+ * mapping them instead of parsing every card.
+ * @author davidmagrefty
+ *
+ */
+public class BoardConverter {
+
+    private BoardConverter() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Convert a board file.
+     *
+     * <p> Command-line usage:
+     * <pre> java memory.BoardConverter TEXTFILE BINARYFILE </pre>
+     * where TEXTFILE is the path to a valid text board file, and BINARYFILE the
+     * path of the binary board file to write, replaced if it exists.
+     *
+     * @param args command line arguments, as described above
+     * @throws IOException if an error occurs reading or writing a board file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("expected TEXTFILE BINARYFILE");
+        }
+        convert(args[0], args[1]);
+    }
+
+    /**
+     * Convert a text board file to a binary board file.
+     *
+     * @param textFile path to a valid text board file
+     * @param binaryFile path of the binary board file, replaced if it exists
+     * @throws IOException if an error occurs reading or writing a board file
+     */
+    public static void convert(String textFile, String binaryFile) throws IOException {
+        final CardGrid grid = BoardFileParser.parse(Paths.get(textFile)).build(Layout.PACKED);
+        BinaryBoardFile.write(grid, Paths.get(binaryFile));
+    }
+
+}
@@ -0,0 +1,325 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Parses a board file by memory-mapping it and scanning its UTF-8 lines as bytes.
+ *
+ * The card lines are split in chunks at line boundaries and large files are
+ * scanned by several threads at once. Each chunk dedupes its card values as byte
+ * slices of the file, so a value becomes a String once per chunk and not once per
+ * card, and records the value id of every line. The chunks are then merged in
+ * order into the dictionary and cells of the board.
+ * @author davidmagrefty
+ *
+ */
+class BoardFileParser {
+
+    /** smallest number of bytes of cards worth a thread of their own, by default */
+    static final long PARALLEL_BYTES = 8L << 20;
+
+    /** largest chunk, well below the 2GB a mapping can hold */
+    static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private static final int PROBE_BYTES = 4096;
+
+    /*
+     * The card lines of one region of the file, and the distinct values among them
+     */
+    private static final class Chunk {
+        private final MappedByteBuffer bytes;
+        private int[] lines = new int[1024];
+        private int lineCount;
+        private int[] starts = new int[16];
+        private int[] lengths = new int[16];
+        private int distinct;
+        private int[] table = new int[64];
+
+        // Abstraction function:
+        //      AF(bytes, lines, lineCount, starts, lengths, distinct, table) = the
+        //              lineCount lines of bytes, line i having the value
+        //              bytes[starts[lines[i]] .. starts[lines[i]] + lengths[lines[i]]),
+        //              where the distinct values are ids 0..distinct-1, found by
+        //              table: a hash table of id + 1 per slot, 0 if empty
+        // Representation invariant:
+        //      0 <= lines[i] < distinct for 0 <= i < lineCount
+        //      table.length is a power of two >= 2 * distinct
+        // Safety from rep exposure:
+        //      All fields are private, a chunk is only used by its parser
+        // Thread safety argument:
+        //      A chunk is scanned by one thread, and read after the scans joined
+
+        private Chunk(MappedByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        /*
+         * Record the value of every line of this chunk, the last one may lack its
+         * newline. A line ending with "\r\n" does not include the '\r'.
+         */
+        private void scan() {
+            final int end = bytes.limit();
+            int start = 0;
+            while (start < end) {
+                int newline = start;
+                while (newline < end && bytes.get(newline) != '\n') {
+                    newline++;
+                }
+                int length = newline - start;
+                if (length > 0 && bytes.get(start + length - 1) == '\r') {
+                    length--;
+                }
+                addLine(intern(start, length));
+                start = newline + 1;
+            }
+        }
+
+        private void addLine(int id) {
+            if (lineCount == lines.length) {
+                lines = Arrays.copyOf(lines, 2 * lines.length);
+            }
+            lines[lineCount++] = id;
+        }
+
+        /*
+         * @return the id of the value bytes[start .. start+length), a new id if
+         *         never seen in this chunk
+         */
+        private int intern(int start, int length) {
+            int hash = length;
+            for (int ii = start; ii < start + length; ii++) {
+                hash = 31 * hash + bytes.get(ii);
+            }
+            hash = spread(hash);
+            final int mask = table.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                final int id = table[slot] - 1;
+                if (id < 0) {
+                    return add(slot, start, length);
+                }
+                if (sameBytes(id, start, length)) {
+                    return id;
+                }
+            }
+        }
+
+        /*
+         * @return hash with its bits mixed into the low bits used as a slot. Values
+         *         differing only by their last character, e.g. numbered cards, have
+         *         consecutive hashes which would otherwise fill consecutive slots and
+         *         make linear probing quadratic
+         */
+        private static int spread(int hash) {
+            final int mixed = hash * 0x9E3779B9;
+            return mixed ^ (mixed >>> 16);
+        }
+
+        private boolean sameBytes(int id, int start, int length) {
+            if (lengths[id] != length) {
+                return false;
+            }
+            final int other = starts[id];
+            for (int ii = 0; ii < length; ii++) {
+                if (bytes.get(other + ii) != bytes.get(start + ii)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int add(int slot, int start, int length) {
+            if (distinct == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * distinct);
+                lengths = Arrays.copyOf(lengths, 2 * distinct);
+            }
+            final int id = distinct++;
+            starts[id] = start;
+            lengths[id] = length;
+            table[slot] = id + 1;
+            if (2 * distinct > table.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            final int[] old = table;
+            table = new int[2 * old.length];
+            final int mask = table.length - 1;
+            for (int entry : old) {
+                if (entry == 0) {
+                    continue;
+                }
+                final int id = entry - 1;
+                int hash = lengths[id];
+                for (int ii = starts[id]; ii < starts[id] + lengths[id]; ii++) {
+                    hash = 31 * hash + bytes.get(ii);
+                }
+                hash = spread(hash);
+                int slot = hash & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry;
+            }
+        }
+
+        /*
+         * @return value id of this chunk as a String
+         */
+        private String value(int id) {
+            final byte[] value = new byte[lengths[id]];
+            bytes.get(starts[id], value);
+            return new String(value, UTF_8);
+        }
+    }
+
+    private BoardFileParser() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Parse a board file: a line "ROWSxCOLUMNS" followed by one line per card, in
+     * card number order. Lines after the last card are ignored.
+     *
+     * @param file path to a game board file
+     * @return a builder with every cell of the board filled
+     * @throws IOException if an error occurs reading the file, or it is not a board file
+     * @throws IllegalArgumentException if the board size is not positive
+     */
+    static GridBuilder parse(Path file) throws IOException {
+        return parse(file, Runtime.getRuntime().availableProcessors(), PARALLEL_BYTES);
+    }
+
+    /**
+     * Parse a board file as {@link #parse(Path)} does.
+     *
+     * @param file path to a game board file
+     * @param threads most threads to scan the file with, > 0
+     * @param parallelBytes smallest number of bytes of cards scanned by a thread
+     *                      of their own, > 0
+     * @return a builder with every cell of the board filled
+     * @throws IOException if an error occurs reading the file, or it is not a board file
+     * @throws IllegalArgumentException if the board size is not positive
+     */
+    static GridBuilder parse(Path file, int threads, long parallelBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long headerEnd = nextLine(channel, 0);
+            if (size == 0) {
+                throw new IOException("missing board size in " + file);
+            }
+            final String boardSize = readLine(channel, 0, headerEnd);
+            final String[] sizes = boardSize.split("x");
+            final int rows;
+            final int cols;
+            try {
+                rows = Integer.parseInt(sizes[0]);
+                cols = Integer.parseInt(sizes[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("invalid board size " + boardSize, e);
+            }
+            final GridBuilder builder = new GridBuilder(rows, cols);
+            final long cells = (long) rows * cols;
+
+            final List<Chunk> chunks = scan(channel, headerEnd, size, threads, parallelBytes);
+            long remaining = cells;
+            for (Chunk chunk : chunks) {
+                if (remaining == 0) {
+                    break;
+                }
+                final int[] valueIds = new int[chunk.distinct];
+                for (int id = 0; id < chunk.distinct; id++) {
+                    valueIds[id] = builder.intern(chunk.value(id));
+                }
+                final int lines = (int) Math.min(remaining, chunk.lineCount);
+                for (int line = 0; line < lines; line++) {
+                    builder.add(valueIds[chunk.lines[line]]);
+                }
+                remaining -= lines;
+            }
+            if (remaining > 0) {
+                throw new IOException("expected " + rows + "x" + cols + " cards in " + file);
+            }
+            return builder;
+        }
+    }
+
+    /*
+     * Map the bytes from start to end in chunks split at line boundaries, and scan
+     * them on up to threads threads, one per parallelBytes bytes
+     * @return the chunks in file order
+     */
+    private static List<Chunk> scan(FileChannel channel, long start, long end, int threads, long parallelBytes) throws IOException {
+        final long bytes = end - start;
+        final int parallel = (int) Math.max(1, Math.min(threads, bytes / parallelBytes));
+        final int count = (int) Math.max(parallel, (bytes + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        final List<Chunk> chunks = new ArrayList<>();
+        long chunkStart = start;
+        for (int ii = 1; ii <= count && chunkStart < end; ii++) {
+            final long chunkEnd = ii == count ? end : Math.max(chunkStart, nextLine(channel, start + bytes * ii / count - 1));
+            if (chunkEnd > chunkStart) {
+                chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart)));
+            }
+            chunkStart = chunkEnd;
+        }
+        if (parallel == 1) {
+            chunks.forEach(Chunk::scan);
+        } else {
+            IntStream.range(0, chunks.size()).parallel().forEach(ii -> chunks.get(ii).scan());
+        }
+        return chunks;
+    }
+
+    /*
+     * @return position after the first newline at or after position, or the end of
+     *         the file if there is none
+     */
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        final ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        long at = position;
+        while (true) {
+            probe.clear();
+            final int read = channel.read(probe, at);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int ii = 0; ii < read; ii++) {
+                if (probe.get(ii) == '\n') {
+                    return at + ii + 1;
+                }
+            }
+            at += read;
+        }
+    }
+
+    /*
+     * @return the line from start to end, without its line terminator
+     */
+    private static String readLine(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("line too long at " + start);
+        }
+        final ByteBuffer line = ByteBuffer.allocate((int) (end - start));
+        while (line.hasRemaining() && channel.read(line, start + line.position()) > 0) {
+            // keep reading
+        }
+        int length = line.position();
+        while (length > 0 && (line.get(length - 1) == '\n' || line.get(length - 1) == '\r')) {
+            length--;
+        }
+        return new String(line.array(), 0, length, UTF_8);
+    }
+
+}
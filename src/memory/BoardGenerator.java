@@ -0,0 +1,174 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Generates random boards from a seed: the same seed and arguments always give
+ * the same board, on any machine.
+ *
+ * The cards are shuffled straight into an array of value ids, in parallel for
+ * large boards: the cells are split into blocks, every card of a block is sent
+ * to a random bucket, and every bucket is shuffled on its own. Sending each card
+ * to a uniformly random bucket and shuffling the buckets uniformly is a uniform
+ * permutation of the cards. The number of blocks only depends on the size of
+ * the board, and each block and bucket has its own random seed drawn from the
+ * seed of the board, so the board does not depend on the threads used.
+ * @author davidmagrefty
+ *
+ */
+class BoardGenerator {
+
+    /** cells per block of the parallel shuffle, by default */
+    static final int BLOCK_CELLS = 1 << 20;
+
+    private static final int MAX_BLOCKS = 1024;
+
+    private BoardGenerator() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Generate a random grid.
+     *
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @param cards distinct card values, not empty
+     * @param seed seed of the random permutation
+     * @param layout layout of the new grid
+     * @return a new rows-by-cols grid, all face down, filled with a random
+     *         permutation of cards repeated in as equal numbers as possible: each
+     *         card appears floor(rows*cols / cards.size()) times, and the cards
+     *         appearing once more are distinct and chosen at random
+     * @throws IllegalArgumentException if the grid does not have a positive size,
+     *                                  or there are no cards
+     */
+    static CardGrid generate(int rows, int cols, Set<String> cards, long seed, Layout layout) {
+        return generate(rows, cols, cards, seed, layout, BLOCK_CELLS);
+    }
+
+    /**
+     * Generate a random grid as {@link #generate(int, int, Set, long, Layout)}
+     * does, with blocks of blockCells cells.
+     *
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @param cards distinct card values, not empty
+     * @param seed seed of the random permutation
+     * @param layout layout of the new grid
+     * @param blockCells cells per block of the parallel shuffle, > 0
+     * @return a new random grid, as described above
+     * @throws IllegalArgumentException if the grid does not have a positive size,
+     *                                  or there are no cards
+     */
+    static CardGrid generate(int rows, int cols, Set<String> cards, long seed, Layout layout, int blockCells) {
+        final List<String> values = values(rows, cols, cards);
+        final int distinct = values.size();
+        final int cells = rows * cols;
+        final SplittableRandom random = new SplittableRandom(seed);
+
+        // before shuffling, cell p has id p / repetition, then the ids of extra
+        final int repetition = cells / distinct;
+        final int repeated = repetition * distinct;
+        final int[] extra = extraIds(random, distinct, cells - repeated);
+
+        final int blocks = (int) Math.min(MAX_BLOCKS, ((long) cells + blockCells - 1) / blockCells);
+        final long[] blockSeeds = random.longs(blocks).toArray();
+        final long[] bucketSeeds = random.longs(blocks).toArray();
+        final int width = distinct <= 1 << 8 ? 1 : distinct <= 1 << 16 ? 2 : 4;
+        final ValueIds ids = new ValueIds(cells, width);
+
+        // count the cards every block sends to every bucket
+        final int[][] counts = new int[blocks][blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            final SplittableRandom buckets = new SplittableRandom(blockSeeds[block]);
+            final int[] count = counts[block];
+            for (int cell = start(block, blocks, cells); cell < start(block + 1, blocks, cells); cell++) {
+                count[bucket(buckets, blocks)]++;
+            }
+        });
+        // bucket b starts at bucketStarts[b], and block k writes its cards of b
+        // from counts[k][b] on
+        final int[] bucketStarts = new int[blocks + 1];
+        for (int bucket = 0; bucket < blocks; bucket++) {
+            int next = bucketStarts[bucket];
+            for (int block = 0; block < blocks; block++) {
+                final int count = counts[block][bucket];
+                counts[block][bucket] = next;
+                next += count;
+            }
+            bucketStarts[bucket + 1] = next;
+        }
+        // send every card to the same bucket again
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            final SplittableRandom buckets = new SplittableRandom(blockSeeds[block]);
+            final int[] next = counts[block];
+            for (int cell = start(block, blocks, cells); cell < start(block + 1, blocks, cells); cell++) {
+                final int id = cell < repeated ? cell / repetition : extra[cell - repeated];
+                ids.set(next[bucket(buckets, blocks)]++, id);
+            }
+        });
+        // Fisher-Yates shuffle of every bucket
+        IntStream.range(0, blocks).parallel().forEach(bucket -> {
+            final SplittableRandom shuffle = new SplittableRandom(bucketSeeds[bucket]);
+            final int start = bucketStarts[bucket];
+            for (int ii = bucketStarts[bucket + 1] - 1; ii > start; ii--) {
+                ids.swap(ii, start + shuffle.nextInt(ii - start + 1));
+            }
+        });
+        return GridBuilder.grid(rows, cols, new CardDictionary(values), ids, layout);
+    }
+
+    /**
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @param cards distinct card values, not empty
+     * @return the values of cards sorted, so that ids given in this order do not
+     *         depend on the iteration order of cards
+     * @throws IllegalArgumentException if the grid does not have a positive size,
+     *                                  or there are no cards
+     */
+    static List<String> values(int rows, int cols, Set<String> cards) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("invalid board size " + rows + "x" + cols);
+        }
+        if (cards.isEmpty()) {
+            throw new IllegalArgumentException("no cards for a board of " + rows + "x" + cols);
+        }
+        return new ArrayList<>(new TreeSet<>(cards));
+    }
+
+    /**
+     * @param random source of randomness
+     * @param distinct number of distinct values, > 0
+     * @param count 0 <= count <= distinct
+     * @return count distinct value ids among 0..distinct-1, chosen uniformly at
+     *         random: the values appearing once more than the others on a board
+     */
+    static int[] extraIds(SplittableRandom random, int distinct, int count) {
+        final int[] order = IntStream.range(0, distinct).toArray();
+        final int[] extra = new int[count];
+        for (int ii = 0; ii < count; ii++) {
+            final int jj = ii + random.nextInt(distinct - ii);
+            extra[ii] = order[jj];
+            order[jj] = order[ii];
+        }
+        return extra;
+    }
+
+    /*
+     * @return first cell of block, of blocks blocks splitting cells cells
+     */
+    private static int start(int block, int blocks, int cells) {
+        return (int) ((long) cells * block / blocks);
+    }
+
+    private static int bucket(SplittableRandom random, int buckets) {
+        return buckets == 1 ? 0 : random.nextInt(buckets);
+    }
+
+}
@@ -0,0 +1,426 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Versioned rendering of a board in the text grammar of the web server,
+ * shared by every player.
+ *
+ * The shared rendering shows every card as "none", "down" or "up VALUE". It is
+ * kept in segments of consecutive cards, and a change of a card only renders
+ * its segment again the next time the board is viewed. A player's view is the
+ * shared rendering with "up" replaced by "my" on the at most two cards the player
+ * controls, which are the same length in bytes.
+ * @author davidmagrefty
+ *
+ */
+class BoardView {
+
+    /**
+     * cards rendered together, a change renders this many cards again on boards of
+     * at most SEGMENT_CARDS * MAX_SEGMENTS cards
+     */
+    static final int SEGMENT_CARDS = 256;
+
+    /**
+     * most segments of a board, larger boards have larger segments: the stamps
+     * of the segments are the only state of the view which grows with the area
+     */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    private static final byte[] NONE = "none\n".getBytes(UTF_8);
+    private static final byte[] DOWN = "down\n".getBytes(UTF_8);
+    private static final byte[] UP = "up ".getBytes(UTF_8);
+    private static final byte[] MY = "my ".getBytes(UTF_8);
+    private static final byte NEWLINE = '\n';
+
+    /**
+     * most changes kept for deltas, older versions get the whole board. Smaller
+     * boards keep fewer: a delta of more changes than cards is no shorter than the
+     * whole board, and many small boards may live in one server
+     */
+    static final int CHANGE_RING = 1 << 12;
+    private static final int MIN_CHANGE_RING = 1 << 4;
+
+    /**
+     * Rendering of one segment, made after the segment's change stamp was read.
+     */
+    private static class Segment {
+        private final byte[] bytes;
+        private final long stamp;
+
+        Segment(byte[] bytes, long stamp) {
+            this.bytes = bytes;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Shared rendering of the whole board, made after the version was read.
+     */
+    private static class Snapshot {
+        private final long version;
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int segmentCards;
+        private final String text;
+
+        Snapshot(long version, byte[] bytes, int[] offsets, int segmentCards) {
+            this.version = version;
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.segmentCards = segmentCards;
+            this.text = new String(bytes, 0, bytes.length - 1, UTF_8);
+        }
+
+        /*
+         * @return index in bytes of the line of a card
+         */
+        int lineStart(int cardNumber) {
+            int line = offsets[cardNumber / segmentCards];
+            for (int skip = cardNumber % segmentCards; skip > 0; skip--) {
+                while (bytes[line] != NEWLINE) {
+                    line++;
+                }
+                line++;
+            }
+            return line;
+        }
+    }
+
+    /**
+     * The card changed by one version of the board.
+     */
+    private static class Change {
+        private final long version;
+        private final int cardNumber;
+
+        Change(long version, int cardNumber) {
+            this.version = version;
+            this.cardNumber = cardNumber;
+        }
+    }
+
+    private final CardGrid grid;
+    private final int segmentCards;
+    private final byte[] header;
+    private final AtomicLong version = new AtomicLong();
+    private final LongSupplier stamps;
+    private final AtomicLongArray changedAt;
+    private final AtomicReferenceArray<Segment> segments;
+    private volatile Snapshot snapshot;
+    private final AtomicReferenceArray<Change> changes;
+
+    // Abstraction function:
+    //      AF(grid, segmentCards, header, version, stamps, changedAt, segments, snapshot, changes) =
+    //              the shared rendering of grid after version changes, where segment k
+    //              shows the cards k * segmentCards .. (k + 1) * segmentCards - 1 of
+    //              grid, header shows its size, segments.get(k) is an up to date
+    //              rendering of segment k if its stamp is changedAt.get(k), a stamp
+    //              being given to a changed segment by stamps, snapshot
+    //              is an up to date rendering of the board if its version is version,
+    //              and version v changed the card changes.get(v % changes.length()) if
+    //              that change has version v
+    // Representation invariant:
+    //      segmentCards >= SEGMENT_CARDS
+    //      changedAt.length() == segments.length() == ceil(cards / segmentCards) <= MAX_SEGMENTS
+    //      0 <= changedAt.get(k)
+    //      snapshot == null or snapshot.version <= version
+    //      changes.get(i) == null or changes.get(i).version % changes.length() == i
+    // Safety from rep exposure:
+    //      All fields are private, only immutable strings are returned
+    // Thread safety argument:
+    //      version, changedAt and segments are atomic, stamps is threadsafe. A card changes before
+    //      its segment gets a new unique stamp, and a segment is rendered after its
+    //      stamp was read, so a rendering tagged with the current stamp shows every
+    //      change of its cards. A stamp only grows. The segment is stamped before the
+    //      version is published, so a snapshot made after reading a version sees the
+    //      stamps of every change up to that version, and shows them. Racing renderers
+    //      only replace each other's rendering with one that is as recent.
+    //      A change is recorded in its slot only if the slot has an older one, so a
+    //      slot never goes back to an older version. Readers of version v wait for
+    //      its change while the slot is older, and fall back to the whole board
+    //      when it was overwritten.
+
+    /**
+     * @param grid the cards to render
+     */
+    BoardView(CardGrid grid) {
+        this(grid, new AtomicLong()::incrementAndGet);
+    }
+
+    /**
+     * @param grid the cards to render
+     * @param stamps threadsafe source of the stamps of changed segments, a
+     *               larger stamp > 0 on every call
+     */
+    BoardView(CardGrid grid, LongSupplier stamps) {
+        this.grid = grid;
+        this.stamps = stamps;
+        this.header = (grid.rows() + "x" + grid.cols() + "\n").getBytes(UTF_8);
+        final int cards = grid.rows() * grid.cols();
+        this.segmentCards = (int) Math.max(SEGMENT_CARDS, ((long) cards + MAX_SEGMENTS - 1) / MAX_SEGMENTS);
+        final int count = (int) (((long) cards + segmentCards - 1) / segmentCards);
+        this.changedAt = new AtomicLongArray(count);
+        this.segments = new AtomicReferenceArray<>(count);
+        final int ring = Integer.highestOneBit(Math.max(1, cards - 1)) << 1;
+        this.changes = new AtomicReferenceArray<>(Math.max(MIN_CHANGE_RING, Math.min(CHANGE_RING, ring)));
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert changedAt.length() == segments.length();
+        assert changes.length() <= CHANGE_RING;
+        assert segmentCards >= SEGMENT_CARDS;
+        assert changedAt.length() <= MAX_SEGMENTS;
+        assert (long) changedAt.length() * segmentCards >= (long) grid.rows() * grid.cols();
+    }
+
+    /**
+     * Record that a card turned face up, face down or was removed.
+     * Must be called after the card changed.
+     *
+     * @param cardNumber number of the card
+     * @return the version of the board after this change
+     */
+    long changed(int cardNumber) {
+        // stamped before the version is published, a render of that version must
+        // not keep the old rendering of the segment
+        final long stamp = stamps.getAsLong();
+        changedAt.accumulateAndGet(cardNumber / segmentCards, stamp, Math::max);
+        final long next = version.incrementAndGet();
+        final int slot = (int) (next % changes.length());
+        final Change change = new Change(next, cardNumber);
+        Change recorded = changes.get(slot);
+        while ((recorded == null || recorded.version < next)
+                && !changes.compareAndSet(slot, recorded, change)) {
+            recorded = changes.get(slot);
+        }
+        return next;
+    }
+
+    /**
+     * Render the changes of the board after a version as seen by a player.
+     * The first line is "delta VERSION", followed by "ROW,COL CARD" for every
+     * card changed after version since, where ROW and COL count from 1 and CARD is
+     * rendered as in {@link #render(Player)}. If the changes after since are no
+     * longer kept, or since is not a positive version of this board, the first line is
+     * "full VERSION" followed by the whole board as rendered by render(player).
+     * The board is at least at VERSION when rendered, and cards show their state
+     * at that time.
+     *
+     * @param player the viewing player
+     * @param since a version the viewer has already seen
+     * @return the changes after since, without a trailing newline
+     */
+    String changesSince(Player player, long since) {
+        final long until = version.get();
+        final int[] changed = changedCards(since, until);
+        if (changed == null) {
+            return "full " + until + "\n" + render(player);
+        }
+        final StringBuilder delta = new StringBuilder("delta ").append(until);
+        final CardDictionary dictionary = grid.dictionary();
+        for (int cardNumber : changed) {
+            final CardState state = grid.state(cardNumber);
+            delta.append('\n')
+                    .append(cardNumber / grid.cols() + 1).append(',').append(cardNumber % grid.cols() + 1).append(' ');
+            if (state.isRemoved()) {
+                delta.append("none");
+            } else if (!state.isFaceUp()) {
+                delta.append("down");
+            } else {
+                delta.append(player.equals(state.getOwner()) ? "my " : "up ")
+                        .append(dictionary.value(grid.valueId(cardNumber)));
+            }
+        }
+        return delta.toString();
+    }
+
+    /*
+     * @return numbers of the cards changed by versions since + 1 .. until, each
+     *         once in the order of their last change, or null if not all kept
+     */
+    private int[] changedCards(long since, long until) {
+        if (since <= 0 || since > until || until - since > changes.length()) {
+            return null;
+        }
+        final Set<Integer> changed = new LinkedHashSet<>();
+        for (long next = since + 1; next <= until; next++) {
+            final int slot = (int) (next % changes.length());
+            Change change = changes.get(slot);
+            while (change == null || change.version < next) {
+                // the change of next is being recorded
+                Thread.onSpinWait();
+                change = changes.get(slot);
+            }
+            if (change.version != next) {
+                return null;
+            }
+            changed.remove(change.cardNumber);
+            changed.add(change.cardNumber);
+        }
+        final int[] cardNumbers = new int[changed.size()];
+        int index = 0;
+        for (int cardNumber : changed) {
+            cardNumbers[index++] = cardNumber;
+        }
+        return cardNumbers;
+    }
+
+    /**
+     * @return number of changes of the board so far
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Render the board as seen by a player: the size "ROWSxCOLS" and then one card
+     * per line, "none", "down", "up VALUE", or "my VALUE" if player controls it.
+     * Players controlling no card share the same string.
+     *
+     * @param player the viewing player, may be null
+     * @return the rendering, without a trailing newline
+     */
+    String render(Player player) {
+        final Snapshot shared = snapshot();
+        if (player == null) {
+            return shared.text;
+        }
+        byte[] rendering = null;
+        for (int cardNumber : controlledBy(player)) {
+            final int line = shared.lineStart(cardNumber);
+            if (shared.bytes[line] == UP[0] && shared.bytes[line + 1] == UP[1]) {
+                if (rendering == null) {
+                    rendering = shared.bytes.clone();
+                }
+                rendering[line] = MY[0];
+                rendering[line + 1] = MY[1];
+            }
+        }
+        if (rendering == null) {
+            return shared.text;
+        }
+        return new String(rendering, 0, rendering.length - 1, UTF_8);
+    }
+
+    /**
+     * Make a tag of the rendering of the board for a player, which changes whenever
+     * the rendering changes: the version of the board and the cards player controls.
+     * Reads no card lock and renders nothing. A tag made before a rendering is never
+     * newer than the rendering.
+     *
+     * @param player the viewing player
+     * @return the tag "VERSION" followed by "-CARD" for every card number of a
+     *         card that player controls
+     */
+    String tag(Player player) {
+        final StringBuilder tag = new StringBuilder().append(version.get());
+        for (int cardNumber : controlledBy(player)) {
+            tag.append('-').append(cardNumber);
+        }
+        return tag.toString();
+    }
+
+    /*
+     * @return numbers of the cards of this board controlled by player, at most two
+     */
+    private int[] controlledBy(Player player) {
+        final List<Card> held = player.heldCards();
+        final int[] controlled = new int[held.size()];
+        int count = 0;
+        for (Card card : held) {
+            final int cardNumber = card.getCardNumber();
+            if (cardNumber < grid.rows() * grid.cols()
+                    && grid.card(cardNumber) == card
+                    && player.equals(card.getCardOwner())) {
+                controlled[count++] = cardNumber;
+            }
+            // otherwise not controlled anymore, or a card of another board
+        }
+        return Arrays.copyOf(controlled, count);
+    }
+
+    /*
+     * @return the shared rendering, at least as recent as the version when called
+     */
+    private Snapshot snapshot() {
+        final long current = version.get();
+        final Snapshot cached = snapshot;
+        if (cached != null && cached.version == current) {
+            return cached;
+        }
+        final int count = segments.length();
+        final int[] offsets = new int[count];
+        final Segment[] parts = new Segment[count];
+        int length = header.length;
+        for (int k = 0; k < count; k++) {
+            parts[k] = segment(k);
+            offsets[k] = length;
+            length += parts[k].bytes.length;
+        }
+        final byte[] bytes = Arrays.copyOf(header, length);
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(parts[k].bytes, 0, bytes, offsets[k], parts[k].bytes.length);
+        }
+        final Snapshot fresh = new Snapshot(current, bytes, offsets, segmentCards);
+        snapshot = fresh;
+        return fresh;
+    }
+
+    /*
+     * @return an up to date rendering of segment k
+     */
+    private Segment segment(int k) {
+        final long stamp = changedAt.get(k);
+        final Segment rendered = segments.get(k);
+        if (rendered != null && rendered.stamp == stamp) {
+            return rendered;
+        }
+        final Segment fresh = new Segment(renderSegment(k), stamp);
+        segments.set(k, fresh);
+        return fresh;
+    }
+
+    /*
+     * @return the shared rendering of the cards of segment k
+     */
+    private byte[] renderSegment(int k) {
+        final CardDictionary dictionary = grid.dictionary();
+        final int first = k * segmentCards;
+        final int last = (int) Math.min((long) first + segmentCards, grid.rows() * grid.cols());
+        byte[] bytes = new byte[(last - first) * DOWN.length];
+        int length = 0;
+        for (int cardNumber = first; cardNumber < last; cardNumber++) {
+            final CardState state = grid.state(cardNumber);
+            final byte[] value = state.isRemoved() || !state.isFaceUp()
+                    ? null : dictionary.utf8(grid.valueId(cardNumber));
+            final int needed = value == null ? DOWN.length : UP.length + value.length + 1;
+            if (length + needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + needed));
+            }
+            if (state.isRemoved()) {
+                System.arraycopy(NONE, 0, bytes, length, NONE.length);
+            } else if (value == null) {
+                System.arraycopy(DOWN, 0, bytes, length, DOWN.length);
+            } else {
+                System.arraycopy(UP, 0, bytes, length, UP.length);
+                System.arraycopy(value, 0, bytes, length + UP.length, value.length);
+                bytes[length + needed - 1] = NEWLINE;
+            }
+            length += needed;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+}
@@ -1,5 +1,8 @@
 package memory;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  *  Card class to represent card on board
  *  Card will hold string representation of the card
@@ -8,48 +11,50 @@ package memory;
  */
 public class Card {
     
-     private final String card;
+     private final CardDictionary dictionary;
+     private final int valueId;
      private final int cardNumber;
-     private Player cardOwner;
-     private boolean faceUp;
-     private boolean isOwned;
-     private boolean isRemoved;
+     private volatile CardState state;
+     
+     private static final VarHandle STATE;
+     static {
+         try {
+             STATE = MethodHandles.lookup().findVarHandle(Card.class, "state", CardState.class);
+         } catch (ReflectiveOperationException e) {
+             throw new ExceptionInInitializerError(e);
+         }
+     }
     
     // Abstraction function:
-    //   AF(card, cardNumber, cardOwner, faceUp, isOwned, isRemoved) = 
-    //          The card on board which has value card and it has cardNumber based
+    //   AF(dictionary, valueId, cardNumber, state) = 
+    //          The card on board which has value dictionary.value(valueId) and it has cardNumber based
     //          on the order of creating the board (ie. first card on board has card number
-    //          one, and etc. The counting starts from rows. The owner of the card is card
-    //          Owner and if the card is faceUp, faceUp will be true, otherwise false.
-    //          If  the card is owned, isOwned will be true, otherwise false.
-    //          If the card is removed from board, isRemoved will be true, otherwise false.
+    //          one, and etc. The counting starts from rows. The card is face up,
+    //          removed and owned by a player exactly as described by state.
     // Representation invariant:
-    //   All cards must have card and cardNumber which are not null.
+    //   All cards must have dictionary and state which are not null.
+    //   0 <= valueId < dictionary.size()
     //   If card is Owned, card must be faceUp.
     //   If card is Removed, it cannot be owned.
-    //   If isOwned is true, cardOwner must be different than null
-    //   If faceUp is false, isOwned is false
+    //   (both of the above are guaranteed by CardState)
     //
     // SRE:
     //   Procedure of changing card variables is done only by following the rep invariant
     //   After each change, we are making sure the rep is maintained.
-    //   All Card parameters are primitives or immutable, except cardOwner. cardOwner is
+    //   All Card parameters are primitives or immutable. The owner inside state is
     //   exposed, but handled only through board and maintains the rep invariant.
     // Thread safety argument:
     //   Card, all of the methods and operations that handle Card are threadsafe. The operations
      //  work in a threadsafe serialized manner by acquiring locks (for mutation) in a
-     //  serialized manner. Therefore, Card is a threadsafe datatype as it is only handled
+     //  serialized manner, or by replacing the whole state with a single
+     //  compare-and-set (see compareAndSetState). Since state is one volatile
+     //  immutable value, readers never see a half updated card.
+     //  Therefore, Card is a threadsafe datatype as it is only handled
      // by following a threadsafe manner by the different datatypes that operate on it.
      
     
     public Card(String cardInput, int cardNum) {
-        card = cardInput;
-        cardOwner = null;
-        faceUp = false;
-        isOwned = false;
-        isRemoved = false;
-        cardNumber = cardNum;
-        checkRep();
+        this(CardDictionary.of(cardInput), 0, CardState.DOWN, cardNum);
     }
     
     
@@ -59,12 +64,21 @@ public class Card {
             boolean locked, 
             boolean removed,
             int cardNum) {
-        card = cardValue;
-        cardOwner = owner;
-        faceUp = face;
-        isOwned = locked;
-        isRemoved = removed;
-        cardNumber = cardNum;
+        this(CardDictionary.of(cardValue), 0, CardState.of(face, removed, owner), cardNum);
+        assert locked == (owner != null);
+    }
+    
+    /**
+     * @param dictionary the values of the board of this card
+     * @param valueId the id of this card's value in dictionary
+     * @param state the initial state of the card
+     * @param cardNum the card number
+     */
+    Card(CardDictionary dictionary, int valueId, CardState state, int cardNum) {
+        this.dictionary = dictionary;
+        this.valueId = valueId;
+        this.state = state;
+        this.cardNumber = cardNum;
         checkRep();
     }
     
@@ -72,21 +86,36 @@ public class Card {
      * Checks our rep invariant is conserved
      */
     private void checkRep() {
-        //   All cards must have card and cardNumber which are not null.
-        //   If card is Owned, card must be faceUp.
-        //   If card is Removed, it cannot be owned.
-        //   If isOwned is true, cardOwner must be different than null
-        //   If faceUp is false, isOwned is false
-        assert card != null;
-        if (!faceUp || isRemoved) {
-            assert !isOwned;
-            assert cardOwner == null;
-        }
-        if(isOwned) {
-            assert cardOwner != null;
-            assert faceUp;
-        }
-
+        //   All cards must have dictionary and state which are not null.
+        assert dictionary != null;
+        assert 0 <= valueId && valueId < dictionary.size();
+        assert state != null;
+    }
+    
+    /**
+     * @return the current state of this card
+     */
+    CardState getState() {
+        return state;
+    }
+    
+    /**
+     * Replace the state of this card, caller must be the only one allowed to
+     * change it (by holding its lock or by controlling it).
+     * @param next the new state
+     */
+    void setState(CardState next) {
+        state = next;
+    }
+    
+    /**
+     * Atomically replace the state of this card if it is still expected.
+     * @param expected the state the card must currently be in
+     * @param next the new state
+     * @return true iff the card was in expected state and is now in next state
+     */
+    boolean compareAndSetState(CardState expected, CardState next) {
+        return STATE.compareAndSet(this, expected, next);
     }
     
     /*
@@ -94,7 +123,7 @@ public class Card {
      */
     @Override
     public String toString() {
-        return card;
+        return getCardValue();
     }
     
     /**
@@ -102,7 +131,7 @@ public class Card {
      * @return duplicate of Card
      */
     public Card duplicate() {
-        return new Card(card, cardOwner, faceUp, isOwned, isRemoved, cardNumber);
+        return new Card(dictionary, valueId, getState(), cardNumber);
     }
     
     /**
@@ -110,7 +139,7 @@ public class Card {
      * @return whether the card is facing up or not
      */
     public boolean isFacingUp() {
-        return faceUp;
+        return getState().isFaceUp();
     }
     
     /**
@@ -118,7 +147,7 @@ public class Card {
      * @return whether the card is removed from board
      */
     public boolean isRemoved() {
-        return isRemoved;
+        return getState().isRemoved();
     }
     
     /**
@@ -126,7 +155,7 @@ public class Card {
      * @return player who is currently locking the card
      */
     public Player getCardOwner() {
-        return cardOwner;
+        return getState().getOwner();
     }
     
     /**
@@ -134,7 +163,7 @@ public class Card {
      * @return whether the card is locked by other player
      */
     public boolean isOwned() {
-        return isOwned;
+        return getState().isOwned();
     }
     
     /**
@@ -142,10 +171,8 @@ public class Card {
      * Card must be owned by player
      */
     public void releaseCard() {
-        assert isOwned;
-        assert cardOwner != null;
-        isOwned = false;
-        cardOwner = null;
+        assert isOwned();
+        setState(CardState.UP);
         checkRep();
     }
     
@@ -154,10 +181,10 @@ public class Card {
      * @param p player to acquire the card
      */
     public void setOwner(Player p) {
-        assert !isOwned;
-        assert cardOwner == null;
-        cardOwner = p;
-        isOwned = true;
+        final CardState current = getState();
+        assert !current.isOwned();
+        assert current.isFaceUp() && !current.isRemoved();
+        setState(CardState.of(true, false, p));
         checkRep();
     }
     
@@ -166,9 +193,9 @@ public class Card {
      * Card must not be owned by player
      */
     public void removeCard() {
-        isRemoved = true;
-        assert !isOwned;
-        assert cardOwner == null;
+        final CardState current = getState();
+        assert !current.isOwned();
+        setState(CardState.of(current.isFaceUp(), true, null));
         checkRep();
     }
     
@@ -177,8 +204,9 @@ public class Card {
      * Card must be face down
      */
     public void flipCardUp() {
-        assert !faceUp;
-        faceUp = true;
+        final CardState current = getState();
+        assert !current.isFaceUp();
+        setState(CardState.of(true, current.isRemoved(), null));
     }
     
     /**
@@ -186,8 +214,10 @@ public class Card {
      * Card must be face up
      */
     public void flipCardDown() {
-        assert faceUp;
-        faceUp = false;
+        final CardState current = getState();
+        assert current.isFaceUp();
+        assert !current.isOwned();
+        setState(CardState.of(false, current.isRemoved(), null));
     }
     
     /**
@@ -203,7 +233,27 @@ public class Card {
      * @return the string representing this card
      */
     public String getCardValue() {
-        return card;
+        return dictionary.value(valueId);
+    }
+    
+    /**
+     * 
+     * @return the id of this card's value in the dictionary of its board
+     */
+    int getValueId() {
+        return valueId;
+    }
+    
+    /**
+     * @param that another card
+     * @return whether both cards have the same value, an int comparison
+     *         for cards of the same board
+     */
+    public boolean matches(Card that) {
+        if (dictionary == that.dictionary) {
+            return valueId == that.valueId;
+        }
+        return getCardValue().equals(that.getCardValue());
     }
     
     
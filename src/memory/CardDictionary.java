@@ -0,0 +1,95 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable dictionary of the distinct card values of a board.
+ * 
+ * Cards of one board refer to their value by a small int id, so two cards
+ * match iff their ids are equal, and renderers can use the value already
+ * encoded in UTF-8.
+ * @author davidmagrefty
+ *
+ */
+final class CardDictionary {
+    
+    private final String[] values;
+    private final byte[][] utf8;
+    private final Map<String, Integer> ids = new HashMap<>();
+    
+    // Abstraction function:
+    //      AF(values, utf8, ids) = the dictionary where value id i is values[i], 
+    //                              which is encoded as utf8[i], and ids maps
+    //                              every value back to its id
+    // Representation invariant:
+    //      values are distinct and not null
+    //      utf8[i] is values[i] encoded in UTF-8
+    //      ids.get(values[i]) == i
+    // Safety from rep exposure:
+    //      All fields are private and final, values is defensively copied.
+    //      utf8 arrays are shared with renderers, which must not change them.
+    // Thread safety argument:
+    //      Immutable after construction, and only published through final fields
+    
+    /**
+     * @param values distinct card values, value id i is values.get(i)
+     */
+    CardDictionary(List<String> values) {
+        this.values = values.toArray(new String[0]);
+        this.utf8 = new byte[this.values.length][];
+        for (int id = 0; id < this.values.length; id++) {
+            utf8[id] = this.values[id].getBytes(UTF_8);
+            ids.put(this.values[id], id);
+        }
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert values.length == utf8.length;
+        assert ids.size() == values.length;
+    }
+    
+    /**
+     * @param value a card value
+     * @return a dictionary of only this value, with id 0
+     */
+    static CardDictionary of(String value) {
+        return new CardDictionary(List.of(value));
+    }
+    
+    /**
+     * @return number of distinct values
+     */
+    int size() {
+        return values.length;
+    }
+    
+    /**
+     * @param id 0 <= id < size()
+     * @return the value with this id
+     */
+    String value(int id) {
+        return values[id];
+    }
+    
+    /**
+     * @param id 0 <= id < size()
+     * @return the value with this id encoded in UTF-8, must not be modified
+     */
+    byte[] utf8(int id) {
+        return utf8[id];
+    }
+    
+    /**
+     * @param value a card value
+     * @return the id of value, or -1 if it is not in the dictionary
+     */
+    int idOf(String value) {
+        return ids.getOrDefault(value, -1);
+    }
+
+}
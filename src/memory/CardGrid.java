@@ -0,0 +1,65 @@
+package memory;
+
+/**
+ * Storage of the cards of a board.
+ * 
+ * Cells are addressed by their card number: the card at (row, col) has number
+ * row * cols + col.
+ * @author davidmagrefty
+ *
+ */
+interface CardGrid {
+    
+    /**
+     * @return number of rows of the grid
+     */
+    int rows();
+    
+    /**
+     * @return number of columns of the grid
+     */
+    int cols();
+    
+    /**
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @return the card with this number, the same object on every call
+     */
+    Card card(int cardNumber);
+    
+    /**
+     * Read the state of a card without materializing it.
+     * 
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @return the current state of the card with this number
+     */
+    CardState state(int cardNumber);
+    
+    /**
+     * Replace the state of a card, without materializing it if the grid can.
+     * The caller must be the only one allowed to change the card.
+     * 
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @param state the new state of the card with this number
+     */
+    default void setState(int cardNumber, CardState state) {
+        card(cardNumber).setState(state);
+    }
+    
+    /**
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @return the value of the card with this number
+     */
+    String value(int cardNumber);
+    
+    /**
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @return the id of the value of the card with this number in dictionary()
+     */
+    int valueId(int cardNumber);
+    
+    /**
+     * @return the dictionary of every value of the grid's cards
+     */
+    CardDictionary dictionary();
+
+}
@@ -0,0 +1,122 @@
+package memory;
+
+/**
+ * Immutable snapshot of everything that can change about a Card:
+ * its face, whether it was removed, and which player controls it.
+ *
+ * A Card holds exactly one CardState reference, so the whole card can be
+ * moved from one state to another with a single compare-and-set.
+ * States are canonical: the uncontrolled states are shared constants and
+ * every Player owns the one "face up, controlled by me" state, so two states
+ * are the same state if and only if they are the same object.
+ * @author davidmagrefty
+ *
+ */
+final class CardState {
+
+    static final CardState DOWN = new CardState(false, false, null);
+    static final CardState UP = new CardState(true, false, null);
+    static final CardState REMOVED = new CardState(true, true, null);
+    static final CardState REMOVED_DOWN = new CardState(false, true, null);
+
+    private final boolean faceUp;
+    private final boolean removed;
+    private final Player owner;
+
+    // Abstraction function:
+    //   AF(faceUp, removed, owner) = a card which is face up iff faceUp, which is
+    //          no longer on the board iff removed, and which is controlled by owner,
+    //          or by nobody if owner is null.
+    // Representation invariant:
+    //   if owner != null: faceUp and !removed
+    //   at most one instance exists for every (faceUp, removed, owner) triple
+    // Safety from rep exposure:
+    //   All fields are private, final and immutable, except owner which is
+    //   only exposed to Card, who is the one it describes.
+    // Thread safety argument:
+    //   CardState is immutable.
+
+    private CardState(boolean faceUp, boolean removed, Player owner) {
+        this.faceUp = faceUp;
+        this.removed = removed;
+        this.owner = owner;
+        checkRep();
+    }
+
+    /*
+     * Checks our rep invariant is conserved
+     */
+    private void checkRep() {
+        if (owner != null) {
+            assert faceUp;
+            assert !removed;
+        }
+    }
+
+    /**
+     * Make the controlled state of a player, must only be called once per player.
+     * @param owner the player controlling the card
+     * @return a face up state controlled by owner
+     */
+    static CardState controlledBy(Player owner) {
+        assert owner != null;
+        return new CardState(true, false, owner);
+    }
+
+    /**
+     * @param faceUp whether the card is face up
+     * @param removed whether the card is removed
+     * @param owner the controlling player, or null. If not null the card must
+     *              be face up and not removed
+     * @return the canonical state with these values
+     */
+    static CardState of(boolean faceUp, boolean removed, Player owner) {
+        if (owner != null) {
+            assert faceUp && !removed;
+            return owner.controlledState();
+        }
+        if (removed) {
+            return faceUp ? REMOVED : REMOVED_DOWN;
+        }
+        return faceUp ? UP : DOWN;
+    }
+
+    /**
+     * @return whether the card is facing up
+     */
+    boolean isFaceUp() {
+        return faceUp;
+    }
+
+    /**
+     * @return whether the card is removed from board
+     */
+    boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the player controlling the card, or null if nobody does
+     */
+    Player getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return whether a player controls the card
+     */
+    boolean isOwned() {
+        return owner != null;
+    }
+
+    @Override
+    public String toString() {
+        if (removed) {
+            return "removed";
+        }
+        if (!faceUp) {
+            return "down";
+        }
+        return owner == null ? "up" : "up(" + owner + ")";
+    }
+}
@@ -0,0 +1,316 @@
+package memory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * First come first served queues of the players blocked by rule 1D, one queue
+ * per card.
+ *
+ * A player releasing a card hands it over to the first player waiting for it,
+ * which is the only one woken up: the card goes straight from one controlling
+ * player to the next and nobody else can take it in between. A removed card
+ * wakes all its waiters, who then fail by rule 1A. Waiters may spin for a while
+ * before parking, see {@link #SPINS}. Instead of blocking a thread, a waiter
+ * may also be a callback run on an executor when it is handed the card or must
+ * decide again.
+ * @author davidmagrefty
+ *
+ */
+class CardWaiters {
+
+    /**
+     * Times a waiter checks for its card before parking, set by the system property
+     * memory.wait.spins, default 0: park at once.
+     */
+    static final int SPINS = Integer.getInteger("memory.wait.spins", 0);
+
+    /** runs the callbacks of waiters, unless another executor is given */
+    static final Executor DEFAULT_EXECUTOR = ForkJoinPool.commonPool();
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int WOKEN = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * A player blocked on a card, until it is granted the card, woken up to decide
+     * again, or gives up.
+     */
+    static class Waiter {
+        private final Thread thread;
+        private final Player player;
+        private final Consumer<Boolean> callback;
+        private final AtomicInteger status = new AtomicInteger(WAITING);
+
+        private Waiter(Player player, Consumer<Boolean> callback) {
+            this.thread = callback == null ? Thread.currentThread() : null;
+            this.player = player;
+            this.callback = callback;
+        }
+    }
+
+    private final int spins;
+    private final Executor executor;
+    private final Map<Card, Queue<Waiter>> queues = new ConcurrentHashMap<>();
+
+    // Abstraction function:
+    //      AF(spins, executor, queues) = players blocked on cards, where
+    //              queues.get(card) are the players blocked on card in the order they
+    //              came, none if card has no queue, who spin spins times before
+    //              parking, or whose callbacks run on executor
+    // Representation invariant:
+    //      spins >= 0
+    //      a waiter has either a thread or a callback
+    //      a waiter only goes from WAITING to GRANTED, WOKEN or CANCELLED
+    //      a GRANTED waiter is no longer queued
+    // Safety from rep exposure:
+    //      All fields are private and final, queues is never returned and a Waiter
+    //      exposes nothing to its holder
+    // Thread safety argument:
+    //      queues is a threadsafe map of threadsafe queues, and the status of a
+    //      waiter changes by compare-and-set only, so a waiter is either granted
+    //      a card or gives up, never both. Only the player controlling a card grants
+    //      it, so the card is controlled by the waiter before the waiter sees
+    //      GRANTED, up to the releasing thread storing it which the waiter waits for.
+    //      A waiter checks its card after it is queued, and a releasing thread looks
+    //      at the queue again after the card is released, so no wake-up is lost.
+    //      A queue is made and added to under the lock of its entry in queues, and
+    //      only removed from queues under that lock once empty, so no waiter is
+    //      ever added to a queue that was removed.
+    //      Callbacks never run on the releasing thread, which may hold card locks.
+
+    /**
+     * Make queues for the cards of one board.
+     *
+     * @param spins times a waiter checks for its card before parking, >= 0
+     * @param executor runs the callbacks of waiters
+     */
+    CardWaiters(int spins, Executor executor) {
+        this.spins = spins;
+        this.executor = executor;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert spins >= 0;
+        assert executor != null;
+    }
+
+    /**
+     * Queue player as blocked on card by rule 1D, must be called by the thread of
+     * player, before it checks card again and calls await().
+     *
+     * @param card a card controlled by another player
+     * @param player the blocked player
+     * @return the waiter of player
+     */
+    Waiter enqueue(Card card, Player player) {
+        final Waiter waiter = new Waiter(player, null);
+        add(card, waiter);
+        return waiter;
+    }
+
+    /**
+     * Queue player as blocked on card by rule 1D without blocking the calling thread.
+     * Exactly once, callback is run on the executor of this with true when card is
+     * handed over to player, who controls it from then on, or with false when card
+     * may have become available to take otherwise: released to nobody, or removed.
+     *
+     * @param card a card controlled by another player
+     * @param player the blocked player
+     * @param callback told whether player got the card or must decide again by the rules
+     */
+    void enqueue(Card card, Player player, Consumer<Boolean> callback) {
+        final Waiter waiter = new Waiter(player, callback);
+        add(card, waiter);
+        final CardState state = card.getState();
+        if ((state.isRemoved() || !state.isOwned()) && cancel(card, waiter)) {
+            // released before the waiter was queued
+            executor.execute(() -> callback.accept(false));
+        }
+    }
+
+    /**
+     * Block until card is handed over to waiter, or until card may have become
+     * available to take otherwise: released to nobody, or removed. Must be called
+     * by the thread that queued waiter, at most once per waiter.
+     *
+     * @param card the card waiter is queued on
+     * @param waiter a waiter queued by enqueue(card, player)
+     * @return true if card is now controlled by the player of waiter, false if the
+     *         player must decide again by the rules
+     * @throws InterruptedException if interrupted before the card was handed over
+     */
+    boolean await(Card card, Waiter waiter) throws InterruptedException {
+        int spun = 0;
+        while (true) {
+            final int status = waiter.status.get();
+            if (status == GRANTED) {
+                // the releasing thread stores the owner right after granting
+                while (card.getState() != waiter.player.controlledState()) {
+                    Thread.onSpinWait();
+                }
+                return true;
+            }
+            if (status == WOKEN) {
+                return false;
+            }
+            final CardState state = card.getState();
+            if ((state.isRemoved() || !state.isOwned()) && cancel(card, waiter)) {
+                return false;
+            }
+            if (spun < spins) {
+                spun++;
+                Thread.onSpinWait();
+                continue;
+            }
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                if (cancel(card, waiter)) {
+                    throw new InterruptedException();
+                }
+                // granted or woken at the same time, the player got the card
+                // or decides again
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Release a card controlled by the calling player: hand it over to the first
+     * player waiting for it, who controls it from now on, or make it face up and
+     * uncontrolled if nobody waits.
+     *
+     * @param card a face up card controlled by the calling player
+     */
+    void release(Card card) {
+        final Queue<Waiter> queue = queues.get(card);
+        if (queue != null) {
+            Waiter waiter;
+            while ((waiter = queue.peek()) != null) {
+                if (waiter.status.compareAndSet(WAITING, GRANTED)) {
+                    queue.remove(waiter);
+                    card.setState(waiter.player.controlledState());
+                    wake(waiter, true);
+                    prune(card, queue);
+                    return;
+                }
+                // gave up or woken, not waiting anymore
+                queue.remove(waiter);
+            }
+        }
+        card.setState(CardState.UP);
+        wakeFirst(card);
+        if (queue != null) {
+            prune(card, queue);
+        }
+    }
+
+    /**
+     * Wake every player waiting for a card that was removed.
+     *
+     * @param card a removed card
+     */
+    void wakeAll(Card card) {
+        final Queue<Waiter> queue = queues.get(card);
+        if (queue != null) {
+            Waiter waiter;
+            while ((waiter = queue.poll()) != null) {
+                if (waiter.status.compareAndSet(WAITING, WOKEN)) {
+                    wake(waiter, false);
+                }
+            }
+            prune(card, queue);
+        }
+    }
+
+    /**
+     * @return number of cards with a queue, which are only those players are
+     *         blocked on, or were until just now
+     */
+    int size() {
+        return queues.size();
+    }
+
+    /*
+     * Queue waiter on card, in a new queue if card has none
+     */
+    private void add(Card card, Waiter waiter) {
+        queues.compute(card, (key, queue) -> {
+            final Queue<Waiter> waiters = queue == null ? new ConcurrentLinkedQueue<>() : queue;
+            waiters.add(waiter);
+            return waiters;
+        });
+    }
+
+    /*
+     * Forget the queue of card if it is empty, so that queues and the cards they
+     * are kept by only last as long as players are blocked on them
+     */
+    private void prune(Card card, Queue<Waiter> queue) {
+        if (queue.isEmpty()) {
+            queues.computeIfPresent(card, (key, current) -> current.isEmpty() ? null : current);
+        }
+    }
+
+    /*
+     * Wake the first player waiting for card, who checks it again. Called after card
+     * was released to nobody, for a player which was queued after release() looked.
+     */
+    private void wakeFirst(Card card) {
+        final Queue<Waiter> queue = queues.get(card);
+        final Waiter waiter = queue == null ? null : queue.peek();
+        if (waiter == null) {
+            return;
+        }
+        if (waiter.thread != null) {
+            // checks the card again by itself
+            LockSupport.unpark(waiter.thread);
+        } else if (waiter.status.compareAndSet(WAITING, WOKEN)) {
+            queue.remove(waiter);
+            wake(waiter, false);
+        }
+    }
+
+    /*
+     * Wake a waiter no longer WAITING, granted the card or not
+     */
+    private void wake(Waiter waiter, boolean granted) {
+        if (waiter.thread != null) {
+            LockSupport.unpark(waiter.thread);
+        } else {
+            executor.execute(() -> waiter.callback.accept(granted));
+        }
+    }
+
+    /*
+     * Give up waiting, unless the waiter was granted the card or woken already
+     * @return whether waiter gave up
+     */
+    private boolean cancel(Card card, Waiter waiter) {
+        if (!waiter.status.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        final Queue<Waiter> queue = queues.get(card);
+        if (queue != null) {
+            // not removed yet by release() or wakeAll()
+            queue.remove(waiter);
+            prune(card, queue);
+        }
+        // a waiter giving up on a card released to nobody may have been woken
+        // instead of the one behind it
+        if (!card.getState().isOwned()) {
+            wakeFirst(card);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,228 @@
+package memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkpoints of the state of a logged board and its players, so that a
+ * restarted server maps the latest checkpoint and only replays the records of
+ * its {@link FlipLog} written after it.
+ *
+ * A checkpoint is fuzzy: it is taken while flips go on. It remembers the
+ * position of the log when it starts, reads every card and player, then waits
+ * until the log is durable up to the batch being applied when it ends. Every
+ * card or player changed while it was read has a record after the remembered
+ * position, which replays its latest state over whatever the checkpoint read.
+ * A checkpoint is written to a temporary file and renamed over the previous one,
+ * so the file always holds a whole checkpoint.
+ *
+ * A checkpoint file is, in little endian:
+ * <pre>
+ *   MAGIC         4 bytes "MCKP"
+ *   VERSION       int, 1
+ *   ROWS COLS     int, int, the size of the board
+ *   POSITION      long, position of the first record of the log to replay
+ *   PLAYERS_AT    long, position of PLAYERS in the file
+ *   CARDS         ROWS*COLS bytes, the flags of every card as in a log record,
+ *                 0 for face down
+ *   PLAYERS       int, then PLAYERS players encoded as in a log record
+ *   OWNERS        int, then OWNERS times NUMBER int, the number of a controlled
+ *                 card, and PLAYER int, the index of its owner in PLAYERS
+ * </pre>
+ * CARDS is mapped both to write and to load the checkpoint, so a board of
+ * millions of cards is restored without a read per card, and pages of face
+ * down cards are never touched.
+ * @author davidmagrefty
+ *
+ */
+public class Checkpoint {
+
+    /** first bytes of every checkpoint file */
+    static final byte[] MAGIC = { 'M', 'C', 'K', 'P' };
+
+    /** version of the format written by this class */
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int ALIGNMENT = 8;
+    private static final int BUFFER_BYTES = 1 << 12;
+
+    private Checkpoint() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Take a checkpoint of a logged board, without pausing its flips but for
+     * the end of the batch being applied when it is read, replacing file if it
+     * exists.
+     *
+     * @param file path to the checkpoint
+     * @param board a board whose flips are logged to log
+     * @param players the players of board
+     * @param log the log of board
+     * @return position of the log from which to replay the checkpoint
+     * @throws IOException if an error occurs writing the checkpoint, or the log
+     *                     cannot be written up to the checkpoint
+     * @throws InterruptedException if interrupted while waiting for the log
+     * @throws IllegalArgumentException if the flips of board are not logged to log
+     */
+    public static long write(Path file, Board board, PlayerRegistry players, FlipLog log)
+            throws IOException, InterruptedException {
+        if (board.journal() != log) {
+            throw new IllegalArgumentException("flips of the board are not logged to this log");
+        }
+        final long from = log.position();
+        final int cells = board.getRows() * board.getCols();
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // the file is all zeros, i.e. face down cards, until written
+            final MappedByteBuffer cards = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, cells);
+            final Map<Player, Integer> indexes = new LinkedHashMap<>();
+            for (Player player : players.players()) {
+                indexes.put(player, indexes.size());
+            }
+            final List<int[]> owners = new ArrayList<>();
+            for (int card = 0; card < cells; card++) {
+                final CardState state = board.state(card);
+                if (state != CardState.DOWN) {
+                    cards.put(card, (byte) FlipLog.flags(state));
+                    if (state.isOwned()) {
+                        final Integer index = indexes.putIfAbsent(state.getOwner(), indexes.size());
+                        owners.add(new int[] { card, index != null ? index : indexes.size() - 1 });
+                    }
+                }
+            }
+            ByteBuffer rest = FlipLog.newBuffer(BUFFER_BYTES).putInt(indexes.size());
+            for (Player player : indexes.keySet()) {
+                rest = FlipLog.putPlayer(rest, player);
+            }
+            rest = FlipLog.ensure(rest, Integer.BYTES * (1 + 2 * owners.size())).putInt(owners.size());
+            for (int[] owner : owners) {
+                rest.putInt(owner[0]).putInt(owner[1]);
+            }
+
+            // whatever changed while reading has a record before the end of this batch
+            log.awaitDurable(board.journalPosition());
+
+            final long playersAt = align(HEADER_BYTES + (long) cells);
+            final ByteBuffer header = FlipLog.newBuffer(HEADER_BYTES).put(MAGIC).putInt(VERSION)
+                    .putInt(board.getRows()).putInt(board.getCols()).putLong(from).putLong(playersAt);
+            writeFully(channel, header.flip(), 0);
+            writeFully(channel, rest.flip(), playersAt);
+            cards.force();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return from;
+    }
+
+    /**
+     * Restore a board and its players from a checkpoint. The board and players
+     * must not have been played yet.
+     *
+     * @param file path to a checkpoint, which may not exist
+     * @param board the board the checkpoint was taken of
+     * @param players the players of board, restored from the checkpoint
+     * @return position of the log of board from which to replay the checkpoint, see
+     *         {@link FlipLog#open(Path, Board, PlayerRegistry, long, boolean, long)},
+     *         or 0 if file does not exist
+     * @throws IOException if an error occurs reading the file, or it is not a
+     *                     checkpoint of a board of the size of board
+     */
+    public static long load(Path file, Board board, PlayerRegistry players) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("missing header in " + file);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) {
+                throw new IOException("not a checkpoint " + file);
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported checkpoint version " + version + " in " + file);
+            }
+            final int rows = header.getInt();
+            final int cols = header.getInt();
+            if (rows != board.getRows() || cols != board.getCols()) {
+                throw new IOException("checkpoint of a " + rows + "x" + cols + " board in " + file);
+            }
+            final long position = header.getLong();
+            final long playersAt = header.getLong();
+            final int cells = rows * cols;
+            if (playersAt < HEADER_BYTES + (long) cells || playersAt > size) {
+                throw new IOException("invalid checkpoint " + file);
+            }
+
+            final ByteBuffer rest = channel.map(FileChannel.MapMode.READ_ONLY, playersAt, size - playersAt)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final Player[] recorded = new Player[rest.getInt()];
+            final Map<Player, ByteBuffer> images = new HashMap<>();
+            for (int index = 0; index < recorded.length; index++) {
+                recorded[index] = FlipLog.getPlayer(rest, players, images);
+            }
+            FlipLog.restorePlayers(board, images);
+            final Map<Integer, Player> owners = new HashMap<>();
+            for (int count = rest.getInt(); count > 0; count--) {
+                owners.put(rest.getInt(), recorded[rest.getInt()]);
+            }
+
+            final ByteBuffer cards = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, cells)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final BitSet restored = new BitSet();
+            int card = 0;
+            while (card < cells) {
+                // skip face down cards a word at a time
+                if (card + Long.BYTES <= cells && cards.getLong(card) == 0) {
+                    card += Long.BYTES;
+                    continue;
+                }
+                final int flags = cards.get(card);
+                if (flags != 0) {
+                    board.restore(card, FlipLog.state(flags, owners.get(card)));
+                    restored.set(card);
+                }
+                card++;
+            }
+            if (!restored.isEmpty()) {
+                board.cardsRestored(restored.stream().toArray());
+            }
+            return position;
+        }
+    }
+
+    /*
+     * @return position rounded up to a multiple of ALIGNMENT
+     */
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+}
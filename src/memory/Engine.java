@@ -0,0 +1,50 @@
+package memory;
+
+/**
+ * The concurrency strategies a Board can use to apply the flip rules.
+ * @author davidmagrefty
+ *
+ */
+public enum Engine {
+    
+    /**
+     * Every card is guarded by its monitor, two cards are locked in card number order
+     * and blocked players wait on the card monitor.
+     */
+    MONITOR {
+        @Override
+        FlipEngine create(Board board) {
+            return new MonitorEngine(board);
+        }
+    },
+    
+    /**
+     * Every card keeps its whole state in one atomic word which is only changed 
+     * by compare-and-set, no monitor is ever taken on the flip path.
+     */
+    LOCK_FREE {
+        @Override
+        FlipEngine create(Board board) {
+            return new LockFreeEngine(board);
+        }
+    },
+
+    /**
+     * Every flip is published to a command ring and applied in turn by a single
+     * writer, in batches, with no lock on the cards. Blocked players are queued
+     * on the card by the writer.
+     */
+    ACTOR {
+        @Override
+        FlipEngine create(Board board) {
+            return new ActorEngine(board);
+        }
+    };
+    
+    /**
+     * @param board board the engine will apply the rules for
+     * @return a new engine of this type for board
+     */
+    abstract FlipEngine create(Board board);
+
+}
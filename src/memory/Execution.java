@@ -0,0 +1,76 @@
+package memory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The execution models a WebServer can run its request handlers on.
+ * @author davidmagrefty
+ *
+ */
+public enum Execution {
+
+    /**
+     * A new platform thread whenever every thread is busy, idle threads are reused.
+     */
+    CACHED {
+        @Override
+        ExecutorService create(int threads) {
+            return Executors.newCachedThreadPool();
+        }
+    },
+
+    /**
+     * A fixed number of platform threads sharing one queue of requests.
+     */
+    BOUNDED {
+        @Override
+        ExecutorService create(int threads) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    },
+
+    /**
+     * A fork/join pool of a fixed number of platform threads, each with its own
+     * queue of requests, idle threads steal requests from the busy ones.
+     */
+    WORK_STEALING {
+        @Override
+        ExecutorService create(int threads) {
+            return Executors.newWorkStealingPool(threads);
+        }
+    },
+
+    /**
+     * A new virtual thread per request, requires Java 21 or later.
+     */
+    VIRTUAL {
+        @Override
+        ExecutorService create(int threads) {
+            // looked up at run time so that the server still builds and runs on
+            // older Java versions with the other execution models
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new UnsupportedOperationException(
+                        "virtual threads require Java 21, running " + Runtime.version(), e);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("cannot make virtual threads", e);
+            }
+        }
+    };
+
+    /** default number of threads of the bounded execution models */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @param threads number of threads of the bounded execution models, > 0,
+     *                ignored by the others
+     * @return a new executor of this type
+     * @throws UnsupportedOperationException if this execution model is not
+     *         supported by the running Java version
+     */
+    abstract ExecutorService create(int threads);
+
+}
@@ -0,0 +1,45 @@
+package memory;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Strategy that applies the flip rules of the game to the cards of one board.
+ * 
+ * Every engine must follow the rules 1A-1D, 2A-2E, 3A and 3B exactly as they are
+ * documented in {@link Board#flipCard(Player, int, int)}, engines differ only in
+ * how they keep concurrent players from corrupting cards.
+ * @author davidmagrefty
+ *
+ */
+interface FlipEngine {
+    
+    /**
+     * Apply the flip rules for player flipping cardToFlip. Calls
+     * {@link Board#cardsChanged(Card...)} of its board after cards turn face up,
+     * face down or are removed.
+     * 
+     * @param player the player flipping
+     * @param cardToFlip a card of this engine's board
+     * @throws InterruptedException if interrupted while blocked by rule 1D
+     */
+    void flipCard(Player player, Card cardToFlip) throws InterruptedException;
+    
+    /**
+     * Apply the flip rules for player flipping cardToFlip like
+     * {@link #flipCard(Player, Card)}, without blocking the calling thread: a
+     * player blocked by rule 1D is queued and the flip completes when the card is
+     * handed over, or fails by rule 1A, on a thread of the engine.
+     * 
+     * @param player the player flipping, with no other flip in progress
+     * @param cardToFlip a card of this engine's board
+     * @return completed once the rules were applied, exceptionally if they failed
+     */
+    CompletableFuture<Void> flipCardAsync(Player player, Card cardToFlip);
+    
+    /**
+     * @return number of cards players are blocked on by rule 1D, possibly
+     *         including cards just handed over
+     */
+    int blockedCards();
+
+}
@@ -0,0 +1,635 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the flips of a board, to restore the board and its players
+ * after a crash.
+ *
+ * The ACTOR engine appends one record per batch of flips it applies: the state
+ * after the batch of every card and player the batch changed. Records are written
+ * by a thread of the log with group commit: it waits a window for more records,
+ * writes all of them at once, forces them to the disk with a single fsync, and
+ * only then completes the flips of their batches, so a flip is never reported
+ * before it would survive a crash.
+ *
+ * A log file is, in little endian:
+ * <pre>
+ *   MAGIC         4 bytes "MFLG"
+ *   VERSION       int, 1
+ *   ROWS COLS     int, int, the size of the board
+ *   records, each:
+ *     LENGTH      int, bytes of PAYLOAD
+ *     CRC         int, CRC-32 of PAYLOAD
+ *     PAYLOAD     PLAYERS, int, then PLAYERS times:
+ *                   LENGTH int, then LENGTH bytes of the player id in UTF-8
+ *                   SCORE int, ATTEMPTED byte, STATE byte, the PlayerState ordinal
+ *                   HELD byte, then HELD card numbers, int
+ *                 CARDS, int, then CARDS times:
+ *                   NUMBER int, FLAGS byte: 1 face up, 2 removed, 4 controlled
+ *                   OWNER int, index of the player in the record, if controlled
+ * </pre>
+ * Replaying the records in order gives every card and player its latest state.
+ * A crash may leave a torn last record, it is recognized by its length or CRC and
+ * dropped along with everything after it. The log must be replayed on the board
+ * it was written for, e.g. the same board file or seed.
+ * @author davidmagrefty
+ *
+ */
+public class FlipLog implements Closeable {
+
+    /** first bytes of every log file */
+    static final byte[] MAGIC = { 'M', 'F', 'L', 'G' };
+
+    /** version of the format written by this class */
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int FRAME_BYTES = 8;
+    private static final int FACE_UP = 1;
+    private static final int REMOVED = 2;
+    private static final int CONTROLLED = 4;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int READ_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final long windowNanos;
+    private final boolean fsync;
+    private final Thread flusher;
+    private ByteBuffer pending = newBuffer(BUFFER_BYTES);
+    private ByteBuffer spare = newBuffer(BUFFER_BYTES);
+    private List<Consumer<Throwable>> waiting = new ArrayList<>();
+    private IOException failure;
+    private boolean closed;
+    private long syncs;
+    private long appended;
+    private long durable;
+
+    // Abstraction function:
+    //      AF(channel, windowNanos, fsync, flusher, pending, spare, waiting, failure,
+    //         closed, syncs, appended, durable) = the log in the file of channel,
+    //              followed by the records in pending, which are durable once flusher
+    //              wrote them, and forced them to the disk if fsync, after waiting
+    //              windowNanos for more. Each callback of waiting is called once the
+    //              records before it are durable, or with failure if writing them
+    //              failed. closed once closed, syncs groups of records were written so
+    //              far. The log ends at position appended, and is durable up to durable.
+    // Representation invariant:
+    //      windowNanos >= 0, pending != spare
+    //      spare is empty, or null while the flusher writes it
+    //      waiting is empty if pending is
+    //      durable <= appended, appended - durable >= bytes in pending
+    // Safety from rep exposure:
+    //      All fields are private, buffers and callbacks are never returned
+    // Thread safety argument:
+    //      pending, spare, waiting, failure, closed, syncs, appended and durable are
+    //      guarded by this.
+    //      The flusher swaps pending with spare under the lock, then writes spare
+    //      and calls its callbacks without holding it, so appending never waits for
+    //      the disk. The flusher is the only thread writing to channel after open.
+
+    private FlipLog(FileChannel channel, long windowNanos, boolean fsync) {
+        this.channel = channel;
+        this.windowNanos = windowNanos;
+        this.fsync = fsync;
+        this.flusher = new Thread(this::flush, "flip-log");
+        flusher.setDaemon(true);
+        flusher.start();
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert windowNanos >= 0;
+        assert pending != spare;
+    }
+
+    /**
+     * Open the log of a board, replay it on the board, and log every later flip of
+     * the board to it. The board and players must not have been played yet.
+     *
+     * @param file path to the log, created if it does not exist
+     * @param board the board the log was written for, whose rules are applied by
+     *              the ACTOR engine
+     * @param players the players of board, restored from the log
+     * @param windowMicros microseconds to wait for more records before writing a
+     *                     group of records, >= 0
+     * @param fsync whether to force every group of records to the disk before
+     *              completing their flips, otherwise they only survive a crash of
+     *              the process and not of the machine
+     * @return the log of board
+     * @throws IOException if an error occurs reading or writing the file, or it is
+     *                     not the log of a board of the size of board
+     * @throws IllegalArgumentException if the rules of board are not applied by the
+     *                                  ACTOR engine
+     */
+    public static FlipLog open(Path file, Board board, PlayerRegistry players, long windowMicros, boolean fsync)
+            throws IOException {
+        return open(file, board, players, windowMicros, fsync, 0);
+    }
+
+    /**
+     * Open the log of a board as {@link #open(Path, Board, PlayerRegistry, long, boolean)}
+     * does, only replaying the records from position on, e.g. those after a
+     * {@link Checkpoint} of the board already restored.
+     *
+     * @param file path to the log, created if it does not exist
+     * @param board the board the log was written for, whose rules are applied by
+     *              the ACTOR engine
+     * @param players the players of board, restored from the log
+     * @param windowMicros microseconds to wait for more records before writing a
+     *                     group of records, >= 0
+     * @param fsync whether to force every group of records to the disk before
+     *              completing their flips
+     * @param position position in the log of the first record to replay, as given
+     *                 by {@link #position()}, or 0 to replay every record
+     * @return the log of board
+     * @throws IOException if an error occurs reading or writing the file, it is
+     *                     not the log of a board of the size of board, or it ends
+     *                     before position
+     * @throws IllegalArgumentException if the rules of board are not applied by the
+     *                                  ACTOR engine
+     */
+    public static FlipLog open(Path file, Board board, PlayerRegistry players, long windowMicros, boolean fsync,
+            long position) throws IOException {
+        if (windowMicros < 0) {
+            throw new IllegalArgumentException("negative window " + windowMicros);
+        }
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        final FlipLog log = new FlipLog(channel, windowMicros * 1000, fsync);
+        try {
+            // attached before replaying, so a board of another engine is left untouched
+            board.journal(log);
+            final long end = replay(channel, file, board, players, position);
+            channel.truncate(end);
+            channel.position(end);
+            synchronized (log) {
+                log.appended = end;
+                log.durable = end;
+            }
+            return log;
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Write the header of an empty log, or check the header and replay the records
+     * of an existing one from position from on
+     * @return position of the end of the last whole record
+     */
+    private static long replay(FileChannel channel, Path file, Board board, PlayerRegistry players, long from)
+            throws IOException {
+        final long size = channel.size();
+        final ByteBuffer header = newBuffer(HEADER_BYTES);
+        if (Math.max(from, HEADER_BYTES) > Math.max(size, HEADER_BYTES)) {
+            throw new IOException("log ends before position " + from + " in " + file);
+        }
+        if (size == 0) {
+            header.put(MAGIC).putInt(VERSION).putInt(board.getRows()).putInt(board.getCols()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            return HEADER_BYTES;
+        }
+        if (size < HEADER_BYTES || !readFully(channel, header, 0)) {
+            throw new IOException("missing header in " + file);
+        }
+        final byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) {
+            throw new IOException("not a flip log " + file);
+        }
+        final int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported flip log version " + version + " in " + file);
+        }
+        final int rows = header.getInt();
+        final int cols = header.getInt();
+        if (rows != board.getRows() || cols != board.getCols()) {
+            throw new IOException("log of a " + rows + "x" + cols + " board in " + file);
+        }
+
+        // records are read READ_BYTES at a time, buffer holds the log from position on
+        ByteBuffer buffer = newBuffer(READ_BYTES).flip();
+        final CRC32 crc = new CRC32();
+        long position = Math.max(from, HEADER_BYTES);
+        final BitSet restored = new BitSet();
+        final Map<Player, ByteBuffer> images = new HashMap<>();
+        while (true) {
+            if (buffer.remaining() < FRAME_BYTES) {
+                buffer = fill(channel, buffer, position, FRAME_BYTES);
+                if (buffer.remaining() < FRAME_BYTES) {
+                    break;
+                }
+            }
+            final int length = buffer.getInt(buffer.position());
+            if (length < 0 || position + FRAME_BYTES + length > size) {
+                break;
+            }
+            if (buffer.remaining() < FRAME_BYTES + length) {
+                buffer = fill(channel, buffer, position, FRAME_BYTES + length);
+                if (buffer.remaining() < FRAME_BYTES + length) {
+                    break;
+                }
+            }
+            final int start = buffer.position() + FRAME_BYTES;
+            crc.reset();
+            crc.update(buffer.array(), buffer.arrayOffset() + start, length);
+            if ((int) crc.getValue() != buffer.getInt(buffer.position() + Integer.BYTES)) {
+                break;
+            }
+            final ByteBuffer payload = buffer.duplicate();
+            payload.position(start).limit(start + length);
+            apply(payload.slice().order(ByteOrder.LITTLE_ENDIAN), board, players, restored, images);
+            buffer.position(start + length);
+            position += FRAME_BYTES + length;
+        }
+        restorePlayers(board, images);
+        if (!restored.isEmpty()) {
+            board.cardsRestored(restored.stream().toArray());
+        }
+        return position;
+    }
+
+    /*
+     * Read more of channel into buffer, whose remaining bytes are those of channel
+     * from position on
+     * @return buffer, or a larger buffer if it cannot hold bytes bytes, with the
+     *         remaining bytes and as many more as were read
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, long position, int bytes)
+            throws IOException {
+        if (buffer.capacity() < bytes) {
+            buffer = newBuffer(bytes).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    /*
+     * Restore the cards of a record, adding them to restored, and decode its players
+     * into images
+     */
+    private static void apply(ByteBuffer payload, Board board, PlayerRegistry players, BitSet restored,
+            Map<Player, ByteBuffer> images) {
+        final Player[] recorded = new Player[payload.getInt()];
+        for (int index = 0; index < recorded.length; index++) {
+            recorded[index] = getPlayer(payload, players, images);
+        }
+        for (int count = payload.getInt(); count > 0; count--) {
+            final int card = payload.getInt();
+            final int flags = payload.get();
+            board.restore(card, state(flags, (flags & CONTROLLED) != 0 ? recorded[payload.getInt()] : null));
+            restored.set(card);
+        }
+    }
+
+    /**
+     * Encode a player: its id, score, attempted flag, state and held cards. A
+     * player read while another thread changes it may be torn; it is then
+     * encoded as fresh, to be replaced by a later record of the player.
+     *
+     * @param buffer buffer to encode player into
+     * @param player player to encode
+     * @return buffer, or a larger copy of it, with player encoded at its position
+     */
+    static ByteBuffer putPlayer(ByteBuffer buffer, Player player) {
+        final byte[] id = player.getPlayerId().getBytes(UTF_8);
+        PlayerState state = player.peekState();
+        List<Card> held = player.heldCards();
+        if (held.size() != heldBy(state)) {
+            state = PlayerState.FRESH;
+            held = List.of();
+        }
+        buffer = ensure(buffer, Integer.BYTES * 2 + id.length + 3 + held.size() * Integer.BYTES);
+        buffer.putInt(id.length).put(id)
+                .putInt(player.getScore())
+                .put((byte) (player.getAttempted() ? 1 : 0))
+                .put((byte) state.ordinal())
+                .put((byte) held.size());
+        for (Card card : held) {
+            buffer.putInt(card.getCardNumber());
+        }
+        return buffer;
+    }
+
+    /**
+     * Decode a player encoded by {@link #putPlayer(ByteBuffer, Player)}, keeping
+     * the rest of its encoding to restore it later, so that a player in many
+     * records is only restored once.
+     *
+     * @param buffer buffer at the position of an encoded player, moved past it
+     * @param players registry of the players, gets a player for the decoded id
+     * @param images encoding of the state of every player decoded so far, the
+     *               latest replacing the earlier ones
+     * @return the player of players with the decoded id
+     */
+    static Player getPlayer(ByteBuffer buffer, PlayerRegistry players, Map<Player, ByteBuffer> images) {
+        final byte[] id = new byte[buffer.getInt()];
+        buffer.get(id);
+        final Player player = players.player(new String(id, UTF_8));
+        final int held = buffer.get(buffer.position() + Integer.BYTES + 2);
+        final ByteBuffer image = newBuffer(Integer.BYTES + 3 + held * Integer.BYTES);
+        buffer.get(image.array());
+        images.put(player, image);
+        return player;
+    }
+
+    /**
+     * Restore players to the states decoded by {@link #getPlayer(ByteBuffer, PlayerRegistry, Map)}.
+     *
+     * @param board the board of the players
+     * @param images encoding of the state of every player to restore
+     */
+    static void restorePlayers(Board board, Map<Player, ByteBuffer> images) {
+        for (Map.Entry<Player, ByteBuffer> image : images.entrySet()) {
+            final ByteBuffer buffer = image.getValue();
+            final int score = buffer.getInt();
+            final boolean attempted = buffer.get() != 0;
+            final PlayerState state = PlayerState.values()[buffer.get()];
+            final List<Card> held = new ArrayList<>();
+            for (int count = buffer.get(); count > 0; count--) {
+                held.add(board.card(buffer.getInt()));
+            }
+            image.getKey().restore(state, held, score, attempted);
+        }
+    }
+
+    /*
+     * @return number of cards held by a player in state
+     */
+    private static int heldBy(PlayerState state) {
+        switch (state) {
+        case FRESH:
+            return 0;
+        case ONE_CARD_VALID:
+        case ONE_CARD_INVALID:
+            return 1;
+        default:
+            return 2;
+        }
+    }
+
+    /**
+     * @param state state of a card
+     * @return flags of state: face up, removed and controlled
+     */
+    static int flags(CardState state) {
+        return (state.isFaceUp() ? FACE_UP : 0)
+                | (state.isRemoved() ? REMOVED : 0)
+                | (state.isOwned() ? CONTROLLED : 0);
+    }
+
+    /**
+     * @param flags flags of a card state, as given by {@link #flags(CardState)}
+     * @param owner the player controlling the card if flags say it is controlled
+     * @return the card state with these flags
+     */
+    static CardState state(int flags, Player owner) {
+        return CardState.of((flags & FACE_UP) != 0, (flags & REMOVED) != 0, owner);
+    }
+
+    /**
+     * Encode the state of cards and players as a record, called by the engine
+     * while no flip changes them.
+     *
+     * @param cards cards changed by a batch of flips
+     * @param players players changed by the batch
+     * @return the payload of a record of cards, players and the players
+     *         controlling the cards
+     */
+    static byte[] record(Collection<Card> cards, Collection<Player> players) {
+        final Map<Player, Integer> indexes = new LinkedHashMap<>();
+        for (Player player : players) {
+            indexes.putIfAbsent(player, indexes.size());
+        }
+        for (Card card : cards) {
+            final Player owner = card.getState().getOwner();
+            if (owner != null) {
+                indexes.putIfAbsent(owner, indexes.size());
+            }
+        }
+        ByteBuffer record = newBuffer(Integer.BYTES * 2 + cards.size() * 9 + indexes.size() * 32);
+        record.putInt(indexes.size());
+        for (Player player : indexes.keySet()) {
+            record = putPlayer(record, player);
+        }
+        record = ensure(record, Integer.BYTES + cards.size() * 9);
+        record.putInt(cards.size());
+        for (Card card : cards) {
+            final CardState state = card.getState();
+            record.putInt(card.getCardNumber()).put((byte) flags(state));
+            if (state.isOwned()) {
+                record.putInt(indexes.get(state.getOwner()));
+            }
+        }
+        final byte[] payload = new byte[record.position()];
+        record.flip().get(payload);
+        return payload;
+    }
+
+    /**
+     * Append a record to the log, never waiting for the disk. Records are written
+     * in the order appended.
+     *
+     * @param payload payload of the record
+     * @param durable called on a thread of the log with null once the record is
+     *                durable, or with the failure if it cannot be written
+     */
+    void append(byte[] payload, Consumer<Throwable> durable) {
+        final IOException failed;
+        synchronized (this) {
+            failed = closed ? new IOException("flip log closed") : failure;
+            if (failed == null) {
+                final CRC32 crc = new CRC32();
+                crc.update(payload);
+                pending = ensure(pending, FRAME_BYTES + payload.length);
+                pending.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                appended += FRAME_BYTES + payload.length;
+                waiting.add(durable);
+                notifyAll();
+            }
+        }
+        if (failed != null) {
+            durable.accept(new UncheckedIOException(failed));
+        }
+    }
+
+    /**
+     * @return position of the end of the log, after every record appended so far
+     */
+    public synchronized long position() {
+        return appended;
+    }
+
+    /**
+     * Wait until the log is durable up to position.
+     *
+     * @param position a position of the log, as given by {@link #position()}
+     * @throws IOException if the records before position cannot be written, or
+     *                     the log is closed before writing them
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitDurable(long position) throws IOException, InterruptedException {
+        while (durable < position) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed && durable == appended) {
+                throw new IOException("flip log closed before position " + position);
+            }
+            wait();
+        }
+    }
+
+    /**
+     * @return number of groups of records written so far, each with a single fsync
+     *         if the log forces them to the disk
+     */
+    public synchronized long syncs() {
+        return syncs;
+    }
+
+    /**
+     * Write the records appended so far and stop logging. Flips of the board
+     * after closing its log fail.
+     *
+     * @throws IOException if an error occurs closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /*
+     * Body of the flusher: write every group of pending records, until closed
+     */
+    private void flush() {
+        while (true) {
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+            }
+            if (windowNanos > 0) {
+                // group commit: more batches join the records while the window is open
+                LockSupport.parkNanos(windowNanos);
+            }
+            final ByteBuffer group;
+            final List<Consumer<Throwable>> done;
+            synchronized (this) {
+                group = pending;
+                done = waiting;
+                pending = spare;
+                spare = null;
+                waiting = new ArrayList<>();
+            }
+            Throwable result = null;
+            try {
+                group.flip();
+                while (group.hasRemaining()) {
+                    channel.write(group);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                result = new UncheckedIOException(e);
+                synchronized (this) {
+                    failure = e;
+                }
+            }
+            synchronized (this) {
+                if (result == null) {
+                    durable += group.limit();
+                }
+                spare = group.clear();
+                syncs++;
+                notifyAll();
+            }
+            for (Consumer<Throwable> callback : done) {
+                callback.accept(result);
+            }
+        }
+    }
+
+    /**
+     * @param buffer a buffer being filled
+     * @param bytes bytes to put in buffer next
+     * @return buffer, or a larger copy of it with room for at least bytes more
+     */
+    static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        final ByteBuffer larger = newBuffer(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        return larger.put(buffer.flip());
+    }
+
+    /**
+     * @param bytes capacity of the buffer
+     * @return a new little endian heap buffer
+     */
+    static ByteBuffer newBuffer(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /*
+     * Read buffer from channel at position
+     * @return false if the channel ends before buffer is full
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+}
@@ -0,0 +1,305 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-threaded event loops which games are pinned to, so that every request
+ * of a game runs on the thread of its loop: the cards, views and players of a
+ * game stay in the caches of one core, and its locks are never contended by
+ * requests of the same game.
+ *
+ * A new game is pinned to the loop with the fewest games. The time every game
+ * keeps its loop busy is estimated from a sample of its tasks, and a rebalancer moves hot games from the
+ * busiest loop to the idlest one when that narrows the gap between them.
+ * A game runs one task at a time, on one loop at a time: the tasks of a game
+ * are queued by the game and run by its loop in batches, and a game which moves
+ * only starts on its new loop once its old loop finished the batch it was running.
+ * @author davidmagrefty
+ *
+ */
+public class GameLoops {
+
+    /** default time between rebalancings, in milliseconds */
+    public static final long REBALANCE_MILLIS = 1000;
+
+    /* one task of a game in SAMPLED is timed, reading the clock costs as much as a short task */
+    private static final int SAMPLED = 16;
+    
+    /* tasks a game runs before the other games of its loop get their turn */
+    private static final int BATCH = 64;
+
+    /**
+     * The executor of one game, running its tasks on the loop it is pinned to.
+     */
+    public class Pinned implements Executor {
+        private volatile int loop;
+        private final LongAdder busyNanos = new LongAdder();
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private int tasks;
+
+        // Abstraction function:
+        //      AF(loop, busyNanos, pending, scheduled, tasks) = the game pinned to
+        //              loops.get(loop), busy for about busyNanos, whose tasks not run
+        //              yet are pending in order, having run tasks tasks
+        // Representation invariant:
+        //      0 <= loop < loops.size()
+        // Safety from rep exposure:
+        //      All fields are private, only the loop index is returned
+        // Thread safety argument:
+        //      pending is a threadsafe queue. At most one drain() of the game is
+        //      queued or running at any time, the one which set scheduled, so the
+        //      tasks of a game never run on two loops at once. tasks is only used
+        //      by that drain(), and each drain() sees what the one before did since
+        //      it was submitted to a loop after the one before it finished.
+
+        private Pinned(int loop) {
+            this.loop = loop;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            pending.add(task);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    loops.get(loop).execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    pending.remove(task);
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        /*
+         * Run the pending tasks of this game, until there is none left or after a
+         * batch, then let the other games of the loop run and go on with the next
+         * batch on the loop this game is pinned to by then. If a task throws, the
+         * rest go on in a new turn and the exception is thrown to the loop.
+         */
+        private void drain() {
+            int ran = 0;
+            boolean thrown = true;
+            try {
+                while (true) {
+                    final Runnable task = pending.poll();
+                    if (task == null) {
+                        scheduled.set(false);
+                        // a task queued between the poll and clearing the flag
+                        if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                            thrown = false;
+                            return;
+                        }
+                        continue;
+                    }
+                    run(task);
+                    if (++ran % BATCH == 0 && resubmit()) {
+                        thrown = false;
+                        return;
+                    }
+                }
+            } finally {
+                if (thrown) {
+                    // still scheduled, the later tasks of the game must not wait forever
+                    scheduled.set(false);
+                    if (!pending.isEmpty() && scheduled.compareAndSet(false, true) && !resubmit()) {
+                        scheduled.set(false);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Queue the rest of the tasks behind the other games of the loop this game
+         * is pinned to now, false if the loops stopped taking tasks and the current
+         * loop must finish them
+         */
+        private boolean resubmit() {
+            try {
+                loops.get(loop).execute(this::drain);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        /*
+         * Run task, timing it if it is sampled
+         */
+        private void run(Runnable task) {
+            if (++tasks % SAMPLED != 0) {
+                task.run();
+                return;
+            }
+            final long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                busyNanos.add(SAMPLED * (System.nanoTime() - start));
+            }
+        }
+
+        /**
+         * @return index of the loop this game is pinned to
+         */
+        int loop() {
+            return loop;
+        }
+    }
+
+    private final List<ExecutorService> loops = new ArrayList<>();
+    private final Set<Pinned> games = Collections.newSetFromMap(new WeakHashMap<>());
+    private final ScheduledExecutorService rebalancer;
+
+    // Abstraction function:
+    //      AF(loops, games, rebalancer) = the event loops loops, where game g in games
+    //              runs its tasks on loops.get(g.loop) and kept it busy for about
+    //              g.busyNanos since the last rebalancing by rebalancer, estimated from
+    //              one task in SAMPLED
+    // Representation invariant:
+    //      loops is not empty
+    //      0 <= g.loop < loops.size() for every game g
+    // Safety from rep exposure:
+    //      All fields are private and final, a Pinned only exposes its loop index
+    // Thread safety argument:
+    //      loops never changes after construction. games is guarded by its own lock,
+    //      and only holds the games weakly so that evicted games are dropped. The loop
+    //      of a game is volatile and the busy time of a game is a LongAdder. A game
+    //      which moves finishes its running batch on the old loop, and is only
+    //      submitted to its new loop after that.
+
+    /**
+     * Start event loops, rebalanced every period.
+     *
+     * @param count number of loops, > 0
+     * @param periodMillis time between rebalancings, in milliseconds, > 0
+     */
+    public GameLoops(int count, long periodMillis) {
+        for (int ii = 0; ii < count; ii++) {
+            final String name = "game-loop-" + ii;
+            loops.add(Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        this.rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "game-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebalancer.scheduleAtFixedRate(this::rebalance, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert !loops.isEmpty();
+    }
+
+    /**
+     * @return number of loops
+     */
+    public int size() {
+        return loops.size();
+    }
+
+    /**
+     * Pin a new game to the loop with the fewest games.
+     *
+     * @return the executor of the game, to run all its tasks with
+     */
+    public Pinned pin() {
+        synchronized (games) {
+            final int[] counts = new int[loops.size()];
+            for (Pinned game : games) {
+                counts[game.loop]++;
+            }
+            int loop = 0;
+            for (int ii = 1; ii < counts.length; ii++) {
+                if (counts[ii] < counts[loop]) {
+                    loop = ii;
+                }
+            }
+            final Pinned game = new Pinned(loop);
+            games.add(game);
+            return game;
+        }
+    }
+
+    /**
+     * Move hot games from the busiest loop to the idlest one while it narrows the
+     * gap between their busy times since the last rebalancing, then start measuring
+     * again. A game only moves if it is busy for less than the gap, so a single
+     * hot game is never moved back and forth.
+     *
+     * @return number of games moved
+     */
+    int rebalance() {
+        final List<Pinned> snapshot;
+        synchronized (games) {
+            snapshot = new ArrayList<>(games);
+        }
+        final long[] loads = new long[loops.size()];
+        final Map<Pinned, Long> busy = new HashMap<>();
+        for (Pinned game : snapshot) {
+            final long nanos = game.busyNanos.sumThenReset();
+            busy.put(game, nanos);
+            loads[game.loop] += nanos;
+        }
+        int moved = 0;
+        // at most one move per game: a move only narrows the gap it was chosen for
+        for (int round = 0; round < snapshot.size(); round++) {
+            int busiest = 0;
+            int idlest = 0;
+            for (int ii = 1; ii < loads.length; ii++) {
+                busiest = loads[ii] > loads[busiest] ? ii : busiest;
+                idlest = loads[ii] < loads[idlest] ? ii : idlest;
+            }
+            final long gap = loads[busiest] - loads[idlest];
+            Pinned hottest = null;
+            for (Pinned game : snapshot) {
+                final long nanos = busy.get(game);
+                if (game.loop == busiest && nanos > 0 && nanos < gap
+                        && (hottest == null || nanos > busy.get(hottest))) {
+                    hottest = game;
+                }
+            }
+            if (hottest == null) {
+                break;
+            }
+            final long nanos = busy.get(hottest);
+            loads[busiest] -= nanos;
+            loads[idlest] += nanos;
+            // the next batch of the game runs on the new loop
+            hottest.loop = idlest;
+            busy.put(hottest, 0L);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Stop the loops and the rebalancer, after the tasks already queued.
+     */
+    public void shutdown() {
+        rebalancer.shutdownNow();
+        loops.forEach(ExecutorService::shutdown);
+    }
+
+}
@@ -0,0 +1,132 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the card grid of a new board one value at a time, in card number
+ * order, straight into the layout of the board without an intermediate copy.
+ * Values are interned into the dictionary of the board as they are added.
+ * @author davidmagrefty
+ *
+ */
+class GridBuilder {
+    
+    private final int rows;
+    private final int cols;
+    private final Map<String, Integer> valueIds = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final ValueIds ids;
+    private int added = 0;
+    
+    // Abstraction function:
+    //      AF(rows, cols, valueIds, values, ids, added) = a rows-by-cols grid where 
+    //              the first added cells are filled, cell i with value values[ids.get(i)],
+    //              and valueIds maps every distinct value to its id
+    // Representation invariant:
+    //      rows > 0, cols > 0
+    //      0 <= added <= rows * cols == ids.size()
+    //      valueIds.get(values.get(id)) == id
+    // Safety from rep exposure:
+    //      All fields are private, none are returned. The grids built take 
+    //      ownership of values and ids.
+    // Thread safety argument:
+    //      Not threadsafe, a builder is only used by the thread making a board
+    
+    /**
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @throws IllegalArgumentException if the grid does not have a positive size
+     *                                  which fits in an array
+     */
+    GridBuilder(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("invalid board size " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.ids = new ValueIds(rows * cols);
+    }
+    
+    /**
+     * @return number of rows of the grid
+     */
+    int rows() {
+        return rows;
+    }
+    
+    /**
+     * @return number of columns of the grid
+     */
+    int cols() {
+        return cols;
+    }
+    
+    /**
+     * @param value a card value
+     * @return the id of value, a new id if value was never seen
+     */
+    int intern(String value) {
+        assert value != null;
+        final Integer id = valueIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        values.add(value);
+        valueIds.put(value, values.size() - 1);
+        return values.size() - 1;
+    }
+    
+    /**
+     * Fill the next cell.
+     * @param valueId id returned by intern
+     */
+    void add(int valueId) {
+        assert valueId < values.size();
+        ids.set(added, valueId);
+        added++;
+    }
+    
+    /**
+     * Fill the next cell.
+     * @param value card value
+     */
+    void add(String value) {
+        add(intern(value));
+    }
+    
+    /**
+     * @param layout layout of the new grid
+     * @return a grid of every cell, all face down. The builder must not be used anymore
+     * @throws IllegalStateException if not every cell was filled
+     */
+    CardGrid build(Layout layout) {
+        if (added != ids.size()) {
+            throw new IllegalStateException("expected " + ids.size() + " cards, got " + added);
+        }
+        return grid(rows, cols, new CardDictionary(values), ids, layout);
+    }
+    
+    /**
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @param dictionary distinct card values, indexed by value id
+     * @param ids value id of every cell in card number order, rows * cols of them,
+     *            must not be used by the caller anymore
+     * @param layout layout of the new grid
+     * @return a grid of these cells, all face down
+     */
+    static CardGrid grid(int rows, int cols, CardDictionary dictionary, ValueIds ids, Layout layout) {
+        if (layout == Layout.PACKED) {
+            return new PackedGrid(rows, cols, dictionary, ids);
+        }
+        final Card[] cards = new Card[ids.size()];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = new Card(dictionary, ids.get(i), CardState.DOWN, i);
+        }
+        return new ObjectGrid(rows, cols, cards, dictionary);
+    }
+
+}
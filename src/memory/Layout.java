@@ -0,0 +1,35 @@
+package memory;
+
+/**
+ * The ways a Board can keep its cards in memory.
+ * @author davidmagrefty
+ *
+ */
+public enum Layout {
+    
+    /**
+     * One Card object per cell.
+     */
+    OBJECTS,
+    
+    /**
+     * Primitive arrays: a value id and a state byte per cell, owners of the 
+     * (at most two per player) controlled cards in a sparse map. Card objects
+     * are only made for cells a player touched.
+     */
+    PACKED;
+    
+    /**
+     * Boards larger than this are packed by default.
+     */
+    static final long PACKED_THRESHOLD = 1 << 20;
+    
+    /**
+     * @param cells number of cells of a board
+     * @return the layout used for a board of that many cells when none is given
+     */
+    static Layout forSize(long cells) {
+        return cells > PACKED_THRESHOLD ? PACKED : OBJECTS;
+    }
+
+}
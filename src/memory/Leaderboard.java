@@ -0,0 +1,352 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The players of one game who attempted to flip a card, ranked by score from
+ * highest to lowest, ties by player id.
+ *
+ * The ranking is kept up to date by the players themselves as they score, so
+ * reading the first K players costs O(K) whatever the number of players.
+ * Every point scored is a new version of the leaderboard, and watchers are told
+ * about new versions on delivery threads, once per burst of points.
+ * @author davidmagrefty
+ *
+ */
+public class Leaderboard {
+
+    /** most score changes kept for deltas, older versions get the whole ranking */
+    static final int CHANGE_RING = 1024;
+
+    /**
+     * The score of a player at one moment. Immutable.
+     */
+    public static final class Entry {
+        private final Player player;
+        private final int score;
+
+        private Entry(Player player, int score) {
+            this.player = player;
+            this.score = score;
+        }
+
+        /**
+         * @return id of the player
+         */
+        public String playerId() {
+            return player.getPlayerId();
+        }
+
+        /**
+         * @return score of the player
+         */
+        public int score() {
+            return score;
+        }
+
+        /**
+         * @return the score string according to the web server grammar config:
+         *      "[PlayerId] [Score]"
+         */
+        public String webScoreString() {
+            return playerId() + " " + score;
+        }
+    }
+
+    /*
+     * The new score of a player at one version, and the number of places it climbed
+     */
+    private static class Change {
+        private final long version;
+        private final Entry entry;
+        private final int climbed;
+
+        Change(long version, Entry entry, int climbed) {
+            this.version = version;
+            this.entry = entry;
+            this.climbed = climbed;
+        }
+    }
+
+    /*
+     * A watcher waiting for the first version after since
+     */
+    private static class Waiter {
+        private final long since;
+        private final Runnable callback;
+
+        Waiter(long since, Runnable callback) {
+            this.since = since;
+            this.callback = callback;
+        }
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> -entry.score)
+            .thenComparing(Entry::playerId);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final Map<Integer, AtomicInteger> atScore = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReferenceArray<Change> changes = new AtomicReferenceArray<>(CHANGE_RING);
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean published = new AtomicBoolean();
+    private final Executor executor;
+
+    // Abstraction function:
+    //      AF(ranking, atScore, version, changes, waiters, published, executor) = the
+    //              players p ranked with score s, for the entries (p, s) of ranking which
+    //              are p.ranked(), in the order of ranking, atScore.get(s) of them with
+    //              score s, after version points were scored, where version v is the
+    //              point of changes.get(v % CHANGE_RING) if that change has version v;
+    //              waiters are told about the next version on executor, and published
+    //              is whether a version was published which was not signaled yet
+    // Representation invariant:
+    //      p.ranked() is in ranking for every entry (p, s) of ranking
+    //      ranking has at most two entries of a player: its current one, and its
+    //              previous one while it is being replaced
+    //      changes.get(i) == null or changes.get(i).version % CHANGE_RING == i
+    // Safety from rep exposure:
+    //      All fields are private and final and never returned, entries are immutable
+    // Thread safety argument:
+    //      ranking, atScore, waiters and the counters are threadsafe. The entry of a
+    //      player is only replaced by the player scoring, never by two threads at
+    //      once: the new entry is added, then made current by a volatile write, then
+    //      the old one removed. Readers skip entries which are not current, so a
+    //      player is never listed twice; a player whose score changes while a reader
+    //      passes its entries may be missed by that reader.
+    //      Changes are recorded like the changes of a BoardView: a slot never goes
+    //      back to an older version, and readers of version v wait until it is
+    //      recorded. A waiter is added before the version is checked, and removed
+    //      by whoever calls it back, so it is called back once, after a newer version.
+
+    /**
+     * Make an empty leaderboard, telling watchers on the shared delivery threads.
+     */
+    public Leaderboard() {
+        this(WatchDispatcher.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param executor runs the callbacks of watchers
+     */
+    Leaderboard(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Rank player with a new score, called by the player only.
+     * A higher score than before is a new version of the leaderboard.
+     *
+     * @param player a player of this leaderboard's game
+     * @param score the score of player, >= its previous score
+     */
+    void update(Player player, int score) {
+        final Entry previous = player.ranked();
+        if (previous != null && previous.score == score) {
+            return;
+        }
+        final Entry next = new Entry(player, score);
+        ranking.add(next);
+        player.setRanked(next);
+        if (previous == null) {
+            count(score).incrementAndGet();
+            return;
+        }
+        ranking.remove(previous);
+        count(previous.score).decrementAndGet();
+        // players the player caught up with no longer rank above it
+        int climbed = 0;
+        for (int passed = previous.score + 1; passed <= score; passed++) {
+            climbed += count(passed).get();
+        }
+        count(score).incrementAndGet();
+        record(next, climbed);
+    }
+
+    private AtomicInteger count(int score) {
+        return atScore.computeIfAbsent(score, s -> new AtomicInteger());
+    }
+
+    /*
+     * Record a new version for the new score of a player and tell the watchers
+     */
+    private void record(Entry entry, int climbed) {
+        final long next = version.incrementAndGet();
+        final int slot = (int) (next % CHANGE_RING);
+        final Change change = new Change(next, entry, climbed);
+        Change recorded = changes.get(slot);
+        while ((recorded == null || recorded.version < next)
+                && !changes.compareAndSet(slot, recorded, change)) {
+            recorded = changes.get(slot);
+        }
+        publish();
+    }
+
+    /**
+     * @param offset number of players to skip, >= 0
+     * @param limit maximum number of players to list, >= 0
+     * @return the players ranked offset to offset+limit-1, highest score first,
+     *         in O(offset + limit)
+     */
+    public List<Entry> page(int offset, int limit) {
+        assert offset >= 0 && limit >= 0;
+        final List<Entry> page = new ArrayList<>(Math.min(limit, 64));
+        int rank = 0;
+        final Iterator<Entry> entries = ranking.iterator();
+        while (page.size() < limit && entries.hasNext()) {
+            final Entry entry = entries.next();
+            if (entry != entry.player.ranked()) {
+                // replaced meanwhile
+                continue;
+            }
+            if (rank++ >= offset) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @param count maximum number of players to list, >= 0
+     * @return the count players with the highest scores, highest first
+     */
+    public List<Entry> top(int count) {
+        return page(0, count);
+    }
+
+    /**
+     * @return number of points scored in this game so far
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Render the score changes after a version.
+     * The first line is "delta VERSION", followed by "PLAYER SCORE +CLIMBED" for
+     * every player who scored after version since, once with its latest score and
+     * the number of places it climbed by scoring: the players with a higher score
+     * it caught up with. If the changes after since are no longer kept, or since is
+     * not a positive version, the first line is "full VERSION" followed by
+     * "PLAYER SCORE" for every ranked player, highest score first. The leaderboard
+     * is at least at VERSION when rendered.
+     *
+     * @param since a version the watcher has already seen
+     * @return the changes after since, without a trailing newline
+     */
+    public String changesSince(long since) {
+        final long until = version.get();
+        final Map<Player, Change> changed = changedPlayers(since, until);
+        if (changed == null) {
+            final StringBuilder full = new StringBuilder("full ").append(until);
+            for (Entry entry : top(Integer.MAX_VALUE)) {
+                full.append('\n').append(entry.webScoreString());
+            }
+            return full.toString();
+        }
+        final StringBuilder delta = new StringBuilder("delta ").append(until);
+        for (Change change : changed.values()) {
+            delta.append('\n').append(change.entry.webScoreString()).append(" +").append(change.climbed);
+        }
+        return delta.toString();
+    }
+
+    /*
+     * @return the latest change of every player who scored in versions since + 1
+     *         .. until, with the places climbed summed, in the order of their latest
+     *         change, or null if not all kept
+     */
+    private Map<Player, Change> changedPlayers(long since, long until) {
+        if (since <= 0 || since > until || until - since > CHANGE_RING) {
+            return null;
+        }
+        final Map<Player, Change> changed = new LinkedHashMap<>();
+        for (long next = since + 1; next <= until; next++) {
+            final int slot = (int) (next % CHANGE_RING);
+            Change change = changes.get(slot);
+            while (change == null || change.version < next) {
+                // the change of next is being recorded
+                Thread.onSpinWait();
+                change = changes.get(slot);
+            }
+            if (change.version != next) {
+                return null;
+            }
+            final Change earlier = changed.remove(change.entry.player);
+            changed.put(change.entry.player, earlier == null ? change
+                    : new Change(next, change.entry, earlier.climbed + change.climbed));
+        }
+        return changed;
+    }
+
+    /**
+     * Call back once the leaderboard is past a version, on a delivery thread.
+     * Points scored while the callback waits for its turn are conflated into one
+     * call, which should read the changes with {@link #changesSince(long)}.
+     *
+     * @param since a version the watcher has already seen
+     * @param callback called once, as soon as the version is not since
+     */
+    public void onChange(long since, Runnable callback) {
+        waiters.add(new Waiter(since, callback));
+        if (version.get() != since) {
+            // changed before the waiter was added
+            signal();
+        }
+    }
+
+    /**
+     * @return number of watchers waiting for a change
+     */
+    int watcherCount() {
+        return waiters.size();
+    }
+
+    /*
+     * Tell the watchers about a new version, returns without waiting for any of them
+     */
+    private void publish() {
+        if (!waiters.isEmpty()) {
+            signal();
+        }
+    }
+
+    private void signal() {
+        if (published.compareAndSet(false, true)) {
+            executor.execute(this::signalAll);
+        }
+    }
+
+    /*
+     * Call back every waiter past its version
+     */
+    private void signalAll() {
+        published.set(false);
+        final long current = version.get();
+        for (Waiter waiter : waiters) {
+            if (waiter.since != current && waiters.remove(waiter)) {
+                try {
+                    waiter.callback.run();
+                } catch (RuntimeException e) {
+                    // a failing watcher must not stop the delivery thread
+                    System.err.println("score watcher failed: " + e);
+                }
+            }
+        }
+    }
+
+}
@@ -11,5 +11,16 @@ public interface Listener {
      * @param boardString the new state of the board
      */
     public void boardChanged(final String boardString);
+    
+    /**
+     * Called when the board changes, by default with the board as seen by player.
+     * Listeners which do not need the whole board, e.g. to send only the changes
+     * of the board, override this method to skip its rendering.
+     * @param board the board that changed
+     * @param player the player watching the board
+     */
+    public default void boardChanged(final Board board, final Player player) {
+        boardChanged(board.webString(player));
+    }
 
 }
@@ -0,0 +1,238 @@
+package memory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Flip engine which never takes a monitor.
+ *
+ * The whole state of a card (face, removed, controlling player) is one atomic
+ * word, see {@link CardState}, and every rule is a single compare-and-set of
+ * one card. A card controlled by a player can only be changed by that player,
+ * so rules touching two cards never need to lock both of them.
+ * Players blocked by rule 1D wait in line for the card, see {@link CardWaiters}.
+ * @author davidmagrefty
+ *
+ */
+class LockFreeEngine implements FlipEngine {
+
+    private final Board board;
+    private final CardWaiters waiters = new CardWaiters(CardWaiters.SPINS, CardWaiters.DEFAULT_EXECUTOR);
+
+    // Abstraction function:
+    //      AF(board, waiters) = the rules of the game applied to the cards of board,
+    //                           where waiters are the players blocked by rule 1D
+    // Representation invariant:
+    //      board != null
+    //      waiters only has cards of board
+    // Safety from rep exposure:
+    //      All fields are private and final, waiters is never returned
+    // Thread safety argument:
+    //      Uncontrolled cards only change by compare-and-set from the state that
+    //      the rule was decided on, so two players can never both win the same card.
+    //      Controlled cards are only changed by their controlling player, which is
+    //      the only one who may release or remove them.
+    //      waiters is threadsafe. A released card is handed over by its controlling
+    //      player, removed cards by the player who controlled them.
+
+    LockFreeEngine(Board board) {
+        this.board = board;
+    }
+
+    @Override
+    public void flipCard(Player player, Card cardToFlip) throws InterruptedException {
+        if (flipUnlessFirstCard(player, cardToFlip)) {
+            flipFirstCard(player, cardToFlip);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flipCardAsync(Player player, Card cardToFlip) {
+        final CompletableFuture<Void> flipped = new CompletableFuture<>();
+        try {
+            if (flipUnlessFirstCard(player, cardToFlip)) {
+                flipFirstCardAsync(player, cardToFlip, flipped);
+            } else {
+                flipped.complete(null);
+            }
+        } catch (RuntimeException e) {
+            flipped.completeExceptionally(e);
+        }
+        return flipped;
+    }
+
+    /*
+     * Rules 3A, 3B and 2A-2E
+     * @return whether player controls no cards and must flip cardToFlip by 1A-1D
+     */
+    private boolean flipUnlessFirstCard(Player player, Card cardToFlip) {
+        player.markAttempted();
+        if (player.getState().equals(PlayerState.TWO_CARDS_MATCH)) {
+            // 3A: the player controls both matching cards, nobody else can change them.
+            // They are removed and the player relinquishes control of them.
+            List<Card> orderedCards = player.getCards();
+            player.resetCardList();
+            for (Card card : orderedCards) {
+                card.setState(CardState.REMOVED);
+            }
+            board.cardsChanged(orderedCards.toArray(new Card[0]));
+            for (Card card : orderedCards) {
+                waiters.wakeAll(card);
+            }
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.TWO_CARDS_NO_MATCH)) {
+            // 3B: each card still on the board, face up and not controlled
+            // is turned face down.
+            for (Card card : player.getCards()) {
+                turnDownIfUncontrolled(card);
+            }
+            player.resetCardList();
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.ONE_CARD_INVALID)) {
+            // 3B: same as above for the single card left face up
+            turnDownIfUncontrolled(player.getFirstCard());
+            player.resetCardList();
+            player.setState(PlayerState.FRESH);
+        }
+        if (player.getState().equals(PlayerState.ONE_CARD_VALID)) {
+            flipSecondCard(player, cardToFlip);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Rules 1A-1D, player controls no cards
+     */
+    private void flipFirstCard(Player player, Card cardToFlip) throws InterruptedException {
+        assert player.numberOwnedCards() == 0;
+        while (true) {
+            final CardState current = cardToFlip.getState();
+            // 1A: no card there, the operation fails
+            if (current.isRemoved()) {
+                return;
+            }
+            // 1D: controlled by another player, wait in line until it is handed
+            // over, or decide again if it is removed or released to nobody
+            if (current.isOwned()) {
+                final CardWaiters.Waiter waiter = waiters.enqueue(cardToFlip, player);
+                if (waiters.await(cardToFlip, waiter)) {
+                    player.holdCard(cardToFlip);
+                    player.setState(PlayerState.ONE_CARD_VALID);
+                    return;
+                }
+                continue;
+            }
+            // 1B: face down turns face up and the player controls it
+            // 1C: face up and not controlled, the player controls it
+            if (cardToFlip.compareAndSetState(current, player.controlledState())) {
+                player.holdCard(cardToFlip);
+                player.setState(PlayerState.ONE_CARD_VALID);
+                if (!current.isFaceUp()) {
+                    board.cardsChanged(cardToFlip);
+                }
+                return;
+            }
+            // lost the card to another player, decide again
+        }
+    }
+
+    /*
+     * Rules 1A-1D like flipFirstCard(), completing flipped instead of blocking
+     */
+    private void flipFirstCardAsync(Player player, Card cardToFlip, CompletableFuture<Void> flipped) {
+        assert player.numberOwnedCards() == 0;
+        while (true) {
+            final CardState current = cardToFlip.getState();
+            // 1A: no card there, the operation fails
+            if (current.isRemoved()) {
+                flipped.complete(null);
+                return;
+            }
+            // 1D: controlled by another player, wait in line without a thread
+            if (current.isOwned()) {
+                waiters.enqueue(cardToFlip, player, granted -> {
+                    try {
+                        if (granted) {
+                            player.holdCard(cardToFlip);
+                            player.setState(PlayerState.ONE_CARD_VALID);
+                            flipped.complete(null);
+                        } else {
+                            flipFirstCardAsync(player, cardToFlip, flipped);
+                        }
+                    } catch (RuntimeException e) {
+                        flipped.completeExceptionally(e);
+                    }
+                });
+                return;
+            }
+            // 1B, 1C
+            if (cardToFlip.compareAndSetState(current, player.controlledState())) {
+                player.holdCard(cardToFlip);
+                player.setState(PlayerState.ONE_CARD_VALID);
+                if (!current.isFaceUp()) {
+                    board.cardsChanged(cardToFlip);
+                }
+                flipped.complete(null);
+                return;
+            }
+            // lost the card to another player, decide again
+        }
+    }
+
+    /*
+     * Rules 2A-2E, player controls exactly one card
+     */
+    private void flipSecondCard(Player player, Card cardToFlip) {
+        final Card firstCard = player.getFirstCard();
+        while (true) {
+            final CardState current = cardToFlip.getState();
+            // 2A: no card there, the operation fails
+            // 2B: controlled by a player (maybe themselves), the operation fails
+            //     without blocking.
+            // In both cases the player relinquishes control of the first card,
+            // which remains face up for now
+            if (current.isRemoved() || current.isOwned()) {
+                waiters.release(firstCard);
+                player.setState(PlayerState.ONE_CARD_INVALID);
+                return;
+            }
+            // 2C: face down turns face up, in any case the player controls it
+            if (cardToFlip.compareAndSetState(current, player.controlledState())) {
+                if (!current.isFaceUp()) {
+                    board.cardsChanged(cardToFlip);
+                }
+                break;
+            }
+            // lost the card to another player, decide again
+        }
+        player.holdCard(cardToFlip);
+        // 2D: the cards match, the player keeps both and scores a point
+        if (firstCard.matches(cardToFlip)) {
+            player.setState(PlayerState.TWO_CARDS_MATCH);
+            player.incrementScore();
+        }
+        // 2E: no match, the player relinquishes control of both, they remain face up
+        else {
+            waiters.release(firstCard);
+            waiters.release(cardToFlip);
+            player.setState(PlayerState.TWO_CARDS_NO_MATCH);
+        }
+    }
+
+    /*
+     * Turn card face down if it is on the board, face up and not controlled
+     */
+    private void turnDownIfUncontrolled(Card card) {
+        if (card.compareAndSetState(CardState.UP, CardState.DOWN)) {
+            board.cardsChanged(card);
+        }
+    }
+
+    @Override
+    public int blockedCards() {
+        return waiters.size();
+    }
+}
@@ -0,0 +1,273 @@
+package memory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Flip engine which guards every card with its monitor.
+ * 
+ * Players holding two cards lock both, in the order of their card numbers, 
+ * and players blocked by rule 1D wait in line for the card, see {@link CardWaiters}.
+ * @author davidmagrefty
+ *
+ */
+class MonitorEngine implements FlipEngine {
+    
+    private final Board board;
+    private final CardWaiters waiters = new CardWaiters(CardWaiters.SPINS, CardWaiters.DEFAULT_EXECUTOR);
+    
+    // Abstraction function:
+    //      AF(board, waiters) = the rules of the game applied to the cards of board,
+    //                           where waiters are the players blocked by rule 1D
+    // Representation invariant:
+    //      board != null
+    // Safety from rep exposure:
+    //      All fields are private and final
+    // Thread safety argument:
+    //      Every read and write of a card is done while holding the card monitor.
+    //      - Avoiding deadlock: each card has a unique card number which is picked
+    //                           by the card order on the board. The serialized order
+    //                           is done by given lower card numbers precedence.
+    //      Players blocked by rule 1D are queued while holding the card monitor and
+    //      wait outside of it, cards are handed over to them while holding it.
+    
+    MonitorEngine(Board board) {
+        this.board = board;
+    }
+    
+    @Override
+    public void flipCard(Player player, Card cardToFlip) throws InterruptedException {
+        if (flipUnlessFirstCard(player, cardToFlip)) {
+            flipFirstCard(player, cardToFlip);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Void> flipCardAsync(Player player, Card cardToFlip) {
+        final CompletableFuture<Void> flipped = new CompletableFuture<>();
+        try {
+            if (flipUnlessFirstCard(player, cardToFlip)) {
+                flipFirstCardAsync(player, cardToFlip, flipped);
+            } else {
+                flipped.complete(null);
+            }
+        } catch (RuntimeException e) {
+            flipped.completeExceptionally(e);
+        }
+        return flipped;
+    }
+    
+    /*
+     * Rules 3A, 3B and 2A-2E
+     * @return whether player controls no cards and must flip cardToFlip by 1A-1D
+     */
+    private boolean flipUnlessFirstCard(Player player, Card cardToFlip) {
+        player.markAttempted();
+        if (player.getState().equals(PlayerState.TWO_CARDS_MATCH)) {
+            // 3A: If they had turned over a matching pair, they control both cards. 
+            // Now, those cards are removed from the board, and they relinquish control of them.
+            List<Card> orderedCards = player.getCards();
+            Card firstCard = orderedCards.get(0);
+            Card secondCard = orderedCards.get(1);
+            synchronized(firstCard) {
+                synchronized(secondCard) {
+                    player.releaseCards();
+                    player.resetCardList();
+                    secondCard.removeCard();
+                    firstCard.removeCard();
+                    board.cardsChanged(secondCard, firstCard);
+                    waiters.wakeAll(secondCard);
+                    waiters.wakeAll(firstCard);
+                    player.setState(PlayerState.FRESH);
+                }}}
+        if (player.getState().equals(PlayerState.TWO_CARDS_NO_MATCH)) {
+            // 3B:  they had turned over two non-matching cards, 
+            // and relinquished control but left them face up on the board. 
+            // Now, for each of those card(s), if the card is still on the board, 
+            // currently face up, and currently not controlled by another player, 
+            // the card is turned face down.
+            List<Card> orderedCards = player.getCards();
+            Card firstCard = orderedCards.get(0);
+            Card secondCard = orderedCards.get(1);
+            synchronized(firstCard) {
+                synchronized(secondCard) {
+                    for (Card card : orderedCards) {
+                        if (!card.isRemoved() && card.isFacingUp()) {
+                            if (!card.isOwned()) {
+                                card.flipCardDown();
+                                board.cardsChanged(card);
+                            }}}
+                    player.resetCardList(); 
+                    player.setState(PlayerState.FRESH);
+                }}}
+        if (player.getState().equals(PlayerState.ONE_CARD_INVALID)) {
+            // 3B:  they had turned over one card, 
+            // and relinquished control but left them face up on the board. 
+            // Now, for each card, if the card is still on the board, 
+            // currently face up, and currently not controlled by another player, 
+            // the card is turned face down.
+            Card playerFirstcard = player.getFirstCard();
+            synchronized(playerFirstcard) {
+                if (!playerFirstcard.isRemoved() && playerFirstcard.isFacingUp()) {
+                    if (!playerFirstcard.isOwned()) {
+                        playerFirstcard.flipCardDown();
+                        board.cardsChanged(playerFirstcard);
+                    }}
+                player.resetCardList();
+                player.setState(PlayerState.FRESH);}}
+        if (player.getState().equals(PlayerState.ONE_CARD_VALID)) {
+            // Turn over second card
+            Card playerFirstcard = player.getFirstCard();
+            Card syncFirst;
+            Card syncSecond;
+            if (playerFirstcard.getCardNumber() < cardToFlip.getCardNumber()) {
+                syncFirst = playerFirstcard;
+                syncSecond = cardToFlip;
+            } else {
+                syncFirst = cardToFlip;
+                syncSecond = playerFirstcard;
+            }
+            synchronized(syncFirst) {
+                synchronized(syncSecond) {
+                // 2A: If there is no card there, the operation fails. 
+                // The player also relinquishes control of their 
+                // first card (but it remains face up for now).
+                if (cardToFlip.isRemoved()) {
+                    player.setState(PlayerState.ONE_CARD_INVALID);
+                    waiters.release(playerFirstcard);
+                    return false;
+                }
+                // 2B: if the card is face up and controlled by a 
+                // player (another player or themselves), the operation fails. 
+                // To avoid deadlocks, the operation does not block. 
+                // The player also relinquishes control of their first card 
+                // (but it remains face up for now).
+                else if (cardToFlip.isFacingUp() && cardToFlip.isOwned()) {
+                    waiters.release(playerFirstcard);
+                    player.setState(PlayerState.ONE_CARD_INVALID);
+                }
+                // If the card is face down, or if the card 
+                // is face up but not controlled by a player
+                else if (!cardToFlip.isFacingUp() ||
+                        (cardToFlip.isFacingUp() && !cardToFlip.isOwned())) {
+                    // 2C: If it is face down, it turns face up
+                    if (!cardToFlip.isFacingUp()) {
+                        cardToFlip.flipCardUp();
+                        board.cardsChanged(cardToFlip);
+                    }
+                    player.takeCard(cardToFlip);
+                    // 2D: If the two cards are the same, that’s a successful match! 
+                    // The player keeps control of both cards 
+                    // (and they remain face up on the board for now). 
+                    // The player’s score increases by one point.
+                    if (playerFirstcard.matches(cardToFlip)) {
+                        player.setState(PlayerState.TWO_CARDS_MATCH);
+                        player.incrementScore();
+                    }
+                    // 2E: If they are not the same, 
+                    // the player relinquishes control of both cards 
+                    // (again, they remain face up for now)
+                    else {
+                        waiters.release(playerFirstcard);
+                        waiters.release(cardToFlip);
+                        player.setState(PlayerState.TWO_CARDS_NO_MATCH);
+                    }}}}}
+        // Fresh turn, player does not own any cards
+        return player.getState().equals(PlayerState.FRESH);
+    }
+    
+    /*
+     * Rules 1A-1D, player controls no cards
+     */
+    private void flipFirstCard(Player player, Card cardToFlip) throws InterruptedException {
+        assert player.numberOwnedCards() == 0;
+        while (true) {
+            final CardWaiters.Waiter waiter;
+            synchronized(cardToFlip) {
+                // 1A: If there is no card there (the player identified an empty space, 
+                // perhaps because the card was just removed by another player), 
+                // the operation fails.
+                if (cardToFlip.isRemoved()) {
+                    return;
+                }
+                // 1B: If the card is face down, 
+                // it turns face up (all players can now see it) 
+                // and the player controls that card
+                else if (!cardToFlip.isFacingUp()) {
+                    cardToFlip.flipCardUp();
+                    player.takeCard(cardToFlip);
+                    player.setState(PlayerState.ONE_CARD_VALID);
+                    board.cardsChanged(cardToFlip);
+                    return;
+                }
+                // 1C: If the card is already face up, but not controlled by another player, 
+                // then it remains face up, and the player controls the card.
+                else if (!cardToFlip.isOwned()) {
+                    player.takeCard(cardToFlip);
+                    player.setState(PlayerState.ONE_CARD_VALID);
+                    return;
+                }
+                // 1D: if the card is face up and controlled by another player, 
+                // the operation blocks. The player will contend with other players 
+                // to take control of the card at the next opportunity: players get
+                // it in the order they came.
+                waiter = waiters.enqueue(cardToFlip, player);
+            }
+            if (waiters.await(cardToFlip, waiter)) {
+                player.holdCard(cardToFlip);
+                player.setState(PlayerState.ONE_CARD_VALID);
+                return;
+            }
+            // removed or released to nobody, decide again
+        }
+    }
+    
+    /*
+     * Rules 1A-1D like flipFirstCard(), completing flipped instead of blocking
+     */
+    private void flipFirstCardAsync(Player player, Card cardToFlip, CompletableFuture<Void> flipped) {
+        assert player.numberOwnedCards() == 0;
+        synchronized(cardToFlip) {
+            // 1A
+            if (cardToFlip.isRemoved()) {
+                // fails, completed outside of the monitor
+            }
+            // 1B
+            else if (!cardToFlip.isFacingUp()) {
+                cardToFlip.flipCardUp();
+                player.takeCard(cardToFlip);
+                player.setState(PlayerState.ONE_CARD_VALID);
+                board.cardsChanged(cardToFlip);
+            }
+            // 1C
+            else if (!cardToFlip.isOwned()) {
+                player.takeCard(cardToFlip);
+                player.setState(PlayerState.ONE_CARD_VALID);
+            }
+            // 1D: queued without a thread, called back once the card is handed
+            // over or must be decided again, never while holding the monitor
+            else {
+                waiters.enqueue(cardToFlip, player, granted -> {
+                    try {
+                        if (granted) {
+                            player.holdCard(cardToFlip);
+                            player.setState(PlayerState.ONE_CARD_VALID);
+                            flipped.complete(null);
+                        } else {
+                            flipFirstCardAsync(player, cardToFlip, flipped);
+                        }
+                    } catch (RuntimeException e) {
+                        flipped.completeExceptionally(e);
+                    }
+                });
+                return;
+            }
+        }
+        flipped.complete(null);
+    }
+
+    @Override
+    public int blockedCards() {
+        return waiters.size();
+    }
+}
@@ -0,0 +1,91 @@
+package memory;
+
+/**
+ * Card grid keeping one Card object per cell.
+ * @author davidmagrefty
+ *
+ */
+class ObjectGrid implements CardGrid {
+    
+    private final int rows;
+    private final int cols;
+    private final Card[] cards;
+    private final CardDictionary dictionary;
+    
+    // Abstraction function:
+    //      AF(rows, cols, cards, dictionary) = the rows-by-cols grid where the card
+    //                              at (row, col) is cards[row * cols + col], 
+    //                              whose values are in dictionary
+    // Representation invariant:
+    //      rows > 0, cols > 0
+    //      cards.length == rows * cols
+    //      cards[i] is not null and has card number i
+    //      every value of a card is in dictionary
+    // Safety from rep exposure:
+    //      All fields are private and final, cards is never returned.
+    //      Cards are shared with the board's engine, which is the one mutating them
+    // Thread safety argument:
+    //      The array is never changed after construction, Card is threadsafe.
+    
+    /**
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param cards the cards of the grid, in card number order. Must not be 
+     *              used by the caller anymore
+     * @param dictionary dictionary of the values of the cards
+     */
+    ObjectGrid(int rows, int cols, Card[] cards, CardDictionary dictionary) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cards = cards;
+        this.dictionary = dictionary;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert rows > 0;
+        assert cols > 0;
+        assert cards.length == rows * cols;
+        for (int i = 0; i < cards.length; i++) {
+            assert cards[i] != null;
+            assert cards[i].getCardNumber() == i;
+            assert dictionary.value(cards[i].getValueId()).equals(cards[i].getCardValue());
+        }
+    }
+    
+    @Override
+    public int rows() {
+        return rows;
+    }
+    
+    @Override
+    public int cols() {
+        return cols;
+    }
+    
+    @Override
+    public Card card(int cardNumber) {
+        return cards[cardNumber];
+    }
+    
+    @Override
+    public CardState state(int cardNumber) {
+        return cards[cardNumber].getState();
+    }
+    
+    @Override
+    public String value(int cardNumber) {
+        return cards[cardNumber].getCardValue();
+    }
+    
+    @Override
+    public int valueId(int cardNumber) {
+        return cards[cardNumber].getValueId();
+    }
+    
+    @Override
+    public CardDictionary dictionary() {
+        return dictionary;
+    }
+
+}
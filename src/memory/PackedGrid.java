@@ -0,0 +1,196 @@
+package memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Card grid keeping its cells in primitive arrays.
+ * 
+ * Every cell is a value id into a dictionary of the distinct card values and
+ * one state byte. Only controlled cells have an owner, at most two per player,
+ * so owners live in a sparse map. Card objects are only made for cells a player
+ * touched, and are then reused.
+ * @author davidmagrefty
+ *
+ */
+class PackedGrid implements CardGrid {
+    
+    private static final byte FACE_UP = 1;
+    private static final byte REMOVED = 2;
+    private static final byte OWNED = 4;
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+    
+    private final int rows;
+    private final int cols;
+    private final CardDictionary dictionary;
+    private final ValueIds ids;
+    private final byte[] states;
+    private final Map<Integer, Player> owners = new ConcurrentHashMap<>();
+    private final Map<Integer, Card> cards = new ConcurrentHashMap<>();
+    
+    // Abstraction function:
+    //      AF(rows, cols, dictionary, ids, states, owners, cards) = the rows-by-cols grid
+    //              where the card with number i has value dictionary.value(ids.get(i)), is face 
+    //              up iff states[i] has FACE_UP, is removed iff states[i] has REMOVED and
+    //              is controlled by owners.get(i) iff states[i] has OWNED.
+    //              cards are the Card objects handed out so far.
+    // Representation invariant:
+    //      rows > 0, cols > 0
+    //      ids.size() == states.length == rows * cols
+    //      0 <= ids.get(i) < dictionary.size()
+    //      if states[i] has OWNED: states[i] has FACE_UP and not REMOVED
+    //      cards.get(i) has card number i
+    // Safety from rep exposure:
+    //      All fields are private and final, arrays and maps are never returned.
+    //      Cards handed out only change the grid through the methods below.
+    // Thread safety argument:
+    //      ids are never changed after construction, dictionary is immutable.
+    //      A state byte is only changed by a volatile write of the one thread 
+    //      allowed to change the card (lock holder or controlling player), or by
+    //      compare-and-set. owners and cards are threadsafe maps.
+    //      An owner is put in owners before or right after its cell becomes OWNED
+    //      (by the same thread), and removed before the cell stops being OWNED,
+    //      so a reader seeing OWNED with no owner only waits for that thread.
+    
+    /**
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param dictionary distinct card values, indexed by value id
+     * @param ids value id of every cell in card number order, all face down. 
+     *            Must not be used by the caller anymore
+     */
+    PackedGrid(int rows, int cols, CardDictionary dictionary, ValueIds ids) {
+        this.rows = rows;
+        this.cols = cols;
+        this.dictionary = dictionary;
+        this.ids = ids;
+        this.states = new byte[ids.size()];
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert rows > 0;
+        assert cols > 0;
+        assert (long) rows * cols == ids.size();
+        assert states.length == ids.size();
+    }
+    
+    @Override
+    public int rows() {
+        return rows;
+    }
+    
+    @Override
+    public int cols() {
+        return cols;
+    }
+    
+    @Override
+    public Card card(int cardNumber) {
+        return cards.computeIfAbsent(cardNumber, number -> new PackedCard(this, number));
+    }
+    
+    @Override
+    public String value(int cardNumber) {
+        return dictionary.value(ids.get(cardNumber));
+    }
+    
+    @Override
+    public int valueId(int cardNumber) {
+        return ids.get(cardNumber);
+    }
+    
+    @Override
+    public CardDictionary dictionary() {
+        return dictionary;
+    }
+    
+    @Override
+    public CardState state(int cardNumber) {
+        while (true) {
+            final byte bits = (byte) STATES.getVolatile(states, cardNumber);
+            if ((bits & OWNED) == 0) {
+                return CardState.of((bits & FACE_UP) != 0, (bits & REMOVED) != 0, null);
+            }
+            final Player owner = owners.get(cardNumber);
+            if (owner != null && (byte) STATES.getVolatile(states, cardNumber) == bits) {
+                return owner.controlledState();
+            }
+            // the new owner is still recording itself
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * Replace the state of a card, caller must be the only one allowed to change it.
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @param next the new state
+     */
+    @Override
+    public void setState(int cardNumber, CardState next) {
+        final Player owner = next.getOwner();
+        if (owner != null) {
+            owners.put(cardNumber, owner);
+            STATES.setVolatile(states, cardNumber, encode(next));
+        } else {
+            owners.remove(cardNumber);
+            STATES.setVolatile(states, cardNumber, encode(next));
+        }
+    }
+    
+    /**
+     * Atomically replace the state of an uncontrolled card if it is still expected.
+     * Controlled cards are only changed by their owner, with setState.
+     * @param cardNumber 0 <= cardNumber < rows() * cols()
+     * @param expected the state the card must currently be in, not controlled
+     * @param next the new state
+     * @return true iff the card was in expected state and is now in next state
+     */
+    boolean compareAndSetState(int cardNumber, CardState expected, CardState next) {
+        assert !expected.isOwned();
+        if (!STATES.compareAndSet(states, cardNumber, encode(expected), encode(next))) {
+            return false;
+        }
+        if (next.getOwner() != null) {
+            owners.put(cardNumber, next.getOwner());
+        }
+        return true;
+    }
+    
+    private static byte encode(CardState state) {
+        return (byte) ((state.isFaceUp() ? FACE_UP : 0) 
+                | (state.isRemoved() ? REMOVED : 0) 
+                | (state.isOwned() ? OWNED : 0));
+    }
+    
+    /**
+     * A card of a packed grid, its state lives in the grid.
+     */
+    private static class PackedCard extends Card {
+        
+        private final PackedGrid grid;
+        
+        PackedCard(PackedGrid grid, int cardNumber) {
+            super(grid.dictionary, grid.valueId(cardNumber), CardState.DOWN, cardNumber);
+            this.grid = grid;
+        }
+        
+        @Override
+        CardState getState() {
+            return grid.state(getCardNumber());
+        }
+        
+        @Override
+        void setState(CardState next) {
+            grid.setState(getCardNumber(), next);
+        }
+        
+        @Override
+        boolean compareAndSetState(CardState expected, CardState next) {
+            return grid.compareAndSetState(getCardNumber(), expected, next);
+        }
+    }
+
+}
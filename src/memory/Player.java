@@ -1,6 +1,7 @@
 package memory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -13,13 +14,17 @@ import java.util.Set;
 public class Player {
     private int score = 0;
     private PlayerState state = PlayerState.FRESH;
-    private List<Card> cards = new ArrayList<Card>();
+    private volatile List<Card> cards = List.of();
     private final String playerId;
+    private final int handle;
+    private final Leaderboard leaderboard;
+    private volatile Leaderboard.Entry ranked;
     private boolean attemptedToFlip = false;
+    private final CardState controlled = CardState.controlledBy(this);
     
     /*
-     * AF(playerId, state, score, cards, attemptedToFlip) = The player
-     *      represented by playerId who's current game play is state, where state is
+     * AF(playerId, handle, leaderboard, ranked, state, score, cards, attemptedToFlip) = The player
+     *      represented by playerId, numbered handle by its PlayerRegistry, who's current game play is state, where state is
      *      either:
      *      FRESH (didn't pick any cards yet) 
      *      ONE_CARD_VALID (picked one card and ready to pick second)
@@ -36,12 +41,17 @@ public class Player {
      *      go back to being face down. 
      *      
      *      attemptedToFlip represents whether the player has tried to flip a card
+     *      and ranks the player with score in leaderboard (if not null) as ranked
+     *      controlled is the state of every card this player controls
      * 
      * RI:
      *      score >= 0
      *      state in {FRESH, ONE_CARD_VALID, ONE_CARD_INVALID, TWO_CARDS_MATCH, TWO_CARDS_NO_MATCH}
      *      cards.size() <= 2
      *      playerId != null
+     *      handle >= -1
+     *      ranked == null unless attemptedToFlip and leaderboard != null,
+     *          otherwise ranked has score score
      *      if state is ONE_CARD_VALID\INVALID:
      *          cards.size() == 1
      *      if state is FRESH:
@@ -50,7 +60,7 @@ public class Player {
      *          cards.size == 2
      * 
      * Safety From Rep Exposure:
-     *      playerID is final and cannot be mutated.
+     *      playerID and handle are final and cannot be mutated.
      *      The state changed according to game rules, in a threadsafe manner.
      *      Player score can only be mutated through the fixed game rules and it is
      *      not exposed to the client
@@ -62,6 +72,10 @@ public class Player {
      *      All operations done on mutable variables of Player are done in a 
      *      synchronized thread safe manner. The changes made to Player are made through
      *      Serializeable lock acquisition.
+     *      cards is an immutable list which is replaced on every change, so other
+     *      threads (e.g. rendering the board for this player) can read it.
+     *      ranked is an immutable entry replaced by a volatile write, so the
+     *      leaderboard can be read while players score.
      * 
      */
     
@@ -77,6 +91,8 @@ public class Player {
                 PlayerState.TWO_CARDS_MATCH,
                 PlayerState.TWO_CARDS_NO_MATCH).contains(state);
         assert playerId != null;
+        assert handle >= -1;
+        assert ranked == null || ranked.score() == score;
         if (state.equals(PlayerState.FRESH)) {
             assert cards.isEmpty();
         }
@@ -94,7 +110,19 @@ public class Player {
      * @param id player ID
      */
     public Player (String id) {
+        this(id, -1, null);
+    }
+    
+    /**
+     * Constructor for a Player of a PlayerRegistry
+     * @param id player ID
+     * @param handle number of the player in its registry, >= 0, or -1 if none
+     * @param leaderboard ranks the player once it attempted to flip a card, or null
+     */
+    Player(String id, int handle, Leaderboard leaderboard) {
         playerId = id;
+        this.handle = handle;
+        this.leaderboard = leaderboard;
         checkRep();
     }
     
@@ -102,7 +130,29 @@ public class Player {
      * Will result marking the player as attempted to flip a card
      */
     public void markAttempted() {
-        attemptedToFlip = true;
+        if (!attemptedToFlip) {
+            attemptedToFlip = true;
+            rank();
+        }
+    }
+    
+    /**
+     * Restore this player as it was, e.g. replaying a {@link FlipLog}
+     * @param state the state of the player
+     * @param held the cards of the player in its current turn, in the order played,
+     *             as many as state requires
+     * @param score the score of the player, >= 0
+     * @param attempted whether the player attempted to flip a card
+     */
+    void restore(PlayerState state, List<Card> held, int score, boolean attempted) {
+        this.state = state;
+        this.cards = List.copyOf(held);
+        this.score = score;
+        this.attemptedToFlip = attempted;
+        if (attempted) {
+            rank();
+        }
+        checkRep();
     }
     
     /**
@@ -125,9 +175,37 @@ public class Player {
      */
     public void incrementScore() {
         score++;
+        if (attemptedToFlip) {
+            rank();
+        }
         checkRep();
     }
     
+    /*
+     * Rank this player in its leaderboard with its current score
+     */
+    private void rank() {
+        if (leaderboard != null) {
+            leaderboard.update(this, score);
+        }
+    }
+    
+    /**
+     * 
+     * @return the current entry of this player in its leaderboard, null if not ranked
+     */
+    Leaderboard.Entry ranked() {
+        return ranked;
+    }
+    
+    /**
+     * Replace the entry of this player in its leaderboard, called by the leaderboard only
+     * @param entry the new entry
+     */
+    void setRanked(Leaderboard.Entry entry) {
+        ranked = entry;
+    }
+    
     /**
      * 
      * @return player id
@@ -136,6 +214,14 @@ public class Player {
         return playerId;
     }
     
+    /**
+     * 
+     * @return the number of this player in its PlayerRegistry, -1 if it has none
+     */
+    int handle() {
+        return handle;
+    }
+    
     /*
      * Two objects are equal if they share the same player id
      */
@@ -166,11 +252,47 @@ public class Player {
      * @return true if managed to add it
      */
     public boolean takeCard(Card card) {
-        cards.add(card);
+        cards = withCard(card);
         card.setOwner(this);
         return true;
     }
     
+    /**
+     * Record a card this player already gained control of
+     * (e.g. by a compare-and-set on the card state)
+     * @param card a card controlled by this player
+     */
+    void holdCard(Card card) {
+        assert this.equals(card.getCardOwner());
+        cards = withCard(card);
+    }
+    
+    /*
+     * @return the cards of this player and card
+     */
+    private List<Card> withCard(Card card) {
+        final List<Card> more = new ArrayList<Card>(cards);
+        more.add(card);
+        return Collections.unmodifiableList(more);
+    }
+    
+    /**
+     * 
+     * @return the cards this player played in its current turn, in the order played.
+     *         Unmodifiable, and never changed afterwards
+     */
+    List<Card> heldCards() {
+        return cards;
+    }
+    
+    /**
+     * 
+     * @return the state of a face up card controlled by this player
+     */
+    CardState controlledState() {
+        return controlled;
+    }
+    
     /**
      * 
      * @return the state the player is currently in
@@ -193,6 +315,16 @@ public class Player {
         
     }
     
+    /**
+     * 
+     * @return the state the player is currently in, without checking it against
+     *         its cards, which another thread may be changing, e.g. while a
+     *         {@link Checkpoint} reads the player
+     */
+    PlayerState peekState() {
+        return state;
+    }
+    
     /**
      * 
      * @param newState set the new state of the player to newState
@@ -253,7 +385,7 @@ public class Player {
      * Will empty the cards the player has
      */
     public void resetCardList() {
-        cards = new ArrayList<Card>();
+        cards = List.of();
     }
     
     /**
@@ -0,0 +1,116 @@
+package memory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The players of one game, made the first time their id is seen, each numbered
+ * by a dense handle: the n-th player seen has handle n-1.
+ *
+ * Looking up a known player takes no lock, so requests of different players
+ * never contend, and costs the same with ten players or a million.
+ * @author davidmagrefty
+ *
+ */
+public class PlayerRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Player> byId = new ConcurrentHashMap<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private volatile Player[] byHandle = new Player[INITIAL_CAPACITY];
+    private volatile int size;
+
+    // Abstraction function:
+    //      AF(byId, leaderboard, byHandle, size) = the players byHandle[0..size-1], the
+    //              player with id i being byId.get(i) and the player with handle h
+    //              byHandle[h], ranked by leaderboard once they attempted to flip a card
+    // Representation invariant:
+    //      byId.size() == size <= byHandle.length
+    //      byHandle[h].handle() == h for 0 <= h < size, and byId maps its id to it
+    // Safety from rep exposure:
+    //      All fields are private, byHandle is never returned and byId only as an
+    //      unmodifiable view. Players and the leaderboard are shared with the server
+    //      on purpose, they are threadsafe.
+    // Thread safety argument:
+    //      byId is a threadsafe map and a player is only made by computeIfAbsent, so
+    //      one id is never two players. Players are registered while holding the
+    //      lock of this registry, which only guards byHandle and size: byHandle is
+    //      filled before size is raised, both volatile, so whoever reads a handle
+    //      below size sees its player. Lookups by id or by handle take no lock.
+
+    /**
+     * Make an empty registry.
+     */
+    public PlayerRegistry() {
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert size <= byHandle.length;
+    }
+
+    /**
+     * Find a player, or make it the first time its id is seen.
+     *
+     * @param playerId id of a player
+     * @return the player with this id, the same one on every call
+     */
+    public Player player(String playerId) {
+        final Player known = byId.get(playerId);
+        if (known != null) {
+            return known;
+        }
+        return byId.computeIfAbsent(playerId, this::register);
+    }
+
+    /*
+     * Make the next player, called once per id by computeIfAbsent
+     */
+    private synchronized Player register(String playerId) {
+        if (size == byHandle.length) {
+            byHandle = Arrays.copyOf(byHandle, 2 * size);
+        }
+        final Player player = new Player(playerId, size, leaderboard);
+        byHandle[size] = player;
+        size++;
+        checkRep();
+        return player;
+    }
+
+    /**
+     * @param handle handle of a player of this registry, 0 <= handle < size()
+     * @return the player with this handle
+     */
+    Player player(int handle) {
+        // reading size first makes the player with this handle visible
+        final int registered = size;
+        assert 0 <= handle && handle < registered;
+        return byHandle[handle];
+    }
+
+    /**
+     * @return number of players, the handle the next new player will have
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the ranking of the players who attempted to flip a card
+     */
+    public Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * @return unmodifiable live view of the players, in no particular order
+     */
+    public Collection<Player> players() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+}
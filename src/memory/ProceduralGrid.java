@@ -0,0 +1,185 @@
+package memory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Card grid deriving the value of every cell from a seed, on demand.
+ *
+ * The cards are the same multiset as a generated board of the same cards: each
+ * value floor(cells / values) times and some distinct values once more. Cell p
+ * gets the card at position perm(p) of that multiset, where perm is a
+ * pseudorandom permutation of the cells: a Feistel network on the smallest even
+ * number of bits covering the cells, walking its cycles until it lands on a cell.
+ * Only cells a player touched have a Card, kept in a sparse map, every other
+ * cell is face down, so memory grows with the cards touched and not the area.
+ * @author davidmagrefty
+ *
+ */
+class ProceduralGrid implements CardGrid {
+
+    private static final int ROUNDS = 4;
+
+    private final int rows;
+    private final int cols;
+    private final long seed;
+    private final CardDictionary dictionary;
+    private final int repetition;
+    private final int repeated;
+    private final int[] extra;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys = new long[ROUNDS];
+    private final Map<Integer, Card> cards = new ConcurrentHashMap<>();
+
+    // Abstraction function:
+    //      AF(rows, cols, seed, dictionary, repetition, repeated, extra, halfBits,
+    //         halfMask, keys, cards) = the rows-by-cols grid where the card with
+    //              number p has value id card(perm(p)), where card(q) is q / repetition
+    //              if q < repeated and extra[q - repeated] otherwise, and perm is the
+    //              Feistel permutation with keys on 2 * halfBits bits, walked until it
+    //              is below rows * cols. The card is cards.get(p) if p was touched,
+    //              and face down otherwise. The grid was made from seed.
+    // Representation invariant:
+    //      rows > 0, cols > 0
+    //      repeated == repetition * dictionary.size() <= rows * cols
+    //      extra.length == rows * cols - repeated, its ids distinct and < dictionary.size()
+    //      rows * cols <= 1 << (2 * halfBits), halfMask == (1 << halfBits) - 1
+    //      cards.get(p) has card number p and value id card(perm(p))
+    // Safety from rep exposure:
+    //      All fields are private, arrays and maps are never returned.
+    //      Cards are shared with the board's engine, which is the one mutating them
+    // Thread safety argument:
+    //      All fields but cards are never changed after construction. cards is a
+    //      threadsafe map, and a card is put in it before it is returned, so a card
+    //      changes only after a reader of its state can find it.
+
+    /**
+     * Make a grid of random cards.
+     *
+     * @param rows number of rows, > 0
+     * @param cols number of columns, > 0
+     * @param cards distinct card values, not empty
+     * @param seed seed of the permutation of the cards
+     * @throws IllegalArgumentException if the grid does not have a positive size,
+     *                                  or there are no cards
+     */
+    ProceduralGrid(int rows, int cols, Set<String> cards, long seed) {
+        this(rows, cols, BoardGenerator.values(rows, cols, cards), seed);
+    }
+
+    private ProceduralGrid(int rows, int cols, List<String> values, long seed) {
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        this.dictionary = new CardDictionary(values);
+        final int cells = rows * cols;
+        final SplittableRandom random = new SplittableRandom(seed);
+        this.repetition = cells / values.size();
+        this.repeated = repetition * values.size();
+        this.extra = BoardGenerator.extraIds(random, values.size(), cells - repeated);
+        final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(cells - 1L));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        for (int round = 0; round < ROUNDS; round++) {
+            keys[round] = random.nextLong();
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert rows > 0;
+        assert cols > 0;
+        assert repeated == repetition * dictionary.size();
+        assert extra.length == (long) rows * cols - repeated;
+        assert (long) rows * cols <= 1L << (2 * halfBits);
+    }
+
+    /**
+     * @return a grid with the same cards as this grid, all face down
+     */
+    ProceduralGrid newGame() {
+        final String[] values = new String[dictionary.size()];
+        for (int id = 0; id < values.length; id++) {
+            values[id] = dictionary.value(id);
+        }
+        return new ProceduralGrid(rows, cols, List.of(values), seed);
+    }
+
+    /**
+     * @return number of cards with a Card, touched by a player
+     */
+    int touched() {
+        return cards.size();
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public Card card(int cardNumber) {
+        return cards.computeIfAbsent(cardNumber,
+                number -> new Card(dictionary, valueId(number), CardState.DOWN, number));
+    }
+
+    @Override
+    public CardState state(int cardNumber) {
+        final Card card = cards.get(cardNumber);
+        return card == null ? CardState.DOWN : card.getState();
+    }
+
+    @Override
+    public String value(int cardNumber) {
+        return dictionary.value(valueId(cardNumber));
+    }
+
+    @Override
+    public int valueId(int cardNumber) {
+        final int position = permute(cardNumber);
+        return position < repeated ? position / repetition : extra[position - repeated];
+    }
+
+    @Override
+    public CardDictionary dictionary() {
+        return dictionary;
+    }
+
+    /*
+     * @return position of the card of cell in the multiset of cards
+     */
+    private int permute(int cell) {
+        final long cells = (long) rows * cols;
+        long position = cell;
+        do {
+            long left = position >>> halfBits;
+            long right = position & halfMask;
+            for (long key : keys) {
+                final long next = left ^ (mix(right ^ key) & halfMask);
+                left = right;
+                right = next;
+            }
+            position = left << halfBits | right;
+        } while (position >= cells);
+        return (int) position;
+    }
+
+    /*
+     * @return the bits of z mixed, as SplittableRandom mixes its seeds
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
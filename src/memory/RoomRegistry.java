@@ -0,0 +1,239 @@
+package memory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Independent games hosted by one server, each with its own board and players,
+ * addressed by a game id.
+ *
+ * A game is created from the board factory the first time its id is used, and
+ * evicted once nobody used it for the idle time and nobody watches it, so that
+ * its board and players can be reclaimed. Using the id again starts a new game.
+ * @author davidmagrefty
+ *
+ */
+public class RoomRegistry {
+
+    /**
+     * One game: a board and the players who used it.
+     */
+    static class Room {
+        private final Board board;
+        private final Executor executor;
+        private final PlayerRegistry players;
+        private volatile long lastUsed;
+
+        // Abstraction function:
+        //      AF(board, executor, players, lastUsed) = the game played on board by
+        //              the players of players, whose requests run on executor, last
+        //              used at time lastUsed in milliseconds
+        // Representation invariant:
+        //      board != null, players != null, executor != null
+        // Safety from rep exposure:
+        //      board and the players are shared with the server on purpose, they are
+        //      threadsafe. players itself is never returned, only an unmodifiable view.
+        // Thread safety argument:
+        //      players is threadsafe, one id is never two players. lastUsed is volatile.
+
+        /**
+         * @param board the board of the game
+         * @param executor runs the requests of the game
+         * @param now current time in milliseconds
+         */
+        Room(Board board, Executor executor, long now) {
+            this(board, new PlayerRegistry(), executor, now);
+        }
+
+        /**
+         * @param board the board of the game
+         * @param players the players of the game, e.g. restored with the board
+         * @param executor runs the requests of the game
+         * @param now current time in milliseconds
+         */
+        Room(Board board, PlayerRegistry players, Executor executor, long now) {
+            this.board = board;
+            this.players = players;
+            this.executor = executor;
+            this.lastUsed = now;
+        }
+
+        /**
+         * @return the board of this game
+         */
+        Board board() {
+            return board;
+        }
+
+        /**
+         * @return the executor running the requests of this game
+         */
+        Executor executor() {
+            return executor;
+        }
+
+        /**
+         * @param playerId id of a player
+         * @return the player of this game with this id, a new player if it never
+         *         played this game
+         */
+        Player player(String playerId) {
+            return players.player(playerId);
+        }
+
+        /**
+         * @return the ranking of the players of this game
+         */
+        Leaderboard leaderboard() {
+            return players.leaderboard();
+        }
+
+        /**
+         * @return unmodifiable live view of the players of this game
+         */
+        Collection<Player> players() {
+            return players.players();
+        }
+    }
+
+    private final Supplier<Board> factory;
+    private final long idleMillis;
+    private final GameLoops loops;
+    private final LongSupplier clock;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    // Abstraction function:
+    //      AF(factory, idleMillis, loops, clock, rooms) = the games rooms.values(), the
+    //              game with id g being rooms.get(g), made with a new board from factory,
+    //              pinned to one of loops if not null, and evicted after idleMillis
+    //              unused by the time of clock
+    // Representation invariant:
+    //      idleMillis > 0
+    // Safety from rep exposure:
+    //      All fields are private and final, rooms is never returned
+    // Thread safety argument:
+    //      rooms is a threadsafe map. A game is looked up and marked used in one
+    //      computeIfPresent() of its id, and only evicted by a computeIfPresent() of
+    //      its id which checks again that it is idle, so a game which is being used
+    //      is never evicted. A board is made without holding any lock of rooms, and
+    //      added by putIfAbsent(), so two requests racing to make a game agree on
+    //      one of their boards.
+
+    /**
+     * Make a registry of games.
+     *
+     * @param factory makes the board of every new game, a new board on every call
+     * @param idleMillis time after which a game nobody uses or watches is evicted, > 0
+     */
+    public RoomRegistry(Supplier<Board> factory, long idleMillis) {
+        this(factory, idleMillis, null);
+    }
+
+    /**
+     * Make a registry of games, whose requests run on the loop they are pinned to.
+     *
+     * @param factory makes the board of every new game, a new board on every call
+     * @param idleMillis time after which a game nobody uses or watches is evicted, > 0
+     * @param loops the loops every new game is pinned to, or null to run the
+     *              requests of games on the threads receiving them
+     */
+    public RoomRegistry(Supplier<Board> factory, long idleMillis, GameLoops loops) {
+        this(factory, idleMillis, loops, System::currentTimeMillis);
+    }
+
+    /**
+     * @param factory makes the board of every new game, a new board on every call
+     * @param idleMillis time after which a game nobody uses or watches is evicted, > 0
+     * @param loops the loops every new game is pinned to, or null
+     * @param clock current time in milliseconds
+     */
+    RoomRegistry(Supplier<Board> factory, long idleMillis, GameLoops loops, LongSupplier clock) {
+        this.factory = factory;
+        this.idleMillis = idleMillis;
+        this.loops = loops;
+        this.clock = clock;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert idleMillis > 0;
+    }
+
+    /**
+     * Find a game and mark it used.
+     *
+     * @param gameId id of a game
+     * @return the game with this id, a new game if it never existed or was evicted
+     */
+    Room room(String gameId) {
+        while (true) {
+            final long now = clock.getAsLong();
+            final Room used = rooms.computeIfPresent(gameId, (id, room) -> {
+                room.lastUsed = now;
+                return room;
+            });
+            if (used != null) {
+                return used;
+            }
+            // parsing or generating a board may take long, lookups of other games
+            // must not wait for it
+            final Room made = new Room(factory.get(), executorOf(loops), now);
+            if (rooms.putIfAbsent(gameId, made) == null) {
+                return made;
+            }
+            // another request made the game first, use theirs
+        }
+    }
+
+    /**
+     * @param loops event loops, or null
+     * @return the executor of a new game: pinned to one of loops, or running tasks
+     *         on the calling thread if loops is null
+     */
+    static Executor executorOf(GameLoops loops) {
+        return loops == null ? Runnable::run : loops.pin();
+    }
+
+    /**
+     * @return number of games
+     */
+    public int size() {
+        return rooms.size();
+    }
+
+    /**
+     * Evict every game nobody used for the idle time, nobody watches, neither its
+     * board nor its scores, and nobody waits in to take a card.
+     *
+     * @return number of games evicted
+     */
+    public int evictIdle() {
+        final long now = clock.getAsLong();
+        int evicted = 0;
+        for (String gameId : rooms.keySet()) {
+            final boolean[] removed = { false };
+            rooms.computeIfPresent(gameId, (id, room) -> {
+                if (now - room.lastUsed < idleMillis || room.board.listenerCount() > 0
+                        || room.leaderboard().watcherCount() > 0 || room.board.blockedCount() > 0) {
+                    return room;
+                }
+                removed[0] = true;
+                return null;
+            });
+            evicted += removed[0] ? 1 : 0;
+        }
+        return evicted;
+    }
+
+    /**
+     * @return time after which an unused game is evicted, in milliseconds
+     */
+    public long idleMillis() {
+        return idleMillis;
+    }
+
+}
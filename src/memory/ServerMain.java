@@ -4,6 +4,7 @@
 package memory;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -13,8 +14,19 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import memory.replay.FlipRecorder;
+import memory.replay.FlipReplayer;
+import memory.replay.HttpReplayer;
+import memory.web.CaptureFilter;
+
 /**
  * Game server runner.
  * 
@@ -35,7 +47,8 @@ public class ServerMain {
      *     according to the spec of {@code java.net.ServerSocket(int)}.
      *     0 specifies that a random unused port will be automatically chosen.
      * <p> FILENAME is the path to a valid board file, which will be loaded as
-     *     the starting game board.
+     *     the starting game board. Binary board files written by
+     *     {@link BoardConverter} load in place, without parsing every card.
      * <p> ROWS and COLUMNS are positive integer sizes for a randomly-generated
      *     board, and
      * <p> CARDs are given to specify the cards for the randomly-generated board.
@@ -49,6 +62,56 @@ public class ServerMain {
      *     and unicorns:
      * <pre> 8080 3 3 1F308 1F984 </pre>
      * 
+     * <p> A random board is generated from the seed given with
+     * {@code -Dmemory.seed=N}, or from a random seed which is printed, so that the
+     * same board can be generated again. With a given seed, the games of every
+     * room also start from that same board. With {@code -Dmemory.procedural=true}
+     * random boards are procedural: each card is derived from the seed when it is
+     * first needed, and only cards touched by a player take memory.
+     * 
+     * <p> The execution model of the request handlers is chosen with system properties:
+     * <pre> -Dmemory.executor=cached|bounded|work_stealing|virtual </pre>
+     * (default cached, virtual requires Java 21),
+     * {@code -Dmemory.executor.threads=N} the threads of the bounded and
+     * work-stealing models (default the number of processors, at least 2), and
+     * {@code -Dmemory.backlog=N} the connections waiting to be accepted
+     * (default 0: the system default).
+     * 
+     * <p> The engine applying the flip rules is chosen with
+     * {@code -Dmemory.engine=monitor|lock_free|actor} (default monitor, actor with
+     * {@code -Dmemory.log}), see {@link Engine}.
+     * 
+     * <p> With {@code -Dmemory.rooms=SECONDS} the server also hosts independent games
+     * under /g/GAME/, each made when it is first used, with the cards of FILENAME
+     * face down, or with a new random board of ROWS COLUMNS CARD..., and evicted
+     * once unused and unwatched for SECONDS.
+     * 
+     * <p> With {@code -Dmemory.loops=N} every game is pinned to one of N event loops
+     * which run all its requests, see {@link GameLoops}.
+     * 
+     * <p> With {@code -Dmemory.log=PATH} every flip of the board is logged to PATH
+     * before it completes, and a restarted server replays the log to restore the
+     * board, its players and their scores, see {@link FlipLog}. The log is written
+     * by the actor engine, the default engine with a log, once per
+     * {@code -Dmemory.log.window=MICROS} (default 1000), forced to the disk unless
+     * {@code -Dmemory.log.fsync=false}. The board must be the same on every start,
+     * e.g. with a given {@code -Dmemory.seed}. Games of rooms are not logged.
+     * 
+     * <p> With {@code -Dmemory.checkpoint=PATH} as well, a checkpoint of the board
+     * and its players is taken every {@code -Dmemory.checkpoint.seconds=N} (default
+     * 60) without pausing the game, and a restarted server restores the latest
+     * checkpoint and only replays the log written after it, see {@link Checkpoint}.
+     * 
+     * <p> With {@code -Dmemory.record=PATH} every flip requested of the board is
+     * recorded to PATH, written when the server shuts down, to be replayed by
+     * {@link FlipReplayer}. Games of rooms are not recorded.
+     * 
+     * <p> With {@code -Dmemory.capture=PREFIX} every request to the server is
+     * captured to the files PREFIX.NNNNNN, a new one started every
+     * {@code -Dmemory.capture.megabytes=N} (default 64) keeping the latest
+     * {@code -Dmemory.capture.files=N} (default 8), to be replayed against
+     * another server by {@link HttpReplayer}, see {@link CaptureFilter}.
+     * 
      * @param args arguments as described above
      * @throws IOException if an error occurs parsing a file or starting a server
      */
@@ -56,16 +119,26 @@ public class ServerMain {
         final Queue<String> arguments = new LinkedList<>(Arrays.asList(args));
         
         final int port;
+        final Engine engine;
         final Board board;
+        final Supplier<Board> newGame;
         
         try {
             port = Integer.parseInt(arguments.remove());
         } catch (NoSuchElementException | NumberFormatException e) {
             throw new IllegalArgumentException("missing or invalid PORT", e);
         }
+        try {
+            engine = Engine.valueOf(System.getProperty("memory.engine",
+                    System.getProperty("memory.log") != null ? "actor" : "monitor").toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("invalid memory.engine, expected one of "
+                    + Arrays.toString(Engine.values()), iae);
+        }
         
         if (arguments.size() == 1) {
-            board = Board.parseFromFile(arguments.remove());
+            board = Board.parseFromFile(arguments.remove(), engine);
+            newGame = board::newGame;
         } else if (arguments.size() > 2) {
             final int rows, columns;
             try {
@@ -75,12 +148,126 @@ public class ServerMain {
                 throw new IllegalArgumentException("invalid size", nfe);
             }
             final Set<String> cards = new HashSet<>(parseCharacterCodes(arguments));
-            board = Board.generateRandom(rows, columns, cards);
+            final Long seed = Long.getLong("memory.seed");
+            final boolean procedural = Boolean.getBoolean("memory.procedural");
+            final LongFunction<Board> generate = boardSeed -> procedural
+                    ? Board.generateProcedural(rows, columns, cards, engine, boardSeed)
+                    : Board.generateRandom(rows, columns, cards, engine, null, boardSeed);
+            final long firstSeed = seed != null ? seed : new SplittableRandom().nextLong();
+            System.err.println("Random board seed " + firstSeed);
+            board = generate.apply(firstSeed);
+            newGame = seed != null ? () -> generate.apply(seed)
+                    : () -> generate.apply(new SplittableRandom().nextLong());
         } else {
             throw new IllegalArgumentException("expected FILENAME or ROWS COLUMNS CARD...");
         }
         
-        new WebServer(board, port).start();
+        final Execution execution;
+        try {
+            execution = Execution.valueOf(System.getProperty("memory.executor", "cached").toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("invalid memory.executor, expected one of "
+                    + Arrays.toString(Execution.values()), iae);
+        }
+        final int threads = Integer.getInteger("memory.executor.threads", Execution.DEFAULT_THREADS);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("invalid memory.executor.threads");
+        }
+        final int backlog = Integer.getInteger("memory.backlog", 0);
+        final Integer idleSeconds = Integer.getInteger("memory.rooms");
+        if (idleSeconds != null && idleSeconds <= 0) {
+            throw new IllegalArgumentException("invalid memory.rooms");
+        }
+        final int loopCount = Integer.getInteger("memory.loops", 0);
+        final GameLoops loops = loopCount > 0 ? new GameLoops(loopCount, GameLoops.REBALANCE_MILLIS) : null;
+        final RoomRegistry rooms = idleSeconds == null ? null
+                : new RoomRegistry(newGame, idleSeconds * 1000L, loops);
+        
+        final PlayerRegistry players = new PlayerRegistry();
+        final String log = System.getProperty("memory.log");
+        final String checkpoint = System.getProperty("memory.checkpoint");
+        if (checkpoint != null && log == null) {
+            throw new IllegalArgumentException("memory.checkpoint requires memory.log");
+        }
+        if (log != null) {
+            if (engine != Engine.ACTOR) {
+                throw new IllegalArgumentException("memory.log requires the actor engine");
+            }
+            final long window = Long.getLong("memory.log.window", 1000);
+            if (window < 0) {
+                throw new IllegalArgumentException("invalid memory.log.window");
+            }
+            final boolean fsync = Boolean.parseBoolean(System.getProperty("memory.log.fsync", "true"));
+            final long from = checkpoint == null ? 0 : Checkpoint.load(Path.of(checkpoint), board, players);
+            final FlipLog flipLog = FlipLog.open(Path.of(log), board, players, window, fsync, from);
+            if (checkpoint != null) {
+                final long seconds = Long.getLong("memory.checkpoint.seconds", 60);
+                if (seconds <= 0) {
+                    throw new IllegalArgumentException("invalid memory.checkpoint.seconds");
+                }
+                scheduleCheckpoints(Path.of(checkpoint), board, players, flipLog, seconds);
+            }
+        }
+        
+        final String record = System.getProperty("memory.record");
+        if (record != null) {
+            final FlipRecorder recorder = new FlipRecorder(Path.of(record), board.getRows(), board.getCols());
+            board.setRecorder(recorder);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recorder.close();
+                } catch (IOException ioe) {
+                    System.err.println("recording failed: " + ioe);
+                }
+            }, "recorder"));
+        }
+        
+        final WebServer server = new WebServer(board, players, rooms, loops, port, execution, threads, backlog);
+        final String capture = System.getProperty("memory.capture");
+        if (capture != null) {
+            final long megabytes = Long.getLong("memory.capture.megabytes", 64);
+            final int files = Integer.getInteger("memory.capture.files", 8);
+            if (megabytes <= 0 || files <= 0) {
+                throw new IllegalArgumentException("invalid memory.capture.megabytes or memory.capture.files");
+            }
+            final CaptureFilter filter = new CaptureFilter(Path.of(capture), megabytes << 20, files);
+            server.addFilter(filter);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    filter.close();
+                } catch (IOException ioe) {
+                    System.err.println("capture failed: " + ioe);
+                }
+            }, "capture-close"));
+        }
+        server.start();
+    }
+    
+    /**
+     * Take a checkpoint of board every seconds seconds, on a daemon thread.
+     * 
+     * @param file path to the checkpoint
+     * @param board a logged board
+     * @param players the players of board
+     * @param log the log of board
+     * @param seconds seconds between checkpoints, > 0
+     */
+    private static void scheduleCheckpoints(Path file, Board board, PlayerRegistry players, FlipLog log,
+            long seconds) {
+        final ScheduledExecutorService checkpoints = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpoints.scheduleWithFixedDelay(() -> {
+            try {
+                Checkpoint.write(file, board, players, log);
+            } catch (IOException ioe) {
+                System.err.println("checkpoint failed: " + ioe);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
     }
     
     /**
@@ -0,0 +1,162 @@
+package memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed size array of small non-negative ints, stored in as few bytes per
+ * element as the largest id needs (1, 2 or 4).
+ * 
+ * The ids are kept in a byte buffer, on the heap while a board is built, or
+ * mapped read-only from a binary board file.
+ * @author davidmagrefty
+ *
+ */
+final class ValueIds {
+    
+    private ByteBuffer data;
+    private int width;
+    private final int size;
+    
+    // Abstraction function:
+    //      AF(data, width, size) = the array of size ids where id i is stored
+    //                              little endian in data[i*width .. (i+1)*width)
+    // Representation invariant:
+    //      width in {1, 2, 4}
+    //      data.capacity() == size * width, data is little endian
+    // Safety from rep exposure:
+    //      All fields are private, data is only returned as a read-only view
+    // Thread safety argument:
+    //      Not threadsafe, ids are only set while a board is being built and 
+    //      the array is safely published by the final field of its grid.
+    //      Ids which do not widen the array write only their own bytes, so threads
+    //      may set different indexes at once, and publish them by joining.
+    
+    /**
+     * Make an array of size zero ids.
+     * @param size number of ids
+     */
+    ValueIds(int size) {
+        this(size, 1);
+    }
+    
+    /**
+     * Make an array of size zero ids, wide enough for ids below 1 << (8 * width).
+     * Ids in this range can be set by several threads at once, at different indexes.
+     * @param size number of ids
+     * @param width bytes per id, 1, 2 or 4
+     */
+    ValueIds(int size, int width) {
+        this(ByteBuffer.allocate(Math.multiplyExact(size, width)), size, width);
+    }
+    
+    private ValueIds(ByteBuffer data, int size, int width) {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.size = size;
+        this.width = width;
+        checkRep();
+    }
+    
+    /**
+     * Wrap ids already stored as this array stores them, read-only.
+     * @param data size ids of width bytes each, little endian, from its position
+     *             to its limit. Must not be changed anymore
+     * @param size number of ids
+     * @param width bytes per id, 1, 2 or 4
+     * @return the array of the ids of data, which cannot be set
+     */
+    static ValueIds wrap(ByteBuffer data, int size, int width) {
+        return new ValueIds(data.slice().asReadOnlyBuffer(), size, width);
+    }
+    
+    private void checkRep() {
+        assert width == 1 || width == 2 || width == 4;
+        assert (long) size * width == data.capacity();
+        assert data.order() == ByteOrder.LITTLE_ENDIAN;
+    }
+    
+    /**
+     * @return number of ids
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * @return bytes used per id
+     */
+    int width() {
+        return width;
+    }
+    
+    /**
+     * @param index 0 <= index < size()
+     * @return the id at index
+     */
+    int get(int index) {
+        switch (width) {
+        case 1:
+            return data.get(index) & 0xFF;
+        case 2:
+            return data.getShort(2 * index) & 0xFFFF;
+        default:
+            return data.getInt(4 * index);
+        }
+    }
+    
+    /**
+     * @return read-only view of the ids, size() * width() bytes as described by
+     *         {@link #wrap(ByteBuffer, int, int)}
+     */
+    ByteBuffer bytes() {
+        return data.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN).clear();
+    }
+    
+    /**
+     * Set an id, widening every element if id does not fit.
+     * @param index 0 <= index < size()
+     * @param id id >= 0
+     */
+    void set(int index, int id) {
+        assert id >= 0;
+        if (width < 4 && id >= 1 << (8 * width)) {
+            widen(id < 1 << 16 ? 2 : 4);
+        }
+        switch (width) {
+        case 1:
+            data.put(index, (byte) id);
+            break;
+        case 2:
+            data.putShort(2 * index, (short) id);
+            break;
+        default:
+            data.putInt(4 * index, id);
+        }
+    }
+    
+    /**
+     * Exchange two ids.
+     * @param i 0 <= i < size()
+     * @param j 0 <= j < size()
+     */
+    void swap(int i, int j) {
+        final int id = get(i);
+        set(i, get(j));
+        set(j, id);
+    }
+    
+    private void widen(int newWidth) {
+        final ByteBuffer wider = ByteBuffer.allocate(Math.multiplyExact(size, newWidth))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final int oldWidth = width;
+        for (int i = 0; i < size; i++) {
+            for (int b = 0; b < oldWidth; b++) {
+                wider.put(newWidth * i + b, data.get(oldWidth * i + b));
+            }
+        }
+        data = wider;
+        width = newWidth;
+        checkRep();
+    }
+
+}
@@ -0,0 +1,182 @@
+package memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers the changes of a board to its listeners on delivery threads, so that
+ * flipping a card never waits for a listener.
+ *
+ * A change is published in constant time. A delivery thread then signals every
+ * watcher, and each watcher has a queue of at most one pending change: further
+ * changes are conflated into it, and when it is delivered the listener receives
+ * the board as it is at delivery time. A slow listener therefore only delays its
+ * own deliveries and always gets the latest board. It still holds a delivery
+ * thread, shared by every board, while it runs: a listener must hand any blocking
+ * work, e.g. writing to a socket, to threads of its own.
+ * @author davidmagrefty
+ *
+ */
+class WatchDispatcher {
+
+    /** threads delivering changes of every board, unless another executor is given */
+    static final int DELIVERY_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** delivery threads shared by every board, and the score watchers of every game */
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newFixedThreadPool(DELIVERY_THREADS,
+            runnable -> {
+                final Thread thread = new Thread(runnable, "watch-delivery");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * A listener of one player with its queue of at most one pending change.
+     */
+    private class Watcher implements Runnable {
+        private final Player player;
+        private final Listener listener;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Watcher(Player player, Listener listener) {
+            this.player = player;
+            this.listener = listener;
+        }
+
+        /*
+         * Queue a change, conflated with the pending one if any
+         */
+        void signal() {
+            pending.set(true);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                pending.set(false);
+                if (watchers.get(player) == this) {
+                    deliver(player, listener);
+                }
+                scheduled.set(false);
+                // a change queued after pending was read must not be lost
+                if (!pending.get() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Board board;
+    private final Executor executor;
+    private final Map<Player, Watcher> watchers = new ConcurrentHashMap<>();
+    private final AtomicBoolean published = new AtomicBoolean();
+
+    // Abstraction function:
+    //      AF(board, executor, watchers, published) = the listeners of board, where
+    //              watchers.get(p) is the listener of player p, notified on executor,
+    //              and published is whether a change was published which was not
+    //              signaled to every watcher yet
+    // Representation invariant:
+    //      board != null, executor != null
+    //      watchers.get(p).player == p
+    // Safety from rep exposure:
+    //      All fields are private and final, watchers are never returned
+    // Thread safety argument:
+    //      watchers is a threadsafe map and the flags are atomic. A flag is cleared
+    //      before the work it stands for is done, and set again by any change
+    //      during that work, so every change is followed by a delivery. At most one
+    //      task per watcher is scheduled at a time, so a listener is never called
+    //      concurrently with itself.
+
+    /**
+     * @param board the board whose changes are delivered
+     */
+    WatchDispatcher(Board board) {
+        this(board, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param board the board whose changes are delivered
+     * @param executor runs the deliveries
+     */
+    WatchDispatcher(Board board, Executor executor) {
+        this.board = board;
+        this.executor = executor;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert board != null;
+        assert executor != null;
+    }
+
+    /**
+     * Set the listener of a player, replacing its previous one.
+     *
+     * @param player the watching player
+     * @param listener notified of the changes of the board after this call
+     */
+    void add(Player player, Listener listener) {
+        watchers.put(player, new Watcher(player, listener));
+    }
+
+    /**
+     * Remove the listener of a player if it is listener.
+     *
+     * @param player the watching player
+     * @param listener the listener to remove
+     */
+    void remove(Player player, Listener listener) {
+        final Watcher watcher = watchers.get(player);
+        if (watcher != null && watcher.listener == listener) {
+            watchers.remove(player, watcher);
+        }
+    }
+
+    /**
+     * @return number of listeners
+     */
+    int size() {
+        return watchers.size();
+    }
+
+    /**
+     * Publish a change of the board, returns without waiting for any listener.
+     */
+    void publish() {
+        if (!watchers.isEmpty() && published.compareAndSet(false, true)) {
+            executor.execute(this::signalAll);
+        }
+    }
+
+    /*
+     * Signal the change to every watcher
+     */
+    private void signalAll() {
+        published.set(false);
+        for (Watcher watcher : watchers.values()) {
+            watcher.signal();
+        }
+    }
+
+    /*
+     * Give the change of the board to listener of player
+     */
+    private void deliver(Player player, Listener listener) {
+        try {
+            listener.boardChanged(board, player);
+        } catch (RuntimeException e) {
+            // a failing listener must not stop the delivery thread
+            System.err.println("listener of " + player + " failed: " + e);
+        }
+    }
+
+}
@@ -10,11 +10,18 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpContext;
@@ -35,21 +42,26 @@ import memory.web.LogFilter;
 public class WebServer {
     
     private final HttpServer server;
-    private final Map<String, Player> players = 
-            Collections.synchronizedMap(new HashMap<String, Player>());
-    private final Board board;
+    private final ExecutorService executor;
+    private final RoomRegistry.Room game;
+    private final RoomRegistry rooms;
+    private final ScheduledExecutorService sweeper;
+    private final List<HttpContext> contexts = new ArrayList<>();
     
     
     // Abstraction function:
     /*
-     * AF(server, board, players) = The server of which the board game we are playing is
-     *                             listening to and which is represented by board that has
-     *                             players which are players.value();
+     * AF(server, executor, game, rooms, sweeper, contexts) = The server of which the board game we are
+     *                             playing is listening to and which is represented by
+     *                             game, with its board and players, handling requests
+     *                             on executor; and the games rooms under /g/ if rooms is
+     *                             not null, whose idle games are evicted by sweeper;
+     *                             contexts are the paths it serves
      */
     // Representation invariant:
     /*
-     *  values of players is not null
      *  The board is valid according to its rep invariant
+     *  rooms == null iff sweeper == null
      */
     // Safety from rep exposure:
     /*
@@ -58,13 +70,18 @@ public class WebServer {
      */
     // Thread safety argument:
     /*
-     * Are only mutable type is the players which is managed in a synchronized manner
-     * by using synchronized map.
+     * The players of a game are kept by its room, which is threadsafe, as is
+     * the registry of rooms.
      * Our other datatypes; Player and Board are both threadsafe.
      */
     
     private static final  int SUCCESS = 200;
+    private static final  int NOT_MODIFIED = 304;
     private static final  int ERROR = 404;
+    private static final  int SERVER_ERROR = 500;
+    
+    private static final Pattern SCORE_PARAMETER = Pattern.compile("(top|offset|limit)=(\\d+)");
+    private static final Pattern GAME_REQUEST = Pattern.compile("(\\w+)/(?:(look|flip|watch)/(.*)|(scores|watchScores))");
     
     /**
      * Make a new web game server using board that listens for connections on port.
@@ -74,10 +91,85 @@ public class WebServer {
      * @throws IOException if an error occurs starting the server
      */
     public WebServer(Board board, int port) throws IOException {
-        this.server = HttpServer.create(new InetSocketAddress(port), 0);
-        this.board = board;
+        this(board, port, Execution.CACHED, Execution.DEFAULT_THREADS, 0);
+    }
+    
+    /**
+     * Make a new web game server using board that listens for connections on port,
+     * handling requests with the given execution model.
+     * 
+     * @param board shared game board
+     * @param port server port number
+     * @param execution the execution model of the request handlers
+     * @param threads number of threads if execution is bounded, > 0
+     * @param backlog maximum number of connections waiting to be accepted,
+     *                or <= 0 for the system default
+     * @throws IOException if an error occurs starting the server
+     * @throws UnsupportedOperationException if execution is not supported by the
+     *         running Java version
+     */
+    public WebServer(Board board, int port, Execution execution, int threads, int backlog) throws IOException {
+        this(board, null, null, port, execution, threads, backlog);
+    }
+    
+    /**
+     * Make a new web game server using board that listens for connections on port,
+     * handling requests with the given execution model, which also hosts the games
+     * of rooms: the requests for /g/GAME/look/..., /g/GAME/flip/..., /g/GAME/watch/...,
+     * /g/GAME/scores and /g/GAME/watchScores are those of /look/, /flip/, /watch/,
+     * /scores and /watchScores for the
+     * game with id GAME, a word. Idle games of rooms are evicted while the server runs.
+     * With loops, the requests of every game run on the event loop it is pinned to.
+     * 
+     * @param board shared game board
+     * @param rooms the games hosted under /g/, or null to only serve board
+     * @param loops the event loops board is pinned to, those of rooms should be the
+     *              same, or null to handle requests on the threads of execution
+     * @param port server port number
+     * @param execution the execution model of the request handlers
+     * @param threads number of threads if execution is bounded, > 0
+     * @param backlog maximum number of connections waiting to be accepted,
+     *                or <= 0 for the system default
+     * @throws IOException if an error occurs starting the server
+     * @throws UnsupportedOperationException if execution is not supported by the
+     *         running Java version
+     */
+    public WebServer(Board board, RoomRegistry rooms, GameLoops loops, int port, Execution execution,
+            int threads, int backlog) throws IOException {
+        this(board, new PlayerRegistry(), rooms, loops, port, execution, threads, backlog);
+    }
+    
+    /**
+     * Make a new web game server as {@link #WebServer(Board, RoomRegistry, GameLoops, int, Execution, int, int)}
+     * does, whose players of board are those of players, e.g. restored from a {@link FlipLog}.
+     * 
+     * @param board shared game board
+     * @param players the players of board
+     * @param rooms the games hosted under /g/, or null to only serve board
+     * @param loops the event loops board is pinned to, those of rooms should be the
+     *              same, or null to handle requests on the threads of execution
+     * @param port server port number
+     * @param execution the execution model of the request handlers
+     * @param threads number of threads if execution is bounded, > 0
+     * @param backlog maximum number of connections waiting to be accepted,
+     *                or <= 0 for the system default
+     * @throws IOException if an error occurs starting the server
+     * @throws UnsupportedOperationException if execution is not supported by the
+     *         running Java version
+     */
+    public WebServer(Board board, PlayerRegistry players, RoomRegistry rooms, GameLoops loops, int port,
+            Execution execution, int threads, int backlog) throws IOException {
+        this.executor = execution.create(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.game = new RoomRegistry.Room(board, players, RoomRegistry.executorOf(loops), 0);
+        this.rooms = rooms;
+        this.sweeper = rooms == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "room-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
         // handle concurrent requests with multiple threads
-        server.setExecutor(Executors.newCachedThreadPool());
+        server.setExecutor(executor);
         
         HeadersFilter headers = new HeadersFilter(Map.of(
                 // allow requests from web pages hosted anywhere
@@ -90,7 +182,7 @@ public class WebServer {
         // handle requests for paths that start with /look/, e.g. /look/player
         HttpContext look = server.createContext("/look/", new HttpHandler() {
             public void handle(HttpExchange exchange) throws IOException {
-                handleLook(exchange);
+                dispatch(exchange, game, "look", subPath(exchange));
             }
         });
         look.getFilters().addAll(filters);
@@ -98,28 +190,42 @@ public class WebServer {
         // handle requests for paths that start with /flip/, e.g. /flip/player/row,column
         HttpContext flip = server.createContext("/flip/", new HttpHandler() {
             public void handle(HttpExchange exchange) throws IOException {
-                try {
-                handleFlip(exchange);
-                } catch (InterruptedException interrupt) {
-                    interrupt.printStackTrace();
-                }
+                dispatch(exchange, game, "flip", subPath(exchange));
             }
         });
         flip.getFilters().addAll(filters);
         // handle requests for paths that start with /scores, e.g. /scores
         HttpContext scores = server.createContext("/scores", new HttpHandler() {
             public void handle(HttpExchange exchange) throws IOException {
-                handleScore(exchange);
+                dispatch(exchange, game, "scores", "");
             }
         });
         scores.getFilters().addAll(filters);
         // handle requests for paths that start with /watch/, e.g. /watch/player
         HttpContext watch = server.createContext("/watch/", new HttpHandler() {
             public void handle(HttpExchange exchange) throws IOException {
-                handleWatch(exchange);
+                dispatch(exchange, game, "watch", subPath(exchange));
             }
         });
         watch.getFilters().addAll(filters);
+        // handle requests for paths that start with /watchScores, e.g. /watchScores?since=3
+        HttpContext watchScores = server.createContext("/watchScores", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                dispatch(exchange, game, "watchScores", "");
+            }
+        });
+        watchScores.getFilters().addAll(filters);
+        contexts.addAll(List.of(look, flip, scores, watch, watchScores));
+        if (rooms != null) {
+            // handle requests for paths that start with /g/, e.g. /g/game/look/player
+            HttpContext games = server.createContext("/g/", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    handleGame(exchange);
+                }
+            });
+            games.getFilters().addAll(filters);
+            contexts.add(games);
+        }
         checkRep();
     }
     
@@ -127,51 +233,146 @@ public class WebServer {
      * Will check that our rep is conserved
      */
     private void checkRep() {
-        for (String id: players.keySet()) {
-            assert players.get(id) != null;
-        }
         assert server != null;
-        assert board != null;
+        assert executor != null;
+        assert game != null;
+        assert (rooms == null) == (sweeper == null);
     }
     
-    private Player getPlayer(String playerId) {
-        Player player;
-        if (!players.containsKey(playerId)) {
-            player = new Player(playerId);
-            players.put(playerId, player);
+    /*
+     * @return the path of the request after the path of its context
+     */
+    private static String subPath(HttpExchange exchange) {
+        final String path = exchange.getRequestURI().getPath();
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        return path.substring(base.length());
+    }
+    
+    /*
+     * Handle a request for /g/<gameId>/<request> like the request for /<request>,
+     *   on the game gameId, made when it is first used. <gameId> is any number of
+     *   word characters, <request> is look/..., flip/..., watch/..., scores or watchScores.
+     *   will results error 404 otherwise.
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     */
+    private void handleGame(HttpExchange exchange) throws IOException {
+        final Matcher request = GAME_REQUEST.matcher(subPath(exchange));
+        if (!request.matches()) {
+            exchange.sendResponseHeaders(ERROR, 0);
+            OutputStream body = exchange.getResponseBody();
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+            out.println("Game ID or request does not follow the requirements");
+            exchange.close();
+            return;
         }
-        return players.get(playerId);
+        final RoomRegistry.Room room = rooms.room(request.group(1));
+        final String action = request.group(2) == null ? request.group(4) : request.group(2);
+        final String rest = request.group(3) == null ? "" : request.group(3);
+        dispatch(exchange, room, action, rest);
+    }
+    
+    /*
+     * Handle a request on the executor of its game, the loop it is pinned to if any
+     * 
+     * @param exchange HTTP request/response, modified to send a response to the
+     *                 client and close the exchange
+     * @param room the game
+     * @param action look, flip, watch, scores or watchScores
+     * @param rest the path after the action
+     */
+    private void dispatch(HttpExchange exchange, RoomRegistry.Room room, String action, String rest) {
+        room.executor().execute(() -> {
+            try {
+                switch (action) {
+                case "look":
+                    handleLook(exchange, room, rest);
+                    break;
+                case "flip":
+                    handleFlip(exchange, room, rest);
+                    break;
+                case "watch":
+                    handleWatch(exchange, room, rest);
+                    break;
+                case "watchScores":
+                    handleWatchScores(exchange, room);
+                    break;
+                default:
+                    handleScore(exchange, room);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the request may run after the filters returned, log it like them
+                System.err.print(" !! ");
+                e.printStackTrace();
+                exchange.close();
+            }
+        });
     }
     
     /*
-     * Handle a request for /score by responding with the current score
-     *  for all players that attempted to flip a card
+     * Handle a request for /scores by responding with the current score of the
+     *  players that attempted to flip a card, one "PLAYER SCORE" per line, highest
+     *  score first and ties by player id.
+     *  /scores?top=K only sends the first K players, and /scores?offset=O&limit=L
+     *  the L players after the first O (limit defaults to all of them).
+     *  will results error 404 if a parameter is not a non-negative integer.
      * 
      * @param exchange HTTP request/response, modified by this method to send a
      *                 response to the client and close the exchange
+     * @param room the game
      */
-    private void handleScore(HttpExchange exchange) throws IOException {
-        // if you want to know the requested path:
+    private void handleScore(HttpExchange exchange, RoomRegistry.Room room) throws IOException {
         final String response;
-        String boardString = "";
-        exchange.sendResponseHeaders(SUCCESS, 0);
-        int numLines = 0;
-        for (Player player: players.values()) {
-            if (player.getAttempted()) {
-                boardString += player.webScoreString() + "\n";
-                numLines++;
+        final Map<String, Integer> parameters = scoreParameters(exchange.getRequestURI().getRawQuery());
+        if (parameters != null) {
+            final int offset = parameters.getOrDefault("offset", 0);
+            final int limit = parameters.getOrDefault("top", parameters.getOrDefault("limit", Integer.MAX_VALUE));
+            final StringBuilder scores = new StringBuilder();
+            for (Leaderboard.Entry entry : room.leaderboard().page(offset, limit)) {
+                if (scores.length() > 0) {
+                    scores.append('\n');
+                }
+                scores.append(entry.webScoreString());
             }
+            exchange.sendResponseHeaders(SUCCESS, 0);
+            response = scores.toString();
+        } else {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = "Score parameters do not follow the requirements";
         }
-        if (boardString.length() > 0) {
-            boardString = boardString.substring(0, boardString.length()-1);
-        }
-        response = boardString;
         OutputStream body = exchange.getResponseBody();
         PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
         out.println(response);
         exchange.close();
     } 
     
+    /*
+     * @param query raw query of a /scores request, or null
+     * @return the parameters top, offset and limit given in query, null if query
+     *         has another parameter or a value which is not a non-negative integer
+     */
+    private static Map<String, Integer> scoreParameters(String query) {
+        final Map<String, Integer> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            final Matcher matcher = SCORE_PARAMETER.matcher(parameter);
+            if (!matcher.matches()) {
+                return null;
+            }
+            try {
+                parameters.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+            } catch (NumberFormatException tooLarge) {
+                return null;
+            }
+        }
+        return parameters;
+    }
+    
     /*
      * Handle a request for /watch/<playerId> by responding with the current state
      *   of the board in the perspective of the playerId
@@ -185,30 +386,73 @@ public class WebServer {
      *   - Player holds 2 cards which don't match, if both cards
      *   are not locked by other player, will send update for both together, Otherwise 
      *   just for one. 
+     *   The board is sent as it is when the change is delivered, which may already
+     *   include later changes.
+     *   
+     *   A request for /watch/<playerId>?since=<version> only sends the changes after
+     *   a version of the board, as described by Board.changesSince(), as soon as
+     *   the board is past that version: "delta VERSION" followed by "ROW,COL CARD"
+     *   for every changed card, or "full VERSION" followed by the whole board when
+     *   the changes are no longer kept or since is 0. The next request continues
+     *   from VERSION, a client without a version starts with since=0.
      * 
      * @param exchange HTTP request/response, modified by this method to send a
      *                 response to the client and close the exchange
+     * @param room the game
+     * @param playerId the path after /watch/
      */
-    private void handleWatch(HttpExchange exchange) throws IOException {
-        // if you want to know the requested path:
-        final String path = exchange.getRequestURI().getPath();
-        final String base = exchange.getHttpContext().getPath();
-        assert path.startsWith(base);
-        
-        final String playerId = path.substring(base.length());
+    private void handleWatch(HttpExchange exchange, RoomRegistry.Room room, String playerId) throws IOException {
+        final Board board = room.board();
+        final String query = exchange.getRequestURI().getQuery();
         
         final String response;
-        if (playerId.matches("\\w+")) {
-            Player player = getPlayer(playerId);
+        if (playerId.matches("\\w+") && query == null) {
+            Player player = room.player(playerId);
+            // the client may change the board as soon as it has the headers
+            final long version = board.version();
             exchange.sendResponseHeaders(SUCCESS, 0);
             OutputStream body = exchange.getResponseBody();
             PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            board.addListener(player, new Listener() {
+            final AtomicBoolean answered = new AtomicBoolean();
+            final Listener listener = new Listener() {
                 public void boardChanged(final String boardString) {
-                    out.println(boardString);
-                    exchange.close();
+                    // a watch is answered by the first change only
+                    if (answered.compareAndSet(false, true)) {
+                        board.removeListener(player, this);
+                        send(exchange, out, boardString);
+                    }
                 }
-            });
+            };
+            board.addListener(player, listener);
+            if (board.version() != version) {
+                // changed before the listener was added
+                listener.boardChanged(board, player);
+            }
+            
+        } else if (playerId.matches("\\w+") && query.matches("since=\\d{1,18}")) {
+            Player player = room.player(playerId);
+            final long since = Long.parseLong(query.substring("since=".length()));
+            exchange.sendResponseHeaders(SUCCESS, 0);
+            OutputStream body = exchange.getResponseBody();
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+            final AtomicBoolean answered = new AtomicBoolean();
+            final Listener listener = new Listener() {
+                public void boardChanged(final String boardString) {
+                    boardChanged(board, player);
+                }
+                public void boardChanged(final Board changed, final Player watching) {
+                    // a watch is answered once, by the first change after since
+                    if (answered.compareAndSet(false, true)) {
+                        board.removeListener(player, this);
+                        send(exchange, out, board.changesSince(player, since));
+                    }
+                }
+            };
+            board.addListener(player, listener);
+            if (board.version() != since) {
+                // changed before the listener was added, or since is not a version of board
+                listener.boardChanged(board, player);
+            }
             
         } else {
             exchange.sendResponseHeaders(ERROR, 0);
@@ -222,29 +466,90 @@ public class WebServer {
         
     }
     
+    /*
+     * Handle a request for /watchScores by responding once players scored, with
+     *   the score changes only, so that clients need not poll /scores.
+     *   A request for /watchScores?since=<version> responds as soon as points were
+     *   scored after a version of the leaderboard, as described by
+     *   Leaderboard.changesSince(): "delta VERSION" followed by "PLAYER SCORE +CLIMBED"
+     *   for every player who scored, or "full VERSION" followed by "PLAYER SCORE" for
+     *   every player when the changes are no longer kept or since is 0. Points scored
+     *   meanwhile are conflated into one response. The next request continues from
+     *   VERSION, a client without a version starts with since=0.
+     *   A request for /watchScores responds like /watchScores?since=<version> for
+     *   the current version, with the next points scored.
+     *   will results error 404 if the query is neither.
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     * @param room the game
+     */
+    private void handleWatchScores(HttpExchange exchange, RoomRegistry.Room room) throws IOException {
+        final Leaderboard leaderboard = room.leaderboard();
+        final String query = exchange.getRequestURI().getQuery();
+        if (query != null && !query.matches("since=\\d{1,18}")) {
+            exchange.sendResponseHeaders(ERROR, 0);
+            OutputStream body = exchange.getResponseBody();
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+            out.println("Score parameters do not follow the requirements");
+            exchange.close();
+            return;
+        }
+        // without a version, the client may score as soon as it has the headers
+        final long since = query == null ? leaderboard.version() : Long.parseLong(query.substring("since=".length()));
+        exchange.sendResponseHeaders(SUCCESS, 0);
+        OutputStream body = exchange.getResponseBody();
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        leaderboard.onChange(since, () -> send(exchange, out, leaderboard.changesSince(since)));
+    }
+    
+    /*
+     * Write the response of a watch and close its exchange on the request executor.
+     * Watches are answered by the threads delivering the changes of every game,
+     * which must never wait for a client slow to read its response.
+     * 
+     * @param exchange HTTP request/response whose headers were sent, closed once
+     *                 response is written
+     * @param out the body of exchange
+     * @param response the response to write
+     */
+    private void send(HttpExchange exchange, PrintWriter out, String response) {
+        executor.execute(() -> {
+            out.println(response);
+            exchange.close();
+        });
+    }
+    
     /*
      * Handle a request for /look/<playerId> by responding with the current state
      *   of the board in the perspective of the playerId
      *   <playerId> is any number of  word characters:
      *   A word character is a character from a-z, A-Z, 0-9, including the _ (underscore) character.
      *   will results error 404 otherwise.
+     *   The response has an ETag made of the board version and the cards the player
+     *   controls. If the request has it in If-None-Match, the response is 304 Not
+     *   Modified, without rendering the board.
      * 
      * @param exchange HTTP request/response, modified by this method to send a
      *                 response to the client and close the exchange
+     * @param room the game
+     * @param playerId the path after /look/
      */
-    private void handleLook(HttpExchange exchange) throws IOException {
-        // if you want to know the requested path:
-        final String path = exchange.getRequestURI().getPath();
-        
-        // it will always start with the base path from server.createContext():
-        final String base = exchange.getHttpContext().getPath();
-        assert path.startsWith(base);
-        
-        final String playerId = path.substring(base.length());
-        
+    private void handleLook(HttpExchange exchange, RoomRegistry.Room room, String playerId) throws IOException {
+        final Board board = room.board();
         final String response;
         if (playerId.matches("\\w+")) {
-            Player player = getPlayer(playerId);
+            Player player = room.player(playerId);
+            // the tag is made before rendering, so it is never newer than the board sent
+            final String etag = "\"" + board.webTag(player) + "\"";
+            if (matchesTag(exchange.getRequestHeaders().get("If-None-Match"), etag)) {
+                // the client already has this board
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(NOT_MODIFIED, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
             // if the request is valid, respond with HTTP code 200 to indicate success
             // - response length 0 means a response will be written
             // - you must call this method before calling getResponseBody()
@@ -261,6 +566,26 @@ public class WebServer {
         exchange.close();
     } 
     
+    /*
+     * @param ifNoneMatch values of the If-None-Match headers of a request, or null
+     * @param etag a strong entity tag
+     * @return whether the headers list etag or "*"
+     */
+    private static boolean matchesTag(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                final String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
     /*
      * Handle a request for /look/<playerId>/row,col by responding with the current state
      *   of the board in the perspective of the playerId
@@ -268,17 +593,18 @@ public class WebServer {
      *   A word character is a character from a-z, A-Z, 0-9, including the _ (underscore) character.
      *   row,col must be 0 < row <= board.row, 0 < col <= board.col
      *   will results error 404 otherwise.
+     *   A flip blocked by rule 1D holds no thread: the response is sent once the
+     *   card is handed over to the player, on the request executor.
+     *   will results error 500 if the flip failed, e.g. it could not be logged.
      * 
      * @param exchange HTTP request/response, modified by this method to send a
      *                 response to the client and close the exchange
+     * @param room the game
+     * @param playerIdandCardCooridinate the path after /flip/
      */
-    private void handleFlip(HttpExchange exchange) throws IOException, InterruptedException {
-        final String path = exchange.getRequestURI().getPath();
-        
-        final String base = exchange.getHttpContext().getPath();
-        assert path.startsWith(base);
-        
-        final String playerIdandCardCooridinate = path.substring(base.length());
+    private void handleFlip(HttpExchange exchange, RoomRegistry.Room room, String playerIdandCardCooridinate)
+            throws IOException {
+        final Board board = room.board();
         final String[] breakString = playerIdandCardCooridinate.split("/");
         assert breakString.length >= 2;
         
@@ -298,10 +624,17 @@ public class WebServer {
         }
         
         if (playerId.matches("\\w+") && matchBoardSize) {
-            Player player = getPlayer(playerId);
-            exchange.sendResponseHeaders(SUCCESS, 0);
-            board.flipCard(player, row, col);
-            response = board.webString(player);
+            Player player = room.player(playerId);
+            final CompletableFuture<PlayerState> flip = board.flipCardAsync(player, row, col);
+            if (flip.isDone()) {
+                flip.whenComplete((state, failure) -> respondToFlip(exchange, board, player, failure));
+            } else {
+                // never respond on the thread handing the card over, which may be
+                // another player's request, the engine or the flip log
+                flip.whenCompleteAsync((state, failure) -> respondToFlip(exchange, board, player, failure),
+                        executor);
+            }
+            return;
         } else {
             exchange.sendResponseHeaders(ERROR, 0);
             response = "Player ID does not follow the requirements";
@@ -312,7 +645,50 @@ public class WebServer {
         exchange.close();
     } 
     
+    /*
+     * Respond to a flip once it completed: with the board in the perspective of
+     *   player, or error 500 if it failed.
+     * 
+     * @param exchange HTTP request/response of the flip, modified by this method to
+     *                 send a response to the client and close the exchange
+     * @param board the board flipped
+     * @param player the player flipping
+     * @param failure why the flip failed, or null if it completed
+     */
+    private static void respondToFlip(HttpExchange exchange, Board board, Player player, Throwable failure) {
+        try {
+            final String response;
+            if (failure == null) {
+                exchange.sendResponseHeaders(SUCCESS, 0);
+                response = board.webString(player);
+            } else {
+                System.err.print(" !! ");
+                failure.printStackTrace();
+                exchange.sendResponseHeaders(SERVER_ERROR, 0);
+                response = "Flip failed";
+            }
+            OutputStream body = exchange.getResponseBody();
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+            out.println(response);
+        } catch (IOException e) {
+            System.err.print(" !! ");
+            e.printStackTrace();
+        } finally {
+            exchange.close();
+        }
+    }
     
+    /**
+     * Run filter first on every request to this server, before any of its own
+     * filters. Must be called before start().
+     * 
+     * @param filter a filter of the requests, e.g. a {@link memory.web.CaptureFilter}
+     */
+    public void addFilter(Filter filter) {
+        for (HttpContext context : contexts) {
+            context.getFilters().add(0, filter);
+        }
+    }
     
     /**
      * @return the port on which this server is listening for connections
@@ -327,6 +703,10 @@ public class WebServer {
     public void start() {
         System.err.println("Server will listen on " + server.getAddress());
         server.start();
+        if (rooms != null) {
+            final long period = Math.max(1, rooms.idleMillis() / 2);
+            sweeper.scheduleAtFixedRate(rooms::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        }
     }
     
     /**
@@ -335,6 +715,18 @@ public class WebServer {
     public void stop() {
         System.err.println("Server will stop");
         server.stop(0);
+        executor.shutdown();
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+    
+    /**
+     * @return whether this server was stopped and every request it started
+     *         handling returned
+     */
+    boolean isTerminated() {
+        return executor.isTerminated();
     }
 
 }
@@ -0,0 +1,78 @@
+package memory.bench;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import memory.Board;
+import memory.Engine;
+
+/**
+ * Finds the board size where the single writer engine stops beating the
+ * engines which let players flip different cards in parallel.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.ActorCrossoverBenchmark [PLAYERS [SECONDS [SIZE,...]]] </pre>
+ * where PLAYERS threads (default 64) play on SIZE-by-SIZE boards (default
+ * 2,3,4,6,8,12,16,32,64) for SECONDS (default 3) per engine and size, flipping
+ * pairs of random cards like {@link EngineBenchmark}. No two cards match, so the
+ * board never empties and small boards stay hot: players keep contending for
+ * the same few cards. Reports the flips per second of every engine for every
+ * size, and the smallest size where ACTOR is slower than MONITOR.
+ */
+public class ActorCrossoverBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int players = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        final String sizes = args.length > 2 ? args[2] : "2,3,4,6,8,12,16,32,64";
+
+        System.out.println("players=" + players + " seconds=" + seconds
+                + " cpus=" + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%6s", "size");
+        for (Engine engine : Engine.values()) {
+            System.out.printf(" %15s", engine);
+        }
+        System.out.println();
+        Integer crossover = null;
+        for (String field : sizes.split(",")) {
+            final int size = Integer.parseInt(field.trim());
+            final Map<Engine, Double> flipsPerSecond = new EnumMap<>(Engine.class);
+            for (Engine engine : Engine.values()) {
+                // warm up, then measure
+                EngineBenchmark.run(makeBoard(size, engine), players, 1);
+                flipsPerSecond.put(engine, EngineBenchmark.run(makeBoard(size, engine), players, seconds));
+            }
+            System.out.printf("%6s", size + "x" + size);
+            for (Engine engine : Engine.values()) {
+                System.out.printf(" %,15.0f", flipsPerSecond.get(engine));
+            }
+            System.out.println(" flips/s");
+            if (crossover == null && flipsPerSecond.get(Engine.ACTOR) < flipsPerSecond.get(Engine.MONITOR)) {
+                crossover = size;
+            }
+        }
+        System.out.println(crossover == null ? "ACTOR is faster than MONITOR at every size"
+                : "MONITOR overtakes ACTOR from " + crossover + "x" + crossover);
+    }
+
+    /**
+     * @param size board width and height
+     * @param engine engine of the board
+     * @return a new board where every card differs
+     */
+    private static Board makeBoard(int size, Engine engine) {
+        final Set<String> cards = new HashSet<>();
+        for (int value = 0; value < size * size; value++) {
+            cards.add(Integer.toString(value, Character.MAX_RADIX));
+        }
+        return Board.generateRandom(size, size, cards, engine);
+    }
+}
@@ -0,0 +1,92 @@
+package memory.bench;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import memory.Board;
+import memory.BoardConverter;
+import memory.Engine;
+
+/**
+ * Compares parsing a board file from memory-mapped chunks with reading it line
+ * by line, as the board parser did before, and with loading the same board
+ * converted to a binary board file.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.BoardParseBenchmark [SIZE [CARDS [ROUNDS]]] </pre>
+ * writes a SIZE-by-SIZE board file (default 3163, about 10^7 cards) of CARDS
+ * distinct values (default 26) to a temporary file, and parses it ROUNDS times
+ * (default 5) each way.
+ */
+public class BoardParseBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws IOException if the board file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 3163;
+        final int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 26;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final Path file = Files.createTempFile("board", ".txt");
+        final Path binary = Files.createTempFile("board", ".bin");
+        try {
+            final SplittableRandom random = new SplittableRandom(1);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+                writer.write(size + "x" + size + "\n");
+                for (long card = 0; card < (long) size * size; card++) {
+                    writer.write(new String(Character.toChars(0x1F400 + random.nextInt(distinct))));
+                    writer.write('\n');
+                }
+            }
+            BoardConverter.convert(file.toString(), binary.toString());
+            System.out.printf("board=%dx%d cards=%d file=%,d bytes binary=%,d bytes cpus=%d%n", size, size,
+                    distinct, Files.size(file), Files.size(binary), Runtime.getRuntime().availableProcessors());
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                final int values = readLines(file);
+                final long lines = System.nanoTime() - start;
+                start = System.nanoTime();
+                final Board board = Board.parseFromFile(file.toString(), Engine.MONITOR);
+                final long mapped = System.nanoTime() - start;
+                start = System.nanoTime();
+                final Board loaded = Board.parseFromFile(binary.toString(), Engine.MONITOR);
+                final long binaryLoad = System.nanoTime() - start;
+                System.out.printf("round %d: line reader %,6d ms, mapped parser %,6d ms, binary load %,6.1f ms"
+                        + " (%d values, %dx%d board)%n", round, lines / 1_000_000, mapped / 1_000_000,
+                        binaryLoad / 1e6, values, loaded.getRows(), board.getCols());
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(binary);
+        }
+    }
+
+    /*
+     * Read the cards of file one line at a time, interning every value as the
+     * previous parser did
+     * @return number of distinct values
+     */
+    private static int readLines(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            final String[] sizes = reader.readLine().split("x");
+            final long cards = Long.parseLong(sizes[0]) * Long.parseLong(sizes[1]);
+            final Map<String, Integer> ids = new HashMap<>();
+            final int[] cells = new int[(int) cards];
+            for (int card = 0; card < cards; card++) {
+                cells[card] = ids.computeIfAbsent(reader.readLine(), value -> ids.size());
+            }
+            return ids.size();
+        }
+    }
+}
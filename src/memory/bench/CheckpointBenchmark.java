@@ -0,0 +1,117 @@
+package memory.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import memory.Board;
+import memory.Checkpoint;
+import memory.Engine;
+import memory.FlipLog;
+import memory.Layout;
+import memory.Player;
+import memory.PlayerRegistry;
+
+/**
+ * Measures checkpoints of a logged board: the flip throughput while checkpoints
+ * are taken back to back against none, the time of a checkpoint, and the time
+ * to restart from the latest checkpoint and the log after it against replaying
+ * the whole log.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.CheckpointBenchmark [SIZE [PLAYERS [SECONDS [DIRECTORY]]]] </pre>
+ * where PLAYERS threads (default 16) play a SIZE-by-SIZE random packed board
+ * (default 3000, 9*10^6 cells) for SECONDS (default 5) without and then with
+ * checkpoints, logged without fsync to DIRECTORY (default a temporary directory).
+ */
+public class CheckpointBenchmark {
+
+    private static final long SEED = 1;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     * @throws IOException if an error occurs writing the log or a checkpoint
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        final int playerCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final Path directory = args.length > 3 ? Path.of(args[3]) : Files.createTempDirectory("checkpoints");
+        final Path log = directory.resolve("flips.log");
+        final Path checkpoint = directory.resolve("board.ckp");
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(checkpoint);
+        final Set<String> cards = new HashSet<>();
+        for (char value = 'A'; value <= 'Z'; value++) {
+            cards.add(String.valueOf(value));
+        }
+        System.out.println("board=" + size + "x" + size + " players=" + playerCount + " seconds=" + seconds
+                + " files in " + directory);
+
+        final Board board = Board.generateRandom(size, size, cards, Engine.ACTOR, Layout.PACKED, SEED);
+        final PlayerRegistry players = new PlayerRegistry();
+        final List<Player> playing = new ArrayList<>();
+        for (int ii = 0; ii < playerCount; ii++) {
+            playing.add(players.player("p" + ii));
+        }
+        try (FlipLog flipLog = FlipLog.open(log, board, players, 0, false)) {
+            final double without = EngineBenchmark.run(board, playing, seconds);
+            System.out.printf("no checkpoints   %,12.0f flips/s%n", without);
+
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final long[] taken = new long[2];
+            final Thread checkpoints = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        final long start = System.nanoTime();
+                        Checkpoint.write(checkpoint, board, players, flipLog);
+                        taken[0]++;
+                        taken[1] += System.nanoTime() - start;
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            checkpoints.start();
+            final double with = EngineBenchmark.run(board, playing, seconds);
+            running.set(false);
+            checkpoints.join();
+            System.out.printf("checkpointing    %,12.0f flips/s, %d checkpoints of %,.1f ms%n", with, taken[0],
+                    taken[1] / 1e6 / Math.max(1, taken[0]));
+            // some history after the last checkpoint
+            EngineBenchmark.run(board, playing, 1);
+        }
+        System.out.printf("log %,d MB, checkpoint %,d MB%n", Files.size(log) >> 20, Files.size(checkpoint) >> 20);
+
+        long start = System.nanoTime();
+        final Board fromCheckpoint = Board.generateRandom(size, size, cards, Engine.ACTOR, Layout.PACKED, SEED);
+        final long generated = System.nanoTime() - start;
+        start = System.nanoTime();
+        final PlayerRegistry restoredPlayers = new PlayerRegistry();
+        final long from = Checkpoint.load(checkpoint, fromCheckpoint, restoredPlayers);
+        final long loaded = System.nanoTime() - start;
+        FlipLog.open(log, fromCheckpoint, restoredPlayers, 0, false, from).close();
+        final long restored = System.nanoTime() - start;
+        System.out.printf("board generated in %,.1f ms, checkpoint loaded in %,.1f ms, "
+                + "restored with the log after it in %,.1f ms (%,d KB of log)%n",
+                generated / 1e6, loaded / 1e6, restored / 1e6, (Files.size(log) - from) >> 10);
+
+        final Board replayed = Board.generateRandom(size, size, cards, Engine.ACTOR, Layout.PACKED, SEED);
+        start = System.nanoTime();
+        final PlayerRegistry replayedPlayers = new PlayerRegistry();
+        FlipLog.open(log, replayed, replayedPlayers, 0, false).close();
+        System.out.printf("whole log replayed in %,.1f ms%n", (System.nanoTime() - start) / 1e6);
+        if (!fromCheckpoint.webString(restoredPlayers.player("p0"))
+                .equals(replayed.webString(replayedPlayers.player("p0")))) {
+            throw new AssertionError("checkpoint and log disagree");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package memory.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import memory.Board;
+import memory.Card;
+import memory.Engine;
+import memory.Player;
+
+/**
+ * Measures how players blocked by rule 1D get a hot card: how often a blocked
+ * thread wakes up per card it gets, and how long it waits.
+ *
+ * <p> Command-line usage:
+ * <pre> java [-Dmemory.wait.spins=N] memory.bench.ContentionBenchmark [PLAYERS [SECONDS]] </pre>
+ * where PLAYERS threads (default 200) all flip the same card, then a card of
+ * their own that never matches it, for SECONDS (default 5) per engine. Wake-ups
+ * are the times a player thread stopped waiting or blocking, as counted by the JVM.
+ * Players still waiting at the end count with the time they waited so far.
+ */
+public class ContentionBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int players = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.println("players=" + players + " seconds=" + seconds
+                + " spins=" + Integer.getInteger("memory.wait.spins", 0));
+        for (Engine engine : Engine.values()) {
+            run(engine, players, Math.max(1, seconds / 5), false);
+            run(engine, players, seconds, true);
+        }
+    }
+
+    /*
+     * Make a board of one row: the hot card, then one card per player,
+     * all with different values
+     */
+    private static Board makeBoard(int players, Engine engine) {
+        final Card[][] cards = new Card[1][players + 1];
+        for (int col = 0; col <= players; col++) {
+            cards[0][col] = new Card("c" + col, col);
+        }
+        return new Board(cards, 1, players + 1, engine);
+    }
+
+    private static void run(Engine engine, int players, int seconds, boolean report) throws InterruptedException {
+        final Board board = makeBoard(players, engine);
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final long[][] latencies = new long[players][];
+        final int[] acquired = new int[players];
+        final AtomicLongArray waitingSince = new AtomicLongArray(players);
+        final List<Thread> threads = new ArrayList<>();
+        for (int ii = 0; ii < players; ii++) {
+            final int index = ii;
+            final Player player = new Player("p" + ii);
+            latencies[ii] = new long[256];
+            threads.add(new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        final long start = System.nanoTime();
+                        waitingSince.set(index, start);
+                        board.flipCard(player, 0, 0);
+                        final long latency = System.nanoTime() - start;
+                        waitingSince.set(index, 0);
+                        if (acquired[index] == latencies[index].length) {
+                            latencies[index] = Arrays.copyOf(latencies[index], 2 * latencies[index].length);
+                        }
+                        latencies[index][acquired[index]++] = latency;
+                        // no match: releases the hot card to the next player
+                        board.flipCard(player, 0, index + 1);
+                    }
+                } catch (InterruptedException ie) {
+                    // stopped while blocked by rule 1D
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        final long[] ids = threads.stream().mapToLong(Thread::getId).toArray();
+        final long wakeupsBefore = wakeups(threadBean, ids);
+        final int[] acquiredBefore = acquired.clone();
+        Thread.sleep(seconds * 1000L);
+        final long wakeupsAfter = wakeups(threadBean, ids);
+        running.set(false);
+        final long stopped = System.nanoTime();
+        final int[] acquiredAfter = acquired.clone();
+        // players still waiting count with the time they waited so far
+        final List<Long> unfinished = new ArrayList<>();
+        for (int ii = 0; ii < players; ii++) {
+            final long since = waitingSince.get(ii);
+            if (since != 0) {
+                unfinished.add(stopped - since);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+        if (!report) {
+            return;
+        }
+        long acquisitions = 0;
+        int served = 0;
+        for (int ii = 0; ii < players; ii++) {
+            acquisitions += acquiredAfter[ii] - acquiredBefore[ii];
+            served += acquiredAfter[ii] > acquiredBefore[ii] ? 1 : 0;
+        }
+        final long[] all = new long[Arrays.stream(acquiredAfter).sum() + unfinished.size()];
+        int offset = 0;
+        for (int ii = 0; ii < players; ii++) {
+            System.arraycopy(latencies[ii], 0, all, offset, acquiredAfter[ii]);
+            offset += acquiredAfter[ii];
+        }
+        for (long waited : unfinished) {
+            all[offset++] = waited;
+        }
+        Arrays.sort(all);
+        System.out.printf("%-10s %,9d acquisitions/s by %d players %6.2f wake-ups/acquisition"
+                + "  wait p50 %,dus p99 %,dus p99.9 %,dus max %,dus%n",
+                engine, acquisitions / seconds, served,
+                (wakeupsAfter - wakeupsBefore) / (double) Math.max(1, acquisitions),
+                quantile(all, 0.5) / 1000, quantile(all, 0.99) / 1000, quantile(all, 0.999) / 1000,
+                quantile(all, 1) / 1000);
+    }
+
+    /*
+     * @return times the threads waited or blocked so far
+     */
+    private static long wakeups(ThreadMXBean threadBean, long[] ids) {
+        long total = 0;
+        for (ThreadInfo info : threadBean.getThreadInfo(ids)) {
+            if (info != null) {
+                total += info.getWaitedCount() + info.getBlockedCount();
+            }
+        }
+        return total;
+    }
+
+    /*
+     * @return the quantile of sorted values, 0 if there are none
+     */
+    private static long quantile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,116 @@
+package memory.bench;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Measures memory and match cost of card values interned in a per-board
+ * dictionary, against the previous representation of one String per card.
+ * 
+ * <p> Command-line usage:
+ * <pre> java memory.bench.DictionaryBenchmark [FILENAME [SIZE]] </pre>
+ * takes the distinct card values of the board file FILENAME (default 
+ * boards/zoom.txt) and scales them to a SIZE-by-SIZE board (default 1000).
+ */
+public class DictionaryBenchmark {
+    
+    private static final int COMPARES = 20_000_000;
+    
+    /**
+     * A card as it was before value interning: its own copy of the value
+     * as read from the board file, and its state in separate fields.
+     */
+    @SuppressWarnings("unused")
+    private static class StringCard {
+        private final String card;
+        private final int cardNumber;
+        private Player cardOwner;
+        private boolean faceUp;
+        private boolean isOwned;
+        private boolean isRemoved;
+        
+        StringCard(String card, int cardNumber) {
+            this.card = card;
+            this.cardNumber = cardNumber;
+        }
+    }
+    
+    /**
+     * Run the benchmark.
+     * 
+     * @param args arguments as described above
+     * @throws IOException if the board file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        final String filename = args.length > 0 ? args[0] : "boards/zoom.txt";
+        final int size = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int cells = size * size;
+        final List<String> lines = Files.readAllLines(Paths.get(filename), UTF_8);
+        final Set<String> values = new LinkedHashSet<>(lines.subList(1, lines.size()));
+        final String[] distinct = values.toArray(new String[0]);
+        System.out.println("values of " + filename + ": " + values + " on " + size + "x" + size);
+        
+        // memory
+        final SplittableRandom random = new SplittableRandom(1);
+        final int[] ids = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            ids[i] = random.nextInt(distinct.length);
+        }
+        long before = LayoutBenchmark.usedHeap();
+        final StringCard[] stringCards = new StringCard[cells];
+        for (int i = 0; i < cells; i++) {
+            // a board file reader makes a new String for every line
+            stringCards[i] = new StringCard(new String(distinct[ids[i]].getBytes(UTF_8), UTF_8), i);
+        }
+        report("String per card", LayoutBenchmark.usedHeap() - before);
+        for (Layout layout : Layout.values()) {
+            before = LayoutBenchmark.usedHeap();
+            final Board board = Board.generateRandom(size, size, values, Engine.MONITOR, layout);
+            report("dictionary " + layout, LayoutBenchmark.usedHeap() - before);
+            board.getRows();
+        }
+        
+        // match cost, over the same random pairs of cells
+        final int[] pairs = new int[2 * COMPARES];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = random.nextInt(cells);
+        }
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int matches = 0;
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (stringCards[pairs[i]].card.equals(stringCards[pairs[i + 1]].card)) {
+                    matches++;
+                }
+            }
+            final long strings = System.nanoTime() - start;
+            start = System.nanoTime();
+            int idMatches = 0;
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (ids[pairs[i]] == ids[pairs[i + 1]]) {
+                    idMatches++;
+                }
+            }
+            final long ints = System.nanoTime() - start;
+            assert matches == idMatches;
+            System.out.printf("round %d: String.equals %.2f ns/match, value id %.2f ns/match%n",
+                    round, (double) strings / COMPARES, (double) ints / COMPARES);
+        }
+    }
+    
+    private static void report(String representation, long bytes) {
+        System.out.printf("%-20s %,12d bytes retained%n", representation, bytes);
+    }
+}
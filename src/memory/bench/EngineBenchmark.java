@@ -0,0 +1,111 @@
+package memory.bench;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import memory.Board;
+import memory.Engine;
+import memory.Player;
+
+/**
+ * Compares the flip throughput of the board engines.
+ * 
+ * <p> Command-line usage:
+ * <pre> java memory.bench.EngineBenchmark [PLAYERS [SIZE [SECONDS]]] </pre>
+ * where PLAYERS threads (default 200) each play their own player on a
+ * SIZE-by-SIZE random board (default 100) for SECONDS (default 10) per engine.
+ * Every player keeps flipping pairs of random cards, so players contend for the
+ * cards of each other and block by rule 1D.
+ */
+public class EngineBenchmark {
+    
+    /**
+     * Run the benchmark.
+     * 
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int players = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int size = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        
+        System.out.println("players=" + players + " board=" + size + "x" + size + " seconds=" + seconds);
+        for (Engine engine : Engine.values()) {
+            // warm up, then measure
+            run(makeBoard(size, engine), players, Math.max(1, seconds / 5));
+            final double flipsPerSecond = run(makeBoard(size, engine), players, seconds);
+            System.out.printf("%-10s %,15.0f flips/s%n", engine, flipsPerSecond);
+        }
+    }
+    
+    /**
+     * Make a board where almost every card has only one match, so the board
+     * stays populated during the run.
+     * 
+     * @param size board width and height
+     * @param engine engine of the board
+     * @return a new random board
+     */
+    static Board makeBoard(int size, Engine engine) {
+        final Set<String> cards = new HashSet<>();
+        for (int value = 0; value < Math.max(1, size * size / 2); value++) {
+            cards.add(Integer.toString(value, Character.MAX_RADIX));
+        }
+        return Board.generateRandom(size, size, cards, engine);
+    }
+    
+    /**
+     * @return flips per second of players flipping random cards on board
+     */
+    static double run(Board board, int players, int seconds) throws InterruptedException {
+        final List<Player> playing = new ArrayList<>();
+        for (int ii = 0; ii < players; ii++) {
+            playing.add(new Player("p" + ii));
+        }
+        return run(board, playing, seconds);
+    }
+    
+    /**
+     * @return flips per second of players, each on a thread of its own, flipping
+     *         random cards on board
+     */
+    static double run(Board board, List<Player> players, int seconds) throws InterruptedException {
+        final int rows = board.getRows();
+        final int cols = board.getCols();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder flips = new LongAdder();
+        final List<Thread> threads = new ArrayList<>();
+        for (Player player : players) {
+            threads.add(new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (running.get()) {
+                        board.flipCard(player, random.nextInt(rows), random.nextInt(cols));
+                        board.flipCard(player, random.nextInt(rows), random.nextInt(cols));
+                        flips.add(2);
+                    }
+                } catch (InterruptedException ie) {
+                    // stopped while blocked by rule 1D
+                }
+            }));
+        }
+        final long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        final long elapsed = System.nanoTime() - start;
+        final long total = flips.sum();
+        for (Thread thread : threads) {
+            // players stopped holding a card can leave others blocked forever
+            thread.interrupt();
+            thread.join();
+        }
+        return total * 1e9 / elapsed;
+    }
+}
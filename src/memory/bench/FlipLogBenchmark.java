@@ -0,0 +1,71 @@
+package memory.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import memory.Board;
+import memory.Engine;
+import memory.FlipLog;
+import memory.PlayerRegistry;
+
+/**
+ * Measures the flip throughput of the actor engine without a flip log, with a
+ * log only written to the file system, and with a log forced to the disk by
+ * groups of records gathered for several windows.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.FlipLogBenchmark [PLAYERS [SIZE [SECONDS [DIRECTORY]]]] </pre>
+ * where PLAYERS threads (default 200) each play their own player on a
+ * SIZE-by-SIZE random board (default 100) for SECONDS (default 5) per run, as in
+ * {@link EngineBenchmark}, with logs in DIRECTORY (default a temporary directory).
+ * Each run also reports the flips made durable per group of records.
+ */
+public class FlipLogBenchmark {
+
+    private static final long[] WINDOW_MICROS = { 0, 100, 1000, 10_000 };
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     * @throws IOException if an error occurs writing a log
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        final int players = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int size = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final Path directory = args.length > 3 ? Path.of(args[3]) : Files.createTempDirectory("flips");
+
+        System.out.println("players=" + players + " board=" + size + "x" + size + " seconds=" + seconds
+                + " logs in " + directory);
+        EngineBenchmark.run(EngineBenchmark.makeBoard(size, Engine.ACTOR), players, Math.max(1, seconds / 5));
+        final double off = EngineBenchmark.run(EngineBenchmark.makeBoard(size, Engine.ACTOR), players, seconds);
+        System.out.printf("%-22s %,12.0f flips/s%n", "no log", off);
+        run(directory, players, size, seconds, 0, false);
+        for (long window : WINDOW_MICROS) {
+            run(directory, players, size, seconds, window, true);
+        }
+    }
+
+    /*
+     * Measure and print one run with a log
+     */
+    private static void run(Path directory, int players, int size, int seconds, long window, boolean fsync)
+            throws IOException, InterruptedException {
+        final Path file = Files.createTempFile(directory, "flips", ".log");
+        Files.delete(file);
+        final Board board = EngineBenchmark.makeBoard(size, Engine.ACTOR);
+        final double flipsPerSecond;
+        final long syncs;
+        try (FlipLog log = FlipLog.open(file, board, new PlayerRegistry(), window, fsync)) {
+            flipsPerSecond = EngineBenchmark.run(board, players, seconds);
+            syncs = log.syncs();
+        }
+        final String name = fsync ? String.format("fsync window %,dus", window) : "log, no fsync";
+        System.out.printf("%-22s %,12.0f flips/s %,9.1f flips/group %,8d MB logged%n", name, flipsPerSecond,
+                flipsPerSecond * seconds / Math.max(1, syncs), Files.size(file) >> 20);
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,114 @@
+package memory.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import memory.Board;
+import memory.Engine;
+import memory.GameLoops;
+import memory.Player;
+
+/**
+ * Compares running the requests of many games on one shared pool of threads
+ * with running every game on the event loop it is pinned to.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.GameLoopBenchmark [GAMES [THREADS [SECONDS [IN_FLIGHT [HOT_PERCENT]]]]] </pre>
+ * where GAMES boards of 6x6 cards (default 256) are played by IN_FLIGHT players
+ * (default 512) for SECONDS (default 5) per model. A player sends one request
+ * at a time: flip a random card of its game, then render the board for it.
+ * HOT_PERCENT of the players (default 50) play the first 1% of the games.
+ * The shared pool and the event loops both have THREADS threads (default the
+ * number of processors, at least 2).
+ */
+public class GameLoopBenchmark {
+
+    private static final int SIZE = 6;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws Exception if the event loops cannot be made or interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(2, Runtime.getRuntime().availableProcessors());
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final int inFlight = args.length > 3 ? Integer.parseInt(args[3]) : 512;
+        final int hotPercent = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+        System.out.println("games=" + games + " threads=" + threads + " in-flight=" + inFlight
+                + " hot=" + hotPercent + "%");
+        for (int round = 0; round < 2; round++) {
+            final boolean report = round > 0;
+            final ExecutorService pool = Executors.newFixedThreadPool(threads);
+            run("shared-pool", games, seconds, inFlight, hotPercent, game -> pool, report);
+            pool.shutdown();
+            final GameLoops loops = new GameLoops(threads, GameLoops.REBALANCE_MILLIS);
+            run("game-loops", games, seconds, inFlight, hotPercent, game -> loops.pin(), report);
+            loops.shutdown();
+        }
+    }
+
+    private interface ExecutorOf {
+        Executor of(int game);
+    }
+
+    private static void run(String model, int games, int seconds, int inFlight, int hotPercent,
+            ExecutorOf executorOf, boolean report) throws InterruptedException {
+        final List<Board> boards = new ArrayList<>();
+        final List<Executor> executors = new ArrayList<>();
+        for (int ii = 0; ii < games; ii++) {
+            boards.add(EngineBenchmark.makeBoard(SIZE, Engine.MONITOR));
+            executors.add(executorOf.of(ii));
+        }
+        final int hotGames = Math.max(1, games / 100);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder requests = new LongAdder();
+
+        final class Client {
+            private final Player player;
+            private final Board board;
+            private final Executor executor;
+
+            Client(int index) {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int game = random.nextInt(100) < hotPercent ? random.nextInt(hotGames) : random.nextInt(games);
+                this.player = new Player("p" + index);
+                this.board = boards.get(game);
+                this.executor = executors.get(game);
+            }
+
+            void next() {
+                if (!running.get()) {
+                    return;
+                }
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int row = random.nextInt(SIZE);
+                final int col = random.nextInt(SIZE);
+                executor.execute(() -> board.flipCardAsync(player, row, col).whenCompleteAsync((state, failure) -> {
+                    board.webString(player);
+                    requests.increment();
+                    next();
+                }, executor));
+            }
+        }
+
+        for (int ii = 0; ii < inFlight; ii++) {
+            new Client(ii).next();
+        }
+        Thread.sleep(seconds * 1000L);
+        final long done = requests.sum();
+        running.set(false);
+        if (report) {
+            System.out.printf("%-12s %,10.0f requests/s%n", model, done / (double) seconds);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package memory.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+
+/**
+ * Measures the time to generate random boards from a seed, against shuffling
+ * a list of the cards as the generator did before.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.GeneratorBenchmark [SIZE [CARDS [ROUNDS]]] </pre>
+ * generates SIZE-by-SIZE packed boards (default 10000, 10^8 cells) of CARDS
+ * distinct values (default 26), ROUNDS times (default 3). The list shuffle is
+ * only timed on boards of at most 10^7 cells, which already need most of a
+ * gigabyte of heap.
+ */
+public class GeneratorBenchmark {
+
+    private static final long MAX_LIST_CELLS = 10_000_000;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     */
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        final int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 26;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        final Set<String> cards = new HashSet<>();
+        for (int value = 0; value < distinct; value++) {
+            cards.add(new String(Character.toChars(0x1F400 + value)));
+        }
+        final int listSize = (int) Math.min(size, Math.sqrt(MAX_LIST_CELLS));
+        System.out.printf("board=%dx%d cards=%d cpus=%d%n", size, size, distinct,
+                Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            final Board board = Board.generateRandom(size, size, cards, Engine.MONITOR, Layout.PACKED, round);
+            final long seeded = System.nanoTime() - start;
+            start = System.nanoTime();
+            final int shuffled = shuffleList(listSize, cards);
+            final long list = System.nanoTime() - start;
+            System.out.printf("round %d: seeded %dx%d %,6d ms, list shuffle %dx%d %,6d ms%n", round,
+                    board.getRows(), board.getCols(), seeded / 1_000_000, listSize, listSize, list / 1_000_000);
+            if (shuffled != listSize * listSize) {
+                throw new AssertionError("lost cards");
+            }
+        }
+    }
+
+    /*
+     * Shuffle the cards of a size-by-size board as a list of values, as the
+     * generator did before
+     * @return number of cards shuffled
+     */
+    private static int shuffleList(int size, Set<String> cards) {
+        final List<String> all = new ArrayList<>(size * size);
+        for (String card : cards) {
+            for (int rep = 0; rep < size * size / cards.size(); rep++) {
+                all.add(card);
+            }
+        }
+        final List<String> values = new ArrayList<>(cards);
+        while (all.size() < size * size) {
+            Collections.shuffle(values);
+            all.add(values.get(0));
+        }
+        Collections.shuffle(all, new Random());
+        return all.size();
+    }
+}
@@ -0,0 +1,75 @@
+package memory.bench;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+
+/**
+ * Compares the memory footprint and build time of the board layouts.
+ * 
+ * <p> Command-line usage:
+ * <pre> java memory.bench.LayoutBenchmark [SIZE [CARDS]] </pre>
+ * builds a SIZE-by-SIZE random board (default 5000) of CARDS distinct values
+ * (default 26) in every layout, and reports the heap it retains. A board
+ * of at most a million cells is also rendered with {@link Board#webString}.
+ */
+public class LayoutBenchmark {
+    
+    private static final long MEGABYTE = 1 << 20;
+    private static final long MAX_RENDERED_CELLS = 1_000_000;
+    
+    /**
+     * Run the benchmark.
+     * 
+     * @param args arguments as described above
+     */
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        final int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 26;
+        final Set<String> cards = new HashSet<>();
+        for (int value = 0; value < distinct; value++) {
+            cards.add(new String(Character.toChars(0x1F400 + value)));
+        }
+        
+        System.out.println("board=" + size + "x" + size + " cards=" + distinct 
+                + " max heap=" + Runtime.getRuntime().maxMemory() / MEGABYTE + "MB");
+        for (Layout layout : Layout.values()) {
+            final long before = usedHeap();
+            final long start = System.nanoTime();
+            final Board board;
+            try {
+                board = Board.generateRandom(size, size, cards, Engine.MONITOR, layout);
+            } catch (OutOfMemoryError oom) {
+                System.out.printf("%-8s does not fit in the heap%n", layout);
+                continue;
+            }
+            final long built = System.nanoTime();
+            final long retained = usedHeap() - before;
+            System.out.printf("%-8s %,8d MB retained, built in %,6d ms", 
+                    layout, retained / MEGABYTE, (built - start) / 1_000_000);
+            if ((long) size * size <= MAX_RENDERED_CELLS) {
+                final long renderStart = System.nanoTime();
+                final int length = board.webString(null).length();
+                System.out.printf(", rendered %,d chars in %,d ms", 
+                        length, (System.nanoTime() - renderStart) / 1_000_000);
+            }
+            System.out.println();
+            // keep the board reachable until measured
+            board.getRows();
+        }
+    }
+    
+    /**
+     * @return bytes of heap in use after a full collection
+     */
+    static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int ii = 0; ii < 3; ii++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
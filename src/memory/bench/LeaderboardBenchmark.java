@@ -0,0 +1,84 @@
+package memory.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import memory.Leaderboard;
+import memory.Player;
+import memory.PlayerRegistry;
+
+/**
+ * Measures reading the top of the leaderboard as the number of ranked players
+ * grows, against walking every player like /scores used to.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.LeaderboardBenchmark [TOP [COUNT,...]]</pre>
+ * where COUNT players (default 10,1000,100000,1000000) attempted to flip and
+ * scored between 0 and 100 points, and the first TOP (default 10) are read.
+ */
+public class LeaderboardBenchmark {
+
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    /* results of the queries, so they are not optimized away */
+    private static volatile long sink;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     */
+    public static void main(String[] args) {
+        final int top = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final String counts = args.length > 1 ? args[1] : "10,1000,100000,1000000";
+        System.out.println("top=" + top);
+        for (String field : counts.split(",")) {
+            final int count = Integer.parseInt(field.trim());
+            final PlayerRegistry registry = new PlayerRegistry();
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int ii = 0; ii < count; ii++) {
+                final Player player = registry.player("player" + ii);
+                for (int points = random.nextInt(100); points > 0; points--) {
+                    player.incrementScore();
+                }
+                // ranked once, with its final score
+                player.markAttempted();
+            }
+            final Leaderboard leaderboard = registry.leaderboard();
+            for (int round = 0; round < 2; round++) {
+                final double topNanos = measure(() -> leaderboard.top(top).size());
+                final double walkNanos = measure(() -> {
+                    int attempted = 0;
+                    for (Player player : registry.players()) {
+                        attempted += player.getAttempted() ? player.webScoreString().length() : 0;
+                    }
+                    return attempted;
+                });
+                if (round > 0) {
+                    System.out.printf("%,10d players  top %,12.0f ns  walk all %,14.0f ns%n",
+                            count, topNanos, walkNanos);
+                }
+            }
+        }
+    }
+
+    private interface Query {
+        int run();
+    }
+
+    /**
+     * @return nanoseconds per run of query, repeated for about a second
+     */
+    private static double measure(Query query) {
+        long runs = 0;
+        long results = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            results += query.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        sink = results;
+        return elapsed / (double) runs;
+    }
+}
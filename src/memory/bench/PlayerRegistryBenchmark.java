@@ -0,0 +1,110 @@
+package memory.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import memory.Player;
+import memory.PlayerRegistry;
+
+/**
+ * Measures looking up players by id as the number of registered players grows,
+ * with a PlayerRegistry and with a synchronized map checked then filled.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.PlayerRegistryBenchmark [THREADS [SECONDS [COUNT,...]]] </pre>
+ * where THREADS threads (default 8) look up random registered ids for SECONDS
+ * (default 2) per registry and COUNT of registered ids (default
+ * 10,1000,100000,1000000). The ids looked up are copies of the registered ones,
+ * like ids parsed from requests.
+ */
+public class PlayerRegistryBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final String counts = args.length > 2 ? args[2] : "10,1000,100000,1000000";
+        System.out.println("threads=" + threads + " seconds=" + seconds
+                + " cpus=" + Runtime.getRuntime().availableProcessors());
+        for (String field : counts.split(",")) {
+            final int count = Integer.parseInt(field.trim());
+            final String[] ids = new String[count];
+            for (int ii = 0; ii < count; ii++) {
+                ids[ii] = new String("player" + ii);
+            }
+
+            final PlayerRegistry registry = new PlayerRegistry();
+            final Map<String, Player> synchronizedMap = Collections.synchronizedMap(new HashMap<>());
+            final Function<String, Player> checkThenPut = id -> {
+                if (!synchronizedMap.containsKey(id)) {
+                    synchronizedMap.put(id, new Player(id));
+                }
+                return synchronizedMap.get(id);
+            };
+            for (String id : ids) {
+                registry.player(id);
+                checkThenPut.apply(id);
+            }
+            for (int round = 0; round < 2; round++) {
+                final boolean report = round > 0;
+                report(report, "registry", count, run(registry::player, ids, threads, seconds));
+                report(report, "synchronized", count, run(checkThenPut, ids, threads, seconds));
+            }
+        }
+    }
+
+    private static void report(boolean report, String registry, int count, double lookupsPerSecond) {
+        if (report) {
+            System.out.printf("%-13s %,10d ids %,14.0f lookups/s%n", registry, count, lookupsPerSecond);
+        }
+    }
+
+    /**
+     * @return lookups per second of random ids of ids with lookup, copied
+     */
+    private static double run(Function<String, Player> lookup, String[] ids, int threads, int seconds)
+            throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder lookups = new LongAdder();
+        final List<Thread> workers = new ArrayList<>();
+        for (int tt = 0; tt < threads; tt++) {
+            workers.add(new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                // copies made up front, so the time is the lookup and not the copy
+                final String[] copies = new String[4096];
+                for (int ii = 0; ii < copies.length; ii++) {
+                    copies[ii] = new String(ids[random.nextInt(ids.length)]);
+                }
+                long done = 0;
+                while (running.get()) {
+                    for (int ii = 0; ii < copies.length; ii++) {
+                        lookup.apply(copies[ii]);
+                    }
+                    done += copies.length;
+                }
+                lookups.add(done);
+            }));
+        }
+        final long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        return lookups.sum() * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,66 @@
+package memory.bench;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import memory.Board;
+import memory.Engine;
+import memory.Layout;
+import memory.Player;
+
+/**
+ * Measures the heap a procedural board retains as players touch more of its
+ * cards, against a packed board of the same size.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.ProceduralBenchmark [SIZE [FLIPS]] </pre>
+ * makes a SIZE-by-SIZE procedural board (default 40000, 1.6*10^9 cells) and
+ * reports its heap after 0, FLIPS/100, FLIPS/10 and FLIPS (default 1000000)
+ * random flips. A packed board of the same size is only made if it fits in the heap.
+ */
+public class ProceduralBenchmark {
+
+    private static final long MEGABYTE = 1 << 20;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while flipping
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 40_000;
+        final int flips = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        final Set<String> cards = Set.of("A", "B", "C", "D", "E", "F", "G", "H");
+        System.out.printf("board=%dx%d max heap=%dMB%n", size, size, Runtime.getRuntime().maxMemory() / MEGABYTE);
+
+        final long before = LayoutBenchmark.usedHeap();
+        long start = System.nanoTime();
+        final Board board = Board.generateProcedural(size, size, cards, Engine.MONITOR, 1);
+        System.out.printf("procedural made in %,.1f ms%n", (System.nanoTime() - start) / 1e6);
+        final SplittableRandom random = new SplittableRandom(2);
+        final Player player = new Player("explorer");
+        int done = 0;
+        for (int target : new int[] { 0, flips / 100, flips / 10, flips }) {
+            final int from = done;
+            start = System.nanoTime();
+            for (; done < target; done++) {
+                board.flipCard(player, random.nextInt(size), random.nextInt(size));
+            }
+            final long nanos = System.nanoTime() - start;
+            System.out.printf("procedural after %,9d flips: %,6d MB retained%s%n", done,
+                    (LayoutBenchmark.usedHeap() - before) / MEGABYTE,
+                    done == from ? "" : String.format(", %,.0f ns per flip", (double) nanos / (done - from)));
+        }
+        board.getRows();
+
+        try {
+            final long packedBefore = LayoutBenchmark.usedHeap();
+            final Board packed = Board.generateRandom(size, size, cards, Engine.MONITOR, Layout.PACKED, 1);
+            System.out.printf("packed: %,6d MB retained%n", (LayoutBenchmark.usedHeap() - packedBefore) / MEGABYTE);
+            packed.getRows();
+        } catch (OutOfMemoryError oom) {
+            System.out.println("packed: does not fit in the heap");
+        }
+    }
+}
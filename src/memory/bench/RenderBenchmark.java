@@ -0,0 +1,51 @@
+package memory.bench;
+
+import java.util.Set;
+
+import memory.Board;
+import memory.Engine;
+import memory.Player;
+
+/**
+ * Measures the cost of one board change seen by many watching players,
+ * every one of them receiving its own rendering of the board.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.RenderBenchmark [SIZE [WATCHERS [CHANGES]]] </pre>
+ * flips cards of a SIZE-by-SIZE board (default 300) CHANGES times (default 2000)
+ * while WATCHERS players (default 100) are notified of every change.
+ */
+public class RenderBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException never, no flip blocks with a single flipping player
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        final int watchers = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final int changes = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        final Board board = Board.generateRandom(size, size, Set.of("A", "B", "C", "D"), Engine.MONITOR);
+        final long[] received = new long[1];
+        for (int w = 0; w < watchers; w++) {
+            board.addListener(new Player("watcher" + w), boardString -> received[0] += boardString.length());
+        }
+        final Player player = new Player("flipper");
+        // warm up
+        for (int i = 0; i < changes / 4; i++) {
+            board.flipCard(player, 0, i % size);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            board.flipCard(player, (i / size) % size, i % size);
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.println(size + "x" + size + " board, " + watchers + " watchers, " + changes + " flips: "
+                + (elapsed / changes / 1000) + " us per flip, "
+                + (elapsed / changes / Math.max(1, watchers)) + " ns per watcher"
+                + " (" + received[0] / 1_000_000 + "MB of boards received)");
+    }
+
+}
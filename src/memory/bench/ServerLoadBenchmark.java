@@ -0,0 +1,243 @@
+package memory.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import memory.Execution;
+
+/**
+ * Measures the web server under many concurrent players contending for a few
+ * cards, for each execution model of its request handlers.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.ServerLoadBenchmark [PLAYERS [SECONDS [HOT [MODEL,...]]]] </pre>
+ * where PLAYERS concurrent players (default 10000) play for SECONDS (default 10)
+ * against a server started by {@code memory.ServerMain} in its own process, for
+ * each of the execution models MODEL (default all of them). Every player flips
+ * one of HOT cards (default 16), blocking by rule 1D while another player
+ * controls it, then a random card which never matches and releases both.
+ * The server backlog is PLAYERS. Reports flips per second, the latency of
+ * a flip request, and the peak thread count and resident memory of the server
+ * process, read from /proc (Linux only).
+ */
+public class ServerLoadBenchmark {
+
+    private static final int SIZE = 10;
+    private static final long BUCKET_NANOS = 100_000;
+    private static final int BUCKETS = 600_000;
+    private static final long STARTUP_MILLIS = 20_000;
+    private static final long DRAIN_MILLIS = 30_000;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws IOException if the server cannot be started
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int players = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int hot = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        final List<Execution> models = new ArrayList<>();
+        if (args.length > 3) {
+            for (String model : args[3].split(",")) {
+                models.add(Execution.valueOf(model.toUpperCase()));
+            }
+        } else {
+            models.addAll(List.of(Execution.values()));
+        }
+        final Path boardFile = writeBoard();
+        System.out.println("players=" + players + " seconds=" + seconds + " hot=" + hot
+                + " board=" + SIZE + "x" + SIZE + " java=" + Runtime.version().feature());
+        try {
+            for (Execution model : models) {
+                run(model, players, seconds, hot, boardFile);
+            }
+        } finally {
+            Files.delete(boardFile);
+        }
+    }
+
+    /*
+     * Write a board of SIZE x SIZE cards which all differ, so that flips never match
+     */
+    private static Path writeBoard() throws IOException {
+        final Path boardFile = Files.createTempFile("load", ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(boardFile))) {
+            out.println(SIZE + "x" + SIZE);
+            for (int ii = 0; ii < SIZE * SIZE; ii++) {
+                out.println("c" + ii);
+            }
+        }
+        return boardFile;
+    }
+
+    private static void run(Execution model, int players, int seconds, int hot, Path boardFile)
+            throws IOException, InterruptedException {
+        final int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        final String java = ProcessHandle.current().info().command().orElse("java");
+        final Process server = new ProcessBuilder(java, "-Dmemory.executor=" + model,
+                "-Dmemory.backlog=" + players, "-cp", System.getProperty("java.class.path"),
+                "memory.ServerMain", Integer.toString(port), boardFile.toString())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!awaitListening(server, port)) {
+                System.out.printf("%-13s server did not start (exit %s)%n", model,
+                        server.isAlive() ? "-" : server.exitValue());
+                return;
+            }
+            play(model, server, port, players, seconds, hot);
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    /*
+     * @return whether the server accepts connections on port before it exits or times out
+     */
+    private static boolean awaitListening(Process server, int port) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + STARTUP_MILLIS;
+        while (server.isAlive() && System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port));
+                return true;
+            } catch (IOException notYet) {
+                Thread.sleep(50);
+            }
+        }
+        return false;
+    }
+
+    private static void play(Execution model, Process server, int port, int players, int seconds, int hot)
+            throws InterruptedException {
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final String base = "http://localhost:" + port + "/flip/";
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicBoolean measuring = new AtomicBoolean(false);
+        final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+        final LongAdder flips = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final CountDownLatch stopped = new CountDownLatch(players);
+
+        final class Flipper {
+            private final String player;
+            private final int hotCard;
+
+            Flipper(int index) {
+                this.player = "p" + index;
+                this.hotCard = index % hot;
+            }
+
+            CompletableFuture<Void> flip(int card) {
+                final HttpRequest request = HttpRequest.newBuilder(URI.create(
+                        base + player + "/" + (card / SIZE + 1) + "," + (card % SIZE + 1))).build();
+                final long start = System.nanoTime();
+                return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+                    if (measuring.get()) {
+                        final long bucket = (System.nanoTime() - start) / BUCKET_NANOS;
+                        latencies.incrementAndGet((int) Math.min(BUCKETS - 1, bucket));
+                        flips.increment();
+                    }
+                });
+            }
+
+            void play() {
+                if (!running.get()) {
+                    stopped.countDown();
+                    return;
+                }
+                final int other = hot + ThreadLocalRandom.current().nextInt(SIZE * SIZE - hot);
+                flip(hotCard).thenCompose(flipped -> flip(other)).whenComplete((flipped, failure) -> {
+                    if (failure != null) {
+                        failures.increment();
+                    }
+                    play();
+                });
+            }
+        }
+
+        for (int ii = 0; ii < players; ii++) {
+            new Flipper(ii).play();
+        }
+        final long warmupMillis = Math.max(1000, seconds * 200L);
+        Thread.sleep(warmupMillis);
+        measuring.set(true);
+        long peakThreads = 0;
+        long peakRssKb = 0;
+        final long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            peakThreads = Math.max(peakThreads, procStatus(server, "Threads:"));
+            peakRssKb = Math.max(peakRssKb, procStatus(server, "VmRSS:"));
+            Thread.sleep(250);
+        }
+        measuring.set(false);
+        running.set(false);
+        final boolean drained = stopped.await(DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+        System.out.printf("%-13s %,8.0f flips/s  p50 %,7.1fms p99 %,8.1fms p99.9 %,8.1fms"
+                + "  server threads %,6d  rss %,7.1fMB  failures %,d%s%n",
+                model, flips.sum() / (double) seconds,
+                millis(latencies, 0.5), millis(latencies, 0.99), millis(latencies, 0.999),
+                peakThreads, peakRssKb / 1024.0, failures.sum(),
+                drained ? "" : "  (" + stopped.getCount() + " players still blocked)");
+    }
+
+    /*
+     * @return the value of field in /proc/PID/status of process, -1 if unavailable
+     */
+    private static long procStatus(Process process, String field) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/" + process.pid() + "/status"))) {
+                if (line.startsWith(field)) {
+                    return Long.parseLong(line.substring(field.length()).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux, or the process is gone
+        }
+        return -1;
+    }
+
+    /*
+     * @return the quantile of the latency histogram in milliseconds
+     */
+    private static double millis(AtomicLongArray histogram, double quantile) {
+        long total = 0;
+        for (int ii = 0; ii < BUCKETS; ii++) {
+            total += histogram.get(ii);
+        }
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int ii = 0; ii < BUCKETS; ii++) {
+            seen += histogram.get(ii);
+            if (seen >= rank && seen > 0) {
+                return (ii + 1) * BUCKET_NANOS / 1e6;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,113 @@
+package memory.bench;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import memory.Board;
+import memory.Engine;
+import memory.Player;
+
+/**
+ * Measures the latency of flips while many players watch the board.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.bench.WatchBenchmark [WATCHERS [PLAYERS [SIZE [SECONDS [WRITE_MICROS]]]]] </pre>
+ * where WATCHERS listeners (default 1000) watch a SIZE-by-SIZE random board
+ * (default 20) while PLAYERS threads (default 16) flip random cards for SECONDS
+ * (default 5). Every listener encodes the board it receives and takes
+ * WRITE_MICROS (default 20) more to write it, like a client on a slow socket.
+ */
+public class WatchBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args arguments as described above
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int watchers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int players = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        final int size = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        final int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        final long writeMicros = args.length > 4 ? Long.parseLong(args[4]) : 20;
+
+        final Board board = EngineBenchmark.makeBoard(size, Engine.MONITOR);
+        final LongAdder delivered = new LongAdder();
+        for (int ii = 0; ii < watchers; ii++) {
+            board.addListener(new Player("w" + ii), boardString -> {
+                final byte[] written = boardString.getBytes(UTF_8);
+                LockSupport.parkNanos(writeMicros * 1000);
+                delivered.add(written.length > 0 ? 1 : 0);
+            });
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<long[]> latencies = new ArrayList<>();
+        final int[] counts = new int[players];
+        final List<Thread> threads = new ArrayList<>();
+        for (int ii = 0; ii < players; ii++) {
+            final int index = ii;
+            final Player player = new Player("p" + ii);
+            latencies.add(new long[1024]);
+            threads.add(new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (running.get()) {
+                        final long start = System.nanoTime();
+                        board.flipCard(player, random.nextInt(size), random.nextInt(size));
+                        final long latency = System.nanoTime() - start;
+                        long[] mine = latencies.get(index);
+                        if (counts[index] == mine.length) {
+                            mine = Arrays.copyOf(mine, 2 * mine.length);
+                            latencies.set(index, mine);
+                        }
+                        mine[counts[index]++] = latency;
+                    }
+                } catch (InterruptedException ie) {
+                    // stopped while blocked by rule 1D
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        final long[] all = new long[total];
+        int offset = 0;
+        for (int ii = 0; ii < players; ii++) {
+            System.arraycopy(latencies.get(ii), 0, all, offset, counts[ii]);
+            offset += counts[ii];
+        }
+        Arrays.sort(all);
+        System.out.println("watchers=" + watchers + " players=" + players + " board=" + size + "x" + size
+                + " write=" + writeMicros + "us");
+        System.out.printf("flips %,d (%,.0f/s), deliveries %,d%n", total, total / (double) seconds, delivered.sum());
+        System.out.printf("flip latency p50 %s p99 %s p99.9 %s max %s%n",
+                micros(all, 0.5), micros(all, 0.99), micros(all, 0.999), micros(all, 1));
+    }
+
+    /*
+     * @return the quantile of sorted latencies in microseconds
+     */
+    private static String micros(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        final int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return String.format("%,dus", sorted[Math.max(0, index)] / 1000);
+    }
+}
@@ -0,0 +1,245 @@
+package memory.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import memory.Player;
+
+/**
+ * Records the ordered stream of flips requested of a board, with the time each
+ * was requested, so that {@link FlipReplayer} can drive them again against
+ * another board.
+ *
+ * A recording file is, in big endian as written by {@link DataOutputStream}:
+ * <pre>
+ *   MAGIC         4 bytes "MREC"
+ *   VERSION       int, 1
+ *   ROWS COLS     int, int, the size of the board
+ *   flips, each:
+ *     NANOS       long, nanoseconds since the recorder was made
+ *     PLAYER      int, index of the player in the recording, counting from 0
+ *                 in order of their first flip, followed by the player id
+ *                 as by {@link DataOutputStream#writeUTF(String)} on that flip
+ *     ROW COL     int, int, the card flipped
+ * </pre>
+ * Flipping threads only queue the flip, a thread of the recorder writes them
+ * in the order they were queued. When the queue is full, flipping threads wait
+ * for room rather than leave a gap: a recording with a missing flip would replay
+ * another game. NANOS never decreases: a flip
+ * queued after a flip timed later is written with the time of that flip.
+ * Recording never fails a flip: the first error writing the file stops the
+ * recording and is thrown by {@link #close()}.
+ * @author davidmagrefty
+ *
+ */
+public class FlipRecorder implements Closeable {
+
+    /** first bytes of every recording file */
+    static final byte[] MAGIC = { 'M', 'R', 'E', 'C' };
+
+    /** version of the format written by this class */
+    static final int VERSION = 1;
+
+    private static final int QUEUE = 1 << 16;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /*
+     * A flip requested of the board
+     */
+    private static final class Flip {
+        private final long nanos;
+        private final Player player;
+        private final int row;
+        private final int col;
+
+        Flip(long nanos, Player player, int row, int col) {
+            this.nanos = nanos;
+            this.player = player;
+            this.row = row;
+            this.col = col;
+        }
+    }
+
+    private final DataOutputStream out;
+    private final long start = System.nanoTime();
+    private final BlockingQueue<Flip> queue = new ArrayBlockingQueue<>(QUEUE);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread writer;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private long last;
+    private IOException failure;
+
+    // Abstraction function:
+    //      AF(out, start, queue, closed, writer, indexes, last, failure)
+    //          = the recording written to out of the flips requested since start,
+    //            the last of them at last, by the players whose ids map to their
+    //            index in indexes, with the flips in queue to write after them.
+    //            Nothing is recorded once closed, or written after failure if not null
+    // Rep invariant:
+    //      indexes maps the ids of players to 0..indexes.size()-1
+    //      last >= 0
+    // Safety from rep exposure:
+    //      All fields are private, none is returned, failure is only thrown
+    // Thread safety argument:
+    //      queue is threadsafe, closed is atomic, and the other
+    //      fields are final or confined to writer once the constructor returned;
+    //      close() only uses out and failure after joining writer
+
+    /**
+     * Make a recorder writing to file, replacing file if it exists, and start
+     * its writer thread.
+     *
+     * @param file path to the recording
+     * @param rows rows of the board recorded, > 0
+     * @param cols columns of the board recorded, > 0
+     * @throws IOException if an error occurs creating the file
+     */
+    public FlipRecorder(Path file, int rows, int cols) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES));
+        try {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+        } catch (IOException ioe) {
+            out.close();
+            throw ioe;
+        }
+        checkRep();
+        writer = new Thread(this::write, "flip-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void checkRep() {
+        assert out != null;
+        assert last >= 0;
+        assert indexes.values().stream().allMatch(index -> index >= 0 && index < indexes.size());
+    }
+
+    /**
+     * Record that player requested to flip the card at (row, col), now.
+     * Waits while the writer is a whole queue behind. Does nothing once closed
+     * or after an error.
+     *
+     * @param player player flipping the card
+     * @param row row of the card
+     * @param col column of the card
+     */
+    public void record(Player player, int row, int col) {
+        if (closed.get()) {
+            return;
+        }
+        final Flip flip = new Flip(System.nanoTime() - start, player, row, col);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (queue.offer(flip, 100, TimeUnit.MILLISECONDS) || !writer.isAlive()) {
+                    // queued, or closed while waiting and not recorded
+                    break;
+                }
+            } catch (InterruptedException ie) {
+                // a flip is never left out, the writer is only busy
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Write the flips of the queue until closed, on the writer thread
+     */
+    private void write() {
+        final List<Flip> flips = new ArrayList<>();
+        while (!(closed.get() && queue.isEmpty())) {
+            try {
+                final Flip first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                flips.add(first);
+            } catch (InterruptedException ie) {
+                continue;
+            }
+            queue.drainTo(flips);
+            if (failure == null) {
+                try {
+                    for (Flip flip : flips) {
+                        writeFlip(flip);
+                    }
+                } catch (IOException ioe) {
+                    failure = ioe;
+                }
+            }
+            flips.clear();
+        }
+    }
+
+    /*
+     * Write one flip, and the id of its player on its first flip
+     */
+    private void writeFlip(Flip flip) throws IOException {
+        // queued in order, but not always timed in that order
+        last = Math.max(last, flip.nanos);
+        out.writeLong(last);
+        final String playerId = flip.player.getPlayerId();
+        final Integer index = indexes.get(playerId);
+        if (index != null) {
+            out.writeInt(index);
+        } else {
+            out.writeInt(indexes.size());
+            out.writeUTF(playerId);
+            indexes.put(playerId, indexes.size());
+        }
+        out.writeInt(flip.row);
+        out.writeInt(flip.col);
+    }
+
+    /**
+     * Stop recording, write the flips recorded and close the file. Flips
+     * requested later are not recorded.
+     *
+     * @throws IOException if an error occurred writing the recording
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException ioe) {
+            if (failure == null) {
+                failure = ioe;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package memory.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import memory.Board;
+import memory.Engine;
+import memory.Player;
+import memory.PlayerRegistry;
+
+/**
+ * Drives the flips of a {@link Recording} against a board, as fast as possible or
+ * at the pace they were recorded, and measures the throughput and latency of the
+ * flips, so that the load of a production incident becomes a repeatable benchmark.
+ *
+ * The flips of each player are replayed in the order they were recorded, each
+ * once the previous one completed, as a player waits for the response to a flip
+ * before the next one. The flips of different players overlap freely, on the
+ * threads of the replayer, with {@link Board#flipCardAsync(Player, int, int)}.
+ * At the pace recorded, a flip is not requested before its recorded time divided
+ * by the speed, and its latency is counted from that time, so a replay falling
+ * behind the recording shows in its latencies.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.replay.FlipReplayer RECORDING FILENAME [THREADS [SPEED [ENGINE]]] </pre>
+ * where RECORDING is a file written by {@link FlipRecorder}, replayed against the
+ * board of FILENAME played with ENGINE (default monitor), on THREADS threads
+ * (default the number of processors), at SPEED times the pace recorded, or as fast
+ * as possible with SPEED 0 (the default).
+ * @author davidmagrefty
+ *
+ */
+public class FlipReplayer {
+
+    /** milliseconds to wait for a flip to complete before the replay gives up on it */
+    public static final long DRAIN_MILLIS = 30_000;
+
+    private static final long POLL_MILLIS = 10;
+
+    private FlipReplayer() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Throughput and latencies of a replay.
+     */
+    public static class Report {
+
+        private final long flips;
+        private final long failures;
+        private final long unfinished;
+        private final long nanos;
+        private final LatencyHistogram latencies;
+
+        // Abstraction function:
+        //      AF(flips, failures, unfinished, nanos, latencies) = a replay where flips
+        //                              flips completed and failures failed in nanos
+        //                              nanoseconds, with their latencies, while
+        //                              unfinished flips did not complete
+        // Rep invariant:
+        //      flips, failures, unfinished, nanos >= 0
+        // Safety from rep exposure:
+        //      All fields are private and final, latencies is only returned once
+        //      the replay recorded all of them
+        // Thread safety argument:
+        //      Report is immutable but for latencies, which is threadsafe
+
+        private Report(long flips, long failures, long unfinished, long nanos, LatencyHistogram latencies) {
+            this.flips = flips;
+            this.failures = failures;
+            this.unfinished = unfinished;
+            this.nanos = nanos;
+            this.latencies = latencies;
+            assert flips >= 0 && failures >= 0 && unfinished >= 0 && nanos >= 0;
+        }
+
+        /**
+         * @return number of flips completed
+         */
+        public long flips() {
+            return flips;
+        }
+
+        /**
+         * @return number of flips which failed
+         */
+        public long failures() {
+            return failures;
+        }
+
+        /**
+         * @return number of flips which never completed, e.g. still blocked by
+         *         rule 1D on a card whose player has no more flips
+         */
+        public long unfinished() {
+            return unfinished;
+        }
+
+        /**
+         * @return nanoseconds from the start of the replay to its last completed flip
+         */
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * @return flips completed per second
+         */
+        public double flipsPerSecond() {
+            return flips * 1e9 / Math.max(1, nanos);
+        }
+
+        /**
+         * @return latencies of the flips completed or failed, in nanoseconds
+         */
+        public LatencyHistogram latencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d flips in %,.1f s, %,.0f flips/s  p50 %,.3fms p99 %,.3fms"
+                    + " p99.9 %,.3fms max %,.3fms  failures %,d  unfinished %,d",
+                    flips, nanos / 1e9, flipsPerSecond(), latencies.quantile(0.5) / 1e6,
+                    latencies.quantile(0.99) / 1e6, latencies.quantile(0.999) / 1e6, latencies.max() / 1e6,
+                    failures, unfinished);
+        }
+    }
+
+    /**
+     * Replay a recording against a board.
+     *
+     * @param recording flips to replay
+     * @param board a board of the size of the recording, in the state the recording
+     *              started from for the same outcome
+     * @param players the players of board, the players of the recording are
+     *                looked up by id
+     * @param threads number of threads requesting flips and running their
+     *                completions, > 0
+     * @param speed pace of the replay as a multiple of the pace recorded, > 0,
+     *              or 0 for as fast as possible
+     * @return throughput and latencies of the replay, once every flip completed or
+     *         no flip completed for DRAIN_MILLIS
+     * @throws IllegalArgumentException if board is not of the size of the recording
+     * @throws InterruptedException if interrupted while waiting for the flips
+     */
+    public static Report replay(Recording recording, Board board, PlayerRegistry players, int threads,
+            double speed) throws InterruptedException {
+        assert threads > 0 && speed >= 0;
+        if (board.getRows() != recording.getRows() || board.getCols() != recording.getCols()) {
+            throw new IllegalArgumentException("recording of a " + recording.getRows() + "x"
+                    + recording.getCols() + " board");
+        }
+        final int[][] flipsOf = flipsByPlayer(recording);
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final AtomicLong last = new AtomicLong();
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long start = System.nanoTime();
+        last.set(start);
+
+        final class Chain {
+            private final Player player;
+            private final int[] flips;
+            private int next;
+
+            Chain(Player player, int[] flips) {
+                this.player = player;
+                this.flips = flips;
+            }
+
+            /*
+             * Request the next flip of player, once it is due
+             */
+            void next() {
+                if (next == flips.length) {
+                    return;
+                }
+                final int flip = flips[next++];
+                if (speed == 0) {
+                    executor.execute(() -> flip(flip, System.nanoTime()));
+                    return;
+                }
+                final long due = start + (long) (recording.nanos(flip) / speed);
+                final long delay = due - System.nanoTime();
+                if (delay > 0) {
+                    executor.schedule(() -> flip(flip, due), delay, TimeUnit.NANOSECONDS);
+                } else {
+                    executor.execute(() -> flip(flip, due));
+                }
+            }
+
+            private void flip(int flip, long due) {
+                board.flipCardAsync(player, recording.row(flip), recording.col(flip))
+                        .whenCompleteAsync((state, failure) -> {
+                            final long now = System.nanoTime();
+                            latencies.record(now - due);
+                            if (failure != null) {
+                                failed.increment();
+                            } else {
+                                completed.increment();
+                            }
+                            last.accumulateAndGet(now, Math::max);
+                            next();
+                        }, executor);
+            }
+        }
+
+        try {
+            for (int player = 0; player < flipsOf.length; player++) {
+                new Chain(players.player(recording.playerIds().get(player)), flipsOf[player]).next();
+            }
+            final long end = start + (long) (speed == 0 || recording.size() == 0 ? 0 : recording.nanos(recording.size() - 1) / speed);
+            long done = 0;
+            long progress = System.nanoTime();
+            while (done < recording.size()
+                    && (System.nanoTime() < end || System.nanoTime() - progress < DRAIN_MILLIS * 1_000_000)) {
+                Thread.sleep(POLL_MILLIS);
+                final long now = completed.sum() + failed.sum();
+                if (now != done) {
+                    done = now;
+                    progress = System.nanoTime();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final long flips = completed.sum();
+        final long failures = failed.sum();
+        return new Report(flips, failures, recording.size() - flips - failures, last.get() - start, latencies);
+    }
+
+    /*
+     * @return for each player of recording, its flips in order
+     */
+    private static int[][] flipsByPlayer(Recording recording) {
+        final int[] counts = new int[recording.playerIds().size()];
+        for (int flip = 0; flip < recording.size(); flip++) {
+            counts[recording.player(flip)]++;
+        }
+        final int[][] flipsOf = new int[counts.length][];
+        for (int player = 0; player < counts.length; player++) {
+            flipsOf[player] = new int[counts[player]];
+        }
+        Arrays.fill(counts, 0);
+        for (int flip = 0; flip < recording.size(); flip++) {
+            final int player = recording.player(flip);
+            flipsOf[player][counts[player]++] = flip;
+        }
+        return flipsOf;
+    }
+
+    /**
+     * Replay a recording and print its report.
+     *
+     * @param args arguments as described above
+     * @throws IOException if an error occurs reading the recording or the board
+     * @throws InterruptedException if interrupted while waiting for the flips
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("expected RECORDING FILENAME [THREADS [SPEED [ENGINE]]]");
+        }
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        final double speed = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        final Engine engine = args.length > 4 ? Engine.valueOf(args[4].toUpperCase()) : Engine.MONITOR;
+        if (threads <= 0 || speed < 0) {
+            throw new IllegalArgumentException("invalid THREADS or SPEED");
+        }
+        final Recording recording = Recording.read(Path.of(args[0]));
+        final Board board = Board.parseFromFile(args[1], engine);
+        System.out.println("flips=" + recording.size() + " players=" + recording.playerIds().size()
+                + " board=" + recording.getRows() + "x" + recording.getCols() + " threads=" + threads
+                + " speed=" + (speed == 0 ? "max" : speed) + " engine=" + engine);
+        System.out.println(replay(recording, board, new PlayerRegistry(), threads, speed));
+    }
+}
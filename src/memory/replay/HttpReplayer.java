@@ -0,0 +1,249 @@
+package memory.replay;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import memory.web.CaptureFilter;
+import memory.web.HttpCapture;
+
+/**
+ * Re-issues the /look, /flip, /watch, /watchScores and /scores requests of an
+ * {@link HttpCapture} against a web server, with the timing captured or
+ * accelerated, so that a new server is load tested with the behavior of real
+ * players. Requests of games of rooms, under /g/GAME/, are replayed as well.
+ *
+ * Requests are sent when they arrived in the capture, relative to the first
+ * one, divided by the speed, without waiting for earlier responses, but for the
+ * flips of a player which are sent in order, each not before the response to the
+ * previous one, as a player waits for the response to a flip before the next one.
+ * A latency is counted from the time its request was due, so a server falling
+ * behind the capture shows in its latencies. Requests time out after
+ * DRAIN_MILLIS, e.g. a watch of a board which is never changed again.
+ *
+ * <p> Command-line usage:
+ * <pre> java memory.replay.HttpReplayer PREFIX URL [SPEED] </pre>
+ * where PREFIX is the prefix of the segments written by a {@link CaptureFilter},
+ * replayed against the server at URL, e.g. http://localhost:8080, at SPEED times
+ * the pace captured (default 1).
+ * @author davidmagrefty
+ *
+ */
+public class HttpReplayer {
+
+    /** milliseconds after which a request replayed times out */
+    public static final long DRAIN_MILLIS = 30_000;
+
+    private static final Pattern REQUEST = Pattern.compile(
+            "((?:/g/\\w+)?)/(look|flip|watchScores|watch|scores)(?:/([^/?]*)[^?]*)?(?:\\?.*)?");
+    private static final String FLIP = "flip";
+
+    private HttpReplayer() {
+        throw new AssertionError("static methods only");
+    }
+
+    /**
+     * Responses and latencies of a replay.
+     */
+    public static class Report {
+
+        private final long responses;
+        private final long failures;
+        private final long mismatches;
+        private final long nanos;
+        private final Map<String, LatencyHistogram> latencies;
+
+        // Abstraction function:
+        //      AF(responses, failures, mismatches, nanos, latencies) = a replay where
+        //                              responses requests were answered, mismatches
+        //                              of them with another code than captured, and
+        //                              failures were not, in nanos nanoseconds, with
+        //                              the latencies of every kind of request
+        // Rep invariant:
+        //      responses, failures, nanos >= 0, 0 <= mismatches <= responses
+        // Safety from rep exposure:
+        //      All fields are private and final, latencies is unmodifiable and only
+        //      returned once the replay recorded all of them
+        // Thread safety argument:
+        //      Report is immutable but for its histograms, which are threadsafe
+
+        private Report(long responses, long failures, long mismatches, long nanos,
+                Map<String, LatencyHistogram> latencies) {
+            this.responses = responses;
+            this.failures = failures;
+            this.mismatches = mismatches;
+            this.nanos = nanos;
+            this.latencies = Collections.unmodifiableMap(latencies);
+            assert responses >= 0 && failures >= 0 && nanos >= 0 && mismatches >= 0 && mismatches <= responses;
+        }
+
+        /**
+         * @return number of requests answered
+         */
+        public long responses() {
+            return responses;
+        }
+
+        /**
+         * @return number of requests which failed or timed out
+         */
+        public long failures() {
+            return failures;
+        }
+
+        /**
+         * @return number of requests answered with another code than captured
+         */
+        public long mismatches() {
+            return mismatches;
+        }
+
+        /**
+         * @return nanoseconds from the start of the replay to its last response
+         */
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * @return latencies in nanoseconds of the requests answered, by kind of
+         *         request: look, flip, watch, watchScores or scores
+         */
+        public Map<String, LatencyHistogram> latencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder report = new StringBuilder(String.format(
+                    "%,d responses in %,.1f s, %,.0f requests/s  failures %,d  other code than captured %,d",
+                    responses, nanos / 1e9, responses * 1e9 / Math.max(1, nanos), failures, mismatches));
+            latencies.forEach((action, histogram) -> report.append(String.format(
+                    "%n  %-12s %,9d  p50 %,9.3fms p99 %,9.3fms p99.9 %,9.3fms max %,9.3fms", action,
+                    histogram.count(), histogram.quantile(0.5) / 1e6, histogram.quantile(0.99) / 1e6,
+                    histogram.quantile(0.999) / 1e6, histogram.max() / 1e6)));
+            return report.toString();
+        }
+    }
+
+    /**
+     * Replay the game requests of a capture against a server.
+     *
+     * @param capture requests to replay, requests of other paths are skipped
+     * @param base URL of the server, e.g. http://localhost:8080
+     * @param speed pace of the replay as a multiple of the pace captured, > 0
+     * @return responses and latencies of the replay, once every request was
+     *         answered or failed
+     */
+    public static Report replay(HttpCapture capture, URI base, double speed) {
+        assert speed > 0;
+        final Integer[] order = new Integer[capture.size()];
+        Arrays.setAll(order, request -> request);
+        Arrays.sort(order, (a, b) -> Long.compare(capture.micros(a), capture.micros(b)));
+
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "http-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        for (String action : new String[] { "look", FLIP, "watch", "watchScores", "scores" }) {
+            latencies.put(action, new LatencyHistogram());
+        }
+        final LongAdder responses = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder mismatches = new LongAdder();
+        final AtomicLong last = new AtomicLong();
+        final Map<String, CompletableFuture<Void>> lastFlips = new HashMap<>();
+        final CompletableFuture<?>[] replayed = new CompletableFuture<?>[order.length];
+        int count = 0;
+        final long first = order.length == 0 ? 0 : capture.micros(order[0]);
+        final long start = System.nanoTime();
+        last.set(start);
+        try {
+            for (int request : order) {
+                final Matcher matcher = REQUEST.matcher(capture.uri(request));
+                if (!matcher.matches()) {
+                    continue;
+                }
+                final String action = matcher.group(2);
+                final long due = start + (long) ((capture.micros(request) - first) * 1000 / speed);
+                final HttpRequest http = HttpRequest.newBuilder(base.resolve(capture.uri(request)))
+                        .method(capture.method(request), HttpRequest.BodyPublishers.noBody())
+                        .timeout(Duration.ofMillis(DRAIN_MILLIS)).build();
+                final CompletableFuture<Void> sent = new CompletableFuture<>();
+                final Runnable send = () -> client.sendAsync(http, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            final long now = System.nanoTime();
+                            if (failure != null) {
+                                failures.increment();
+                            } else {
+                                latencies.get(action).record(now - due);
+                                responses.increment();
+                                if (response.statusCode() != capture.code(request)) {
+                                    mismatches.increment();
+                                }
+                                last.accumulateAndGet(now, Math::max);
+                            }
+                            sent.complete(null);
+                        });
+                final Runnable schedule = () -> scheduler.schedule(send, due - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                if (action.equals(FLIP) && matcher.group(3) != null) {
+                    // the flips of a player are sent one after the other
+                    final String player = matcher.group(1) + "/" + matcher.group(3);
+                    final CompletableFuture<Void> previous = lastFlips.put(player, sent);
+                    if (previous != null) {
+                        previous.thenRun(schedule);
+                    } else {
+                        schedule.run();
+                    }
+                } else {
+                    schedule.run();
+                }
+                replayed[count++] = sent;
+            }
+            CompletableFuture.allOf(Arrays.copyOf(replayed, count)).join();
+        } finally {
+            scheduler.shutdownNow();
+        }
+        return new Report(responses.sum(), failures.sum(), mismatches.sum(), last.get() - start, latencies);
+    }
+
+    /**
+     * Replay a capture and print its report.
+     *
+     * @param args arguments as described above
+     * @throws IOException if an error occurs reading the capture
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("expected PREFIX URL [SPEED]");
+        }
+        final double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+        if (speed <= 0) {
+            throw new IllegalArgumentException("invalid SPEED");
+        }
+        final HttpCapture capture = HttpCapture.read(Path.of(args[0]));
+        System.out.println("requests=" + capture.size() + " server=" + args[1] + " speed=" + speed);
+        System.out.println(replay(capture, URI.create(args[1]), speed));
+    }
+}
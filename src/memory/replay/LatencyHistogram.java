@@ -0,0 +1,124 @@
+package memory.replay;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A mutable histogram of latencies in nanoseconds, from 0 to Long.MAX_VALUE,
+ * within 12.5% of their value, recorded concurrently without locks.
+ *
+ * Latencies below 16ns have a bucket each, every larger power of two is split
+ * into 8 = 2^SUB_BITS buckets of equal width, so (64 - SUB_BITS) * 2^SUB_BITS
+ * = 488 buckets cover every long, the last holding Long.MAX_VALUE, and a
+ * quantile is never more than 1/8 over the latency it stands for.
+ * @author davidmagrefty
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    static {
+        assert BUCKETS == (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    // Abstraction function:
+    //      AF(counts, max) = the latencies recorded, counts[b] of them between
+    //                        lowest(b) and lowest(b+1)-1 nanoseconds, the largest
+    //                        of them max nanoseconds
+    // Rep invariant:
+    //      counts >= 0, max >= 0
+    // Safety from rep exposure:
+    //      All fields are private and final, and never returned
+    // Thread safety argument:
+    //      counts and max are atomic and only ever increase. A quantile read
+    //      concurrently with records may miss some of them, and is exact once they
+    //      all returned
+
+    /**
+     * Make an empty histogram.
+     */
+    public LatencyHistogram() {
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert max.get() >= 0;
+    }
+
+    /*
+     * @param nanos a latency >= 0
+     * @return index of the bucket of nanos
+     */
+    private static int bucket(long nanos) {
+        if (nanos < 2 * SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        return (exponent - SUB_BITS) * SUB_BUCKETS + (int) (nanos >>> (exponent - SUB_BITS));
+    }
+
+    /*
+     * @param bucket index of a bucket
+     * @return the lowest latency of bucket
+     */
+    private static long lowest(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos a latency in nanoseconds, negative latencies are recorded as 0
+     */
+    public void record(long nanos) {
+        final long latency = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(latency));
+        max.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long count() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * @return the largest latency recorded, 0 if none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile a fraction of the latencies recorded, 0 <= quantile <= 1
+     * @return a latency at least the one under which that fraction of the latencies
+     *         recorded lie, within 12.5% of it and at most max(), 0 if none
+     */
+    public long quantile(double quantile) {
+        assert quantile >= 0 && quantile <= 1;
+        final long rank = Math.max(1, (long) Math.ceil(quantile * count()));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return bucket + 1 < BUCKETS ? Math.min(max(), lowest(bucket + 1) - 1) : max();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,198 @@
+package memory.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable recording of the flips requested of a board, as written by
+ * {@link FlipRecorder}: flips numbered from 0 in the order they were requested,
+ * each by a player numbered from 0 in the order of their first flip.
+ * @author davidmagrefty
+ *
+ */
+public class Recording {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final int rows;
+    private final int cols;
+    private final List<String> playerIds;
+    private final long[] nanos;
+    private final int[] players;
+    private final int[] cardRows;
+    private final int[] cardCols;
+
+    // Abstraction function:
+    //      AF(rows, cols, playerIds, nanos, players, cardRows, cardCols) = the flips
+    //                              of a rows x cols board where flip i was requested
+    //                              nanos[i] nanoseconds into the recording by the
+    //                              player playerIds[players[i]] at (cardRows[i], cardCols[i])
+    // Rep invariant:
+    //      rows, cols > 0
+    //      nanos, players, cardRows and cardCols have the same length
+    //      nanos is non decreasing and >= 0
+    //      0 <= players[i] < playerIds.size(), 0 <= cardRows[i] < rows, 0 <= cardCols[i] < cols
+    // Safety from rep exposure:
+    //      All fields are private and final, playerIds is unmodifiable, and the
+    //      arrays are never returned
+    // Thread safety argument:
+    //      Recording is immutable
+
+    private Recording(int rows, int cols, List<String> playerIds, long[] nanos, int[] players,
+            int[] cardRows, int[] cardCols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.playerIds = List.copyOf(playerIds);
+        this.nanos = nanos;
+        this.players = players;
+        this.cardRows = cardRows;
+        this.cardCols = cardCols;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert rows > 0 && cols > 0;
+        assert nanos.length == players.length && nanos.length == cardRows.length
+                && nanos.length == cardCols.length;
+        for (int flip = 0; flip < nanos.length; flip++) {
+            assert nanos[flip] >= (flip == 0 ? 0 : nanos[flip - 1]);
+            assert players[flip] >= 0 && players[flip] < playerIds.size();
+            assert cardRows[flip] >= 0 && cardRows[flip] < rows;
+            assert cardCols[flip] >= 0 && cardCols[flip] < cols;
+        }
+    }
+
+    /**
+     * Read a recording. The last flip is dropped if the file ends within it,
+     * e.g. when the recording server was killed.
+     *
+     * @param file path to a recording
+     * @return the flips of file
+     * @throws IOException if an error occurs reading the file, or it is not a
+     *                     valid recording
+     */
+    public static Recording read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES))) {
+            final byte[] magic = new byte[FlipRecorder.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(FlipRecorder.MAGIC, magic)) {
+                throw new IOException("not a recording " + file);
+            }
+            final int version = in.readInt();
+            if (version != FlipRecorder.VERSION) {
+                throw new IOException("unsupported recording version " + version + " in " + file);
+            }
+            final int rows = in.readInt();
+            final int cols = in.readInt();
+            if (rows <= 0 || cols <= 0) {
+                throw new IOException("invalid size " + rows + "x" + cols + " in " + file);
+            }
+
+            final List<String> playerIds = new ArrayList<>();
+            long[] nanos = new long[BUFFER_BYTES];
+            int[] players = new int[BUFFER_BYTES];
+            int[] cardRows = new int[BUFFER_BYTES];
+            int[] cardCols = new int[BUFFER_BYTES];
+            int size = 0;
+            try {
+                while (true) {
+                    final long time = in.readLong();
+                    final int player = in.readInt();
+                    final String newPlayer = player == playerIds.size() ? in.readUTF() : null;
+                    final int row = in.readInt();
+                    final int col = in.readInt();
+                    if (time < (size == 0 ? 0 : nanos[size - 1]) || player < 0 || player > playerIds.size()
+                            || row < 0 || row >= rows || col < 0 || col >= cols) {
+                        throw new IOException("invalid flip " + size + " in " + file);
+                    }
+                    if (newPlayer != null) {
+                        playerIds.add(newPlayer);
+                    }
+                    if (size == nanos.length) {
+                        nanos = Arrays.copyOf(nanos, size * 2);
+                        players = Arrays.copyOf(players, size * 2);
+                        cardRows = Arrays.copyOf(cardRows, size * 2);
+                        cardCols = Arrays.copyOf(cardCols, size * 2);
+                    }
+                    nanos[size] = time;
+                    players[size] = player;
+                    cardRows[size] = row;
+                    cardCols[size] = col;
+                    size++;
+                }
+            } catch (EOFException end) {
+                // the end of the recording, or a flip cut short
+            }
+            return new Recording(rows, cols, playerIds, Arrays.copyOf(nanos, size), Arrays.copyOf(players, size),
+                    Arrays.copyOf(cardRows, size), Arrays.copyOf(cardCols, size));
+        }
+    }
+
+    /**
+     * @return number of rows of the board recorded
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of columns of the board recorded
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of flips recorded
+     */
+    public int size() {
+        return nanos.length;
+    }
+
+    /**
+     * @return ids of the players of the recording, indexed by player number
+     */
+    public List<String> playerIds() {
+        return playerIds;
+    }
+
+    /**
+     * @param flip a flip, 0 <= flip < size()
+     * @return nanoseconds into the recording at which flip was requested
+     */
+    public long nanos(int flip) {
+        return nanos[flip];
+    }
+
+    /**
+     * @param flip a flip, 0 <= flip < size()
+     * @return number of the player requesting flip
+     */
+    public int player(int flip) {
+        return players[flip];
+    }
+
+    /**
+     * @param flip a flip, 0 <= flip < size()
+     * @return row of the card of flip
+     */
+    public int row(int flip) {
+        return cardRows[flip];
+    }
+
+    /**
+     * @param flip a flip, 0 <= flip < size()
+     * @return column of the card of flip
+     */
+    public int col(int flip) {
+        return cardCols[flip];
+    }
+}
@@ -0,0 +1,330 @@
+package memory.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Filter that captures every request to rotating binary files, to be replayed
+ * against another server.
+ *
+ * A request is captured when its response is closed, which may be long after
+ * the filter returned for a watch or a flip waiting for a card. Request threads
+ * only queue the capture, a thread of the filter writes them; when the queue is
+ * full captures are dropped and counted rather than slowing requests down.
+ *
+ * Captures go to the segment files PREFIX.000000, PREFIX.000001, ... each
+ * started once the previous one holds more than a given size, keeping only the
+ * latest ones. A segment is, in little endian:
+ * <pre>
+ *   MAGIC         4 bytes "MCAP"
+ *   VERSION       int, 1
+ *   captures, each:
+ *     TIME        long, microseconds since the epoch when the request arrived
+ *     LATENCY     int, microseconds until the response was closed
+ *     CODE        short, the response code, -1 if none was sent
+ *     METHOD      byte LENGTH, then LENGTH bytes of the request method in ASCII
+ *     URI         short LENGTH, then LENGTH bytes of the request URI in UTF-8
+ * </pre>
+ * A segment cut short by a crash ends within its last capture.
+ * @author davidmagrefty
+ *
+ */
+public class CaptureFilter extends Filter implements Closeable {
+
+    /** first bytes of every segment */
+    static final byte[] MAGIC = { 'M', 'C', 'A', 'P' };
+
+    /** version of the format written by this class */
+    static final int VERSION = 1;
+
+    private static final int QUEUE = 1 << 16;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int MAX_URI_BYTES = 0xFFFF;
+
+    /*
+     * A request whose response was closed
+     */
+    private static final class Capture {
+        private final long micros;
+        private final long nanos;
+        private final int code;
+        private final String method;
+        private final String uri;
+
+        Capture(long micros, long nanos, int code, String method, String uri) {
+            this.micros = micros;
+            this.nanos = nanos;
+            this.code = code;
+            this.method = method;
+            this.uri = uri;
+        }
+    }
+
+    private final Path prefix;
+    private final long segmentBytes;
+    private final int segments;
+    private final long epochMicros = System.currentTimeMillis() * 1000;
+    private final long startNanos = System.nanoTime();
+    private final BlockingQueue<Capture> queue = new ArrayBlockingQueue<>(QUEUE);
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread writer;
+    private final Deque<Path> written = new ArrayDeque<>();
+    private FileChannel channel;
+    private long segment;
+    private IOException failure;
+
+    // Abstraction function:
+    //      AF(prefix, segmentBytes, segments, epochMicros, startNanos, queue, dropped,
+    //         closed, writer, written, channel, segment, failure)
+    //          = a capture of the requests since epochMicros, which was startNanos,
+    //            to the segments written, the last of them being written to channel
+    //            and numbered segment, with the captures in queue to write after
+    //            them, and dropped captures which did not fit in queue. Nothing is
+    //            captured once closed, or written after failure if not null
+    // Rep invariant:
+    //      segmentBytes > 0, segments > 0
+    //      0 < written.size() <= segments, written ends with the path of segment
+    // Safety from rep exposure:
+    //      All fields are private, none is returned
+    // Thread safety argument:
+    //      queue is threadsafe, dropped and closed are atomic, and the other
+    //      fields are final or confined to writer once the constructor returned;
+    //      close() only reads failure after joining writer
+
+    /**
+     * Make a filter capturing requests to the segments of prefix, and start its
+     * writer thread. Existing segments of prefix are kept and numbered before the
+     * new ones.
+     *
+     * @param prefix path of the segments without their number
+     * @param segmentBytes size after which a new segment is started, > 0
+     * @param segments number of the latest segments kept, > 0
+     * @throws IOException if an error occurs creating the first segment
+     */
+    public CaptureFilter(Path prefix, long segmentBytes, int segments) throws IOException {
+        this.prefix = prefix.toAbsolutePath();
+        this.segmentBytes = segmentBytes;
+        this.segments = segments;
+        written.addAll(segments(this.prefix));
+        segment = written.isEmpty() ? 0 : number(written.peekLast()) + 1;
+        openSegment();
+        writer = new Thread(this::write, "capture");
+        writer.setDaemon(true);
+        writer.start();
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert segmentBytes > 0 && segments > 0;
+        assert !written.isEmpty() && written.size() <= segments;
+    }
+
+    /**
+     * @param prefix path of segments without their number
+     * @return the segments of prefix in the order they were written
+     * @throws IOException if an error occurs listing the directory of prefix
+     */
+    public static List<Path> segments(Path prefix) throws IOException {
+        final Path absolute = prefix.toAbsolutePath();
+        final String name = absolute.getFileName() + ".";
+        final List<Path> found = new ArrayList<>();
+        try (var files = Files.list(absolute.getParent())) {
+            files.filter(file -> file.getFileName().toString().startsWith(name)
+                    && file.getFileName().toString().substring(name.length()).matches("\\d{6,}"))
+                    .forEach(found::add);
+        }
+        found.sort((a, b) -> Long.compare(number(a), number(b)));
+        return found;
+    }
+
+    /*
+     * @return the number of a segment
+     */
+    private static long number(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    /*
+     * Start writing segment, and delete the oldest segments beyond segments
+     */
+    private void openSegment() throws IOException {
+        final Path file = prefix.resolveSibling(prefix.getFileName() + String.format(".%06d", segment));
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        final ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .put(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        written.addLast(file);
+        while (written.size() > segments) {
+            Files.deleteIfExists(written.removeFirst());
+        }
+    }
+
+    @Override public String description() { return "Capture requests"; }
+
+    @Override public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (closed.get()) {
+            chain.doFilter(exchange);
+            return;
+        }
+        final long arrived = System.nanoTime();
+        final String method = exchange.getRequestMethod();
+        final String uri = exchange.getRequestURI().toString();
+        final AtomicBoolean responded = new AtomicBoolean();
+        exchange.setStreams(null, new FilterOutputStream(exchange.getResponseBody()) {
+            @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (responded.compareAndSet(false, true)) {
+                        capture(arrived, exchange.getResponseCode(), method, uri);
+                    }
+                }
+            }
+        });
+        chain.doFilter(exchange);
+    }
+
+    /*
+     * Queue the capture of a request, or drop it if the queue is full
+     */
+    private void capture(long arrived, int code, String method, String uri) {
+        if (closed.get()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long micros = epochMicros + (arrived - startNanos) / 1000;
+        if (!queue.offer(new Capture(micros, now - arrived, code, method, uri))) {
+            dropped.increment();
+        }
+    }
+
+    /*
+     * Write the captures of the queue until closed, on the writer thread
+     */
+    private void write() {
+        final List<Capture> captures = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (!(closed.get() && queue.isEmpty())) {
+            try {
+                final Capture first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                captures.add(first);
+            } catch (InterruptedException ie) {
+                continue;
+            }
+            queue.drainTo(captures);
+            if (failure != null) {
+                captures.clear();
+                continue;
+            }
+            for (Capture capture : captures) {
+                final byte[] method = capture.method.getBytes(UTF_8);
+                final byte[] uri = capture.uri.getBytes(UTF_8);
+                if (uri.length > MAX_URI_BYTES || method.length > Byte.MAX_VALUE) {
+                    dropped.increment();
+                    continue;
+                }
+                final int size = Long.BYTES + Integer.BYTES + Short.BYTES + 1 + method.length
+                        + Short.BYTES + uri.length;
+                if (buffer.remaining() < size) {
+                    final int capacity = Math.max(buffer.capacity() * 2, buffer.position() + size);
+                    buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN).put(buffer.flip());
+                }
+                buffer.putLong(capture.micros)
+                        .putInt((int) Math.min(Integer.MAX_VALUE, capture.nanos / 1000))
+                        .putShort((short) capture.code)
+                        .put((byte) method.length).put(method)
+                        .putShort((short) uri.length).put(uri);
+            }
+            captures.clear();
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (channel.position() > segmentBytes) {
+                    channel.close();
+                    segment++;
+                    openSegment();
+                }
+            } catch (IOException ioe) {
+                failure = ioe;
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * @return number of requests whose capture was dropped because the writer
+     *         fell behind, or their method or URI was too long
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stop capturing, write the requests captured and close the last segment.
+     * Requests whose response is closed later are not captured.
+     *
+     * @throws IOException if an error occurred writing the captures
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            if (failure == null) {
+                failure = ioe;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
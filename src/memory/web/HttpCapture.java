@@ -0,0 +1,169 @@
+package memory.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable capture of requests written by {@link CaptureFilter}: requests
+ * numbered from 0 in the order their responses were closed, across the
+ * segments of a prefix.
+ * @author davidmagrefty
+ *
+ */
+public class HttpCapture {
+
+    private final long[] micros;
+    private final int[] latencies;
+    private final int[] codes;
+    private final List<String> methods;
+    private final List<String> uris;
+
+    // Abstraction function:
+    //      AF(micros, latencies, codes, methods, uris) = the requests where request i,
+    //                              methods[i] of uris[i], arrived micros[i]
+    //                              microseconds after the epoch and was answered
+    //                              with codes[i] after latencies[i] microseconds
+    // Rep invariant:
+    //      all arrays and lists have the same length
+    //      latencies >= 0
+    // Safety from rep exposure:
+    //      All fields are private and final, the lists are unmodifiable and the
+    //      arrays are never returned
+    // Thread safety argument:
+    //      HttpCapture is immutable
+
+    private HttpCapture(long[] micros, int[] latencies, int[] codes, List<String> methods, List<String> uris) {
+        this.micros = micros;
+        this.latencies = latencies;
+        this.codes = codes;
+        this.methods = Collections.unmodifiableList(methods);
+        this.uris = Collections.unmodifiableList(uris);
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert micros.length == latencies.length && micros.length == codes.length
+                && micros.length == methods.size() && micros.length == uris.size();
+        assert Arrays.stream(latencies).allMatch(latency -> latency >= 0);
+    }
+
+    /**
+     * Read the captures of every segment of prefix, see
+     * {@link CaptureFilter#segments(Path)}. A segment ending within a capture,
+     * e.g. when the capturing server was killed, is read up to that capture.
+     *
+     * @param prefix path of the segments without their number
+     * @return the requests captured to the segments of prefix
+     * @throws IOException if an error occurs reading a segment, or it is not a
+     *                     valid segment
+     */
+    public static HttpCapture read(Path prefix) throws IOException {
+        long[] micros = new long[1 << 10];
+        int[] latencies = new int[micros.length];
+        int[] codes = new int[micros.length];
+        final List<String> methods = new ArrayList<>();
+        final List<String> uris = new ArrayList<>();
+        int size = 0;
+        for (Path segment : CaptureFilter.segments(prefix)) {
+            final ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segment)).order(ByteOrder.LITTLE_ENDIAN);
+            final byte[] magic = new byte[CaptureFilter.MAGIC.length];
+            if (in.remaining() < magic.length + Integer.BYTES) {
+                continue;
+            }
+            in.get(magic);
+            if (!Arrays.equals(CaptureFilter.MAGIC, magic)) {
+                throw new IOException("not a capture " + segment);
+            }
+            final int version = in.getInt();
+            if (version != CaptureFilter.VERSION) {
+                throw new IOException("unsupported capture version " + version + " in " + segment);
+            }
+            try {
+                while (in.hasRemaining()) {
+                    final long time = in.getLong();
+                    final int latency = in.getInt();
+                    final int code = in.getShort();
+                    final byte[] method = new byte[in.get()];
+                    in.get(method);
+                    final byte[] uri = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(uri);
+                    if (latency < 0) {
+                        throw new IOException("invalid capture " + size + " in " + segment);
+                    }
+                    if (size == micros.length) {
+                        micros = Arrays.copyOf(micros, size * 2);
+                        latencies = Arrays.copyOf(latencies, size * 2);
+                        codes = Arrays.copyOf(codes, size * 2);
+                    }
+                    micros[size] = time;
+                    latencies[size] = latency;
+                    codes[size] = code;
+                    methods.add(new String(method, UTF_8));
+                    uris.add(new String(uri, UTF_8));
+                    size++;
+                }
+            } catch (BufferUnderflowException | NegativeArraySizeException cut) {
+                // a capture cut short
+            }
+        }
+        return new HttpCapture(Arrays.copyOf(micros, size), Arrays.copyOf(latencies, size),
+                Arrays.copyOf(codes, size), methods, uris);
+    }
+
+    /**
+     * @return number of requests captured
+     */
+    public int size() {
+        return micros.length;
+    }
+
+    /**
+     * @param request a request, 0 <= request < size()
+     * @return microseconds since the epoch when request arrived
+     */
+    public long micros(int request) {
+        return micros[request];
+    }
+
+    /**
+     * @param request a request, 0 <= request < size()
+     * @return microseconds from the arrival of request until its response was closed
+     */
+    public int latency(int request) {
+        return latencies[request];
+    }
+
+    /**
+     * @param request a request, 0 <= request < size()
+     * @return the response code of request, -1 if none was sent
+     */
+    public int code(int request) {
+        return codes[request];
+    }
+
+    /**
+     * @param request a request, 0 <= request < size()
+     * @return the method of request, e.g. GET
+     */
+    public String method(int request) {
+        return methods.get(request);
+    }
+
+    /**
+     * @param request a request, 0 <= request < size()
+     * @return the URI of request, e.g. /flip/alice/1,1
+     */
+    public String uri(int request) {
+        return uris.get(request);
+    }
+}
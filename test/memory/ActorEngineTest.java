@@ -0,0 +1,189 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the single writer engine of Board
+ */
+public class ActorEngineTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for flip(player, row, col) on an ACTOR board:
+     *      Input:
+     *          players in game: 1, >1
+     *          flips: one at a time, concurrent from many threads
+     *          flip: blocking, asynchronous, interrupted while its log fails
+     *
+     *      Output:
+     *          Same board as the MONITOR engine after the same flips
+     *          Every flip completes, no card controlled by two players,
+     *          removed cards match the points scored
+     *          a failed flip throws its failure however the wait ended
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    /*
+     * Test covers following partitions:
+     *      players in game > 1
+     *      flips one at a time, blocking
+     */
+    @Test
+    public void testSameAsMonitorEngine() throws InterruptedException, IOException {
+        final Board actor = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.ACTOR);
+        final Board monitor = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.MONITOR);
+        final int[][] flips = { {0, 0}, {1, 0}, {0, 1}, {2, 2}, {0, 0}, {1, 1}, {2, 2}, {1, 0}, {2, 1} };
+        final Player[] actorPlayers = { new Player("a"), new Player("b") };
+        final Player[] monitorPlayers = { new Player("a"), new Player("b") };
+        for (int ii = 0; ii < flips.length; ii++) {
+            actor.flipCard(actorPlayers[ii % 2], flips[ii][0], flips[ii][1]);
+            monitor.flipCard(monitorPlayers[ii % 2], flips[ii][0], flips[ii][1]);
+            for (int p = 0; p < 2; p++) {
+                assertEquals(monitor.webString(monitorPlayers[p]), actor.webString(actorPlayers[p]),
+                        "boards should agree after flip " + ii);
+                assertEquals(monitorPlayers[p].getScore(), actorPlayers[p].getScore());
+            }
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      players in game > 1
+     *      flips concurrent from many threads, blocking and asynchronous
+     */
+    @Test
+    public void testConcurrentFlipsKeepRules() throws Exception {
+        final int size = 6;
+        final Set<String> values = new HashSet<>();
+        for (int value = 0; value < size * size / 4; value++) {
+            values.add("v" + value);
+        }
+        final Board board = Board.generateRandom(size, size, values, Engine.ACTOR);
+        final List<Player> players = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final List<Throwable> failures = new ArrayList<>();
+        for (int ii = 0; ii < 16; ii++) {
+            final Player player = new Player("p" + ii);
+            final boolean async = ii % 2 == 0;
+            players.add(player);
+            threads.add(new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    for (int flip = 0; flip < 2000; flip++) {
+                        final int row = random.nextInt(size);
+                        final int col = random.nextInt(size);
+                        if (async) {
+                            final CompletableFuture<PlayerState> flipped = board.flipCardAsync(player, row, col);
+                            flipped.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                        } else {
+                            board.flipCard(player, row, col);
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        // players still holding a card once they stopped can block others for good
+        for (Thread thread : threads) {
+            thread.join(5 * TIMEOUT_MILLIS);
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+        final Set<Card> held = new HashSet<>();
+        int pointsKept = 0;
+        int score = 0;
+        for (Player player : players) {
+            score += player.getScore();
+            if (player.getState().equals(PlayerState.ONE_CARD_VALID)
+                    || player.getState().equals(PlayerState.TWO_CARDS_MATCH)) {
+                for (Card card : player.heldCards()) {
+                    assertEquals(player, card.getCardOwner(), "held card controlled by its player");
+                    assertTrue(held.add(card), "card held by two players");
+                }
+            }
+            pointsKept += player.getState().equals(PlayerState.TWO_CARDS_MATCH) ? 1 : 0;
+        }
+        int removed = 0;
+        for (String line : board.webString(players.get(0)).split("\n")) {
+            removed += line.equals("none") ? 1 : 0;
+        }
+        assertEquals(2 * (score - pointsKept), removed, "removed cards are the pairs matched");
+        // players blocked for good can only time out or give up
+        for (Throwable failure : failures) {
+            assertTrue(failure instanceof TimeoutException
+                    || failure instanceof InterruptedException, failure.toString());
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      players in game > 1
+     *      flip blocking, interrupted while its log fails
+     */
+    @Test
+    public void testInterruptedFlipFails() throws Exception {
+        final Path file = Files.createTempFile("flips", ".log");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        final Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.ACTOR);
+        final PlayerRegistry players = new PlayerRegistry();
+        // flips wait a whole window for the log, long enough to interrupt them
+        final FlipLog log = FlipLog.open(file, board, players, TimeUnit.SECONDS.toMicros(5), false);
+        try {
+            final Player first = players.player("first");
+            final Player second = players.player("second");
+            board.flipCardAsync(first, 0, 0);
+            final CompletableFuture<Throwable> thrown = new CompletableFuture<>();
+            final Thread blocked = new Thread(() -> {
+                try {
+                    board.flipCard(second, 0, 0);
+                    thrown.complete(null);
+                } catch (InterruptedException | RuntimeException e) {
+                    thrown.complete(e);
+                }
+            });
+            blocked.start();
+            while (blocked.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            // 0,0 is handed over to second, whose flip now waits for the log
+            board.flipCardAsync(first, 0, 2);
+            blocked.interrupt();
+            Thread.sleep(TIMEOUT_MILLIS / 10);
+            assertTrue(!thrown.isDone(), "the flip still waits for the log");
+            // the log fails: writing on an interrupted thread closes its file
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("flip-log")) {
+                    thread.interrupt();
+                }
+            }
+            final Throwable failure = thrown.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertTrue(failure instanceof UncheckedIOException, "the failure of the log, not " + failure);
+        } finally {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for BinaryBoardFile and BoardConverter
+ */
+public class BinaryBoardFileTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for write(grid, file), load(file, layout), isBinary(file):
+     *      Input:
+     *          distinct values: <= 256 (1 byte ids), > 256 (2 byte ids)
+     *          value length: short, longer than the write buffer
+     *          layout: OBJECTS, PACKED
+     *          file: written by write, text board file, cut short
+     *
+     *      Output:
+     *          same board as the text board file, isBinary true only for binary
+     *          board files, IOException for a file cut short
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+
+    private static Path tempFile() throws IOException {
+        final Path file = Files.createTempFile("board", ".bin");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      distinct values <= 256
+     *      layout OBJECTS, PACKED
+     *      file written by write, text board file
+     */
+    @Test
+    public void testSameBoardAsText() throws IOException, InterruptedException {
+        final String text = BOARD_DIRECTORY + "perfect.txt";
+        final Path binary = tempFile();
+        BoardConverter.convert(text, binary.toString());
+        assertTrue(BinaryBoardFile.isBinary(binary));
+        assertFalse(BinaryBoardFile.isBinary(Paths.get(text)));
+        for (Layout layout : Layout.values()) {
+            final Board expected = Board.parseFromFile(text, Engine.MONITOR, layout);
+            final Board loaded = Board.parseFromFile(binary.toString(), Engine.MONITOR, layout);
+            final Player textPlayer = new Player("a");
+            final Player binaryPlayer = new Player("a");
+            assertEquals(expected.webString(textPlayer), loaded.webString(binaryPlayer));
+            final int cols = expected.getCols();
+            for (int card = 0; card < expected.getRows() * cols; card++) {
+                expected.flipCard(textPlayer, card / cols, card % cols);
+                loaded.flipCard(binaryPlayer, card / cols, card % cols);
+                assertEquals(expected.webString(textPlayer), loaded.webString(binaryPlayer), "after flip " + card);
+            }
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      distinct values > 256
+     *      layout PACKED
+     *      file written by write, cut short
+     */
+    @Test
+    public void testWideIds() throws IOException {
+        final int rows = 30;
+        final int cols = 20;
+        final GridBuilder builder = new GridBuilder(rows, cols);
+        for (int card = 0; card < rows * cols; card++) {
+            builder.add("❤" + card % 300);
+        }
+        final Path binary = tempFile();
+        BinaryBoardFile.write(builder.build(Layout.PACKED), binary);
+        final CardGrid grid = BinaryBoardFile.load(binary, Layout.PACKED);
+        assertEquals(rows, grid.rows());
+        assertEquals(cols, grid.cols());
+        assertEquals(300, grid.dictionary().size());
+        for (int card = 0; card < rows * cols; card++) {
+            assertEquals("❤" + card % 300, grid.value(card));
+        }
+
+        final byte[] bytes = Files.readAllBytes(binary);
+        Files.write(binary, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> BinaryBoardFile.load(binary, null));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      value length longer than the write buffer
+     *      layout OBJECTS
+     *      file written by write
+     */
+    @Test
+    public void testValueLongerThanBuffer() throws IOException {
+        // fills a buffer of its own exactly, the padding after it needs another
+        final String huge = "x".repeat(70000);
+        final GridBuilder builder = new GridBuilder(1, 2);
+        builder.add(huge);
+        builder.add(huge);
+        final Path binary = tempFile();
+        BinaryBoardFile.write(builder.build(Layout.OBJECTS), binary);
+        final CardGrid grid = BinaryBoardFile.load(binary, Layout.OBJECTS);
+        assertEquals(1, grid.dictionary().size());
+        assertEquals(huge, grid.value(0));
+        assertEquals(huge, grid.value(1));
+    }
+}
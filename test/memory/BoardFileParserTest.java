@@ -0,0 +1,125 @@
+package memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for BoardFileParser
+ */
+public class BoardFileParserTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for parse(file, threads, parallelBytes):
+     *      Input:
+     *          line terminators: "\n", "\r\n", none after the last line
+     *          card values: ascii, multi-byte UTF-8, repeated across chunks,
+     *                       many distinct values differing by their last character
+     *          chunks: 1, >1
+     *          lines after the header: fewer than the cards, as many, more
+     *
+     *      Output:
+     *          cells with the values of the lines in order, same value id for the
+     *          same value, IOException if cards are missing
+     */
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static Path write(String content) throws IOException {
+        final Path file = Files.createTempFile("board", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      line terminators "\n", "\r\n", none after the last line
+     *      card values ascii, multi-byte UTF-8
+     *      chunks 1
+     *      lines as many as the cards, more
+     */
+    @Test
+    public void testSingleChunk() throws IOException {
+        final Path file = write("2x2\r\nA\r\n❤️\nA\n❤️\nextra");
+        final CardGrid grid = BoardFileParser.parse(file).build(Layout.PACKED);
+        assertEquals(2, grid.rows());
+        assertEquals(2, grid.cols());
+        assertEquals("A", grid.value(0));
+        assertEquals("❤️", grid.value(1));
+        assertEquals(grid.valueId(0), grid.valueId(2), "same value, same id");
+        assertEquals(grid.valueId(1), grid.valueId(3), "same value, same id");
+
+        final CardGrid unterminated = BoardFileParser.parse(write("1x2\nB\nC")).build(Layout.OBJECTS);
+        assertEquals("C", unterminated.value(1));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      line terminators "\n"
+     *      card values repeated across chunks
+     *      chunks > 1
+     *      lines fewer than the cards, as many
+     */
+    @Test
+    public void testManyChunks() throws IOException {
+        final int rows = 40;
+        final int cols = 25;
+        final StringBuilder content = new StringBuilder(rows + "x" + cols + "\n");
+        for (int card = 0; card < rows * cols; card++) {
+            content.append("v").append(card % 7).append('\n');
+        }
+        final Path file = write(content.toString());
+        final CardGrid grid = BoardFileParser.parse(file, 8, 64).build(Layout.PACKED);
+        for (int card = 0; card < rows * cols; card++) {
+            assertEquals("v" + card % 7, grid.value(card));
+            assertEquals(grid.valueId(card % 7), grid.valueId(card), "same value, same id");
+        }
+        assertEquals(7, grid.dictionary().size());
+
+        final Path missing = write("3x3\nA\nB\n");
+        assertThrows(IOException.class, () -> BoardFileParser.parse(missing, 8, 1));
+    }
+
+    /*
+     * @return the value of card number card, numbered in base 36
+     */
+    private static String value(int card) {
+        return "c" + Integer.toString(card, Character.MAX_RADIX);
+    }
+
+    /*
+     * Test covers following partitions:
+     *      line terminators "\n"
+     *      card values many distinct values differing by their last character
+     *      chunks 1
+     *      lines as many as the cards
+     */
+    @Test
+    public void testManyNumberedValues() throws IOException {
+        final int rows = 500;
+        final int cols = 500;
+        final StringBuilder content = new StringBuilder(rows + "x" + cols + "\n");
+        for (int card = 0; card < rows * cols; card++) {
+            content.append(value(card)).append('\n');
+        }
+        final Path file = write(content.toString());
+        // their hashes are close, which must not make interning quadratic
+        assertTimeoutPreemptively(Duration.ofSeconds(TIMEOUT_SECONDS), () -> {
+            final CardGrid grid = BoardFileParser.parse(file).build(Layout.PACKED);
+            assertEquals(rows * cols, grid.dictionary().size());
+            for (int card = 0; card < rows * cols; card++) {
+                assertEquals(value(card), grid.value(card));
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for BoardGenerator
+ */
+public class BoardGeneratorTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for generate(rows, cols, cards, seed, layout, blockCells):
+     *      Input:
+     *          seed: same as another grid, different
+     *          blocks: 1, >1
+     *          cards: dividing the cells, not dividing them, more than the cells
+     *          distinct cards: <= 256, > 256
+     *
+     *      Output:
+     *          same grid for the same seed and arguments, every card
+     *          floor(cells / cards) times, the rest distinct cards once more
+     */
+
+    /*
+     * @return card values of every cell of grid
+     */
+    private static String[] values(CardGrid grid) {
+        final String[] values = new String[grid.rows() * grid.cols()];
+        for (int card = 0; card < values.length; card++) {
+            values[card] = grid.value(card);
+        }
+        return values;
+    }
+
+    /*
+     * Assert that every card of cards appears cells / cards.size() times in
+     * grid, or once more
+     */
+    private static void assertEvenlyRepeated(CardGrid grid, Set<String> cards) {
+        final int cells = grid.rows() * grid.cols();
+        int extra = 0;
+        for (String card : cards) {
+            int count = 0;
+            for (String value : values(grid)) {
+                count += value.equals(card) ? 1 : 0;
+            }
+            assertTrue(count == cells / cards.size() || count == cells / cards.size() + 1,
+                    card + " appears " + count + " times");
+            extra += count - cells / cards.size();
+        }
+        assertEquals(cells % cards.size(), extra, "cards appearing once more");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      seed same as another grid, different
+     *      blocks 1, >1
+     *      cards dividing the cells, not dividing them
+     *      distinct cards <= 256
+     */
+    @Test
+    public void testSameSeedSameGrid() {
+        final Set<String> cards = Set.of("A", "B", "C", "D", "E", "F", "G");
+        for (int blockCells : new int[] { BoardGenerator.BLOCK_CELLS, 97 }) {
+            for (int cols : new int[] { 70, 71 }) {
+                final CardGrid grid = BoardGenerator.generate(60, cols, cards, 42, Layout.PACKED, blockCells);
+                final CardGrid same = BoardGenerator.generate(60, cols, new HashSet<>(cards), 42,
+                        Layout.OBJECTS, blockCells);
+                final CardGrid other = BoardGenerator.generate(60, cols, cards, 43, Layout.PACKED, blockCells);
+                assertEquals(String.join(" ", values(grid)), String.join(" ", values(same)), "same seed");
+                assertNotEquals(String.join(" ", values(grid)), String.join(" ", values(other)), "other seed");
+                assertEvenlyRepeated(grid, cards);
+                assertEvenlyRepeated(other, cards);
+            }
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      seed same as another grid
+     *      blocks >1
+     *      cards more than the cells
+     *      distinct cards > 256
+     */
+    @Test
+    public void testManyCards() {
+        final Set<String> cards = new HashSet<>();
+        for (int card = 0; card < 1000; card++) {
+            cards.add("c" + card);
+        }
+        final CardGrid grid = BoardGenerator.generate(20, 30, cards, 7, Layout.PACKED, 50);
+        assertEquals(String.join(" ", values(grid)),
+                String.join(" ", values(BoardGenerator.generate(20, 30, cards, 7, Layout.PACKED, 50))));
+        assertEquals(600, new HashSet<>(Arrays.asList(values(grid))).size(), "every card distinct");
+    }
+}
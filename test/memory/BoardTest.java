@@ -30,6 +30,7 @@ public class BoardTest {
      *          Partition on board size:
      *              row.size() =1, >1
      *              col.size() =1, >1
+     *          Partition on layout: OBJECTS, PACKED
      *      Output:
      *         throws error, 
      *         returns valid board (input col == output col, same for row) 
@@ -46,6 +47,7 @@ public class BoardTest {
      *                                                                     cards.size()=2)
      *                                                                     
      *                              
+     *          Partition on layout: OBJECTS, PACKED
      *     Output:
      *          returns valid board probability distribution   
      *  
@@ -61,6 +63,7 @@ public class BoardTest {
      *          player controls cards.size(): =0, =1, =2
      *          Testing all rules: 1A, 1B, 1C, 1D, 2A, 2B, 2C, 2D, 2E, 3A, 3B
      *          Players in game: 1, >1
+     *          Board layout: OBJECTS, PACKED
      *      
      *      Output:
      *          Card Match: Players increments point, Player still holds card
@@ -423,6 +426,95 @@ public class BoardTest {
     }
     
     
+    /*
+     * Test covers following partitions:
+     *      parseFromFile:
+     *          Partition on filename: exist
+     *          Partition on board size: row.size()>1, col.size()>1
+     *          Partition on layout: PACKED
+     *      toString:
+     *          Partition on Board Structure: rows!=cols
+     */
+    @Test
+    public void testPackedRectangleABBoard() throws IOException{
+        final String rectABFile = BOARD_DIRECTORY + "rectangleAB.txt";
+        final Board packedBoard = Board.parseFromFile(rectABFile, Engine.MONITOR, Layout.PACKED);
+        final String expected = "Board Size: 2x3\n" + "A B A\n" + "B A B\n";
+        assertEquals(expected, packedBoard.toString());
+    }
+    
+    /*
+     * Test covers following partitions:
+     *      generateRandom:
+     *          Partition on rows: >1
+     *          Partition on cols: >1
+     *          Partition on cards.size() > 1
+     *          Partition card room: not perfect
+     *          Partition on layout: PACKED
+     */
+    @Test
+    public void testGeneratePackedManyCards() {
+        final Set<String> cards = Set.of("A", "B", "C");
+        final Board packedBoard = Board.generateRandom(20, 20, cards, Engine.MONITOR, Layout.PACKED);
+        final String boardString = packedBoard.toString().substring("Board Size: 20x20\n".length());
+        final int count = boardString.length() - boardString.replace("A", "").length();
+        assertTrue(133 <= count && count <= 134, "cards should repeat in as equal numbers as possible");
+        assertEquals(400, boardString.chars().filter(c -> c == 'A' || c == 'B' || c == 'C').count());
+    }
+    
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 2
+     *          player controls 0 cards, 1 card, 2 cards
+     *          rule: 1A, 1B, 1C, 2A, 2B, 2C, 2D, 2E, 3A, 3B
+     *          Board layout: PACKED, both engines
+     */
+    @Test
+    public void testPackedSameAsObjects() throws InterruptedException, IOException {
+        final int[][] flips = { {0, 0}, {0, 2}, {0, 1}, {0, 0}, {0, 0}, {1, 1}, {2, 2}, 
+                                {1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 0}, {1, 2} };
+        for (Engine engine : Engine.values()) {
+            final Board objects = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", engine, Layout.OBJECTS);
+            final Board packed = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", engine, Layout.PACKED);
+            final Player[] objectPlayers = { new Player("a"), new Player("b") };
+            final Player[] packedPlayers = { new Player("a"), new Player("b") };
+            for (int ii = 0; ii < flips.length; ii++) {
+                objects.flipCard(objectPlayers[ii % 2], flips[ii][0], flips[ii][1]);
+                packed.flipCard(packedPlayers[ii % 2], flips[ii][0], flips[ii][1]);
+                for (int p = 0; p < 2; p++) {
+                    assertEquals(objects.webString(objectPlayers[p]), packed.webString(packedPlayers[p]),
+                            engine + " boards should agree after flip " + ii);
+                    assertEquals(objectPlayers[p].getState(), packedPlayers[p].getState());
+                    assertEquals(objectPlayers[p].getScore(), packedPlayers[p].getScore());
+                }
+            }
+        }
+    }
+    
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 1
+     *          player controls 0 cards, 1 card, 2 cards
+     *          rule: 1B, 2C, 2D, 3A
+     *          Board layout: PACKED
+     */
+    @Test
+    public void testPackedCardsAreShared() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.MONITOR, Layout.PACKED);
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 1);
+        List<Card> cards = p1.getCards();
+        assertEquals(p1, cards.get(0).getCardOwner(), "After match players still control cards");
+        assertEquals(1, cards.get(1).getCardNumber(), "card number is the position on board");
+        board.flipCard(p1, 2, 2);
+        assertTrue(cards.get(0).isRemoved(), "After next move cards should be removed");
+        assertFalse(cards.get(1).isOwned(), "removed cards are not owned");
+        assertEquals(p1, p1.getFirstCard().getCardOwner(), "player controls the new card");
+    }
+    
     @Test
     public void testAssertionsEnabled() {
         assertThrows(AssertionError.class, () -> { assert false; },
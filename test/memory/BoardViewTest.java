@@ -0,0 +1,231 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the shared rendering of a board
+ */
+public class BoardViewTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for webString(player) and version():
+     *      Input:
+     *          board cards: < SEGMENT_CARDS, > SEGMENT_CARDS
+     *          changed card: first segment, last segment
+     *          viewing player controls: 0 cards, 1 card, 2 cards
+     *          card controlled by: viewing player, another player
+     *          layout: OBJECTS, PACKED
+     *          render: after a change, while a change is being recorded
+     *
+     *      Output:
+     *          "my" only on cards controlled by the viewing player
+     *          rendering up to date after every change
+     *          version grows with every card turned or removed, not with 1C
+     *
+     *  Testing strategy for changesSince(player, since):
+     *      Input:
+     *          since: 0, current version, older version kept, older version not kept,
+     *                 after current version
+     *          changed card: changed once, changed more than once
+     *
+     *      Output:
+     *          delta with every changed card once, as seen by player
+     *          full board when since is 0, not kept or not a version
+     *
+     *  Testing strategy for webTag(player):
+     *      Input:
+     *          change: none, card turned, player takes a face up card, other
+     *                  player takes a face up card
+     *
+     *      Output:
+     *          same tag iff webString(player) is the same
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+
+    /*
+     * Test covers following partitions:
+     *      board cards < SEGMENT_CARDS
+     *      viewing player controls 0 cards, 1 card, 2 cards
+     *      card controlled by viewing player, another player
+     */
+    @Test
+    public void testOverlayOnlyForOwner() throws IOException, InterruptedException {
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt");
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        assertEquals("3x3\n" + "down\n".repeat(8) + "down", board.webString(p1));
+        board.flipCard(p1, 0, 0);
+        assertTrue(board.webString(p1).startsWith("3x3\nmy "), "p1 controls the first card");
+        assertTrue(board.webString(p2).startsWith("3x3\nup "), "p2 sees it face up");
+        board.flipCard(p1, 0, 1);
+        assertEquals(2, board.webString(p1).split("\nmy ", -1).length - 1, "p1 controls both cards");
+        assertEquals(0, board.webString(p2).split("\nmy ", -1).length - 1, "p2 controls no card");
+        assertEquals(board.webString(p2).replace("\nup ", "\nmy "), board.webString(p1));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      board cards > SEGMENT_CARDS
+     *      changed card: first segment, last segment
+     *      layout: OBJECTS, PACKED
+     */
+    @Test
+    public void testChangesInEverySegment() throws InterruptedException {
+        final int size = 40;
+        assertTrue(size * size > 2 * BoardView.SEGMENT_CARDS);
+        for (Layout layout : Layout.values()) {
+            Board board = Board.generateRandom(size, size, Set.of("A", "B"), Engine.MONITOR, layout);
+            Player player = new Player("p");
+            Player other = new Player("o");
+            board.flipCard(player, size - 1, size - 1);
+            board.flipCard(other, 0, 0);
+            final String[] lines = board.webString(player).split("\n");
+            assertEquals(size * size + 1, lines.length, layout + ": one line per card");
+            assertTrue(lines[size * size].startsWith("my "), layout + ": last card is the player's");
+            assertTrue(lines[1].startsWith("up "), layout + ": first card is someone else's");
+            for (int line = 2; line < size * size; line++) {
+                assertEquals("down", lines[line], layout + ": other cards are down");
+            }
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      version grows with every card turned or removed, not with 1C
+     */
+    @Test
+    public void testVersion() throws IOException, InterruptedException {
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt");
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        assertEquals(0, board.version());
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 2);
+        assertEquals(2, board.version(), "two cards turned up");
+        board.flipCard(p2, 0, 0);
+        assertEquals(2, board.version(), "taking a face up card changes nothing visible");
+        board.flipCard(p1, 1, 1);
+        assertEquals(4, board.version(), "one card turned down, one card turned up");
+        assertEquals("3x3\nup 🦄\ndown\ndown\ndown\nup 🦄\ndown\ndown\ndown\ndown",
+                board.webString(new Player("3")).replaceAll("up [^\n]*", "up 🦄"));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      since: current version, older version kept
+     *      changed card: changed once, changed more than once
+     */
+    @Test
+    public void testChangesSince() throws IOException, InterruptedException {
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt");
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        board.flipCard(p1, 0, 0);
+        final long seen = board.version();
+        assertEquals("delta " + seen, board.changesSince(p1, seen), "nothing changed since");
+        board.flipCard(p1, 0, 2);
+        board.flipCard(p1, 1, 1);
+        board.flipCard(p1, 0, 0);
+        // (0,2) turned up and down, (1,1) and (0,0) turned down and up again
+        assertEquals("delta " + board.version() + "\n1,3 down\n2,2 up 🌈\n1,1 up 🦄",
+                board.changesSince(p1, seen));
+        // taking a face up card is no change, but shows in the player's delta
+        board.flipCard(p2, 0, 0);
+        assertEquals("delta " + board.version() + "\n1,3 down\n2,2 up 🌈\n1,1 my 🦄",
+                board.changesSince(p2, seen));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      since: 0, older version not kept, after current version
+     */
+    @Test
+    public void testChangesSinceFull() throws IOException, InterruptedException {
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt");
+        Player player = new Player("1");
+        board.flipCard(player, 0, 0);
+        final long first = board.version();
+        assertEquals("full " + first + "\n" + board.webString(player), board.changesSince(player, 0));
+        assertEquals("full " + first + "\n" + board.webString(player), board.changesSince(player, first + 1),
+                "not a version of this board");
+        while (board.version() - first <= BoardView.CHANGE_RING) {
+            board.flipCard(player, 0, 1);
+            board.flipCard(player, 0, 2);
+        }
+        assertTrue(board.changesSince(player, first).startsWith("full " + board.version() + "\n3x3\n"),
+                "changes are no longer kept");
+        assertTrue(board.changesSince(player, board.version() - 2).startsWith("delta "), "recent changes are kept");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      change: none, card turned, player takes a face up card,
+     *              other player takes a face up card
+     */
+    @Test
+    public void testWebTag() throws IOException, InterruptedException {
+        Board board = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt");
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        final String initial = board.webTag(p1);
+        assertEquals(initial, board.webTag(p1), "nothing changed");
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 2);
+        final String turned = board.webTag(p1);
+        assertTrue(!initial.equals(turned), "cards turned up");
+        final String p2Before = board.webTag(p2);
+        board.flipCard(p2, 0, 0);
+        assertEquals(turned, board.webTag(p1), "p1 sees the same board");
+        assertTrue(!p2Before.equals(board.webTag(p2)), "p2 controls a card now");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      render while a change is being recorded
+     */
+    @Test
+    public void testRenderWhileChanging() throws InterruptedException {
+        final CountDownLatch paused = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        // stops the change in the middle of being recorded
+        final AtomicLong stamp = new AtomicLong();
+        final LongSupplier stamps = () -> {
+            paused.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return stamp.incrementAndGet();
+        };
+        final GridBuilder builder = new GridBuilder(1, 2);
+        builder.add("A");
+        builder.add("A");
+        final CardGrid grid = builder.build(Layout.OBJECTS);
+        final BoardView view = new BoardView(grid, stamps);
+        assertEquals("1x2\ndown\ndown", view.render(null));
+        grid.setState(0, CardState.UP);
+        final Thread changing = new Thread(() -> view.changed(0));
+        changing.start();
+        assertTrue(paused.await(5, TimeUnit.SECONDS));
+        final String during = view.render(null);
+        final String duringTag = view.tag(new Player("p"));
+        resume.countDown();
+        changing.join();
+        assertEquals("1x2\nup A\ndown", view.render(null), "the change shows once recorded");
+        assertEquals("1", view.tag(new Player("p")));
+        assertTrue(!duringTag.equals("1") || during.equals("1x2\nup A\ndown"),
+                "a tag is never given to an older rendering");
+    }
+}
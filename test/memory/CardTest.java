@@ -53,6 +53,9 @@ public class CardTest {
  *              Input: card is not owned
  *              Output: card is Owned by player
  *        
+ *        matches(Card):
+ *              Input: same board, different boards
+ *              Output: same value, different value
  *        
      */
     
@@ -154,5 +157,42 @@ public class CardTest {
         Card cardDup = card.duplicate();
         assertEquals(cardDup.getCardNumber(), card.getCardNumber(), "dup cards should have same number");
     }
+    
+    /*
+     * Covers the following partitions:
+     *    matches(Card):
+     *          Input: different boards
+     *          Output: same value, different value
+     */
+    @Test
+    public void testMatchesStandaloneCards() {
+        Card card = new Card("b", 1);
+        assertTrue(card.matches(new Card("b", 2)), "cards with the same value should match");
+        assertFalse(card.matches(new Card("c", 2)), "cards with different values should not match");
+        assertTrue(card.matches(card.duplicate()), "duplicate should match");
+    }
+    
+    /*
+     * Covers the following partitions:
+     *    matches(Card):
+     *          Input: same board
+     *          Output: same value, different value
+     */
+    @Test
+    public void testMatchesSameBoard() {
+        Board board = new Board(new Card[][] { { new Card("b", 0), new Card("c", 1), new Card("b", 2) } }, 1, 3);
+        Player p = new Player("a");
+        try {
+            board.flipCard(p, 0, 0);
+            board.flipCard(p, 0, 1);
+            assertFalse(p.getCards().get(0).matches(p.getCards().get(1)), "b and c should not match");
+            board.flipCard(p, 0, 0);
+            board.flipCard(p, 0, 2);
+            assertTrue(p.getCards().get(0).matches(p.getCards().get(1)), "b and b should match");
+            assertEquals(1, p.getScore(), "match should score");
+        } catch (InterruptedException ie) {
+            throw new AssertionError(ie);
+        }
+    }
 
 }
@@ -0,0 +1,235 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the players blocked by rule 1D
+ */
+public class CardWaitersTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for flip(player, row, col) blocked by rule 1D, for every engine:
+     *      Input:
+     *          blocked players: 1, >1
+     *          card: released by 2B, released by 2E, removed by 3A
+     *          blocked player: interrupted, not interrupted
+     *          flip: blocking, asynchronous
+     *
+     *      Output:
+     *          released card handed over to the first blocked player only
+     *          the others stay blocked, in the order they came
+     *          removed card wakes every blocked player, who fail by 1A
+     *          interrupted player gives up and the next one gets the card
+     *          asynchronous flip completes when the card is handed over, or fails
+     *
+     *  Testing strategy for the queues of CardWaiters:
+     *      Input:
+     *          queue emptied by: hand over, removed card, waiter giving up
+     *
+     *      Output:
+     *          a card has a queue while players are blocked on it, none after
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+    private static final long WAIT_MILLIS = 200;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static Board makeBoard(Engine engine) throws IOException {
+        return Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", engine);
+    }
+
+    /*
+     * Start a thread flipping (row, col) for player, which must block
+     */
+    private static Thread blockedFlip(Board board, Player player, int row, int col) throws InterruptedException {
+        final Thread thread = new Thread(() -> {
+            try {
+                board.flipCard(player, row, col);
+            } catch (InterruptedException ie) {
+                // gave up
+            }
+        });
+        thread.start();
+        thread.join(WAIT_MILLIS);
+        assertTrue(thread.isAlive(), player + " should be blocked");
+        return thread;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      blocked players > 1
+     *      card released by 2E, released by 2B
+     *      blocked player not interrupted
+     */
+    @Test
+    public void testHandOverInOrder() throws IOException, InterruptedException {
+        for (Engine engine : Engine.values()) {
+            final Board board = makeBoard(engine);
+            final Player owner = new Player("owner");
+            board.flipCard(owner, 0, 0);
+            final List<Player> blocked = new ArrayList<>();
+            final List<Thread> threads = new ArrayList<>();
+            for (int ii = 0; ii < 3; ii++) {
+                blocked.add(new Player("p" + ii));
+                threads.add(blockedFlip(board, blocked.get(ii), 0, 0));
+            }
+            // 2E: no match, the card goes to the first blocked player only
+            board.flipCard(owner, 0, 2);
+            threads.get(0).join(TIMEOUT_MILLIS);
+            assertFalse(threads.get(0).isAlive(), engine + ": first player gets the card");
+            assertEquals(blocked.get(0), blocked.get(0).getFirstCard().getCardOwner(), engine.toString());
+            assertEquals(PlayerState.ONE_CARD_VALID, blocked.get(0).getState(), engine.toString());
+            assertTrue(threads.get(1).isAlive() && threads.get(2).isAlive(), engine + ": others still blocked");
+            // 2B: the first player flips a controlled card, the card goes to the second
+            board.flipCard(blocked.get(0), 0, 0);
+            threads.get(1).join(TIMEOUT_MILLIS);
+            assertFalse(threads.get(1).isAlive(), engine + ": second player gets the card");
+            assertEquals(blocked.get(1), blocked.get(1).getFirstCard().getCardOwner(), engine.toString());
+            assertTrue(threads.get(2).isAlive(), engine + ": last player still blocked");
+            // 3B does not turn down the card handed over
+            board.flipCard(owner, 2, 2);
+            assertEquals(blocked.get(1), blocked.get(1).getFirstCard().getCardOwner(), engine.toString());
+            board.flipCard(blocked.get(1), 0, 2);
+            threads.get(2).join(TIMEOUT_MILLIS);
+            assertFalse(threads.get(2).isAlive(), engine + ": last player gets the card");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      blocked players > 1
+     *      card removed by 3A
+     */
+    @Test
+    public void testRemovedWakesAll() throws IOException, InterruptedException {
+        for (Engine engine : Engine.values()) {
+            final Board board = makeBoard(engine);
+            final Player owner = new Player("owner");
+            board.flipCard(owner, 0, 0);
+            board.flipCard(owner, 0, 1);
+            final Player p1 = new Player("1");
+            final Player p2 = new Player("2");
+            final Thread t1 = blockedFlip(board, p1, 0, 1);
+            final Thread t2 = blockedFlip(board, p2, 0, 1);
+            // 3A
+            board.flipCard(owner, 2, 2);
+            t1.join(TIMEOUT_MILLIS);
+            t2.join(TIMEOUT_MILLIS);
+            assertFalse(t1.isAlive() || t2.isAlive(), engine + ": removed card wakes everyone");
+            assertEquals(0, p1.numberOwnedCards() + p2.numberOwnedCards(), engine + ": 1A fails");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      blocked players > 1
+     *      blocked player interrupted
+     */
+    @Test
+    public void testInterruptedGivesUp() throws IOException, InterruptedException {
+        for (Engine engine : Engine.values()) {
+            final Board board = makeBoard(engine);
+            final Player owner = new Player("owner");
+            board.flipCard(owner, 0, 0);
+            final Player p1 = new Player("1");
+            final Player p2 = new Player("2");
+            final Thread t1 = blockedFlip(board, p1, 0, 0);
+            final Thread t2 = blockedFlip(board, p2, 0, 0);
+            t1.interrupt();
+            t1.join(TIMEOUT_MILLIS);
+            assertFalse(t1.isAlive(), engine + ": interrupted player gives up");
+            board.flipCard(owner, 0, 2);
+            t2.join(TIMEOUT_MILLIS);
+            assertFalse(t2.isAlive(), engine + ": next player gets the card");
+            assertEquals(p2, p2.getFirstCard().getCardOwner(), engine.toString());
+            assertEquals(0, p1.numberOwnedCards(), engine.toString());
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      blocked players > 1
+     *      card released by 2E, removed by 3A
+     *      flip asynchronous
+     */
+    @Test
+    public void testAsyncHandOverInOrder() throws Exception {
+        for (Engine engine : Engine.values()) {
+            final Board board = makeBoard(engine);
+            final Player owner = new Player("owner");
+            board.flipCard(owner, 0, 0);
+            final List<Player> blocked = new ArrayList<>();
+            final List<CompletableFuture<PlayerState>> flips = new ArrayList<>();
+            for (int ii = 0; ii < 3; ii++) {
+                blocked.add(new Player("p" + ii));
+                flips.add(board.flipCardAsync(blocked.get(ii), 0, 0));
+            }
+            Thread.sleep(WAIT_MILLIS);
+            assertFalse(flips.stream().anyMatch(CompletableFuture::isDone), engine + ": all blocked");
+            // 2E: no match, the card goes to the first blocked player only
+            board.flipCard(owner, 0, 2);
+            assertEquals(PlayerState.ONE_CARD_VALID, flips.get(0).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS),
+                    engine.toString());
+            assertEquals(blocked.get(0), blocked.get(0).getFirstCard().getCardOwner(), engine.toString());
+            Thread.sleep(WAIT_MILLIS);
+            assertFalse(flips.get(1).isDone() || flips.get(2).isDone(), engine + ": others still blocked");
+            // 2C, 2D: the first player matches, 3A removes the card from under the others
+            board.flipCard(blocked.get(0), 0, 1);
+            board.flipCard(blocked.get(0), 2, 2);
+            for (int ii = 1; ii < 3; ii++) {
+                assertEquals(PlayerState.FRESH, flips.get(ii).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS),
+                        engine + ": 1A fails");
+                assertEquals(0, blocked.get(ii).numberOwnedCards(), engine.toString());
+            }
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      queue emptied by hand over, removed card, waiter giving up
+     */
+    @Test
+    public void testEmptyQueuesForgotten() {
+        final CardWaiters waiters = new CardWaiters(0, Runnable::run);
+        final Player owner = new Player("owner");
+        final Player p1 = new Player("1");
+        final Player p2 = new Player("2");
+        final List<Boolean> granted = new ArrayList<>();
+
+        final Card handedOver = new Card("A", 0);
+        handedOver.setState(owner.controlledState());
+        waiters.enqueue(handedOver, p1, granted::add);
+        waiters.enqueue(handedOver, p2, granted::add);
+        assertEquals(1, waiters.size(), "one queue per card");
+        waiters.release(handedOver);
+        assertEquals(1, waiters.size(), "p2 still waits");
+        waiters.release(handedOver);
+        assertEquals(List.of(true, true), granted);
+        assertEquals(0, waiters.size(), "handed over to every waiter");
+
+        final Card removed = new Card("B", 1);
+        removed.setState(owner.controlledState());
+        waiters.enqueue(removed, p1, granted::add);
+        removed.setState(CardState.of(true, true, null));
+        waiters.wakeAll(removed);
+        assertFalse(granted.get(2), "woken, not granted");
+        assertEquals(0, waiters.size(), "removed card wakes every waiter");
+
+        // released before p1 is queued, p1 gives up at once
+        final Card released = new Card("C", 2);
+        released.setState(CardState.UP);
+        waiters.enqueue(released, p1, granted::add);
+        assertFalse(granted.get(3), "woken, not granted");
+        assertEquals(0, waiters.size(), "waiter gave up");
+    }
+}
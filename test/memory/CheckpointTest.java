@@ -0,0 +1,161 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for Checkpoint
+ */
+public class CheckpointTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for write(file, board, players, log), load(file, board, players):
+     *      Input:
+     *          file: missing, a checkpoint
+     *          flips while writing: none, many
+     *          records after the checkpoint: none, some
+     *          log: of the board, of another board, none
+     *
+     *      Output:
+     *          0 for a missing checkpoint, otherwise the position of the log,
+     *          restoring from the checkpoint and replaying the log after it gives
+     *          the same cards, players and scores as the board played
+     *          IllegalArgumentException if the board is not logged to the log
+     */
+    private static final String BOARD = "boards/perfect.txt";
+
+    private static Path tempFile(String suffix) throws IOException {
+        final Path file = Files.createTempFile("checkpoint", suffix);
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        return file;
+    }
+
+    /*
+     * Assert that restoring from checkpoint and log gives board and players
+     */
+    private static void assertRestored(Board board, PlayerRegistry players, Path checkpoint, Path log,
+            Board restored) throws IOException {
+        final PlayerRegistry restoredPlayers = new PlayerRegistry();
+        final long from = Checkpoint.load(checkpoint, restored, restoredPlayers);
+        assertTrue(from > 0, "replays the log from the checkpoint on");
+        try (FlipLog restoredLog = FlipLog.open(log, restored, restoredPlayers, 0, false, from)) {
+            for (Player player : players.players()) {
+                final Player same = restoredPlayers.player(player.getPlayerId());
+                assertEquals(board.webString(player), restored.webString(same), player.getPlayerId());
+                assertEquals(player.getScore(), same.getScore(), player.getPlayerId());
+                assertEquals(player.getState(), same.getState(), player.getPlayerId());
+            }
+            assertEquals(Files.size(log), restoredLog.position(), "replayed up to the end of the log");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      file missing, a checkpoint
+     *      flips while writing none
+     *      records after the checkpoint none, some
+     */
+    @Test
+    public void testRestore() throws IOException, InterruptedException {
+        final Path checkpoint = tempFile(".ckp");
+        final Path log = tempFile(".log");
+        final Board board = Board.parseFromFile(BOARD, Engine.ACTOR);
+        final PlayerRegistry players = new PlayerRegistry();
+        assertEquals(0, Checkpoint.load(checkpoint, board, players), "no checkpoint");
+        try (FlipLog flipLog = FlipLog.open(log, board, players, 0, false)) {
+            final Player alice = players.player("alice");
+            final Player bob = players.player("bob");
+            board.flipCard(alice, 0, 0);
+            board.flipCard(alice, 0, 1);
+            board.flipCard(bob, 0, 2);
+            assertEquals(flipLog.position(), Checkpoint.write(checkpoint, board, players, flipLog));
+            assertRestored(board, players, checkpoint, log, Board.parseFromFile(BOARD, Engine.ACTOR));
+
+            board.flipCard(alice, 1, 1);
+            board.flipCard(bob, 1, 0);
+            assertEquals(1, bob.getScore());
+        }
+        assertRestored(board, players, checkpoint, log, Board.parseFromFile(BOARD, Engine.ACTOR));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      file a checkpoint
+     *      flips while writing many
+     *      records after the checkpoint some
+     */
+    @Test
+    public void testFlipsWhileWriting() throws IOException, InterruptedException {
+        final Path checkpoint = tempFile(".ckp");
+        final Path log = tempFile(".log");
+        final Set<String> cards = new HashSet<>();
+        for (int value = 0; value < 50; value++) {
+            cards.add(Integer.toString(value));
+        }
+        final Board board = Board.generateRandom(40, 40, cards, Engine.ACTOR, Layout.PACKED, 7);
+        final PlayerRegistry players = new PlayerRegistry();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<Thread> threads = new ArrayList<>();
+        try (FlipLog flipLog = FlipLog.open(log, board, players, 0, false)) {
+            for (int ii = 0; ii < 8; ii++) {
+                final Player player = players.player("p" + ii);
+                final Random random = new Random(ii);
+                threads.add(new Thread(() -> {
+                    try {
+                        while (running.get()) {
+                            board.flipCard(player, random.nextInt(40), random.nextInt(40));
+                        }
+                    } catch (InterruptedException ie) {
+                        // stopped while blocked by rule 1D
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (int round = 0; round < 5; round++) {
+                Checkpoint.write(checkpoint, board, players, flipLog);
+            }
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.interrupt();
+                thread.join();
+            }
+        }
+        assertRestored(board, players, checkpoint, log,
+                Board.generateRandom(40, 40, cards, Engine.ACTOR, Layout.PACKED, 7));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      log of another board, none
+     */
+    @Test
+    public void testNotLogged() throws IOException, InterruptedException {
+        final Path checkpoint = tempFile(".ckp");
+        final Board logged = Board.parseFromFile(BOARD, Engine.ACTOR);
+        final PlayerRegistry players = new PlayerRegistry();
+        try (FlipLog flipLog = FlipLog.open(tempFile(".log"), logged, players, 0, false)) {
+            for (Engine engine : Engine.values()) {
+                final Board other = Board.parseFromFile(BOARD, engine);
+                assertThrows(IllegalArgumentException.class, other::journalPosition, engine + ": not logged");
+                assertThrows(IllegalArgumentException.class,
+                        () -> Checkpoint.write(checkpoint, other, players, flipLog), engine + ": log of another board");
+            }
+            assertEquals(flipLog.position(), Checkpoint.write(checkpoint, logged, players, flipLog));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for FlipLog
+ */
+public class FlipLogTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for open(file, board, players, window, fsync), append(), close():
+     *      Input:
+     *          file: new, a log of flips, a log with a torn last record, a log
+     *                whose last record fails its CRC
+     *          engine: ACTOR, not ACTOR
+     *          fsync: true, false
+     *
+     *      Output:
+     *          cards, players and scores as they were when the log was closed,
+     *          torn or corrupt records dropped, IllegalArgumentException and an
+     *          untouched board if not ACTOR
+     */
+    private static final String BOARD = "boards/perfect.txt";
+
+    private static Path tempFile() throws IOException {
+        final Path file = Files.createTempFile("flips", ".log");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        return file;
+    }
+
+    /*
+     * Play some flips on a board logged to file: alice matches (0,0) and (0,1),
+     * bob takes (0,2), then alice removes her pair and takes (1,1)
+     */
+    private static void play(Path file, boolean fsync) throws IOException, InterruptedException {
+        final Board board = Board.parseFromFile(BOARD, Engine.ACTOR);
+        final PlayerRegistry players = new PlayerRegistry();
+        try (FlipLog log = FlipLog.open(file, board, players, 100, fsync)) {
+            final Player alice = players.player("alice");
+            final Player bob = players.player("bob");
+            board.flipCard(alice, 0, 0);
+            board.flipCard(alice, 0, 1);
+            board.flipCard(bob, 0, 2);
+            board.flipCard(alice, 1, 1);
+            log.awaitDurable(log.position());
+        }
+    }
+
+    /*
+     * Assert that the board replayed from file is the one left by play()
+     * @return the replayed board
+     */
+    private static Board assertReplayed(Path file) throws IOException, InterruptedException {
+        final Board board = Board.parseFromFile(BOARD, Engine.ACTOR);
+        final PlayerRegistry players = new PlayerRegistry();
+        try (FlipLog log = FlipLog.open(file, board, players, 0, false)) {
+            final Player alice = players.player("alice");
+            final Player bob = players.player("bob");
+            assertEquals("3x3\nnone\nnone\nup 🌈\ndown\nmy 🌈\ndown\ndown\ndown\ndown",
+                    board.webString(alice));
+            assertEquals("3x3\nnone\nnone\nmy 🌈\ndown\nup 🌈\ndown\ndown\ndown\ndown",
+                    board.webString(bob));
+            assertEquals(1, alice.getScore());
+            assertEquals(0, bob.getScore());
+            assertEquals(PlayerState.ONE_CARD_VALID, bob.getState());
+            assertEquals(2, players.leaderboard().top(10).size(), "both players ranked");
+
+            // the game goes on from the replayed state
+            final long replayed = log.position();
+            board.flipCard(bob, 1, 0);
+            assertEquals(1, bob.getScore());
+            assertTrue(log.position() > replayed, "appended after the replayed records");
+        }
+        return board;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      file new, a log of flips
+     *      engine ACTOR
+     *      fsync true, false
+     */
+    @Test
+    public void testReplay() throws IOException, InterruptedException {
+        for (boolean fsync : new boolean[] { true, false }) {
+            final Path file = tempFile();
+            play(file, fsync);
+            assertReplayed(file);
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      file a log with a torn last record, a log whose last record fails its CRC
+     */
+    @Test
+    public void testTornTail() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        play(file, false);
+        final long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // a record cut short by a crash
+            channel.write(ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putInt(100).putInt(7).flip());
+        }
+        final Path copy = tempFile();
+        Files.copy(file, copy);
+        final Board board = Board.parseFromFile(BOARD, Engine.ACTOR);
+        try (FlipLog log = FlipLog.open(file, board, new PlayerRegistry(), 0, false)) {
+            assertEquals(size, Files.size(file), "torn record dropped");
+            assertEquals(size, log.position(), "appends after the last whole record");
+        }
+
+        // a whole record with a wrong CRC
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.write(ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putInt(4).putInt(7).putInt(0).flip(),
+                    size);
+        }
+        assertReplayed(copy);
+    }
+
+    /*
+     * Test covers following partitions:
+     *      file a log of flips
+     *      engine not ACTOR
+     */
+    @Test
+    public void testOnlyActor() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        play(file, false);
+        final Board board = Board.parseFromFile(BOARD, Engine.MONITOR);
+        final Player alice = new Player("alice");
+        final String before = board.webString(alice);
+        assertThrows(IllegalArgumentException.class,
+                () -> FlipLog.open(file, board, new PlayerRegistry(), 0, false));
+        assertEquals(before, board.webString(alice), "board untouched");
+    }
+}
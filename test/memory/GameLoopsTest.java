@@ -0,0 +1,206 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the event loops games are pinned to
+ */
+public class GameLoopsTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for pin(), execute(), rebalance():
+     *      Input:
+     *          games per loop: 1, >1
+     *          load: none, one loop busier than another
+     *          game: not moving, moving with tasks queued
+     *          task: returns, throws an exception, throws an error
+     *
+     *      Output:
+     *          tasks of a game run in order on one thread, one at a time, a moved
+     *          game goes on on its new loop after its old loop let it go, later
+     *          tasks run after a task threw
+     *          new games go to the loop with the fewest games
+     *          hot games sharing a loop are split, nothing moves without load
+     */
+    private static final long NEVER_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /*
+     * Run tasks busy for millis each on game and wait for them
+     */
+    private static void keepBusy(GameLoops.Pinned game, int tasks, long millis) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(tasks);
+        for (int ii = 0; ii < tasks; ii++) {
+            game.execute(() -> {
+                final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      games per loop 1
+     *      load none
+     */
+    @Test
+    public void testTasksRunInOrderOnOneThread() throws InterruptedException {
+        final GameLoops loops = new GameLoops(2, NEVER_MILLIS);
+        final GameLoops.Pinned game = loops.pin();
+        final List<Integer> order = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int ii = 0; ii < 100; ii++) {
+            final int task = ii;
+            game.execute(() -> {
+                order.add(task);
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int ii = 0; ii < 100; ii++) {
+            assertEquals(ii, (int) order.get(ii));
+            assertEquals(threads.get(0), threads.get(ii), "one thread per game");
+        }
+        assertEquals(0, loops.rebalance(), "a single game is never moved");
+        loops.shutdown();
+    }
+
+    /*
+     * Test covers following partitions:
+     *      games per loop > 1
+     *      load one loop busier than another, none
+     */
+    @Test
+    public void testRebalanceSplitsHotGames() throws InterruptedException {
+        final GameLoops loops = new GameLoops(2, NEVER_MILLIS);
+        final GameLoops.Pinned hot = loops.pin();
+        final GameLoops.Pinned cold = loops.pin();
+        final GameLoops.Pinned alsoHot = loops.pin();
+        assertTrue(hot.loop() != cold.loop(), "fewest games first");
+        assertEquals(hot.loop(), alsoHot.loop());
+        // enough tasks for some to be timed
+        keepBusy(hot, 64, 1);
+        keepBusy(alsoHot, 64, 1);
+        keepBusy(cold, 1, 1);
+        assertEquals(1, loops.rebalance());
+        assertTrue(hot.loop() != alsoHot.loop(), "hot games split between loops");
+        final int hotLoop = hot.loop();
+        assertEquals(0, loops.rebalance(), "nothing ran since");
+        assertEquals(hotLoop, hot.loop());
+        loops.shutdown();
+    }
+
+    /*
+     * Test covers following partitions:
+     *      game moving with tasks queued
+     */
+    @Test
+    public void testMovedGameRunsOnOneLoopAtATime() throws InterruptedException {
+        final GameLoops loops = new GameLoops(2, NEVER_MILLIS);
+        final GameLoops.Pinned hot = loops.pin();
+        final GameLoops.Pinned cold = loops.pin();
+        final GameLoops.Pinned alsoHot = loops.pin();
+        keepBusy(hot, 64, 1);
+        keepBusy(alsoHot, 64, 1);
+        keepBusy(cold, 1, 1);
+        final int tasks = 500;
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2 * tasks);
+        final List<List<Integer>> orders = new ArrayList<>();
+        final List<List<Thread>> threads = new ArrayList<>();
+        final AtomicInteger overlaps = new AtomicInteger();
+        for (GameLoops.Pinned game : List.of(hot, alsoHot)) {
+            final List<Integer> order = new ArrayList<>();
+            final List<Thread> ran = new ArrayList<>();
+            final AtomicInteger running = new AtomicInteger();
+            orders.add(order);
+            threads.add(ran);
+            // keeps the old loop of the game busy while it moves
+            game.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int ii = 0; ii < tasks; ii++) {
+                final int task = ii;
+                game.execute(() -> {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    order.add(task);
+                    ran.add(Thread.currentThread());
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+        assertEquals(1, loops.rebalance());
+        release.countDown();
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get(), "one task of a game at a time");
+        int switches = 0;
+        for (int game = 0; game < 2; game++) {
+            for (int ii = 0; ii < tasks; ii++) {
+                assertEquals(ii, (int) orders.get(game).get(ii), "tasks in order");
+                if (ii > 0 && threads.get(game).get(ii) != threads.get(game).get(ii - 1)) {
+                    switches++;
+                }
+            }
+        }
+        assertEquals(1, switches, "the moved game changes loop once, the other never");
+        loops.shutdown();
+    }
+
+    /*
+     * Test covers following partitions:
+     *      task throws an exception, throws an error
+     */
+    @Test
+    public void testTasksAfterThrowingTask() throws InterruptedException {
+        final GameLoops loops = new GameLoops(1, NEVER_MILLIS);
+        final GameLoops.Pinned game = loops.pin();
+        final List<Runnable> throwing = List.of(
+                () -> {
+                    throw new IllegalStateException("task failed");
+                },
+                () -> {
+                    throw new AssertionError("rep invariant broken");
+                });
+        for (Runnable fails : throwing) {
+            final CountDownLatch queued = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(2);
+            // holds the game until the throwing task and the one after it are queued
+            game.execute(() -> {
+                try {
+                    queued.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            game.execute(fails);
+            game.execute(done::countDown);
+            queued.countDown();
+            game.execute(done::countDown);
+            assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "tasks after a throwing task run");
+        }
+        loops.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for Leaderboard
+ */
+public class LeaderboardTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for page(offset, limit), top(count), changesSince(since),
+     *  onChange(since, callback):
+     *      Input:
+     *          players: none attempted, some attempted, all attempted
+     *          players with the same score: 1, >1
+     *          player scores after being listed: yes, no
+     *          offset: 0, >0, past the last player; limit: 0, >0, past the last player
+     *          since: 0, a kept version, a version no longer kept
+     *          points scored by a player after since: 1, >1
+     *          callback: added before a change, after a change
+     *
+     *      Output:
+     *          players who attempted by score from highest, ties by id, each once
+     *          one delta line per player who scored, places climbed summed,
+     *          full ranking if the changes are not kept
+     *          callback called once, after a change
+     */
+
+    private static List<String> ids(List<Leaderboard.Entry> entries) {
+        final List<String> ids = new ArrayList<>();
+        for (Leaderboard.Entry entry : entries) {
+            ids.add(entry.playerId() + ":" + entry.score());
+        }
+        return ids;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      players none attempted, some attempted
+     *      players with the same score > 1
+     *      player scores after being listed
+     *      offset 0, >0, past the last player; limit 0, >0, past the last player
+     */
+    @Test
+    public void testRankedByScoreThenId() {
+        final PlayerRegistry registry = new PlayerRegistry();
+        final Leaderboard leaderboard = registry.leaderboard();
+        final Player b = registry.player("b");
+        final Player a = registry.player("a");
+        final Player c = registry.player("c");
+        registry.player("idle");
+        assertEquals(List.of(), ids(leaderboard.top(10)), "nobody attempted");
+        for (Player player : List.of(a, b, c)) {
+            player.markAttempted();
+        }
+        assertEquals(List.of("a:0", "b:0", "c:0"), ids(leaderboard.top(10)), "ties by id");
+        c.incrementScore();
+        b.incrementScore();
+        c.incrementScore();
+        assertEquals(List.of("c:2", "b:1", "a:0"), ids(leaderboard.top(10)));
+        assertEquals(List.of("c:2"), ids(leaderboard.top(1)));
+        assertEquals(List.of("b:1", "a:0"), ids(leaderboard.page(1, 5)));
+        assertEquals(List.of("b:1"), ids(leaderboard.page(1, 1)));
+        assertEquals(List.of(), ids(leaderboard.page(3, 5)));
+        assertEquals(List.of(), ids(leaderboard.page(0, 0)));
+        a.markAttempted();
+        assertEquals(3, leaderboard.top(10).size(), "each player once");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      since 0, a kept version, a version no longer kept
+     *      points scored by a player after since 1, >1
+     */
+    @Test
+    public void testChangesSince() {
+        final PlayerRegistry registry = new PlayerRegistry();
+        final Leaderboard leaderboard = registry.leaderboard();
+        final Player a = registry.player("a");
+        final Player b = registry.player("b");
+        a.markAttempted();
+        b.markAttempted();
+        assertEquals(0, leaderboard.version(), "attempting is not a change");
+        a.incrementScore();
+        assertEquals(1, leaderboard.version());
+        // b catches up with a, then passes it
+        b.incrementScore();
+        b.incrementScore();
+        assertEquals("delta 3\nb 2 +1", leaderboard.changesSince(1), "one line per player");
+        assertEquals("delta 3\nb 2 +0", leaderboard.changesSince(2), "b was already first");
+        assertEquals("full 3\nb 2\na 1", leaderboard.changesSince(0));
+        for (int ii = 0; ii <= Leaderboard.CHANGE_RING; ii++) {
+            a.incrementScore();
+        }
+        assertEquals("full " + (4 + Leaderboard.CHANGE_RING) + "\na " + (2 + Leaderboard.CHANGE_RING) + "\nb 2",
+                leaderboard.changesSince(3), "no longer kept");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      callback added before a change, after a change
+     */
+    @Test
+    public void testOnChangeCalledOnce() {
+        final Leaderboard leaderboard = new Leaderboard(Runnable::run);
+        final Player a = new Player("a", 0, leaderboard);
+        a.markAttempted();
+        final AtomicInteger calls = new AtomicInteger();
+        leaderboard.onChange(0, calls::incrementAndGet);
+        assertEquals(0, calls.get(), "no change yet");
+        assertEquals(1, leaderboard.watcherCount());
+        a.incrementScore();
+        a.incrementScore();
+        assertEquals(1, calls.get(), "called once");
+        assertEquals(0, leaderboard.watcherCount());
+        leaderboard.onChange(1, calls::incrementAndGet);
+        assertEquals(2, calls.get(), "already changed");
+    }
+}
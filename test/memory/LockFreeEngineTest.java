@@ -0,0 +1,236 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the lock free engine of Board
+ */
+public class LockFreeEngineTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for flip(player, row, col) on a LOCK_FREE board:
+     *      Input:
+     *          player controls cards.size(): =0, =1, =2
+     *          Testing all rules: 1A, 1B, 1C, 1D, 2A, 2B, 2C, 2D, 2E, 3A, 3B
+     *          Players in game: 1, >1
+     *          Player blocked by rule 1D: card released, card removed
+     *
+     *      Output:
+     *          Card Match: Players increments point, Player still holds card
+     *          Cards don't match: score does not increment, player does not hold card
+     *          Card blocked until released
+     *          Player gets card
+     *          Same board as the MONITOR engine after the same flips
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+
+    private static Board makeBoard() throws IOException {
+        return Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.LOCK_FREE);
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 1
+     *          player controls 0 cards, 1 card, 2 cards
+     *          rule: 1B, 2C, 2D, 3A, 1A
+     */
+    @Test
+    public void testPlayerCompleteMoveMatch() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 1);
+        assertEquals(1, p1.getScore());
+        List<Card> cards = p1.getCards();
+        Card card1 = cards.get(0);
+        Card card2 = cards.get(1);
+        assertEquals(p1, card1.getCardOwner(), "After match players still control cards");
+        assertEquals(p1, card2.getCardOwner(), "After match players still control cards");
+        board.flipCard(p1, 0, 0);
+        assertEquals(0, p1.numberOwnedCards(), "After next move matched cards are not owned by player");
+        assertEquals(PlayerState.FRESH, p1.getState(), "flipping a removed card fails");
+        assertTrue(card1.isRemoved(), "After next move cards should be removed");
+        assertTrue(card2.isRemoved(), "After next move cards should be removed");
+        assertFalse(card1.isOwned(), "removed cards are not owned");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 1
+     *          player controls 0 cards, 1 card, 2 cards
+     *          rule: 1B, 2C, 2E, 3B
+     */
+    @Test
+    public void testPlayerCompleteMoveDontMatch() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 2);
+        assertEquals(0, p1.getScore());
+        List<Card> cards = p1.getCards();
+        Card card1 = cards.get(0);
+        Card card2 = cards.get(1);
+        assertTrue(card1.isFacingUp(), "After no match cards supposed to face up");
+        assertTrue(card2.isFacingUp(), "After no match cards supposed to face up");
+        assertFalse(card1.isOwned(), "Card should not be owned after mismatch");
+        assertFalse(card2.isOwned(), "Card should not be owned after mismatch");
+        assertEquals(PlayerState.TWO_CARDS_NO_MATCH, p1.getState(), "should be in mismatch state");
+        board.flipCard(p1, 0, 0);
+        assertEquals(1, p1.numberOwnedCards(), "Player should hold the card flipped again");
+        assertTrue(card1.isFacingUp(), "card flipped again stays up");
+        assertFalse(card2.isFacingUp(), "other card should turn face down");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 2
+     *          player controls 0 cards, 1 card
+     *          rule: 1B, 1C, 2B, 2E, 3B
+     */
+    @Test
+    public void testTwoPlayerFight() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p2, 0, 2);
+        Card card1p1 = p1.getFirstCard();
+        Card card1p2 = p2.getFirstCard();
+        // 2B
+        board.flipCard(p2, 0, 0);
+        assertEquals(PlayerState.ONE_CARD_INVALID, p2.getState());
+        assertTrue(card1p2.isFacingUp(), "after 2b cards should stay up");
+        assertEquals(null, card1p2.getCardOwner());
+        assertEquals(p1, card1p1.getCardOwner(), "2B must not change the other card");
+        // 1C + 2E
+        board.flipCard(p1, 0, 2);
+        assertEquals(PlayerState.TWO_CARDS_NO_MATCH, p1.getState(), "player should be with two cards");
+        assertEquals(null, card1p2.getCardOwner(), "card should not be owned");
+        assertEquals(null, card1p1.getCardOwner(), "card should not be owned");
+        // 3B on a card taken by another player
+        board.flipCard(p2, 0, 0);
+        board.flipCard(p1, 2, 2);
+        assertTrue(card1p1.isFacingUp(), "card controlled by p2 stays up");
+        assertEquals(p2, card1p1.getCardOwner());
+        assertFalse(card1p2.isFacingUp(), "uncontrolled card turns down");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 2
+     *          player controls 0 cards, 2 cards
+     *          rule: 2A, 3A
+     */
+    @Test
+    public void testTwoPlayers2A() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 1);
+        board.flipCard(p2, 0, 2);
+        board.flipCard(p1, 1, 1);
+        board.flipCard(p2, 0, 0);
+        Card card1p2 = p2.getFirstCard();
+        assertEquals(PlayerState.ONE_CARD_INVALID, p2.getState(), "state should be invalid");
+        assertEquals(null, card1p2.getCardOwner(), "should not be owned");
+        assertTrue(card1p2.isFacingUp(), "Card should still face up");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 2
+     *          rule: 1D, card released by 2E
+     */
+    @Test
+    public void testBlockedUntilReleased() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        Thread blocked = new Thread(() -> {
+            try {
+                board.flipCard(p2, 0, 0);
+            } catch (InterruptedException ie) {
+                throw new AssertionError(ie);
+            }
+        });
+        blocked.start();
+        blocked.join(200);
+        assertTrue(blocked.isAlive(), "p2 should be blocked by p1");
+        assertEquals(0, p2.numberOwnedCards(), "blocked player holds no card");
+        // no match, p1 relinquishes control
+        board.flipCard(p1, 0, 2);
+        blocked.join(5000);
+        assertFalse(blocked.isAlive(), "p2 should be released");
+        assertEquals(p2, p2.getFirstCard().getCardOwner(), "p2 takes the released card");
+        assertEquals(PlayerState.ONE_CARD_VALID, p2.getState());
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game = 2
+     *          rule: 1D, card removed by 3A then 1A
+     */
+    @Test
+    public void testBlockedUntilRemoved() throws InterruptedException, IOException {
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        Board board = makeBoard();
+        board.flipCard(p1, 0, 0);
+        board.flipCard(p1, 0, 1);
+        Thread blocked = new Thread(() -> {
+            try {
+                board.flipCard(p2, 0, 1);
+            } catch (InterruptedException ie) {
+                throw new AssertionError(ie);
+            }
+        });
+        blocked.start();
+        blocked.join(200);
+        assertTrue(blocked.isAlive(), "p2 should be blocked by p1");
+        board.flipCard(p1, 2, 2);
+        blocked.join(5000);
+        assertFalse(blocked.isAlive(), "p2 should be released");
+        assertEquals(0, p2.numberOwnedCards(), "removed card cannot be taken");
+        assertEquals(PlayerState.FRESH, p2.getState());
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flip:
+     *          player in game > 1
+     *          Same board as the MONITOR engine after the same flips
+     */
+    @Test
+    public void testSameAsMonitorEngine() throws InterruptedException, IOException {
+        final Board lockFree = makeBoard();
+        final Board monitor = Board.parseFromFile(BOARD_DIRECTORY + "perfect.txt", Engine.MONITOR);
+        final int[][] flips = { {0, 0}, {1, 0}, {0, 1}, {2, 2}, {0, 0}, {1, 1}, {2, 2}, {1, 0}, {2, 1} };
+        final Player[] lockFreePlayers = { new Player("a"), new Player("b") };
+        final Player[] monitorPlayers = { new Player("a"), new Player("b") };
+        for (int ii = 0; ii < flips.length; ii++) {
+            lockFree.flipCard(lockFreePlayers[ii % 2], flips[ii][0], flips[ii][1]);
+            monitor.flipCard(monitorPlayers[ii % 2], flips[ii][0], flips[ii][1]);
+            for (int p = 0; p < 2; p++) {
+                assertEquals(monitor.webString(monitorPlayers[p]), lockFree.webString(lockFreePlayers[p]),
+                        "boards should agree after flip " + ii);
+                assertEquals(monitorPlayers[p].getScore(), lockFreePlayers[p].getScore());
+            }
+        }
+    }
+}
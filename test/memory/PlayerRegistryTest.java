@@ -0,0 +1,100 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for PlayerRegistry
+ */
+public class PlayerRegistryTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for player(id), player(handle), size():
+     *      Input:
+     *          id: first seen, seen before
+     *          threads asking for the same new id: 1, >1
+     *          players: 0, 1, more than the initial capacity
+     *
+     *      Output:
+     *          same player for the same id, handles 0..size()-1 in the order seen,
+     *          player(handle) is the player with that handle
+     */
+
+    /*
+     * Test covers following partitions:
+     *      id first seen, seen before
+     *      threads 1
+     *      players 0, 1, more than the initial capacity
+     */
+    @Test
+    public void testDenseHandles() {
+        final PlayerRegistry registry = new PlayerRegistry();
+        assertEquals(0, registry.size());
+        final Player first = registry.player("a");
+        assertEquals(0, first.handle());
+        assertSame(first, registry.player("a"), "same player for the same id");
+        assertEquals(1, registry.size());
+        for (int ii = 1; ii < 100; ii++) {
+            assertEquals(ii, registry.player("p" + ii).handle(), "handles in the order seen");
+        }
+        assertEquals(100, registry.size());
+        for (int ii = 1; ii < 100; ii++) {
+            assertSame(registry.player("p" + ii), registry.player(ii));
+        }
+        assertSame(first, registry.player(0));
+        assertEquals(100, registry.players().size());
+    }
+
+    /*
+     * Test covers following partitions:
+     *      id first seen
+     *      threads > 1
+     *      players more than the initial capacity
+     */
+    @Test
+    public void testConcurrentFirstSight() throws InterruptedException {
+        final PlayerRegistry registry = new PlayerRegistry();
+        final int ids = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        final List<Player[]> seen = new ArrayList<>();
+        for (int tt = 0; tt < 8; tt++) {
+            final Player[] players = new Player[ids];
+            seen.add(players);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                for (int ii = 0; ii < ids; ii++) {
+                    players[ii] = registry.player("p" + ii);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(ids, registry.size(), "one player per id");
+        final Set<Integer> handles = new HashSet<>();
+        for (int ii = 0; ii < ids; ii++) {
+            for (Player[] players : seen) {
+                assertSame(seen.get(0)[ii], players[ii], "every thread gets the same player");
+            }
+            handles.add(seen.get(0)[ii].handle());
+            assertSame(seen.get(0)[ii], registry.player(seen.get(0)[ii].handle()));
+        }
+        assertEquals(ids, handles.size(), "handles are distinct");
+    }
+}
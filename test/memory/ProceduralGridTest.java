@@ -0,0 +1,126 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for ProceduralGrid and procedural boards
+ */
+public class ProceduralGridTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for ProceduralGrid(rows, cols, cards, seed), valueId(),
+     *  card(), state(), touched(), newGame():
+     *      Input:
+     *          cells: 1, a power of 4, not a power of 2
+     *          cards: dividing the cells, not dividing them
+     *          seed: same as another grid, different
+     *          cards touched: none, some
+     *
+     *      Output:
+     *          same values for the same seed, every card floor(cells / cards)
+     *          times or once more, untouched cards face down and without a Card,
+     *          flips only allocate the cards flipped
+     */
+
+    /*
+     * @return number of cells of grid with every value
+     */
+    private static Map<String, Integer> counts(CardGrid grid) {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int card = 0; card < grid.rows() * grid.cols(); card++) {
+            counts.merge(grid.value(card), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      cells 1, a power of 4, not a power of 2
+     *      cards dividing the cells, not dividing them
+     *      seed same as another grid, different
+     *      cards touched none
+     */
+    @Test
+    public void testBalancedAndSeeded() {
+        final Set<String> cards = Set.of("A", "B", "C");
+        final ProceduralGrid single = new ProceduralGrid(1, 1, cards, 5);
+        assertTrue(cards.contains(single.value(0)));
+        for (int[] size : new int[][] { {16, 16}, {37, 29}, {3, 4} }) {
+            final int cells = size[0] * size[1];
+            final ProceduralGrid grid = new ProceduralGrid(size[0], size[1], cards, 5);
+            final ProceduralGrid same = new ProceduralGrid(size[0], size[1], cards, 5);
+            final ProceduralGrid other = new ProceduralGrid(size[0], size[1], cards, 6);
+            final StringBuilder values = new StringBuilder();
+            final StringBuilder sameValues = new StringBuilder();
+            final StringBuilder otherValues = new StringBuilder();
+            for (int card = 0; card < cells; card++) {
+                values.append(grid.value(card));
+                sameValues.append(same.value(card));
+                otherValues.append(other.value(card));
+                assertSame(CardState.DOWN, grid.state(card));
+            }
+            assertEquals(values.toString(), sameValues.toString(), "same seed");
+            if (cells > 12) {
+                assertNotEquals(values.toString(), otherValues.toString(), "other seed");
+            }
+            int extra = 0;
+            for (int count : counts(grid).values()) {
+                assertTrue(count == cells / 3 || count == cells / 3 + 1, "count " + count);
+                extra += count - cells / 3;
+            }
+            assertEquals(cells % 3, extra, "cards appearing once more");
+            assertEquals(0, grid.touched(), "no card touched");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      cells not a power of 2
+     *      cards touched some
+     */
+    @Test
+    public void testNewGameSameCards() throws InterruptedException {
+        final Board board = Board.generateProcedural(1000, 1000, Set.of("A", "B"), Engine.MONITOR, 11);
+        final Player player = new Player("a");
+        board.flipCard(player, 999, 999);
+        final Board again = board.newGame();
+        final Player other = new Player("b");
+        again.flipCard(other, 999, 999);
+        final String[] lines = board.webString(player).split("\n");
+        final String[] againLines = again.webString(other).split("\n");
+        assertEquals(lines[lines.length - 1], againLines[againLines.length - 1], "same cards in a new game");
+        assertTrue(lines[lines.length - 1].startsWith("my "));
+        int down = 0;
+        for (String line : againLines) {
+            down += line.equals("down") ? 1 : 0;
+        }
+        assertEquals(1000 * 1000 - 1, down, "only the flipped card is up");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      cards dividing the cells
+     *      cards touched some
+     */
+    @Test
+    public void testTouched() {
+        final ProceduralGrid grid = new ProceduralGrid(100, 100, Set.of("A", "B"), 3);
+        final Card card = grid.card(42);
+        assertSame(card, grid.card(42), "same card for the same cell");
+        assertEquals(42, card.getCardNumber());
+        assertEquals(grid.value(42), card.getCardValue());
+        card.setState(CardState.UP);
+        assertSame(CardState.UP, grid.state(42));
+        assertEquals(1, grid.touched());
+    }
+}
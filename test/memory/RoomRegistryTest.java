@@ -0,0 +1,139 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the games hosted by one server
+ */
+public class RoomRegistryTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for room(gameId), evictIdle(), size():
+     *      Input:
+     *          game id: new, already used, evicted
+     *          game: used within the idle time, idle, idle and watched, idle with
+     *                a player blocked by rule 1D
+     *          factory: independent of the registry, uses the registry
+     *
+     *      Output:
+     *          same game for the same id, independent boards and players per id
+     *          only idle and unwatched games are evicted, a new game after eviction
+     */
+    private static final long IDLE_MILLIS = 1000;
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private static RoomRegistry makeRooms(AtomicLong clock) throws IOException {
+        final Board template = Board.parseFromFile("boards/perfect.txt");
+        return new RoomRegistry(template::newGame, IDLE_MILLIS, null, clock::get);
+    }
+
+    /*
+     * Test covers following partitions:
+     *      game id new, already used
+     */
+    @Test
+    public void testGamesAreIndependent() throws IOException, InterruptedException {
+        final RoomRegistry rooms = makeRooms(new AtomicLong());
+        final RoomRegistry.Room first = rooms.room("a");
+        assertSame(first, rooms.room("a"), "same id, same game");
+        assertSame(first.player("p"), rooms.room("a").player("p"), "same player in a game");
+        final RoomRegistry.Room second = rooms.room("b");
+        assertNotSame(first.board(), second.board());
+        assertNotSame(first.player("p"), second.player("p"), "players belong to one game");
+        first.board().flipCard(first.player("p"), 0, 0);
+        assertEquals("3x3\nmy 🦄\n" + "down\n".repeat(7) + "down", first.board().webString(first.player("p")));
+        assertEquals("3x3\n" + "down\n".repeat(8) + "down", second.board().webString(second.player("p")));
+        assertEquals(2, rooms.size());
+    }
+
+    /*
+     * Test covers following partitions:
+     *      game id evicted
+     *      game used within the idle time, idle, idle and watched
+     */
+    @Test
+    public void testEvictIdle() throws IOException, InterruptedException {
+        final AtomicLong clock = new AtomicLong();
+        final RoomRegistry rooms = makeRooms(clock);
+        final RoomRegistry.Room idle = rooms.room("idle");
+        idle.board().flipCard(idle.player("p"), 0, 0);
+        final RoomRegistry.Room watched = rooms.room("watched");
+        final Listener listener = boardString -> { };
+        watched.board().addListener(watched.player("w"), listener);
+        clock.set(IDLE_MILLIS / 2);
+        rooms.room("used");
+        assertEquals(0, rooms.evictIdle(), "nothing idle yet");
+        clock.set(IDLE_MILLIS);
+        assertEquals(1, rooms.evictIdle(), "only the unwatched idle game");
+        assertEquals(2, rooms.size());
+        assertSame(watched, rooms.room("watched"));
+        final RoomRegistry.Room again = rooms.room("idle");
+        assertNotSame(idle, again, "a new game after eviction");
+        assertEquals("3x3\n" + "down\n".repeat(8) + "down", again.board().webString(again.player("p")));
+        watched.board().removeListener(watched.player("w"), listener);
+        clock.set(3 * IDLE_MILLIS);
+        assertEquals(3, rooms.evictIdle());
+        assertEquals(0, rooms.size());
+    }
+
+    /*
+     * Test covers following partitions:
+     *      game idle with a player blocked by rule 1D
+     */
+    @Test
+    public void testBlockedPlayerKeepsGame() throws Exception {
+        for (Engine engine : Engine.values()) {
+            final AtomicLong clock = new AtomicLong();
+            final Board template = Board.parseFromFile("boards/perfect.txt", engine);
+            final RoomRegistry rooms = new RoomRegistry(template::newGame, IDLE_MILLIS, null, clock::get);
+            final RoomRegistry.Room room = rooms.room("blocked");
+            final Board board = room.board();
+            board.flipCard(room.player("p1"), 0, 0);
+            final CompletableFuture<PlayerState> blocked = board.flipCardAsync(room.player("p2"), 0, 0);
+            assertFalse(blocked.isDone(), engine + ": p2 waits for 0,0");
+            clock.set(2 * IDLE_MILLIS);
+            assertEquals(0, rooms.evictIdle(), engine + ": p2 still plays the game");
+            board.flipCard(room.player("p1"), 0, 2);
+            blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            int evicted = rooms.evictIdle();
+            while (evicted == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                evicted = rooms.evictIdle();
+            }
+            assertEquals(1, evicted, engine + ": nobody waits anymore");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      factory uses the registry
+     */
+    @Test
+    public void testFactoryUsesRegistry() throws IOException {
+        final Board template = Board.parseFromFile("boards/perfect.txt");
+        final AtomicReference<RoomRegistry> registry = new AtomicReference<>();
+        // every new game starts from the board of game "template"
+        final RoomRegistry rooms = new RoomRegistry(
+                () -> registry.get().size() == 0 ? template.newGame() : registry.get().room("template").board().newGame(),
+                IDLE_MILLIS, null, () -> 0);
+        registry.set(rooms);
+        final RoomRegistry.Room first = rooms.room("template");
+        final RoomRegistry.Room second = rooms.room("other");
+        assertNotSame(first.board(), second.board());
+        assertSame(first, rooms.room("template"));
+        assertEquals(2, rooms.size());
+    }
+}
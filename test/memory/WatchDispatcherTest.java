@@ -0,0 +1,184 @@
+package memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for the delivery of board changes to listeners
+ */
+public class WatchDispatcherTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for addListener(player, listener), removeListener(player, listener)
+     *  and the changes of flipCard(player, row, col):
+     *      Input:
+     *          listeners: 1, >1
+     *          listener: fast, blocked
+     *          listener: removed, replaced
+     *
+     *      Output:
+     *          listener gets the latest board as seen by its player
+     *          flips never wait for a blocked listener
+     *          conflated changes of a blocked listener are delivered once
+     *          removed and replaced listeners get no more changes
+     */
+    private static final String BOARD_DIRECTORY = "boards/";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static Board makeBoard() throws IOException {
+        return Board.parseFromFile(BOARD_DIRECTORY + "squareAB.txt");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      listeners > 1
+     *      listener fast
+     *      listener gets the latest board as seen by its player
+     */
+    @Test
+    public void testListenersSeeLatestBoard() throws IOException, InterruptedException {
+        Board board = makeBoard();
+        Player p1 = new Player("1");
+        Player p2 = new Player("2");
+        BlockingQueue<String> p1Boards = new LinkedBlockingQueue<>();
+        BlockingQueue<String> p2Boards = new LinkedBlockingQueue<>();
+        board.addListener(p1, p1Boards::add);
+        board.addListener(p2, p2Boards::add);
+        board.flipCard(p1, 0, 0);
+        final String seenByP1 = p1Boards.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final String seenByP2 = p2Boards.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(board.webString(p1), seenByP1);
+        assertEquals(board.webString(p2), seenByP2);
+        assertTrue(seenByP1.startsWith("3x3\nmy A"), "p1 controls the card");
+        assertTrue(seenByP2.startsWith("3x3\nup A"), "p2 sees it face up");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      listeners = 1
+     *      listener blocked
+     *      flips never wait
+     */
+    @Test
+    public void testBlockedListenerDoesNotBlockFlips() throws IOException, InterruptedException {
+        Board board = makeBoard();
+        Player flipper = new Player("flipper");
+        Player watcher = new Player("watcher");
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        board.addListener(watcher, boardString -> {
+            received.add(boardString);
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                throw new AssertionError(ie);
+            }
+        });
+        board.flipCard(flipper, 0, 0);
+        assertTrue(entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "listener should get the first change");
+        // the listener is stuck, flips must still complete
+        for (int col = 1; col < 3; col++) {
+            board.flipCard(flipper, 1, col);
+            board.flipCard(flipper, 2, col);
+        }
+        assertEquals(1, received.size(), "listener is still blocked");
+        final String latest = board.webString(watcher);
+        release.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!latest.equals(received.get(received.size() - 1)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(latest, received.get(received.size() - 1), "listener gets the latest board");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      listeners = 1
+     *      listener blocked
+     *      conflated changes are delivered once
+     */
+    @Test
+    public void testConflatedChangesDeliveredOnce() throws IOException, InterruptedException {
+        Board board = makeBoard();
+        Player flipper = new Player("flipper");
+        Player watcher = new Player("watcher");
+        // tasks of the dispatcher are run by the test, one at a time
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        WatchDispatcher dispatcher = new WatchDispatcher(board, tasks::add);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        dispatcher.add(watcher, boardString -> {
+            received.add(boardString);
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                throw new AssertionError(ie);
+            }
+        });
+        board.flipCard(flipper, 0, 0);
+        dispatcher.publish();
+        tasks.take().run();
+        Thread delivery = new Thread(tasks.take());
+        delivery.start();
+        assertTrue(entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "listener should get the first change");
+        for (int round = 0; round < 20; round++) {
+            // A and B never match, every round turns cards up and down
+            board.flipCard(flipper, 0, 1);
+            board.flipCard(flipper, 0, 0);
+            dispatcher.publish();
+            for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                task.run();
+            }
+            assertTrue(tasks.isEmpty(), "a blocked listener has at most one pending change");
+        }
+        assertEquals(1, received.size(), "listener is still blocked");
+        final String latest = board.webString(watcher);
+        release.countDown();
+        delivery.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(delivery.isAlive(), "delivery should complete once released");
+        assertEquals(2, received.size(), "changes while blocked are delivered once");
+        assertEquals(latest, received.get(1), "listener gets the latest board");
+        assertTrue(tasks.isEmpty(), "no delivery left");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      listeners = 1
+     *      listener removed, replaced
+     */
+    @Test
+    public void testRemovedListener() throws IOException, InterruptedException {
+        Board board = makeBoard();
+        Player player = new Player("1");
+        BlockingQueue<String> first = new LinkedBlockingQueue<>();
+        BlockingQueue<String> second = new LinkedBlockingQueue<>();
+        Listener firstListener = first::add;
+        Listener secondListener = second::add;
+        board.addListener(player, firstListener);
+        board.addListener(player, secondListener);
+        board.removeListener(player, firstListener);
+        board.flipCard(player, 0, 0);
+        assertEquals(board.webString(player), second.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        board.removeListener(player, secondListener);
+        board.flipCard(player, 0, 1);
+        Thread.sleep(100);
+        assertEquals(0, second.size(), "removed listener gets no changes");
+        assertEquals(0, first.size(), "replaced listener gets no changes");
+    }
+}
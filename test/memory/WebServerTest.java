@@ -12,7 +12,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
@@ -21,6 +27,9 @@ Testing Class for the WebServer
  */
 public class WebServerTest {
     
+    private static final long WAIT_MILLIS = 200;
+    private static final long TIMEOUT_SECONDS = 5;
+    
     // Testing strategy
     /*
      *      Testing partitions for watch:
@@ -138,6 +147,8 @@ public class WebServerTest {
             watchResponse += line + "\n";
             line = watchInput.readLine();
         }
+        // the watch gets the latest board when its change is delivered, which is
+        // after any of the changes of this flip: 1,1 down, 1,2 down, 2,1 up
         final String expectedWatch = "3x3\n" + 
                 "down\n" + 
                 "up B\n" + 
@@ -148,7 +159,19 @@ public class WebServerTest {
                 "down\n" + 
                 "down\n" + 
                 "down\n";
-        assertEquals(expectedWatch, watchResponse);
+        final String expectedBothDown = "3x3\n" + "down\n".repeat(9);
+        final String expectedFlipped = "3x3\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n" + 
+                "up B\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n";
+        assertTrue(Set.of(expectedWatch, expectedBothDown, expectedFlipped).contains(watchResponse),
+                "unexpected watch response " + watchResponse);
         parseResultedString(server, p1Flip11A);
         assertEquals(null, watchInput.readLine());
         server.stop();
@@ -229,7 +252,7 @@ public class WebServerTest {
      *              
      */
     @Test
-    public void testBlockingAndNotWinningCard() throws IOException {
+    public void testBlockingAndNotWinningCard() throws IOException, InterruptedException {
         Board board = makeBoard();
         final WebServer server = new WebServer(board, 0);
         server.start();
@@ -240,7 +263,7 @@ public class WebServerTest {
         // p2 tried to take locked card 1,1 A
         final URL p2Flip11A = new URL("http://localhost:" + 
                 server.port() + "/flip/p2/1,1");
-        p2Flip11A.openStream();
+        blockedFlip(server, p2Flip11A);
         // p1 takes second card match 1,3 A
         final URL p1Flip13A = new URL("http://localhost:" + 
                 server.port() + "/flip/p1/1,3");
@@ -248,7 +271,7 @@ public class WebServerTest {
         // p2 is still locked, trying to take another card 2,1 B
         final URL p2Flip13A = new URL("http://localhost:" + 
                 server.port() + "/flip/p2/1,3");
-        p2Flip13A.openStream();
+        blockedFlip(server, p2Flip13A);
         final URL p2Look = new URL("http://localhost:" +  
                 server.port() + "/look/p2");
         final String actualP2LookString = parseResultedString(server, p2Look);
@@ -315,7 +338,7 @@ public class WebServerTest {
      * 
      */
     @Test
-    public void testBlockingAndWinningCard() throws IOException {
+    public void testBlockingAndWinningCard() throws Exception {
         Board board = makeBoard();
         final WebServer server = new WebServer(board, 0);
         server.start();
@@ -324,10 +347,22 @@ public class WebServerTest {
         parseResultedString(server, p1Flip11A);
         final URL p2Flip11A = new URL("http://localhost:" + 
                 server.port() + "/flip/p2/1,1");
-        p2Flip11A.openStream();
+        final CompletableFuture<String> p2Blocked = blockedFlip(server, p2Flip11A);
         final URL p1Flip21B = new URL("http://localhost:" + 
                 server.port() + "/flip/p1/2,1");
         parseResultedString(server, p1Flip21B);
+        // 2E: p1 gives up 1,1, handed over to p2 whose flip is only answered now
+        final String expectedHandedOver = "3x3\n" + 
+                "my A\n" + 
+                "down\n" + 
+                "down\n" + 
+                "up B\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n" + 
+                "down\n";
+        assertEquals(expectedHandedOver, p2Blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
         final URL p2Flip13A = new URL("http://localhost:" + 
                 server.port() + "/flip/p2/1,3");
         final String actualBoardString = parseResultedString(server, p2Flip13A);
@@ -653,6 +688,328 @@ public class WebServerTest {
         server.stop();
     }
     
+    /*
+     *      Testing partitions for watch since a version:
+     *          Input:
+     *              since: 0, current version, older version, not a number
+     *          Output:
+     *              full board at once for since=0
+     *              changed cards after the next change for current version
+     *              changed cards at once for an older version
+     *              error for an invalid version
+     */
+    @Test
+    public void testWatchSince() throws IOException {
+        Board board = makeBoard();
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final String base = "http://localhost:" + server.port();
+        parseResultedString(server, new URL(base + "/flip/p1/1,1"));
+        final String full = parseResultedString(server, new URL(base + "/watch/p2?since=0"));
+        assertEquals("full 1\n3x3\nup A\n" + "down\n".repeat(8), full);
+        final InputStream watchInputStream = new URL(base + "/watch/p2?since=1").openStream();
+        final BufferedReader watchInput = new BufferedReader(new InputStreamReader(watchInputStream, UTF_8));
+        parseResultedString(server, new URL(base + "/flip/p1/1,2"));
+        assertEquals("delta 2", watchInput.readLine());
+        assertEquals("1,2 up B", watchInput.readLine());
+        assertEquals(null, watchInput.readLine());
+        final String older = parseResultedString(server, new URL(base + "/watch/p1?since=1"));
+        assertEquals("delta 2\n1,2 up B\n", older);
+        assertThrows(IOException.class, () -> new URL(base + "/watch/p1?since=x").openStream(),
+                "since must be a version");
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for look with If-None-Match:
+     *          Input:
+     *              tag: missing, current, outdated by a change, outdated by control
+     *          Output:
+     *              304 without body for the current tag
+     *              200 with the board and a new tag otherwise
+     */
+    @Test
+    public void testLookNotModified() throws IOException {
+        Board board = makeBoard();
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final String base = "http://localhost:" + server.port();
+        final URL look = new URL(base + "/look/p1");
+        HttpURLConnection first = (HttpURLConnection) look.openConnection();
+        assertEquals(200, first.getResponseCode());
+        final String etag = first.getHeaderField("ETag");
+        assertTrue(etag != null && etag.startsWith("\""), "look should have a strong ETag");
+        first.getInputStream().close();
+        
+        HttpURLConnection same = (HttpURLConnection) look.openConnection();
+        same.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, same.getResponseCode(), "nothing changed");
+        
+        parseResultedString(server, new URL(base + "/flip/p2/1,1"));
+        HttpURLConnection changed = (HttpURLConnection) look.openConnection();
+        changed.setRequestProperty("If-None-Match", etag);
+        assertEquals(200, changed.getResponseCode(), "a card turned up");
+        final String changedTag = changed.getHeaderField("ETag");
+        changed.getInputStream().close();
+        
+        // p2 releases 1,1 by 2B, p1 takes it by 1C: the board version stays the same
+        parseResultedString(server, new URL(base + "/flip/p2/1,1"));
+        parseResultedString(server, new URL(base + "/flip/p1/1,1"));
+        HttpURLConnection controlled = (HttpURLConnection) look.openConnection();
+        controlled.setRequestProperty("If-None-Match", changedTag);
+        assertEquals(200, controlled.getResponseCode(), "p1 controls a card now");
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for look with If-None-Match racing a flip:
+     *          Input:
+     *              tag: taken while a card is turned
+     *          Output:
+     *              304 only if the board sent with the tag shows the card turned,
+     *              once the flip returned
+     */
+    @Test
+    public void testLookNotModifiedRacingFlip() throws IOException, InterruptedException {
+        final Board board = Board.generateRandom(8, 8, Set.of("A", "B", "C", "D"));
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final URL look = new URL("http://localhost:" + server.port() + "/look/viewer");
+        String body = "";
+        String etag = "\"none\"";
+        for (int card = 0; card < board.getRows() * board.getCols(); card++) {
+            final Player player = new Player("p" + card);
+            final int row = card / board.getCols();
+            final int col = card % board.getCols();
+            final Thread flip = new Thread(() -> {
+                try {
+                    board.flipCard(player, row, col);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            flip.start();
+            boolean flipped;
+            do {
+                flipped = !flip.isAlive();
+                final HttpURLConnection conditional = (HttpURLConnection) look.openConnection();
+                conditional.setRequestProperty("If-None-Match", etag);
+                if (conditional.getResponseCode() == 200) {
+                    etag = conditional.getHeaderField("ETag");
+                    body = new String(conditional.getInputStream().readAllBytes(), UTF_8);
+                } else {
+                    assertEquals(304, conditional.getResponseCode());
+                }
+            } while (!flipped);
+            flip.join();
+            assertTrue(body.split("\n")[card + 1].startsWith("up "),
+                    "card " + card + " turned in the board sent with " + etag);
+        }
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for /g/GAME/...:
+     *          Input:
+     *              game: new, already used, other game
+     *              games pinned to event loops: yes, no
+     *              request: look, flip, scores, invalid
+     *          Output:
+     *              each game has its own board and players, 404 for invalid requests
+     */
+    @Test
+    public void testGames() throws IOException {
+        for (GameLoops loops : new GameLoops[] { null, new GameLoops(2, GameLoops.REBALANCE_MILLIS) }) {
+            Board board = makeBoard();
+            final WebServer server = new WebServer(board, new RoomRegistry(board::newGame, 60_000, loops), loops,
+                    0, Execution.CACHED, Execution.DEFAULT_THREADS, 0);
+            server.start();
+            final String base = "http://localhost:" + server.port();
+            assertEquals("3x3\nmy A\n" + "down\n".repeat(8),
+                    parseResultedString(server, new URL(base + "/g/one/flip/p1/1,1")));
+            assertEquals("3x3\nup A\n" + "down\n".repeat(8),
+                    parseResultedString(server, new URL(base + "/g/one/look/p2")));
+            assertEquals("3x3\n" + "down\n".repeat(9),
+                    parseResultedString(server, new URL(base + "/g/two/look/p1")), "another game");
+            assertEquals("3x3\n" + "down\n".repeat(9),
+                    parseResultedString(server, new URL(base + "/look/p1")), "the main game");
+            assertEquals("p1 0\n", parseResultedString(server, new URL(base + "/g/one/scores")));
+            assertThrows(IOException.class, () -> new URL(base + "/g/one/jump/p1").openStream(),
+                    "not a request");
+            assertThrows(IOException.class, () -> new URL(base + "/g/o-ne/look/p1").openStream(),
+                    "not a game id");
+            server.stop();
+            if (loops != null) {
+                loops.shutdown();
+            }
+        }
+    }
+    
+    /*
+     *      Testing partitions for /scores?...:
+     *          Input:
+     *              parameters: none, top, offset and limit, offset only, invalid
+     *              players with the same score: 1, >1
+     *          Output:
+     *              players by score from highest, ties by id, only the page asked
+     *              for, 404 for invalid parameters
+     */
+    @Test
+    public void testScoresRanked() throws IOException {
+        Board board = makeBoard();
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final String base = "http://localhost:" + server.port();
+        for (String flip : new String[] { "/flip/p3/1,1", "/flip/p3/1,3", "/flip/p1/1,2", "/flip/p1/2,1",
+                                          "/flip/p2/2,2" }) {
+            parseResultedString(server, new URL(base + flip));
+        }
+        assertEquals("p1 1\np3 1\np2 0\n", parseResultedString(server, new URL(base + "/scores")),
+                "highest score first, ties by id");
+        assertEquals("p1 1\n", parseResultedString(server, new URL(base + "/scores?top=1")));
+        assertEquals("p3 1\n", parseResultedString(server, new URL(base + "/scores?offset=1&limit=1")));
+        assertEquals("p2 0\n", parseResultedString(server, new URL(base + "/scores?offset=2")));
+        assertEquals("", parseResultedString(server, new URL(base + "/scores?top=0")));
+        assertThrows(IOException.class, () -> new URL(base + "/scores?top=-1").openStream(),
+                "not a count");
+        assertThrows(IOException.class, () -> new URL(base + "/scores?rank=1").openStream(),
+                "not a parameter");
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for /watchScores:
+     *          Input:
+     *              query: none, since=0, since=a version, invalid
+     *              points scored: before the request, after the request
+     *          Output:
+     *              delta of the players who scored with the places they climbed,
+     *              full ranking for since=0, 404 for an invalid query
+     */
+    @Test
+    public void testWatchScores() throws IOException {
+        Board board = makeBoard();
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final String base = "http://localhost:" + server.port();
+        parseResultedString(server, new URL(base + "/flip/p3/1,1"));
+        parseResultedString(server, new URL(base + "/flip/p3/1,3"));
+        parseResultedString(server, new URL(base + "/flip/p1/1,2"));
+        // waits for the next points scored
+        final InputStream watchInputStream = new URL(base + "/watchScores").openStream();
+        final BufferedReader watchInput = new BufferedReader(new InputStreamReader(watchInputStream, UTF_8));
+        // p1 catches up with p3
+        parseResultedString(server, new URL(base + "/flip/p1/2,1"));
+        assertEquals("delta 2", watchInput.readLine());
+        assertEquals("p1 1 +1", watchInput.readLine(), "p1 climbed to share the first place");
+        assertEquals(null, watchInput.readLine());
+        assertEquals("delta 2\np1 1 +1\n", parseResultedString(server, new URL(base + "/watchScores?since=1")));
+        assertEquals("full 2\np1 1\np3 1\n", parseResultedString(server, new URL(base + "/watchScores?since=0")));
+        assertThrows(IOException.class, () -> new URL(base + "/watchScores?since=x").openStream(),
+                "not a version");
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for the execution models:
+     *          Input:
+     *              execution: BOUNDED, WORK_STEALING
+     *              threads: 1
+     *              flip blocked by rule 1D: yes
+     *          Output:
+     *              a blocked flip holds no thread, the flip releasing its card is
+     *              served, and stop() ends the request threads
+     */
+    @Test
+    public void testBoundedExecutions() throws Exception {
+        for (Execution execution : new Execution[] { Execution.BOUNDED, Execution.WORK_STEALING }) {
+            Board board = makeBoard();
+            final WebServer server = new WebServer(board, new PlayerRegistry(), null, null, 0, execution, 1, 1);
+            server.start();
+            final String base = "http://localhost:" + server.port();
+            parseResultedString(server, new URL(base + "/flip/p1/1,1"));
+            final CompletableFuture<String> p2Blocked = blockedFlip(server, new URL(base + "/flip/p2/1,1"));
+            // served by the only thread while p2 waits for 1,1
+            parseResultedString(server, new URL(base + "/flip/p1/2,1"));
+            assertTrue(p2Blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).startsWith("3x3\nmy A\n"),
+                    execution + ": 1,1 handed over to p2");
+            server.stop();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (!server.isTerminated() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(server.isTerminated(), execution + ": stop() ends the request threads");
+        }
+    }
+    
+    /*
+     *      Testing partitions for the execution models:
+     *          Input:
+     *              execution: VIRTUAL
+     *              Java version: < 21, >= 21
+     *          Output:
+     *              UnsupportedOperationException naming the Java version required
+     *              before 21, a working server otherwise
+     */
+    @Test
+    public void testVirtualExecution() throws IOException {
+        Board board = makeBoard();
+        if (Runtime.version().feature() < 21) {
+            final UnsupportedOperationException unsupported = assertThrows(UnsupportedOperationException.class,
+                    () -> new WebServer(board, new PlayerRegistry(), null, null, 0, Execution.VIRTUAL, 1, 0));
+            assertTrue(unsupported.getMessage().contains("Java 21"), unsupported.getMessage());
+            return;
+        }
+        final WebServer server = new WebServer(board, new PlayerRegistry(), null, null, 0, Execution.VIRTUAL, 1, 0);
+        server.start();
+        assertEquals("3x3\nmy A\n" + "down\n".repeat(8),
+                parseResultedString(server, new URL("http://localhost:" + server.port() + "/flip/p1/1,1")));
+        server.stop();
+    }
+    
+    /*
+     *      Testing partitions for flip failing:
+     *          Input:
+     *              flip completes: on the request thread, on another thread
+     *          Output:
+     *              500 without the board
+     */
+    @Test
+    public void testFlipFailed() throws IOException {
+        Board board = Board.parseFromFile("boards/squareAB.txt", Engine.ACTOR);
+        final Path file = Files.createTempFile("flips", ".log");
+        file.toFile().deleteOnExit();
+        // the engine fails every flip it cannot log
+        FlipLog.open(file, board, new PlayerRegistry(), 0, false).close();
+        final WebServer server = new WebServer(board, 0);
+        server.start();
+        final URL flip = new URL("http://localhost:" + server.port() + "/flip/p1/1,1");
+        HttpURLConnection failed = (HttpURLConnection) flip.openConnection();
+        assertEquals(500, failed.getResponseCode());
+        server.stop();
+    }
+    
+    /*
+     * Request a flip which must block by rule 1D on another thread, its response
+     * is only sent once the card is handed over
+     * @return the response to the flip
+     */
+    private static CompletableFuture<String> blockedFlip(WebServer server, URL url) throws InterruptedException {
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                response.complete(parseResultedString(server, url));
+            } catch (IOException e) {
+                response.completeExceptionally(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        thread.join(WAIT_MILLIS);
+        assertTrue(thread.isAlive(), url + " should be blocked");
+        return response;
+    }
+    
     private static Board makeBoard() throws IOException{
         return Board.parseFromFile("boards/squareAB.txt");
     }
@@ -0,0 +1,197 @@
+package memory.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import memory.Board;
+import memory.Engine;
+import memory.Player;
+import memory.PlayerRegistry;
+
+/**
+ * Testing class for FlipRecorder, Recording and FlipReplayer
+ */
+public class FlipReplayerTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for FlipRecorder.record(), Recording.read(file):
+     *      Input:
+     *          flips: none, some, by new and known players, by many threads at once
+     *          file: whole, cut within the last flip
+     *
+     *      Output:
+     *          the flips in order with non decreasing times, the last flip dropped
+     *          if cut, every flip recorded even when the writer falls behind
+     *
+     *  Testing strategy for replay(recording, board, players, threads, speed):
+     *      Input:
+     *          speed: 0, > 0
+     *          threads: 1, > 1
+     *          board: of the size of the recording, of another size
+     *
+     *      Output:
+     *          every flip completed, the board and players as when recorded, at
+     *          speed > 0 not before the recorded time of the last flip,
+     *          IllegalArgumentException for a board of another size
+     */
+    private static final String BOARD = "boards/perfect.txt";
+
+    private static Path tempFile() throws IOException {
+        final Path file = Files.createTempFile("flips", ".rec");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /*
+     * Record alice matching (0,0) and (0,1), bob taking (0,2) then alice removing
+     * her pair and taking (1,1), with a pause of pauseMillis before the last flip,
+     * then bob flipping (2,2) unrecorded
+     * @return the board as seen by alice after the flips recorded
+     */
+    private static String record(Path file, PlayerRegistry players, long pauseMillis)
+            throws IOException, InterruptedException {
+        final Board board = Board.parseFromFile(BOARD, Engine.MONITOR);
+        try (FlipRecorder recorder = new FlipRecorder(file, board.getRows(), board.getCols())) {
+            board.setRecorder(recorder);
+            final Player alice = players.player("alice");
+            final Player bob = players.player("bob");
+            board.flipCard(alice, 0, 0);
+            board.flipCard(alice, 0, 1);
+            board.flipCard(bob, 0, 2);
+            Thread.sleep(pauseMillis);
+            board.flipCard(alice, 1, 1);
+            final String recorded = board.webString(alice);
+            board.setRecorder(null);
+            board.flipCard(bob, 2, 2);
+            return recorded;
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flips some, by new and known players
+     *      file whole, cut within the last flip
+     */
+    @Test
+    public void testRecord() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        record(file, new PlayerRegistry(), 0);
+        final Recording recording = Recording.read(file);
+        assertEquals(3, recording.getRows());
+        assertEquals(3, recording.getCols());
+        assertEquals(List.of("alice", "bob"), recording.playerIds());
+        assertEquals(4, recording.size(), "flips after the recorder was removed are not recorded");
+        final int[][] flips = { { 0, 0, 0 }, { 0, 0, 1 }, { 1, 0, 2 }, { 0, 1, 1 } };
+        for (int flip = 0; flip < flips.length; flip++) {
+            assertEquals(flips[flip][0], recording.player(flip));
+            assertEquals(flips[flip][1], recording.row(flip));
+            assertEquals(flips[flip][2], recording.col(flip));
+            assertTrue(flip == 0 || recording.nanos(flip) >= recording.nanos(flip - 1), "times in order");
+        }
+
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertEquals(3, Recording.read(file).size(), "cut flip dropped");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flips by many threads at once
+     */
+    @Test
+    public void testRecordConcurrently() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        final int threads = 8;
+        // more flips than the queue of the recorder holds
+        final int flips = 20000;
+        final PlayerRegistry players = new PlayerRegistry();
+        try (FlipRecorder recorder = new FlipRecorder(file, flips, threads)) {
+            final List<Thread> flipping = new ArrayList<>();
+            for (int ii = 0; ii < threads; ii++) {
+                final int col = ii;
+                final Player player = players.player("p" + ii);
+                flipping.add(new Thread(() -> {
+                    for (int row = 0; row < flips; row++) {
+                        recorder.record(player, row, col);
+                    }
+                }));
+            }
+            flipping.forEach(Thread::start);
+            for (Thread thread : flipping) {
+                thread.join();
+            }
+        }
+        final Recording recording = Recording.read(file);
+        assertEquals(threads * flips, recording.size(), "every flip recorded");
+        final int[] next = new int[threads];
+        for (int flip = 0; flip < recording.size(); flip++) {
+            final int col = recording.col(flip);
+            assertEquals("p" + col, recording.playerIds().get(recording.player(flip)));
+            assertEquals(next[col]++, recording.row(flip), "flips of a player in order");
+            assertTrue(flip == 0 || recording.nanos(flip) >= recording.nanos(flip - 1), "times in order");
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      flips none
+     *      speed 0
+     *      threads 1, > 1
+     *      board of the size of the recording, of another size
+     */
+    @Test
+    public void testReplayMaxSpeed() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        final String recorded = record(file, new PlayerRegistry(), 0);
+        final Recording recording = Recording.read(file);
+        for (int threads : new int[] { 1, 4 }) {
+            final Board replayed = Board.parseFromFile(BOARD, Engine.MONITOR);
+            final PlayerRegistry players = new PlayerRegistry();
+            final FlipReplayer.Report report = FlipReplayer.replay(recording, replayed, players, threads, 0);
+            assertEquals(4, report.flips());
+            assertEquals(0, report.failures());
+            assertEquals(0, report.unfinished());
+            assertEquals(4, report.latencies().count());
+            final Player alice = players.player("alice");
+            assertEquals(1, alice.getScore());
+            assertEquals(recorded, replayed.webString(alice));
+        }
+
+        final Path empty = tempFile();
+        new FlipRecorder(empty, 3, 3).close();
+        final Recording none = Recording.read(empty);
+        assertEquals(0, none.size());
+        assertEquals(0, FlipReplayer.replay(none, Board.parseFromFile(BOARD), new PlayerRegistry(), 1, 0).flips());
+        assertThrows(IllegalArgumentException.class, () -> FlipReplayer.replay(recording,
+                Board.generateRandom(2, 2, Set.of("A")), new PlayerRegistry(), 1, 0));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      speed > 0
+     *      threads > 1
+     */
+    @Test
+    public void testReplayTimeScaled() throws IOException, InterruptedException {
+        final Path file = tempFile();
+        record(file, new PlayerRegistry(), 200);
+        final Recording recording = Recording.read(file);
+        assertTrue(recording.nanos(3) >= 200_000_000L, "pause recorded");
+        final FlipReplayer.Report report = FlipReplayer.replay(recording, Board.parseFromFile(BOARD, Engine.MONITOR),
+                new PlayerRegistry(), 2, 2);
+        assertEquals(4, report.flips());
+        assertTrue(report.nanos() >= recording.nanos(3) / 2, "paced at twice the recorded speed");
+    }
+}
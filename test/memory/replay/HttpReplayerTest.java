@@ -0,0 +1,96 @@
+package memory.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import memory.Board;
+import memory.WebServer;
+import memory.web.CaptureFilter;
+import memory.web.HttpCapture;
+
+/**
+ * Testing class for HttpReplayer
+ */
+public class HttpReplayerTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for replay(capture, base, speed):
+     *      Input:
+     *          requests: look, flip, scores, watch
+     *          flips of a player: 1, > 1
+     *          speed: 1, > 1
+     *
+     *      Output:
+     *          every game request answered with the code captured against a server
+     *          of the same board, with their latencies by kind
+     *          of request
+     */
+    private static final String BOARD = "boards/squareAB.txt";
+
+    private static void get(String url) throws IOException {
+        try (InputStream body = new URL(url).openStream()) {
+            body.readAllBytes();
+        }
+    }
+
+    /*
+     * Test covers following partitions:
+     *      requests look, flip, scores, watch
+     *      flips of a player 1, > 1
+     *      speed 1, > 1
+     */
+    @Test
+    public void testReplay() throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("capture");
+        directory.toFile().deleteOnExit();
+        final Path prefix = directory.resolve("requests");
+        final WebServer captured = new WebServer(Board.parseFromFile(BOARD), 0);
+        final CaptureFilter capture = new CaptureFilter(prefix, 1 << 20, 1);
+        captured.addFilter(capture);
+        captured.start();
+        final String base = "http://localhost:" + captured.port();
+        final Thread watch = new Thread(() -> {
+            try {
+                get(base + "/watch/p2");
+            } catch (IOException ioe) {
+                throw new AssertionError(ioe);
+            }
+        });
+        watch.start();
+        Thread.sleep(100);
+        get(base + "/look/p1");
+        get(base + "/flip/p1/1,1");
+        get(base + "/flip/p2/2,2");
+        get(base + "/flip/p1/1,2");
+        get(base + "/scores");
+        watch.join();
+        captured.stop();
+        capture.close();
+        final HttpCapture requests = HttpCapture.read(prefix);
+        assertEquals(6, requests.size());
+
+        for (double speed : new double[] { 1, 5 }) {
+            final WebServer server = new WebServer(Board.parseFromFile(BOARD), 0);
+            server.start();
+            final HttpReplayer.Report report = HttpReplayer.replay(requests,
+                    URI.create("http://localhost:" + server.port()), speed);
+            server.stop();
+            assertEquals(6, report.responses());
+            assertEquals(0, report.failures());
+            assertEquals(0, report.mismatches());
+            assertEquals(3, report.latencies().get("flip").count());
+            assertEquals(1, report.latencies().get("watch").count());
+            assertTrue(report.nanos() >= 100_000_000 / speed * 0.9, "paced as captured");
+        }
+    }
+}
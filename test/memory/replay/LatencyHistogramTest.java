@@ -0,0 +1,65 @@
+package memory.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing class for LatencyHistogram
+ */
+public class LatencyHistogramTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for record(nanos), count(), max(), quantile(q):
+     *      Input:
+     *          latencies: none, below 16ns, up to Long.MAX_VALUE, negative
+     *          q: 0, 0 < q < 1, 1
+     *
+     *      Output:
+     *          count and max of the latencies, a quantile at least the exact one,
+     *          within 12.5% of it and at most max, 0 if none
+     */
+
+    /*
+     * Test covers following partitions:
+     *      latencies none, below 16ns, negative
+     *      q 0, 1
+     */
+    @Test
+    public void testSmall() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.quantile(0.5));
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(7);
+        assertEquals(3, histogram.count());
+        assertEquals(7, histogram.max());
+        assertEquals(0, histogram.quantile(0));
+        assertEquals(3, histogram.quantile(0.5));
+        assertEquals(7, histogram.quantile(1));
+    }
+
+    /*
+     * Test covers following partitions:
+     *      latencies up to Long.MAX_VALUE
+     *      q 0 < q < 1, 1
+     */
+    @Test
+    public void testLarge() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        for (double q : new double[] { 0.01, 0.5, 0.99, 0.999 }) {
+            final long exact = (long) Math.ceil(q * 100_000) * 1000;
+            final long quantile = histogram.quantile(q);
+            assertTrue(quantile >= exact && quantile <= exact * 1.125, q + ": " + quantile);
+        }
+        assertEquals(100_000_000, histogram.quantile(1));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.quantile(1));
+    }
+}
@@ -0,0 +1,132 @@
+package memory.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import memory.Board;
+import memory.WebServer;
+
+/**
+ * Testing class for CaptureFilter and HttpCapture
+ */
+public class CaptureFilterTest {
+
+    // Testing strategy
+    /*
+     *  Testing strategy for CaptureFilter(prefix, segmentBytes, segments), close(),
+     *  HttpCapture.read(prefix):
+     *      Input:
+     *          requests: look, flip, scores, an error
+     *          segments written: 1, more than kept
+     *          last segment: whole, cut within a capture
+     *
+     *      Output:
+     *          method, URI and response code of every request answered in the
+     *          segments kept, in order, a cut capture dropped, at most segments
+     *          segments
+     */
+
+    /*
+     * @return a prefix of segments in a new directory
+     */
+    private static Path tempPrefix() throws IOException {
+        final Path directory = Files.createTempDirectory("capture");
+        directory.toFile().deleteOnExit();
+        return directory.resolve("requests");
+    }
+
+    /*
+     * Send a GET request and read its response
+     * @return the response code
+     */
+    private static int get(WebServer server, String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + server.port() + path).openConnection();
+        final int code = connection.getResponseCode();
+        try (InputStream body = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) {
+                body.readAllBytes();
+            }
+        }
+        return code;
+    }
+
+    /*
+     * Test covers following partitions:
+     *      requests look, flip, scores, an error
+     *      segments written 1
+     *      last segment whole, cut within a capture
+     */
+    @Test
+    public void testCapture() throws IOException {
+        final Path prefix = tempPrefix();
+        final WebServer server = new WebServer(Board.parseFromFile("boards/squareAB.txt"), 0);
+        final CaptureFilter capture = new CaptureFilter(prefix, 1 << 20, 4);
+        server.addFilter(capture);
+        server.start();
+        final List<String> paths = List.of("/look/p1", "/flip/p1/1,1", "/scores", "/look/!");
+        for (String path : paths) {
+            get(server, path);
+        }
+        server.stop();
+        capture.close();
+        assertEquals(0, capture.dropped());
+
+        final HttpCapture captured = HttpCapture.read(prefix);
+        assertEquals(paths.size(), captured.size());
+        for (int request = 0; request < paths.size(); request++) {
+            assertEquals(paths.get(request), captured.uri(request));
+            assertEquals("GET", captured.method(request));
+            assertTrue(captured.latency(request) >= 0);
+            assertTrue(request == 0 || captured.micros(request) >= captured.micros(request - 1), "in order");
+        }
+        assertEquals(200, captured.code(1));
+        assertEquals(404, captured.code(3));
+
+        final Path segment = CaptureFilter.segments(prefix).get(0);
+        final byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 2));
+        assertEquals(paths.size() - 1, HttpCapture.read(prefix).size(), "cut capture dropped");
+    }
+
+    /*
+     * Test covers following partitions:
+     *      requests look
+     *      segments written more than kept
+     *      last segment whole
+     */
+    @Test
+    public void testRotation() throws IOException, InterruptedException {
+        final Path prefix = tempPrefix();
+        final WebServer server = new WebServer(Board.parseFromFile("boards/squareAB.txt"), 0);
+        final CaptureFilter capture = new CaptureFilter(prefix, 64, 2);
+        server.addFilter(capture);
+        server.start();
+        for (int request = 0; request < 50; request++) {
+            get(server, "/look/p" + request);
+            // let the writer catch up, so that segments fill up one after the other
+            Thread.sleep(2);
+        }
+        server.stop();
+        capture.close();
+
+        final List<Path> segments = CaptureFilter.segments(prefix);
+        assertTrue(segments.size() <= 2, "only the latest segments kept");
+        assertTrue(segments.get(segments.size() - 1).getFileName().toString().compareTo("requests.000002") > 0,
+                "segments rotated");
+        final HttpCapture captured = HttpCapture.read(prefix);
+        assertTrue(captured.size() > 0 && captured.size() < 50, "oldest requests deleted");
+        assertEquals("/look/p49", captured.uri(captured.size() - 1));
+    }
+}